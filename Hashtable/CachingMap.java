@@ -0,0 +1,740 @@
+import java.util.AbstractMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.ToIntFunction;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Bounded cache implementing MapADT. Entries are found through a HashtableMap index (so lookups of
+ * hot keys stay O(1)) and are additionally linked into recency-ordered queues that decide which
+ * entry to evict once the total weight of the cache exceeds its maximum. Two eviction policies are
+ * supported:
+ *   LRU: evicts the least recently used entry.
+ *   W_TINY_LFU: new entries enter a small LRU window; entries leaving the window only displace an
+ *     entry of the main (segmented LRU) region if a frequency sketch says they have been used more
+ *     often, which keeps one-off scans from flushing frequently used entries.
+ * Entries can optionally expire a fixed time after they were written.
+ */
+public class CachingMap<KeyType, ValueType> implements MapADT<KeyType, ValueType> {
+
+  public enum EvictionPolicy { LRU, W_TINY_LFU }
+
+  // the queues an entry can be in (LRU mode only uses WINDOW)
+  private static final int WINDOW = 0;
+  private static final int PROBATION = 1;
+  private static final int PROTECTED = 2;
+
+  /**
+   * Entry of the cache, linked into one of the circular, doubly linked queues. The head sentinel's
+   * next entry is the least recently used one in that queue.
+   */
+  protected class CacheEntry {
+
+    public KeyType key;
+    public ValueType value;
+    public int weight;
+    public long writeTime;
+    public int queue;
+    public CacheEntry previous = this;
+    public CacheEntry next = this;
+
+    public CacheEntry(KeyType key, ValueType value, int weight, long writeTime) {
+      this.key = key;
+      this.value = value;
+      this.weight = weight;
+      this.writeTime = writeTime;
+    }
+
+  }
+
+  /**
+   * Count-min sketch of 4-bit counters that estimates how often each key has been used recently.
+   * Every counter is halved once the number of recorded uses reaches ten times the table size, so
+   * that keys which used to be popular age out. The table starts small and is doubled as the cache
+   * holds more entries, since the maximum weight of a cache says nothing about how many entries
+   * it will hold when values weigh more than 1.
+   */
+  protected static class FrequencySketch {
+
+    private static final int MAXIMUM_COUNTERS = 1 << 24;
+
+    private long[] table; // sixteen 4-bit counters per long
+    private int counters; // number of entries the table is sized for
+    private int sampleSize;
+    private int additions;
+
+    public FrequencySketch(int expectedEntries) {
+      allocateHelper(expectedEntries);
+    }
+
+    private void allocateHelper(int expectedEntries) {
+      counters = Integer.highestOneBit(Math.max(16, Math.min(expectedEntries, MAXIMUM_COUNTERS)));
+      table = new long[counters * 2 / 16]; // roughly two counters per cached entry
+      sampleSize = 10 * counters;
+      additions = 0;
+    }
+
+    /**
+     * Grows the table once the cache holds more entries than it is sized for. The counts recorded
+     * so far are dropped, which is cheap compared to the doubling it is amortized over.
+     * @param entries the number of entries in the cache
+     */
+    public void ensureCapacity(int entries) {
+      if (entries > counters && counters < MAXIMUM_COUNTERS) {
+        allocateHelper(entries * 2);
+      }
+    }
+
+    private int counterIndex(int hash, int row) {
+      int mixed = (hash + row * 0x9E3779B9) * 0x85EBCA6B;
+      return ((mixed ^ (mixed >>> 15)) & 0x7fffffff) % (table.length * 16);
+    }
+
+    public int frequency(Object key) {
+      int hash = key.hashCode();
+      int frequency = 15;
+      for (int row = 0; row < 4; row++) {
+        int index = counterIndex(hash, row);
+        frequency = Math.min(frequency, (int) (table[index >>> 4] >>> ((index & 15) << 2)) & 15);
+      }
+      return frequency;
+    }
+
+    public void increment(Object key) {
+      int hash = key.hashCode();
+      for (int row = 0; row < 4; row++) {
+        int index = counterIndex(hash, row);
+        int shift = (index & 15) << 2;
+        if (((table[index >>> 4] >>> shift) & 15) != 15) {
+          table[index >>> 4] += 1L << shift;
+        }
+      }
+      if (++additions == sampleSize) {
+        // halve every counter at once: shift right and clear the bit pulled in from the neighbour
+        for (int i = 0; i < table.length; i++) {
+          table[i] = (table[i] >>> 1) & 0x7777777777777777L;
+        }
+        additions /= 2;
+      }
+    }
+
+  }
+
+  private final HashtableMap<KeyType, CacheEntry> index = new HashtableMap<>();
+  private final EvictionPolicy policy;
+  private final long maximumWeight;
+  private final ToIntFunction<? super ValueType> weigher;
+  private final long expireAfterWriteNanos; // 0 when entries never expire
+  private final LongSupplier ticker;
+  private final FrequencySketch sketch; // null in LRU mode
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private final CacheEntry[] queues = (CacheEntry[]) new CachingMap.CacheEntry[3]; // sentinels
+  private final long[] queueWeights = new long[3];
+  private final long windowMaximum;
+  private final long protectedMaximum;
+  private long totalWeight;
+
+  private long hitCount;
+  private long missCount;
+  private long evictionCount;
+  private long expirationCount;
+
+  /**
+   * constructor that creates a cache bounded by total weight
+   * @param maximumWeight the largest total weight of the entries the cache keeps
+   * @param policy which entry to evict when the maximum weight is exceeded
+   * @param weigher computes the weight of each value, which must be non-negative
+   * @param expireAfterWriteNanos how long after being written an entry expires, or 0 for never
+   * @param ticker source of the current time in nanoseconds
+   */
+  public CachingMap(long maximumWeight, EvictionPolicy policy,
+      ToIntFunction<? super ValueType> weigher, long expireAfterWriteNanos, LongSupplier ticker) {
+    if (maximumWeight <= 0) {
+      throw new IllegalArgumentException("maximum weight must be positive");
+    }
+    this.maximumWeight = maximumWeight;
+    this.policy = policy;
+    this.weigher = weigher;
+    this.expireAfterWriteNanos = expireAfterWriteNanos;
+    this.ticker = ticker;
+    for (int i = 0; i < queues.length; i++) {
+      queues[i] = new CacheEntry(null, null, 0, 0);
+    }
+    if (policy == EvictionPolicy.W_TINY_LFU) {
+      // 1% window, and 80% of the main region protected from probation
+      windowMaximum = Math.max(1, maximumWeight / 100);
+      protectedMaximum = (maximumWeight - windowMaximum) * 4 / 5;
+      sketch = new FrequencySketch(16); // grown by put as entries are added
+    } else {
+      windowMaximum = maximumWeight;
+      protectedMaximum = 0;
+      sketch = null;
+    }
+  }
+
+  /**
+   * constructor that creates a cache holding at most maximumSize entries, which never expire
+   * @param maximumSize the largest number of entries the cache keeps
+   * @param policy which entry to evict when the maximum size is exceeded
+   */
+  public CachingMap(int maximumSize, EvictionPolicy policy) {
+    this(maximumSize, policy, value -> 1, 0, System::nanoTime);
+  }
+
+  private void unlink(CacheEntry entry) {
+    entry.previous.next = entry.next;
+    entry.next.previous = entry.previous;
+    queueWeights[entry.queue] -= entry.weight;
+  }
+
+  private void linkLast(CacheEntry entry, int queue) {
+    CacheEntry head = queues[queue];
+    entry.queue = queue;
+    entry.previous = head.previous;
+    entry.next = head;
+    head.previous.next = entry;
+    head.previous = entry;
+    queueWeights[queue] += entry.weight;
+  }
+
+  private CacheEntry first(int queue) {
+    return queues[queue].next == queues[queue] ? null : queues[queue].next;
+  }
+
+  private boolean isExpired(CacheEntry entry) {
+    return expireAfterWriteNanos > 0
+        && ticker.getAsLong() - entry.writeTime >= expireAfterWriteNanos;
+  }
+
+  private void discard(CacheEntry entry) {
+    unlink(entry);
+    index.remove(entry.key);
+    totalWeight -= entry.weight;
+  }
+
+  /**
+   * Looks up the live entry for key, discarding it first if it has expired
+   */
+  private CacheEntry findEntry(KeyType key) {
+    CacheEntry entry = index.getOrNull(key);
+    if (entry != null && isExpired(entry)) {
+      discard(entry);
+      expirationCount++;
+      return null;
+    }
+    return entry;
+  }
+
+  /**
+   * Records a use of an entry that was found in the cache, moving it to the most recently used end
+   * of its queue (or promoting it from probation to protected)
+   */
+  private void recordHit(CacheEntry entry) {
+    hitCount++;
+    if (sketch != null) {
+      sketch.increment(entry.key);
+    }
+    unlink(entry);
+    if (entry.queue == PROBATION) {
+      linkLast(entry, PROTECTED);
+      // keep the protected segment within its share by demoting its least recently used entries
+      while (queueWeights[PROTECTED] > protectedMaximum) {
+        CacheEntry demoted = first(PROTECTED);
+        unlink(demoted);
+        linkLast(demoted, PROBATION);
+      }
+    } else {
+      linkLast(entry, entry.queue);
+    }
+  }
+
+  private void recordMiss(KeyType key) {
+    missCount++;
+    if (sketch != null) {
+      sketch.increment(key);
+    }
+  }
+
+  /**
+   * Evicts entries until the total weight is within the maximum
+   */
+  private void evictHelper() {
+    if (policy == EvictionPolicy.W_TINY_LFU) {
+      // entries that overflow the window become candidates at the end of probation
+      while (queueWeights[WINDOW] > windowMaximum) {
+        CacheEntry candidate = first(WINDOW);
+        unlink(candidate);
+        linkLast(candidate, PROBATION);
+      }
+    }
+    while (totalWeight > maximumWeight) {
+      CacheEntry victim = first(PROBATION);
+      CacheEntry candidate = queues[PROBATION].previous;
+      if (victim != null && victim != candidate) {
+        // admit the newest probation entry only if it is used more often than the oldest one
+        if (sketch.frequency(candidate.key) <= sketch.frequency(victim.key)) {
+          victim = candidate;
+        }
+      } else if (victim == null) {
+        victim = first(PROTECTED) != null ? first(PROTECTED) : first(WINDOW);
+      }
+      discard(victim);
+      evictionCount++;
+    }
+  }
+
+  /**
+   * Adds a new key,value pair/mapping to this cache, evicting other entries if the maximum weight
+   * is exceeded.
+   *
+   * @param key   the key of the key,value pair
+   * @param value the value that key maps to
+   * @throws IllegalArgumentException if key already maps to a value, or the weigher returns a
+   *                                  negative weight for value
+   * @throws NullPointerException     if key is null
+   */
+  @Override
+  public void put(KeyType key, ValueType value) throws IllegalArgumentException {
+    if (key == null) {
+      throw new NullPointerException("key is null");
+    } else if (findEntry(key) != null) {
+      throw new IllegalArgumentException("key already maps to a value");
+    }
+    int weight = weigh(value);
+    if (sketch != null) {
+      sketch.increment(key);
+    }
+    insertHelper(key, value, weight);
+  }
+
+  /**
+   * Computes the weight of a value
+   * @throws IllegalArgumentException if the weigher returns a negative weight
+   */
+  private int weigh(ValueType value) {
+    int weight = weigher.applyAsInt(value);
+    if (weight < 0) {
+      throw new IllegalArgumentException("weight is negative");
+    }
+    return weight;
+  }
+
+  /**
+   * Adds an entry for a key that is known not to be in the cache, without recording a use of it
+   */
+  private void insertHelper(KeyType key, ValueType value, int weight) {
+    CacheEntry entry = new CacheEntry(key, value, weight, ticker.getAsLong());
+    index.put(key, entry);
+    linkLast(entry, WINDOW);
+    totalWeight += entry.weight;
+    if (sketch != null) {
+      sketch.ensureCapacity(index.getSize());
+    }
+    evictHelper();
+  }
+
+  /**
+   * Replaces the value of an entry that is in the cache, which counts as a new write for
+   * expiration
+   */
+  private void replaceHelper(CacheEntry entry, ValueType value, int weight) {
+    queueWeights[entry.queue] += weight - entry.weight;
+    totalWeight += weight - entry.weight;
+    entry.value = value;
+    entry.weight = weight;
+    entry.writeTime = ticker.getAsLong();
+    evictHelper();
+  }
+
+  /**
+   * Checks whether a key maps to a live (unexpired) value in this cache. This does not count as a
+   * use of the entry.
+   *
+   * @param key the key to check
+   * @return true if the key maps to a value, and false is the key doesn't map to a value
+   */
+  @Override
+  public boolean containsKey(KeyType key) {
+    return findEntry(key) != null;
+  }
+
+  /**
+   * Retrieves the specific value that a key maps to, counting a hit or a miss.
+   *
+   * @param key the key to look up
+   * @return the value that key maps to
+   * @throws NoSuchElementException when key is not stored in this cache (or has expired)
+   */
+  @Override
+  public ValueType get(KeyType key) throws NoSuchElementException {
+    CacheEntry entry = findEntry(key);
+    if (entry == null) {
+      recordMiss(key);
+      throw new NoSuchElementException("key is not stored in this collection");
+    }
+    recordHit(entry);
+    return entry.value;
+  }
+
+  /**
+   * Retrieves the value that a key maps to, or a default on a miss, counting a hit or a miss.
+   *
+   * @param key          the key to look up
+   * @param defaultValue the value to return when key is not stored in this cache
+   * @return the value that key maps to, or defaultValue
+   */
+  @Override
+  public ValueType getOrDefault(KeyType key, ValueType defaultValue) {
+    CacheEntry entry = findEntry(key);
+    if (entry == null) {
+      recordMiss(key);
+      return defaultValue;
+    }
+    recordHit(entry);
+    return entry.value;
+  }
+
+  /**
+   * Adds a key,value pair/mapping to this cache only if key is not already stored in it, counting a
+   * hit or a miss.
+   *
+   * @param key   the key of the key,value pair
+   * @param value the value that key should map to
+   * @return the value that key already mapped to, or null if key was added
+   * @throws IllegalArgumentException if the weigher returns a negative weight for value
+   * @throws NullPointerException     if key is null
+   */
+  @Override
+  public ValueType putIfAbsent(KeyType key, ValueType value) {
+    if (key == null) {
+      throw new NullPointerException("key is null");
+    }
+    CacheEntry entry = findEntry(key);
+    if (entry != null) {
+      recordHit(entry);
+      return entry.value;
+    }
+    int weight = weigh(value);
+    recordMiss(key);
+    insertHelper(key, value, weight);
+    return null;
+  }
+
+  /**
+   * Computes a new value for key from its current value, counting a hit or a miss. When the
+   * remapping function returns null, the mapping for key is removed (or not added).
+   *
+   * @param key       the key whose value to compute
+   * @param remapping function from key and its current value (null when absent) to its new value
+   * @return the new value that key maps to, or null if key is no longer stored
+   * @throws IllegalArgumentException if the weigher returns a negative weight for the new value
+   * @throws NullPointerException     if key is null
+   */
+  @Override
+  public ValueType compute(KeyType key,
+      BiFunction<? super KeyType, ? super ValueType, ? extends ValueType> remapping) {
+    if (key == null) {
+      throw new NullPointerException("key is null");
+    }
+    CacheEntry entry = findEntry(key);
+    if (entry != null) {
+      recordHit(entry);
+    } else {
+      recordMiss(key);
+    }
+    ValueType newValue = remapping.apply(key, entry == null ? null : entry.value);
+    if (newValue == null) {
+      if (entry != null) {
+        discard(entry);
+      }
+    } else if (entry != null) {
+      replaceHelper(entry, newValue, weigh(newValue));
+    } else {
+      insertHelper(key, newValue, weigh(newValue));
+    }
+    return newValue;
+  }
+
+  /**
+   * Retrieves the value that key maps to, first computing and adding it if key is absent, counting
+   * a hit or a miss. When the mapping function returns null, nothing is added.
+   *
+   * @param key     the key to look up
+   * @param mapping function from key to the value it should map to when it is absent
+   * @return the value that key now maps to, or null if nothing was added
+   * @throws IllegalArgumentException if the weigher returns a negative weight for the new value
+   * @throws NullPointerException     if key is null
+   */
+  @Override
+  public ValueType computeIfAbsent(KeyType key,
+      Function<? super KeyType, ? extends ValueType> mapping) {
+    if (key == null) {
+      throw new NullPointerException("key is null");
+    }
+    CacheEntry entry = findEntry(key);
+    if (entry != null) {
+      recordHit(entry);
+      return entry.value;
+    }
+    recordMiss(key);
+    ValueType newValue = mapping.apply(key);
+    if (newValue != null) {
+      insertHelper(key, newValue, weigh(newValue));
+    }
+    return newValue;
+  }
+
+  /**
+   * Adds value for key if it is absent, or otherwise combines the current value with value,
+   * counting a hit or a miss. When the remapping function returns null, the mapping for key is
+   * removed.
+   *
+   * @param key       the key of the key,value pair
+   * @param value     the value to add, or to combine with the current value
+   * @param remapping function from the current value and value to the new value
+   * @return the new value that key maps to, or null if key is no longer stored
+   * @throws IllegalArgumentException if the weigher returns a negative weight for the new value
+   * @throws NullPointerException     if key is null
+   */
+  @Override
+  public ValueType merge(KeyType key, ValueType value,
+      BiFunction<? super ValueType, ? super ValueType, ? extends ValueType> remapping) {
+    if (key == null) {
+      throw new NullPointerException("key is null");
+    }
+    CacheEntry entry = findEntry(key);
+    if (entry == null) {
+      int weight = weigh(value);
+      recordMiss(key);
+      insertHelper(key, value, weight);
+      return value;
+    }
+    recordHit(entry);
+    ValueType newValue = remapping.apply(entry.value, value);
+    if (newValue == null) {
+      discard(entry);
+    } else {
+      replaceHelper(entry, newValue, weigh(newValue));
+    }
+    return newValue;
+  }
+
+  /**
+   * Remove the mapping for a key from this cache.
+   *
+   * @param key the key whose mapping to remove
+   * @return the value that the removed key mapped to
+   * @throws NoSuchElementException when key is not stored in this cache (or has expired)
+   */
+  @Override
+  public ValueType remove(KeyType key) throws NoSuchElementException {
+    CacheEntry entry = findEntry(key);
+    if (entry == null) {
+      throw new NoSuchElementException("key is not stored in this collection");
+    }
+    discard(entry);
+    return entry.value;
+  }
+
+  /**
+   * Removes all key,value pairs from this cache. The statistics are kept.
+   */
+  @Override
+  public void clear() {
+    index.clear();
+    for (int i = 0; i < queues.length; i++) {
+      queues[i].next = queues[i];
+      queues[i].previous = queues[i];
+      queueWeights[i] = 0;
+    }
+    totalWeight = 0;
+  }
+
+  /**
+   * Retrieves the number of keys stored in this cache. Expired entries are only discarded when
+   * they are next looked up, so they may still be counted.
+   *
+   * @return the number of keys stored in this cache
+   */
+  @Override
+  public int getSize() {
+    return index.getSize();
+  }
+
+  /**
+   * Retrieves this cache's capacity.
+   *
+   * @return the maximum total weight of the entries in this cache
+   */
+  @Override
+  public int getCapacity() {
+    return (int) Math.min(Integer.MAX_VALUE, maximumWeight);
+  }
+
+  /**
+   * Creates an iterator over the live key,value pairs stored in this cache, which does not count
+   * as a use of any entry.
+   *
+   * @return an iterator over the entries of this cache
+   */
+  @Override
+  public Iterator<Map.Entry<KeyType, ValueType>> entryIterator() {
+    return index.entryStream(false)
+        .filter(entry -> !isExpired(entry.getValue()))
+        .map(entry -> (Map.Entry<KeyType, ValueType>) new AbstractMap.SimpleImmutableEntry<>(
+            entry.getKey(), entry.getValue().value))
+        .iterator();
+  }
+
+  /**
+   * @return the number of lookups (get, getOrDefault and the upserts) that found their key
+   */
+  public long getHitCount() {
+    return hitCount;
+  }
+
+  /**
+   * @return the number of lookups (get, getOrDefault and the upserts) that did not find their key
+   */
+  public long getMissCount() {
+    return missCount;
+  }
+
+  /**
+   * @return the number of entries evicted to stay within the maximum weight
+   */
+  public long getEvictionCount() {
+    return evictionCount;
+  }
+
+  /**
+   * @return the number of entries discarded because they expired
+   */
+  public long getExpirationCount() {
+    return expirationCount;
+  }
+
+  /**
+   * @return the total weight of the entries currently in this cache
+   */
+  public long getWeight() {
+    return totalWeight;
+  }
+
+  /**
+   * Tests that LRU mode evicts the least recently used entry, and the hit/miss/eviction counters
+   */
+  @Test
+  public void testLruEviction() {
+    CachingMap<String, Integer> cache = new CachingMap<>(3, EvictionPolicy.LRU);
+    cache.put("a", 1);
+    cache.put("b", 2);
+    cache.put("c", 3);
+    Assertions.assertEquals(1, cache.get("a")); // b is now the least recently used
+    cache.put("d", 4);
+    Assertions.assertFalse(cache.containsKey("b"));
+    Assertions.assertTrue(cache.containsKey("a"));
+    Assertions.assertEquals(3, cache.getSize());
+    Assertions.assertThrows(NoSuchElementException.class, () -> cache.get("b"));
+    Assertions.assertEquals(-1, cache.getOrDefault("e", -1));
+    Assertions.assertEquals(1, cache.getHitCount());
+    Assertions.assertEquals(2, cache.getMissCount());
+    Assertions.assertEquals(1, cache.getEvictionCount());
+    Assertions.assertEquals(3, cache.remove("c"));
+    Assertions.assertEquals(2, cache.getSize());
+  }
+
+  /**
+   * Tests that W-TinyLFU keeps a frequently used working set while a long scan of one-off keys
+   * passes through the cache, where plain LRU would have flushed it
+   */
+  @Test
+  public void testTinyLfuResistsScans() {
+    CachingMap<Integer, Integer> cache = new CachingMap<>(100, EvictionPolicy.W_TINY_LFU);
+    for (int round = 0; round < 10; round++) {
+      for (int key = 0; key < 50; key++) {
+        cache.computeIfAbsent(key, k -> k);
+        cache.get(key);
+      }
+    }
+    for (int key = 1000; key < 11000; key++) {
+      cache.computeIfAbsent(key, k -> k);
+    }
+    int kept = 0;
+    for (int key = 0; key < 50; key++) {
+      if (cache.containsKey(key)) {
+        kept++;
+      }
+    }
+    Assertions.assertTrue(kept >= 45, "only " + kept + " hot keys survived the scan");
+    Assertions.assertTrue(cache.getSize() <= 100);
+    Assertions.assertEquals(cache.getSize(), cache.getWeight());
+  }
+
+  /**
+   * Tests weight-bounded eviction and expire-after-write using a controllable clock
+   */
+  @Test
+  public void testWeightAndExpiration() {
+    long[] now = {0};
+    CachingMap<String, String> cache = new CachingMap<>(10, EvictionPolicy.LRU,
+        String::length, 100, () -> now[0]);
+    cache.put("a", "aaaa");
+    cache.put("b", "bbbb");
+    cache.put("c", "ccc"); // total weight 11, so the least recently used entry "a" is evicted
+    Assertions.assertFalse(cache.containsKey("a"));
+    Assertions.assertEquals(7, cache.getWeight());
+    now[0] = 50;
+    cache.put("d", "d");
+    now[0] = 120; // b and c were written at time 0, d at time 50
+    Assertions.assertFalse(cache.containsKey("b"));
+    Assertions.assertThrows(NoSuchElementException.class, () -> cache.get("c"));
+    Assertions.assertEquals("d", cache.get("d"));
+    Assertions.assertEquals(2, cache.getExpirationCount());
+    Assertions.assertEquals(1, cache.getWeight());
+    Assertions.assertEquals(1, cache.entryStream(false).count());
+  }
+
+  /**
+   * Tests that the upserts count exactly one hit or miss and keep the weight up to date, that
+   * negative weights are rejected, and that the frequency sketch of a cache with a huge maximum
+   * weight is sized by its entries rather than by that weight
+   */
+  @Test
+  public void testUpsertsAndWeights() {
+    CachingMap<String, String> cache = new CachingMap<>(1L << 40, EvictionPolicy.W_TINY_LFU,
+        value -> value.equals("negative") ? -1 : value.length(), 0, System::nanoTime);
+    Assertions.assertEquals(2, cache.sketch.table.length);
+    Assertions.assertEquals("aa", cache.computeIfAbsent("a", k -> "aa"));
+    Assertions.assertEquals("aa", cache.computeIfAbsent("a", k -> "unused"));
+    Assertions.assertEquals("aab", cache.merge("a", "b", String::concat));
+    Assertions.assertEquals("x", cache.merge("x", "x", String::concat));
+    Assertions.assertEquals("aab!", cache.compute("a", (k, v) -> v + "!"));
+    Assertions.assertNull(cache.putIfAbsent("y", "yyy"));
+    Assertions.assertEquals("yyy", cache.putIfAbsent("y", "unused"));
+    Assertions.assertEquals(4, cache.getHitCount());
+    Assertions.assertEquals(3, cache.getMissCount());
+    Assertions.assertEquals(8, cache.getWeight());
+    Assertions.assertNull(cache.compute("x", (k, v) -> null));
+    Assertions.assertEquals(7, cache.getWeight());
+
+    Assertions.assertThrows(IllegalArgumentException.class, () -> cache.put("n", "negative"));
+    Assertions.assertThrows(IllegalArgumentException.class,
+        () -> cache.compute("a", (k, v) -> "negative"));
+    Assertions.assertFalse(cache.containsKey("n"));
+    Assertions.assertEquals("aab!", cache.getOrDefault("a", null));
+    Assertions.assertEquals(7, cache.getWeight());
+
+    for (int i = 0; i < 1000; i++) {
+      cache.put("key" + i, "value");
+    }
+    Assertions.assertEquals(1002, cache.getSize());
+    Assertions.assertEquals(1024 * 2 / 16, cache.sketch.table.length);
+  }
+}
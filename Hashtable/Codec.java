@@ -0,0 +1,107 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Converts values of one type to and from bytes, so that collections can be written to files in a
+ * binary format. The length of each encoded value is stored next to it, so a codec doesn't need to
+ * mark where its values end.
+ */
+public interface Codec<T> {
+
+  /**
+   * Calculates the number of bytes encode will write for a value
+   * @param value the value to encode, never null
+   * @return the encoded length of value in bytes
+   */
+  int encodedLength(T value);
+
+  /**
+   * Writes a value at the position of a buffer that has at least encodedLength(value) bytes left
+   * @param value the value to encode, never null
+   * @param buffer the buffer to write to, whose position is advanced past the value
+   */
+  void encode(T value, ByteBuffer buffer);
+
+  /**
+   * Reads a value from the position of a buffer
+   * @param buffer the buffer to read from
+   * @param length the number of bytes the value was encoded in
+   * @return the decoded value
+   */
+  T decode(ByteBuffer buffer, int length);
+
+  /**
+   * Encodes Integers as 4 bytes
+   */
+  Codec<Integer> INTEGER = new Codec<>() {
+    public int encodedLength(Integer value) {
+      return Integer.BYTES;
+    }
+
+    public void encode(Integer value, ByteBuffer buffer) {
+      buffer.putInt(value);
+    }
+
+    public Integer decode(ByteBuffer buffer, int length) {
+      return buffer.getInt();
+    }
+  };
+
+  /**
+   * Encodes Longs as 8 bytes
+   */
+  Codec<Long> LONG = new Codec<>() {
+    public int encodedLength(Long value) {
+      return Long.BYTES;
+    }
+
+    public void encode(Long value, ByteBuffer buffer) {
+      buffer.putLong(value);
+    }
+
+    public Long decode(ByteBuffer buffer, int length) {
+      return buffer.getLong();
+    }
+  };
+
+  /**
+   * Encodes Strings as UTF-8. Strings that are pure ASCII (the common case for keys) are copied a
+   * char at a time rather than through an intermediate byte array.
+   */
+  Codec<String> STRING = new Codec<>() {
+    public int encodedLength(String value) {
+      int length = value.length();
+      for (int i = 0; i < value.length(); i++) {
+        if (value.charAt(i) >= 0x80) {
+          return value.getBytes(StandardCharsets.UTF_8).length;
+        }
+      }
+      return length;
+    }
+
+    public void encode(String value, ByteBuffer buffer) {
+      for (int i = 0; i < value.length(); i++) {
+        if (value.charAt(i) >= 0x80) {
+          buffer.put(value.substring(i).getBytes(StandardCharsets.UTF_8));
+          return;
+        }
+        buffer.put((byte) value.charAt(i));
+      }
+    }
+
+    public String decode(ByteBuffer buffer, int length) {
+      String value;
+      if (buffer.hasArray()) {
+        value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+            StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+      } else {
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        value = new String(bytes, StandardCharsets.UTF_8);
+      }
+      return value;
+    }
+  };
+
+}
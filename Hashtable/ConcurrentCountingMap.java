@@ -0,0 +1,562 @@
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Thread-safe map from keys to long counts, for code that mostly does "add delta to the count of
+ * key". The counters are stored in a ConcurrentHashtableMap, so finding the counter of a key that
+ * is already counted takes no lock. Each counter starts as a single value updated by compare and
+ * set; the first time two threads collide on it, it grows a set of cells (each on its own cache
+ * line) and from then on every thread adds to the cell its probe picks with compare and set, like
+ * java.util.concurrent.atomic.LongAdder. A thread whose compare and set fails rehashes its probe,
+ * so threads that share a cell spread out over the others. Reading a count sums its cells.
+ *
+ * snapshot() reads every count at a single point in time. To make that possible, every write
+ * registers itself in one of a set of padded in-flight counters (again chosen by thread), and a
+ * snapshot raises a flag that holds back new writes, waits for the registered ones to finish, and
+ * reads the counters while nothing can change them.
+ */
+public class ConcurrentCountingMap<KeyType> implements MapADT<KeyType, Long> {
+
+  // longs per cell or in-flight counter, so that each one sits on its own 64 byte cache line
+  private static final int PADDING = 8;
+  private static final int STRIPES = Integer.highestOneBit(
+      Runtime.getRuntime().availableProcessors() * 2 - 1) * 2; // a power of two >= 2 * CPUs
+
+  /**
+   * A count that grows striped cells once it is contended
+   */
+  protected static final class Counter {
+
+    private final AtomicLong base;
+    private volatile AtomicLongArray cells; // null until two threads collide on base
+
+    public Counter(long initial) {
+      base = new AtomicLong(initial);
+    }
+
+    public void add(long delta) {
+      AtomicLongArray striped = cells;
+      if (striped == null) {
+        long current = base.get();
+        if (base.compareAndSet(current, current + delta)) {
+          return;
+        }
+        striped = inflateHelper();
+      }
+      for (int probe = probe();; probe = rehashProbe(probe)) {
+        int index = (probe & (STRIPES - 1)) * PADDING;
+        long current = striped.get(index);
+        if (striped.compareAndSet(index, current, current + delta)) {
+          return;
+        }
+      }
+    }
+
+    private synchronized AtomicLongArray inflateHelper() {
+      if (cells == null) {
+        cells = new AtomicLongArray(STRIPES * PADDING);
+      }
+      return cells;
+    }
+
+    public long sum() {
+      long sum = base.get();
+      AtomicLongArray striped = cells;
+      if (striped != null) {
+        for (int i = 0; i < STRIPES; i++) {
+          sum += striped.get(i * PADDING);
+        }
+      }
+      return sum;
+    }
+
+  }
+
+  private final ConcurrentHashtableMap<KeyType, Counter> counters;
+  // number of writes in progress, one padded counter per stripe of threads
+  private final AtomicIntegerArray inFlight = new AtomicIntegerArray(STRIPES * PADDING);
+  private volatile boolean snapshotting; // holds back new writes while a snapshot is taken
+  private final ReentrantLock snapshotLock = new ReentrantLock(); // one snapshot at a time
+
+  /**
+   * constructor that instantiates the map of counters with the given number of stripes and capacity
+   * @param stripes number of independently locked stripes of the map of counters
+   * @param capacity initial total number of buckets of the map of counters
+   */
+  public ConcurrentCountingMap(int stripes, int capacity) {
+    counters = new ConcurrentHashtableMap<>(stripes, capacity);
+  }
+
+  /**
+   * Default constructor that uses 16 stripes and a total default capacity of 32
+   */
+  public ConcurrentCountingMap() {
+    this(16, 32);
+  }
+
+  // each thread's probe, which picks its cell and in-flight counter. It starts as the spread id
+  // of the thread, so that threads created one after another use different cells, and is never 0
+  private static final ThreadLocal<int[]> PROBE = ThreadLocal.withInitial(() -> {
+    int probe = (int) ((Thread.currentThread().getId() * 0x9E3779B97F4A7C15L) >>> 32);
+    return new int[] {probe == 0 ? 1 : probe};
+  });
+
+  private static int probe() {
+    return PROBE.get()[0];
+  }
+
+  /**
+   * Moves the current thread to another cell after it lost a compare and set on its cell, with a
+   * xorshift step (which never turns a non-zero probe into 0)
+   * @return the new probe of the current thread
+   */
+  private static int rehashProbe(int probe) {
+    probe ^= probe << 13;
+    probe ^= probe >>> 17;
+    probe ^= probe << 5;
+    PROBE.get()[0] = probe;
+    return probe;
+  }
+
+  /**
+   * Registers a write, first waiting for a snapshot in progress to finish
+   * @return the index of the in-flight counter to pass to endWrite
+   */
+  private int beginWrite(int probe) {
+    int index = (probe & (STRIPES - 1)) * PADDING;
+    while (true) {
+      inFlight.incrementAndGet(index);
+      // a snapshot raises its flag before it checks the in-flight counters, and this write raised
+      // its counter before it checks the flag, so at least one of them sees the other
+      if (!snapshotting) {
+        return index;
+      }
+      inFlight.decrementAndGet(index);
+      snapshotLock.lock(); // blocks until the snapshot finishes
+      snapshotLock.unlock();
+    }
+  }
+
+  private void endWrite(int index) {
+    inFlight.decrementAndGet(index);
+  }
+
+  /**
+   * Adds delta to the count of key, starting it at zero if key isn't counted yet
+   *
+   * @param key   the key whose count to change
+   * @param delta the amount to add, which may be negative
+   * @throws NullPointerException if key is null
+   */
+  public void increment(KeyType key, long delta) {
+    if (key == null) {
+      throw new NullPointerException("key is null");
+    }
+    int index = beginWrite(probe());
+    try {
+      counters.computeIfAbsent(key, k -> new Counter(0)).add(delta);
+    } finally {
+      endWrite(index);
+    }
+  }
+
+  /**
+   * Adds one to the count of key, starting it at zero if key isn't counted yet
+   *
+   * @param key the key whose count to change
+   * @throws NullPointerException if key is null
+   */
+  public void increment(KeyType key) {
+    increment(key, 1);
+  }
+
+  /**
+   * Reads every count at a single point in time. Writes that start while the snapshot is taken wait
+   * for it to finish, so this pauses writers for as long as it takes to copy the counts.
+   *
+   * @return a new HashtableMap from each counted key to its count
+   */
+  public HashtableMap<KeyType, Long> snapshot() {
+    snapshotLock.lock();
+    try {
+      snapshotting = true;
+      for (int i = 0; i < STRIPES; i++) {
+        while (inFlight.get(i * PADDING) != 0) {
+          Thread.onSpinWait();
+        }
+      }
+      HashtableMap<KeyType, Long> snapshot = new HashtableMap<>();
+      snapshot.ensureCapacity(counters.getSize());
+      for (Iterator<Map.Entry<KeyType, Counter>> entries = counters.entryIterator();
+          entries.hasNext();) {
+        Map.Entry<KeyType, Counter> entry = entries.next();
+        snapshot.put(entry.getKey(), entry.getValue().sum());
+      }
+      return snapshot;
+    } finally {
+      snapshotting = false;
+      snapshotLock.unlock();
+    }
+  }
+
+  /**
+   * Adds a new key,value pair/mapping to this collection.
+   *
+   * @param key   the key of the key,value pair
+   * @param value the count that key starts at
+   * @throws IllegalArgumentException if key already maps to a value
+   * @throws NullPointerException     if key or value is null
+   */
+  @Override
+  public void put(KeyType key, Long value) throws IllegalArgumentException {
+    if (value == null) {
+      throw new NullPointerException("value is null");
+    }
+    int index = beginWrite(probe());
+    try {
+      counters.put(key, new Counter(value));
+    } finally {
+      endWrite(index);
+    }
+  }
+
+  /**
+   * Atomically adds a key,value pair/mapping only if key is not already stored in this collection.
+   *
+   * @param key   the key of the key,value pair
+   * @param value the count that key starts at
+   * @return the count of key if it was already stored (leaving it unchanged), or null if key was
+   *         added
+   * @throws NullPointerException if key or value is null
+   */
+  @Override
+  public Long putIfAbsent(KeyType key, Long value) {
+    if (value == null) {
+      throw new NullPointerException("value is null");
+    }
+    int index = beginWrite(probe());
+    try {
+      Counter existing = counters.putIfAbsent(key, new Counter(value));
+      return existing == null ? null : existing.sum();
+    } finally {
+      endWrite(index);
+    }
+  }
+
+  /**
+   * Atomically retrieves the count of key, first computing and adding it if key is absent. The
+   * mapping function runs while part of the map of counters is locked, so it should be short and
+   * must not modify this map. When it returns null, nothing is added.
+   *
+   * @param key     the key to look up
+   * @param mapping function from key to the count it should start at when it is absent
+   * @return the count of key, or null if nothing was added
+   * @throws NullPointerException if key is null
+   */
+  @Override
+  public Long computeIfAbsent(KeyType key, Function<? super KeyType, ? extends Long> mapping) {
+    int index = beginWrite(probe());
+    try {
+      Counter counter = counters.computeIfAbsent(key, k -> {
+        Long initial = mapping.apply(k);
+        return initial == null ? null : new Counter(initial);
+      });
+      return counter == null ? null : counter.sum();
+    } finally {
+      endWrite(index);
+    }
+  }
+
+  /**
+   * Not supported: increments don't lock their counter, so a remapping function can't see a count
+   * that stays current until its result is stored. Use increment to add to a count.
+   *
+   * @throws UnsupportedOperationException always
+   */
+  @Override
+  public Long compute(KeyType key,
+      BiFunction<? super KeyType, ? super Long, ? extends Long> remapping) {
+    throw new UnsupportedOperationException("compute is not atomic here, use increment");
+  }
+
+  /**
+   * Not supported: increments don't lock their counter, so a remapping function can't see a count
+   * that stays current until its result is stored. merge(key, delta, Long::sum) is
+   * increment(key, delta).
+   *
+   * @throws UnsupportedOperationException always
+   */
+  @Override
+  public Long merge(KeyType key, Long value,
+      BiFunction<? super Long, ? super Long, ? extends Long> remapping) {
+    throw new UnsupportedOperationException("merge is not atomic here, use increment");
+  }
+
+  /**
+   * Checks whether a key maps to a value in this collection.
+   *
+   * @param key the key to check
+   * @return true if the key maps to a value, and false is the key doesn't map to a value
+   */
+  @Override
+  public boolean containsKey(KeyType key) {
+    return counters.containsKey(key);
+  }
+
+  /**
+   * Retrieves the count of a key.
+   *
+   * @param key the key to look up
+   * @return the count of key, which concurrent increments may be changing
+   * @throws NoSuchElementException when key is not stored in this collection
+   */
+  @Override
+  public Long get(KeyType key) throws NoSuchElementException {
+    return counters.get(key).sum();
+  }
+
+  @Override
+  public Long getOrDefault(KeyType key, Long defaultValue) {
+    Counter counter = counters.getOrDefault(key, null);
+    return counter == null ? defaultValue : counter.sum();
+  }
+
+  /**
+   * Remove the mapping for a key from this collection. Increments of the same key that run at the
+   * same time may be applied to the removed count and lost.
+   *
+   * @param key the key whose mapping to remove
+   * @return the count of the removed key
+   * @throws NoSuchElementException when key is not stored in this collection
+   */
+  @Override
+  public Long remove(KeyType key) throws NoSuchElementException {
+    int index = beginWrite(probe());
+    try {
+      return counters.remove(key).sum();
+    } finally {
+      endWrite(index);
+    }
+  }
+
+  @Override
+  public Long removeIfPresent(KeyType key) {
+    int index = beginWrite(probe());
+    try {
+      Counter counter = counters.removeIfPresent(key);
+      return counter == null ? null : counter.sum();
+    } finally {
+      endWrite(index);
+    }
+  }
+
+  /**
+   * Removes all key,value pairs from this collection.
+   */
+  @Override
+  public void clear() {
+    int index = beginWrite(probe());
+    try {
+      counters.clear();
+    } finally {
+      endWrite(index);
+    }
+  }
+
+  /**
+   * Retrieves the number of keys stored in this collection.
+   *
+   * @return the number of keys stored in this collection
+   */
+  @Override
+  public int getSize() {
+    return counters.getSize();
+  }
+
+  /**
+   * Retrieves this collection's capacity.
+   *
+   * @return the number of buckets of the map of counters
+   */
+  @Override
+  public int getCapacity() {
+    return counters.getCapacity();
+  }
+
+  /**
+   * Creates a weakly consistent iterator over the keys and their counts, each count read when the
+   * iterator reaches it. Use snapshot for counts that are consistent with each other.
+   *
+   * @return an iterator over the entries of this collection
+   */
+  @Override
+  public Iterator<Map.Entry<KeyType, Long>> entryIterator() {
+    Iterator<Map.Entry<KeyType, Counter>> entries = counters.entryIterator();
+    return new Iterator<Map.Entry<KeyType, Long>>() {
+      @Override
+      public boolean hasNext() {
+        return entries.hasNext();
+      }
+
+      @Override
+      public Map.Entry<KeyType, Long> next() {
+        Map.Entry<KeyType, Counter> entry = entries.next();
+        return new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), entry.getValue().sum());
+      }
+    };
+  }
+
+  /**
+   * Tests the MapADT methods and that many threads incrementing one hot key and many cold keys
+   * lose no increments
+   */
+  @Test
+  public void testConcurrentIncrements() throws InterruptedException {
+    ConcurrentCountingMap<String> counts = new ConcurrentCountingMap<>();
+    counts.put("start", 5L);
+    Assertions.assertThrows(IllegalArgumentException.class, () -> counts.put("start", 1L));
+    counts.increment("start", -2);
+    Assertions.assertEquals(3, counts.get("start"));
+    Assertions.assertThrows(NoSuchElementException.class, () -> counts.get("missing"));
+    Assertions.assertEquals(-1, counts.getOrDefault("missing", -1L));
+    Assertions.assertEquals(3, counts.remove("start"));
+    Assertions.assertNull(counts.removeIfPresent("start"));
+
+    int threads = 8;
+    int increments = 200000;
+    List<Thread> workers = new ArrayList<>();
+    CountDownLatch start = new CountDownLatch(1);
+    for (int t = 0; t < threads; t++) {
+      int id = t;
+      Thread worker = new Thread(() -> {
+        try {
+          start.await();
+        } catch (InterruptedException e) {
+          return;
+        }
+        for (int i = 0; i < increments; i++) {
+          counts.increment("hot");
+          counts.increment("cold" + (i + id) % 1000, 2);
+        }
+      });
+      workers.add(worker);
+      worker.start();
+    }
+    start.countDown();
+    for (Thread worker : workers) {
+      worker.join();
+    }
+    Assertions.assertEquals((long) threads * increments, counts.get("hot"));
+    Assertions.assertEquals(1001, counts.getSize());
+    long total = counts.entryStream(false).mapToLong(Map.Entry::getValue).sum();
+    Assertions.assertEquals(3L * threads * increments, total);
+    for (int i = 0; i < 1000; i++) {
+      Assertions.assertEquals(2L * threads * increments / 1000, counts.get("cold" + i));
+    }
+  }
+
+  /**
+   * Tests that putIfAbsent and computeIfAbsent add each key exactly once when many threads race
+   * to add it, and that merge and compute refuse to run instead of losing updates
+   */
+  @Test
+  public void testConcurrentUpserts() throws InterruptedException {
+    ConcurrentCountingMap<String> counts = new ConcurrentCountingMap<>();
+    Assertions.assertThrows(UnsupportedOperationException.class,
+        () -> counts.merge("k", 1L, Long::sum));
+    Assertions.assertThrows(UnsupportedOperationException.class,
+        () -> counts.compute("k", (k, count) -> 1L));
+    Assertions.assertNull(counts.computeIfAbsent("k", k -> null));
+    Assertions.assertFalse(counts.containsKey("k"));
+
+    int threads = 8;
+    int keys = 1000;
+    AtomicInteger added = new AtomicInteger();
+    AtomicInteger computed = new AtomicInteger();
+    List<Thread> workers = new ArrayList<>();
+    CountDownLatch start = new CountDownLatch(1);
+    for (int t = 0; t < threads; t++) {
+      Thread worker = new Thread(() -> {
+        try {
+          start.await();
+        } catch (InterruptedException e) {
+          return;
+        }
+        for (int i = 0; i < keys; i++) {
+          if (counts.putIfAbsent("put" + i, 1L) == null) {
+            added.incrementAndGet();
+          }
+          counts.computeIfAbsent("computed" + i, k -> {
+            computed.incrementAndGet();
+            return 0L;
+          });
+          counts.increment("computed" + i);
+        }
+      });
+      workers.add(worker);
+      worker.start();
+    }
+    start.countDown();
+    for (Thread worker : workers) {
+      worker.join();
+    }
+    Assertions.assertEquals(keys, added.get());
+    Assertions.assertEquals(keys, computed.get());
+    for (int i = 0; i < keys; i++) {
+      Assertions.assertEquals(1, counts.get("put" + i));
+      Assertions.assertEquals(threads, counts.get("computed" + i));
+    }
+  }
+
+  /**
+   * Tests that snapshots taken while threads are incrementing are consistent: each thread adds one
+   * to "x" and then one to "y", so at any single point in time x - y is between 0 and the number
+   * of threads, which reading the two counts at different times wouldn't guarantee
+   */
+  @Test
+  public void testConsistentSnapshots() throws InterruptedException {
+    ConcurrentCountingMap<String> counts = new ConcurrentCountingMap<>();
+    counts.put("x", 0L);
+    counts.put("y", 0L);
+    int threads = 4;
+    int increments = 300000;
+    List<Thread> workers = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      Thread worker = new Thread(() -> {
+        for (int i = 0; i < increments; i++) {
+          counts.increment("x");
+          counts.increment("y");
+        }
+      });
+      workers.add(worker);
+      worker.start();
+    }
+    int snapshots = 0;
+    while (workers.stream().anyMatch(Thread::isAlive) || snapshots == 0) {
+      HashtableMap<String, Long> snapshot = counts.snapshot();
+      long difference = snapshot.get("x") - snapshot.get("y");
+      Assertions.assertTrue(difference >= 0 && difference <= threads, "x - y = " + difference);
+      snapshots++;
+    }
+    for (Thread worker : workers) {
+      worker.join();
+    }
+    HashtableMap<String, Long> last = counts.snapshot();
+    Assertions.assertEquals((long) threads * increments, last.get("x"));
+    Assertions.assertEquals((long) threads * increments, last.get("y"));
+  }
+}
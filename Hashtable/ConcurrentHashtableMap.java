@@ -0,0 +1,719 @@
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Thread-safe implementation of MapADT. The table is split into independently locked stripes, each
+ * with its own chained bucket array that is resized on its own. Writers lock only the stripe their
+ * key hashes to; readers take no lock at all and instead rely on the bucket chains being immutable
+ * (a remove copies the part of the chain in front of the removed node) and published through
+ * volatile array slots.
+ */
+public class ConcurrentHashtableMap<KeyType, ValueType> implements MapADT<KeyType, ValueType> {
+
+  /**
+   * Immutable chain node: once a node is reachable from a bucket, a reader can follow its next
+   * references without synchronization
+   */
+  protected static final class Node<KeyType, ValueType> {
+
+    public final int hash;
+    public final KeyType key;
+    public final ValueType value;
+    public final Node<KeyType, ValueType> next;
+
+    public Node(int hash, KeyType key, ValueType value, Node<KeyType, ValueType> next) {
+      this.hash = hash;
+      this.key = key;
+      this.value = value;
+      this.next = next;
+    }
+
+  }
+
+  /**
+   * One independently locked and independently resized part of the table
+   */
+  protected static final class Stripe<KeyType, ValueType> extends ReentrantLock {
+
+    private static final long serialVersionUID = 1L;
+
+    public volatile AtomicReferenceArray<Node<KeyType, ValueType>> buckets;
+    public volatile int size; // written only while holding this stripe's lock
+
+    public Stripe(int capacity) {
+      buckets = new AtomicReferenceArray<>(capacity);
+    }
+
+  }
+
+  protected final Stripe<KeyType, ValueType>[] stripes;
+  private final int stripeBits; // number of low hash bits used to choose a stripe
+
+  /**
+   * constructor that instantiates the given number of stripes, sharing the initial capacity
+   * between them
+   * @param stripes number of independently locked stripes (rounded up to a power of two)
+   * @param capacity initial total number of buckets across all stripes
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  public ConcurrentHashtableMap(int stripes, int capacity) {
+    int stripeCount = 1;
+    while (stripeCount < stripes) {
+      stripeCount <<= 1;
+    }
+    stripeBits = Integer.numberOfTrailingZeros(stripeCount);
+    // every stripe starts with a power of two number of buckets so indexes can be masked
+    int perStripe = Integer.highestOneBit(Math.max(2, (capacity + stripeCount - 1) / stripeCount));
+    this.stripes = (Stripe<KeyType, ValueType>[]) new Stripe[stripeCount];
+    for (int i = 0; i < stripeCount; i++) {
+      this.stripes[i] = new Stripe<>(perStripe);
+    }
+  }
+
+  /**
+   * Default constructor that uses 16 stripes and a total default capacity of 32
+   */
+  public ConcurrentHashtableMap() {
+    this(16, 32);
+  }
+
+  /**
+   * Spreads the higher bits of a key's hash code downward, since the low bits choose the stripe and
+   * the bits above them choose the bucket
+   */
+  private static int spread(int hash) {
+    return hash ^ (hash >>> 16);
+  }
+
+  private Stripe<KeyType, ValueType> stripeFor(int hash) {
+    return stripes[hash & (stripes.length - 1)];
+  }
+
+  private int bucketIndex(int hash, int capacity) {
+    return (hash >>> stripeBits) & (capacity - 1);
+  }
+
+  /**
+   * Finds the node holding key without taking any lock
+   * @param key the key to look for
+   * @return the node holding key, or null if key is not stored in this collection
+   */
+  private Node<KeyType, ValueType> findNode(KeyType key) {
+    if (key == null) {
+      throw new NullPointerException("key is null");
+    }
+    int hash = spread(key.hashCode());
+    AtomicReferenceArray<Node<KeyType, ValueType>> buckets = stripeFor(hash).buckets;
+    for (Node<KeyType, ValueType> node = buckets.get(bucketIndex(hash, buckets.length()));
+        node != null; node = node.next) {
+      if (node.hash == hash && node.key.equals(key)) {
+        return node;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Doubles the number of buckets in one stripe. Called with the stripe's lock held; readers keep
+   * using the old bucket array (whose chains are never modified) until the new one is published.
+   */
+  private void resizeStripe(Stripe<KeyType, ValueType> stripe) {
+    AtomicReferenceArray<Node<KeyType, ValueType>> oldBuckets = stripe.buckets;
+    AtomicReferenceArray<Node<KeyType, ValueType>> newBuckets =
+        new AtomicReferenceArray<>(oldBuckets.length() * 2);
+    for (int i = 0; i < oldBuckets.length(); i++) {
+      for (Node<KeyType, ValueType> node = oldBuckets.get(i); node != null; node = node.next) {
+        int index = bucketIndex(node.hash, newBuckets.length());
+        newBuckets.set(index, new Node<>(node.hash, node.key, node.value, newBuckets.get(index)));
+      }
+    }
+    stripe.buckets = newBuckets;
+  }
+
+  /**
+   * Searches one bucket chain for the node holding key
+   */
+  private Node<KeyType, ValueType> findInChain(Node<KeyType, ValueType> node, int hash,
+      KeyType key) {
+    for (; node != null; node = node.next) {
+      if (node.hash == hash && node.key.equals(key)) {
+        return node;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Publishes a new node at the head of a bucket chain, resizing the stripe at 75% load. Called
+   * with the stripe's lock held, for a key that is known not to be in the stripe.
+   */
+  private void insertLocked(Stripe<KeyType, ValueType> stripe,
+      AtomicReferenceArray<Node<KeyType, ValueType>> buckets, int index, int hash, KeyType key,
+      ValueType value) {
+    buckets.set(index, new Node<>(hash, key, value, buckets.get(index))); // publish the new head
+    stripe.size++;
+    if (((double) stripe.size / buckets.length()) >= 0.75) { // resize this stripe at 75%
+      resizeStripe(stripe);
+    }
+  }
+
+  /**
+   * Replaces a node of a bucket chain with a new node for the same key holding replacement, or
+   * unlinks it when unlink is true. Called with the stripe's lock held. The nodes in front of the
+   * target are copied so concurrent readers of the old chain are never affected.
+   */
+  private void replaceLocked(Stripe<KeyType, ValueType> stripe,
+      AtomicReferenceArray<Node<KeyType, ValueType>> buckets, int index,
+      Node<KeyType, ValueType> target, ValueType replacement, boolean unlink) {
+    Node<KeyType, ValueType> newHead = unlink ? target.next
+        : new Node<>(target.hash, target.key, replacement, target.next);
+    for (Node<KeyType, ValueType> copy = buckets.get(index); copy != target; copy = copy.next) {
+      newHead = new Node<>(copy.hash, copy.key, copy.value, newHead);
+    }
+    buckets.set(index, newHead);
+    if (unlink) {
+      stripe.size--;
+    }
+  }
+
+  /**
+   * Adds a new key,value pair/mapping to this collection.
+   *
+   * @param key   the key of the key,value pair
+   * @param value the value that key maps to
+   * @throws IllegalArgumentException if key already maps to a value
+   * @throws NullPointerException     if key is null
+   */
+  @Override
+  public void put(KeyType key, ValueType value) throws IllegalArgumentException {
+    if (key == null) {
+      throw new NullPointerException("key is null");
+    }
+    int hash = spread(key.hashCode());
+    Stripe<KeyType, ValueType> stripe = stripeFor(hash);
+    stripe.lock();
+    try {
+      AtomicReferenceArray<Node<KeyType, ValueType>> buckets = stripe.buckets;
+      int index = bucketIndex(hash, buckets.length());
+      if (findInChain(buckets.get(index), hash, key) != null) {
+        throw new IllegalArgumentException("key already maps to a value");
+      }
+      insertLocked(stripe, buckets, index, hash, key, value);
+    } finally {
+      stripe.unlock();
+    }
+  }
+
+  /**
+   * Checks whether a key maps to a value in this collection.
+   *
+   * @param key the key to check
+   * @return true if the key maps to a value, and false is the key doesn't map to a value
+   */
+  @Override
+  public boolean containsKey(KeyType key) {
+    return findNode(key) != null;
+  }
+
+  /**
+   * Retrieves the specific value that a key maps to.
+   *
+   * @param key the key to look up
+   * @return the value that key maps to
+   * @throws NoSuchElementException when key is not stored in this collection
+   */
+  @Override
+  public ValueType get(KeyType key) throws NoSuchElementException {
+    Node<KeyType, ValueType> node = findNode(key);
+    if (node == null) {
+      throw new NoSuchElementException("key is not stored in this collection");
+    }
+    return node.value;
+  }
+
+  /**
+   * Retrieves the value that a key maps to, or a default when the key is not stored in this
+   * collection, using a single lock-free lookup.
+   *
+   * @param key          the key to look up
+   * @param defaultValue the value to return when key is not stored in this collection
+   * @return the value that key maps to, or defaultValue
+   */
+  @Override
+  public ValueType getOrDefault(KeyType key, ValueType defaultValue) {
+    Node<KeyType, ValueType> node = findNode(key);
+    return node == null ? defaultValue : node.value;
+  }
+
+  /**
+   * Remove the mapping for a key from this collection.
+   *
+   * @param key the key whose mapping to remove
+   * @return the value that the removed key mapped to
+   * @throws NoSuchElementException when key is not stored in this collection
+   */
+  @Override
+  public ValueType remove(KeyType key) throws NoSuchElementException {
+    Node<KeyType, ValueType> node = removeNode(key);
+    if (node == null) {
+      throw new NoSuchElementException("key is not stored in this collection");
+    }
+    return node.value;
+  }
+
+  /**
+   * Removes the mapping for a key from this collection if there is one. Unlike calling
+   * containsKey and then remove, this can't fail because another thread removed key in between.
+   *
+   * @param key the key whose mapping to remove
+   * @return the value that the removed key mapped to, or null if key was not in this collection
+   */
+  @Override
+  public ValueType removeIfPresent(KeyType key) {
+    Node<KeyType, ValueType> node = removeNode(key);
+    return node == null ? null : node.value;
+  }
+
+  /**
+   * Unlinks the node holding key while holding its stripe's lock
+   * @param key the key whose node to remove
+   * @return the removed node, or null if key was not in this collection
+   */
+  private Node<KeyType, ValueType> removeNode(KeyType key) {
+    if (key == null) {
+      throw new NullPointerException("key is null");
+    }
+    int hash = spread(key.hashCode());
+    Stripe<KeyType, ValueType> stripe = stripeFor(hash);
+    stripe.lock();
+    try {
+      AtomicReferenceArray<Node<KeyType, ValueType>> buckets = stripe.buckets;
+      int index = bucketIndex(hash, buckets.length());
+      Node<KeyType, ValueType> node = findInChain(buckets.get(index), hash, key);
+      if (node != null) {
+        replaceLocked(stripe, buckets, index, node, null, true);
+      }
+      return node;
+    } finally {
+      stripe.unlock();
+    }
+  }
+
+  /**
+   * Atomically adds a key,value pair/mapping only if key is not already stored in this collection.
+   *
+   * @param key   the key of the key,value pair
+   * @param value the value that key should map to
+   * @return the value that key already mapped to, or null if key was added
+   * @throws NullPointerException if key is null
+   */
+  @Override
+  public ValueType putIfAbsent(KeyType key, ValueType value) {
+    Node<KeyType, ValueType> existing = findNode(key); // lock-free fast path for present keys
+    if (existing != null) {
+      return existing.value;
+    }
+    int hash = spread(key.hashCode());
+    Stripe<KeyType, ValueType> stripe = stripeFor(hash);
+    stripe.lock();
+    try {
+      AtomicReferenceArray<Node<KeyType, ValueType>> buckets = stripe.buckets;
+      int index = bucketIndex(hash, buckets.length());
+      Node<KeyType, ValueType> node = findInChain(buckets.get(index), hash, key);
+      if (node != null) {
+        return node.value;
+      }
+      insertLocked(stripe, buckets, index, hash, key, value);
+      return null;
+    } finally {
+      stripe.unlock();
+    }
+  }
+
+  /**
+   * Atomically computes a new value for key from its current value. The remapping function runs
+   * while the key's stripe is locked, so it should be short and must not modify this map. When it
+   * returns null, the mapping for key is removed (or not added).
+   *
+   * @param key       the key whose value to compute
+   * @param remapping function from key and its current value (null when absent) to its new value
+   * @return the new value that key maps to, or null if key is no longer stored
+   * @throws NullPointerException if key is null
+   */
+  @Override
+  public ValueType compute(KeyType key,
+      BiFunction<? super KeyType, ? super ValueType, ? extends ValueType> remapping) {
+    if (key == null) {
+      throw new NullPointerException("key is null");
+    }
+    int hash = spread(key.hashCode());
+    Stripe<KeyType, ValueType> stripe = stripeFor(hash);
+    stripe.lock();
+    try {
+      AtomicReferenceArray<Node<KeyType, ValueType>> buckets = stripe.buckets;
+      int index = bucketIndex(hash, buckets.length());
+      Node<KeyType, ValueType> node = findInChain(buckets.get(index), hash, key);
+      ValueType newValue = remapping.apply(key, node == null ? null : node.value);
+      if (node != null) {
+        replaceLocked(stripe, buckets, index, node, newValue, newValue == null);
+      } else if (newValue != null) {
+        insertLocked(stripe, buckets, index, hash, key, newValue);
+      }
+      return newValue;
+    } finally {
+      stripe.unlock();
+    }
+  }
+
+  /**
+   * Atomically retrieves the value that key maps to, first computing and adding it if key is
+   * absent. The mapping function runs while the key's stripe is locked, so it should be short and
+   * must not modify this map. When it returns null, nothing is added.
+   *
+   * @param key     the key to look up
+   * @param mapping function from key to the value it should map to when it is absent
+   * @return the value that key now maps to, or null if nothing was added
+   * @throws NullPointerException if key is null
+   */
+  @Override
+  public ValueType computeIfAbsent(KeyType key,
+      Function<? super KeyType, ? extends ValueType> mapping) {
+    Node<KeyType, ValueType> existing = findNode(key); // lock-free fast path for present keys
+    if (existing != null) {
+      return existing.value;
+    }
+    int hash = spread(key.hashCode());
+    Stripe<KeyType, ValueType> stripe = stripeFor(hash);
+    stripe.lock();
+    try {
+      AtomicReferenceArray<Node<KeyType, ValueType>> buckets = stripe.buckets;
+      int index = bucketIndex(hash, buckets.length());
+      Node<KeyType, ValueType> node = findInChain(buckets.get(index), hash, key);
+      if (node != null) {
+        return node.value;
+      }
+      ValueType newValue = mapping.apply(key);
+      if (newValue != null) {
+        insertLocked(stripe, buckets, index, hash, key, newValue);
+      }
+      return newValue;
+    } finally {
+      stripe.unlock();
+    }
+  }
+
+  /**
+   * Atomically adds value for key if it is absent, or otherwise combines the current value with
+   * value. The remapping function runs while the key's stripe is locked, so it should be short and
+   * must not modify this map. When it returns null, the mapping for key is removed.
+   *
+   * @param key       the key of the key,value pair
+   * @param value     the value to add, or to combine with the current value
+   * @param remapping function from the current value and value to the new value
+   * @return the new value that key maps to, or null if key is no longer stored
+   * @throws NullPointerException if key is null
+   */
+  @Override
+  public ValueType merge(KeyType key, ValueType value,
+      BiFunction<? super ValueType, ? super ValueType, ? extends ValueType> remapping) {
+    if (key == null) {
+      throw new NullPointerException("key is null");
+    }
+    int hash = spread(key.hashCode());
+    Stripe<KeyType, ValueType> stripe = stripeFor(hash);
+    stripe.lock();
+    try {
+      AtomicReferenceArray<Node<KeyType, ValueType>> buckets = stripe.buckets;
+      int index = bucketIndex(hash, buckets.length());
+      Node<KeyType, ValueType> node = findInChain(buckets.get(index), hash, key);
+      if (node == null) {
+        insertLocked(stripe, buckets, index, hash, key, value);
+        return value;
+      }
+      ValueType newValue = remapping.apply(node.value, value);
+      replaceLocked(stripe, buckets, index, node, newValue, newValue == null);
+      return newValue;
+    } finally {
+      stripe.unlock();
+    }
+  }
+
+  /**
+   * Removes all key,value pairs from this collection. Each stripe is cleared atomically, but the
+   * map as a whole is not locked, so concurrent puts into already cleared stripes are kept.
+   */
+  @Override
+  public void clear() {
+    for (Stripe<KeyType, ValueType> stripe : stripes) {
+      stripe.lock();
+      try {
+        stripe.buckets = new AtomicReferenceArray<>(stripe.buckets.length());
+        stripe.size = 0;
+      } finally {
+        stripe.unlock();
+      }
+    }
+  }
+
+  /**
+   * Retrieves the number of keys stored in this collection. The count of each stripe is read
+   * without locking, so under concurrent modification this is only an estimate.
+   *
+   * @return the number of keys stored in this collection
+   */
+  @Override
+  public int getSize() {
+    int size = 0;
+    for (Stripe<KeyType, ValueType> stripe : stripes) {
+      size += stripe.size;
+    }
+    return size;
+  }
+
+  /**
+   * Retrieves this collection's capacity.
+   *
+   * @return the total number of buckets across all stripes
+   */
+  @Override
+  public int getCapacity() {
+    int capacity = 0;
+    for (Stripe<KeyType, ValueType> stripe : stripes) {
+      capacity += stripe.buckets.length();
+    }
+    return capacity;
+  }
+
+  /**
+   * Creates a weakly consistent iterator over the key,value pairs stored in this collection. It
+   * never throws because of concurrent modification: each bucket is read as it stood when the
+   * iterator reached it, so pairs added or removed during iteration may or may not be seen.
+   *
+   * @return an iterator over the entries of this collection
+   */
+  @Override
+  public Iterator<Map.Entry<KeyType, ValueType>> entryIterator() {
+    return new Iterator<Map.Entry<KeyType, ValueType>>() {
+      private int stripe = 0;
+      private int bucket = 0;
+      private AtomicReferenceArray<Node<KeyType, ValueType>> buckets = stripes[0].buckets;
+      private Node<KeyType, ValueType> next = advance(null);
+
+      private Node<KeyType, ValueType> advance(Node<KeyType, ValueType> node) {
+        if (node != null && node.next != null) {
+          return node.next;
+        }
+        while (true) {
+          if (bucket == buckets.length()) {
+            if (++stripe == stripes.length) {
+              return null;
+            }
+            buckets = stripes[stripe].buckets;
+            bucket = 0;
+          }
+          Node<KeyType, ValueType> head = buckets.get(bucket++);
+          if (head != null) {
+            return head;
+          }
+        }
+      }
+
+      @Override
+      public boolean hasNext() {
+        return next != null;
+      }
+
+      @Override
+      public Map.Entry<KeyType, ValueType> next() {
+        if (next == null) {
+          throw new NoSuchElementException("no more entries");
+        }
+        Node<KeyType, ValueType> node = next;
+        next = advance(node);
+        return new AbstractMap.SimpleImmutableEntry<>(node.key, node.value);
+      }
+    };
+  }
+
+  /**
+   * Tests the single threaded MapADT contract: duplicate and null keys, misses, and that stripes
+   * resize independently as they fill
+   */
+  @Test
+  public void testSingleThreaded() {
+    ConcurrentHashtableMap<Integer, String> map = new ConcurrentHashtableMap<>(4, 16);
+    Assertions.assertEquals(16, map.getCapacity());
+    for (int i = 0; i < 1000; i++) {
+      map.put(i, Integer.toString(i));
+    }
+    Assertions.assertTrue(map.getCapacity() >= 1000 / 0.75);
+    Assertions.assertThrows(IllegalArgumentException.class, () -> map.put(5, "5"));
+    Assertions.assertThrows(NullPointerException.class, () -> map.put(null, "null"));
+    Assertions.assertThrows(NoSuchElementException.class, () -> map.get(1000));
+    for (int i = 0; i < 1000; i += 2) {
+      Assertions.assertEquals(Integer.toString(i), map.remove(i));
+    }
+    Assertions.assertThrows(NoSuchElementException.class, () -> map.remove(0));
+    for (int i = 0; i < 1000; i++) {
+      Assertions.assertEquals(i % 2 != 0, map.containsKey(i));
+    }
+    Assertions.assertEquals(500, map.getSize());
+    Assertions.assertEquals(500, map.entryStream(true).filter(e -> e.getKey() % 2 != 0).count());
+    map.clear();
+    Assertions.assertEquals(0, map.getSize());
+    Assertions.assertFalse(map.containsKey(1));
+  }
+
+  /**
+   * Stress tests mixed put/get/remove from many threads. Each thread owns a private key range, for
+   * which every read must agree exactly with what that thread last wrote, and all threads also
+   * fight over a small shared key range, for which every successful put must be matched by at most
+   * one successful remove (so the final contents must equal puts minus removes for every key).
+   */
+  @Test
+  public void testConcurrentStress() throws InterruptedException {
+    ConcurrentHashtableMap<Integer, Integer> map = new ConcurrentHashtableMap<>(8, 8);
+    int threads = 8;
+    int operations = 200000;
+    int sharedKeys = 64;
+    int[][] successfulPuts = new int[threads][sharedKeys];
+    int[][] successfulRemoves = new int[threads][sharedKeys];
+    List<Throwable> failures = new ArrayList<>();
+    CountDownLatch start = new CountDownLatch(1);
+    List<Thread> workers = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      int id = t;
+      Thread worker = new Thread(() -> {
+        Random random = new Random(id);
+        boolean[] present = new boolean[1000]; // this thread's model of its private keys
+        try {
+          start.await();
+          for (int op = 0; op < operations; op++) {
+            if (random.nextBoolean()) {
+              int local = random.nextInt(present.length);
+              int key = sharedKeys + id * present.length + local;
+              switch (random.nextInt(3)) {
+                case 0:
+                  if (present[local]) {
+                    Assertions.assertThrows(IllegalArgumentException.class, () -> map.put(key, 0));
+                  } else {
+                    map.put(key, -key);
+                    present[local] = true;
+                  }
+                  break;
+                case 1:
+                  Assertions.assertEquals(present[local], map.containsKey(key));
+                  if (present[local]) {
+                    Assertions.assertEquals(-key, map.get(key));
+                  }
+                  break;
+                default:
+                  if (present[local]) {
+                    Assertions.assertEquals(-key, map.remove(key));
+                    present[local] = false;
+                  } else {
+                    Assertions.assertThrows(NoSuchElementException.class, () -> map.remove(key));
+                  }
+              }
+            } else {
+              int key = random.nextInt(sharedKeys);
+              try {
+                if (random.nextBoolean()) {
+                  map.put(key, key);
+                  successfulPuts[id][key]++;
+                } else {
+                  // any value read for a shared key must be the only value ever stored for it
+                  Assertions.assertEquals(key, map.remove(key));
+                  successfulRemoves[id][key]++;
+                }
+              } catch (IllegalArgumentException | NoSuchElementException e) {
+                // lost the race for this key, which is expected
+              }
+            }
+          }
+          for (int local = 0; local < present.length; local++) {
+            Assertions.assertEquals(present[local],
+                map.containsKey(sharedKeys + id * present.length + local));
+          }
+        } catch (Throwable e) {
+          synchronized (failures) {
+            failures.add(e);
+          }
+        }
+      });
+      workers.add(worker);
+      worker.start();
+    }
+    start.countDown();
+    for (Thread worker : workers) {
+      worker.join();
+    }
+    Assertions.assertTrue(failures.isEmpty(), () -> failures.get(0).toString());
+
+    int expectedSize = 0;
+    for (int key = 0; key < sharedKeys; key++) {
+      int balance = 0;
+      for (int t = 0; t < threads; t++) {
+        balance += successfulPuts[t][key] - successfulRemoves[t][key];
+      }
+      Assertions.assertTrue(balance == 0 || balance == 1);
+      Assertions.assertEquals(balance == 1, map.containsKey(key));
+      expectedSize += balance;
+    }
+    for (int key = sharedKeys; key < sharedKeys + threads * 1000; key++) {
+      if (map.containsKey(key)) {
+        expectedSize++;
+      }
+    }
+    Assertions.assertEquals(expectedSize, map.getSize());
+  }
+
+  /**
+   * Tests that merge and computeIfAbsent are atomic: concurrent tallies must not lose updates, and
+   * every thread must see the single value that computeIfAbsent stored for a key
+   */
+  @Test
+  public void testConcurrentUpserts() throws InterruptedException {
+    ConcurrentHashtableMap<Integer, Integer> counts = new ConcurrentHashtableMap<>(4, 4);
+    ConcurrentHashtableMap<Integer, Object> singletons = new ConcurrentHashtableMap<>(4, 4);
+    Object[][] seen = new Object[8][100];
+    List<Thread> workers = new ArrayList<>();
+    for (int t = 0; t < 8; t++) {
+      int id = t;
+      Thread worker = new Thread(() -> {
+        for (int i = 0; i < 20000; i++) {
+          counts.merge(i % 100, 1, Integer::sum);
+        }
+        for (int key = 0; key < 100; key++) {
+          seen[id][key] = singletons.computeIfAbsent(key, k -> new Object());
+        }
+      });
+      workers.add(worker);
+      worker.start();
+    }
+    for (Thread worker : workers) {
+      worker.join();
+    }
+    for (int key = 0; key < 100; key++) {
+      Assertions.assertEquals(8 * 200, counts.get(key));
+      for (int t = 0; t < 8; t++) {
+        Assertions.assertSame(singletons.get(key), seen[t][key]);
+      }
+    }
+    Assertions.assertNull(counts.compute(0, (key, value) -> null));
+    Assertions.assertEquals(99, counts.getSize());
+    Assertions.assertEquals(1600, counts.putIfAbsent(1, 0));
+  }
+}
@@ -0,0 +1,874 @@
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Implementation of MapADT for read-mostly concurrent use. The pairs are stored in an immutable
+ * hash array mapped trie (HAMT), and the current version is published through a volatile
+ * reference: readers take no lock and never see a write half done. Writers are serialized by a
+ * lock and build the next version by copying only the nodes on the paths they change, so a version
+ * shares every untouched node with the one before it. A batch of writes passed to update is
+ * published as a single new version, and nodes created within the batch are edited in place
+ * rather than copied again for each write.
+ */
+public class CopyOnWriteHashtableMap<KeyType, ValueType> implements MapADT<KeyType, ValueType> {
+
+  private static final int BITS_PER_LEVEL = 5; // each level consumes 5 bits of the hash
+  private static final int MAX_DEPTH = 8; // 7 levels use all 32 bits, plus one collision node
+
+  /**
+   * Immutable key,value pair stored in the trie
+   */
+  protected static final class Leaf<KeyType, ValueType> implements Map.Entry<KeyType, ValueType> {
+
+    public final int hash;
+    public final KeyType key;
+    public final ValueType value;
+
+    public Leaf(int hash, KeyType key, ValueType value) {
+      this.hash = hash;
+      this.key = key;
+      this.value = value;
+    }
+
+    @Override
+    public KeyType getKey() {
+      return key;
+    }
+
+    @Override
+    public ValueType getValue() {
+      return value;
+    }
+
+    @Override
+    public ValueType setValue(ValueType value) {
+      throw new UnsupportedOperationException("entries of a CopyOnWriteHashtableMap are read-only");
+    }
+
+  }
+
+  /**
+   * Inner trie node. Bit i of bitmap is set when the node has a child for the 5 hash bits i, and
+   * the children (Leaf, BitmapNode or CollisionNode) are packed into slots in bit order. A node may
+   * only be modified in place by the batch whose edit token it carries.
+   */
+  protected static final class BitmapNode {
+
+    public final Object edit;
+    public int bitmap;
+    public Object[] slots;
+
+    public BitmapNode(Object edit, int bitmap, Object[] slots) {
+      this.edit = edit;
+      this.bitmap = bitmap;
+      this.slots = slots;
+    }
+
+  }
+
+  /**
+   * Node holding two or more leaves whose keys have the same hash
+   */
+  protected static final class CollisionNode {
+
+    public final Object edit;
+    public final int hash;
+    public Leaf<?, ?>[] leaves;
+
+    public CollisionNode(Object edit, int hash, Leaf<?, ?>[] leaves) {
+      this.edit = edit;
+      this.hash = hash;
+      this.leaves = leaves;
+    }
+
+  }
+
+  /**
+   * An immutable version of the map. Every read of a CopyOnWriteHashtableMap goes to its current
+   * Snapshot, and snapshot() hands one out so that several reads can see the same version.
+   */
+  public static final class Snapshot<KeyType, ValueType> implements MapADT<KeyType, ValueType> {
+
+    private final HashStrategy<? super KeyType> hashStrategy;
+    private final BitmapNode root;
+    private final int size;
+
+    private Snapshot(HashStrategy<? super KeyType> hashStrategy, BitmapNode root, int size) {
+      this.hashStrategy = hashStrategy;
+      this.root = root;
+      this.size = size;
+    }
+
+    /**
+     * @throws UnsupportedOperationException always, since snapshots are read-only
+     */
+    @Override
+    public void put(KeyType key, ValueType value) {
+      throw new UnsupportedOperationException("snapshots are read-only");
+    }
+
+    @Override
+    public boolean containsKey(KeyType key) {
+      return key != null && find(root, hashStrategy.hash(key), key) != null;
+    }
+
+    @Override
+    public ValueType get(KeyType key) throws NoSuchElementException {
+      Leaf<KeyType, ValueType> leaf = key == null ? null : find(root, hashStrategy.hash(key), key);
+      if (leaf == null) {
+        throw new NoSuchElementException("key is not stored in this collection");
+      }
+      return leaf.value;
+    }
+
+    @Override
+    public ValueType getOrDefault(KeyType key, ValueType defaultValue) {
+      Leaf<KeyType, ValueType> leaf = key == null ? null : find(root, hashStrategy.hash(key), key);
+      return leaf == null ? defaultValue : leaf.value;
+    }
+
+    /**
+     * @throws UnsupportedOperationException always, since snapshots are read-only
+     */
+    @Override
+    public ValueType remove(KeyType key) {
+      throw new UnsupportedOperationException("snapshots are read-only");
+    }
+
+    /**
+     * @throws UnsupportedOperationException always, since snapshots are read-only
+     */
+    @Override
+    public void clear() {
+      throw new UnsupportedOperationException("snapshots are read-only");
+    }
+
+    @Override
+    public int getSize() {
+      return size;
+    }
+
+    /**
+     * Retrieves this collection's capacity.
+     *
+     * @return the number of keys stored, since the nodes of a trie hold exactly its pairs
+     */
+    @Override
+    public int getCapacity() {
+      return size;
+    }
+
+    @Override
+    public Iterator<Map.Entry<KeyType, ValueType>> entryIterator() {
+      return new TrieIterator<>(root);
+    }
+
+  }
+
+  /**
+   * Depth-first iterator over the leaves of a trie, keeping the slot arrays of the nodes on the
+   * current path in a fixed-size stack
+   */
+  private static final class TrieIterator<KeyType, ValueType>
+      implements Iterator<Map.Entry<KeyType, ValueType>> {
+
+    private final Object[][] arrays = new Object[MAX_DEPTH][];
+    private final int[] positions = new int[MAX_DEPTH];
+    private int depth = 0;
+    private Leaf<KeyType, ValueType> next;
+
+    public TrieIterator(BitmapNode root) {
+      arrays[0] = root.slots;
+      next = advance();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Leaf<KeyType, ValueType> advance() {
+      while (true) {
+        if (positions[depth] == arrays[depth].length) {
+          if (depth == 0) {
+            return null;
+          }
+          depth--;
+          continue;
+        }
+        Object child = arrays[depth][positions[depth]++];
+        if (child instanceof Leaf) {
+          return (Leaf<KeyType, ValueType>) child;
+        }
+        depth++;
+        arrays[depth] = child instanceof BitmapNode ? ((BitmapNode) child).slots
+            : ((CollisionNode) child).leaves;
+        positions[depth] = 0;
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next != null;
+    }
+
+    @Override
+    public Map.Entry<KeyType, ValueType> next() {
+      if (next == null) {
+        throw new NoSuchElementException("no more entries in this collection");
+      }
+      Leaf<KeyType, ValueType> current = next;
+      next = advance();
+      return current;
+    }
+
+  }
+
+  /**
+   * A set of writes that update publishes as one new version. The batch reads its own writes, and
+   * all of MapADT's methods can be used on it until update returns, after which it is closed.
+   */
+  public final class Batch implements MapADT<KeyType, ValueType> {
+
+    private Object edit = new Object(); // token of the nodes this batch may modify in place
+    private BitmapNode root;
+    private int size;
+
+    private Batch(Snapshot<KeyType, ValueType> base) {
+      root = base.root;
+      size = base.size;
+    }
+
+    private void ensureOpen() {
+      if (edit == null) {
+        throw new IllegalStateException("batch is closed");
+      }
+    }
+
+    /**
+     * Adds a new key,value pair/mapping to this batch.
+     *
+     * @param key   the key of the key,value pair
+     * @param value the value that key maps to
+     * @throws IllegalArgumentException if key already maps to a value
+     * @throws NullPointerException     if key is null
+     */
+    @Override
+    public void put(KeyType key, ValueType value) throws IllegalArgumentException {
+      ensureOpen();
+      if (key == null) {
+        throw new NullPointerException("key is null");
+      }
+      int hash = hashStrategy.hash(key);
+      if (find(root, hash, key) != null) {
+        throw new IllegalArgumentException("key already maps to a value");
+      }
+      root = (BitmapNode) insert(root, 0, new Leaf<>(hash, key, value), edit);
+      size++;
+    }
+
+    @Override
+    public boolean containsKey(KeyType key) {
+      ensureOpen();
+      return key != null && find(root, hashStrategy.hash(key), key) != null;
+    }
+
+    @Override
+    public ValueType get(KeyType key) throws NoSuchElementException {
+      ensureOpen();
+      Leaf<KeyType, ValueType> leaf = key == null ? null : find(root, hashStrategy.hash(key), key);
+      if (leaf == null) {
+        throw new NoSuchElementException("key is not stored in this collection");
+      }
+      return leaf.value;
+    }
+
+    @Override
+    public ValueType getOrDefault(KeyType key, ValueType defaultValue) {
+      ensureOpen();
+      Leaf<KeyType, ValueType> leaf = key == null ? null : find(root, hashStrategy.hash(key), key);
+      return leaf == null ? defaultValue : leaf.value;
+    }
+
+    @Override
+    public ValueType remove(KeyType key) throws NoSuchElementException {
+      ensureOpen();
+      Leaf<KeyType, ValueType> leaf = key == null ? null : find(root, hashStrategy.hash(key), key);
+      if (leaf == null) {
+        throw new NoSuchElementException("key is not stored in this collection");
+      }
+      Object removed = delete(root, 0, leaf, edit);
+      root = removed == null ? new BitmapNode(edit, 0, new Object[0]) : (BitmapNode) removed;
+      size--;
+      return leaf.value;
+    }
+
+    @Override
+    public void clear() {
+      ensureOpen();
+      root = new BitmapNode(edit, 0, new Object[0]);
+      size = 0;
+    }
+
+    @Override
+    public int getSize() {
+      return size;
+    }
+
+    @Override
+    public int getCapacity() {
+      return size;
+    }
+
+    @Override
+    public Iterator<Map.Entry<KeyType, ValueType>> entryIterator() {
+      ensureOpen();
+      return new TrieIterator<>(root);
+    }
+
+  }
+
+  private final HashStrategy<? super KeyType> hashStrategy;
+  private final ReentrantLock writeLock = new ReentrantLock(); // serializes writers
+  private volatile Snapshot<KeyType, ValueType> current;
+
+  /**
+   * constructor that creates an empty map hashing keys with the given strategy
+   * @param hashStrategy computes the hash that places each key in the trie
+   */
+  public CopyOnWriteHashtableMap(HashStrategy<? super KeyType> hashStrategy) {
+    if (hashStrategy == null) {
+      throw new NullPointerException("hashStrategy is null");
+    }
+    this.hashStrategy = hashStrategy;
+    current = new Snapshot<>(hashStrategy, new BitmapNode(null, 0, new Object[0]), 0);
+  }
+
+  /**
+   * Default constructor that creates an empty map whose keys are hashed with a random seed
+   */
+  public CopyOnWriteHashtableMap() {
+    this(HashStrategy.seeded());
+  }
+
+  /**
+   * Finds the leaf holding key in a trie
+   * @return the leaf holding key, or null if key is not stored in the trie
+   */
+  @SuppressWarnings("unchecked")
+  private static <KeyType, ValueType> Leaf<KeyType, ValueType> find(BitmapNode root, int hash,
+      Object key) {
+    Object node = root;
+    for (int shift = 0; node instanceof BitmapNode; shift += BITS_PER_LEVEL) {
+      BitmapNode bitmapNode = (BitmapNode) node;
+      int bit = 1 << ((hash >>> shift) & 31);
+      if ((bitmapNode.bitmap & bit) == 0) {
+        return null;
+      }
+      node = bitmapNode.slots[Integer.bitCount(bitmapNode.bitmap & (bit - 1))];
+    }
+    if (node instanceof Leaf) {
+      Leaf<KeyType, ValueType> leaf = (Leaf<KeyType, ValueType>) node;
+      return leaf.hash == hash && leaf.key.equals(key) ? leaf : null;
+    }
+    CollisionNode collision = (CollisionNode) node;
+    if (collision.hash == hash) {
+      for (Leaf<?, ?> leaf : collision.leaves) {
+        if (leaf.key.equals(key)) {
+          return (Leaf<KeyType, ValueType>) leaf;
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Adds a leaf whose key is known not to be in the subtrie rooted at node
+   * @param node a BitmapNode or CollisionNode
+   * @param shift the number of hash bits consumed by the levels above node
+   * @param leaf the leaf to add
+   * @param edit the token of the batch making the change
+   * @return node itself if it could be edited in place, or else a copy that holds leaf
+   */
+  private static Object insert(Object node, int shift, Leaf<?, ?> leaf, Object edit) {
+    if (node instanceof CollisionNode) {
+      CollisionNode collision = (CollisionNode) node;
+      if (collision.hash != leaf.hash) {
+        // leaf only shares the part of the hash consumed so far, so the collision moves down
+        BitmapNode parent = new BitmapNode(edit, bitOf(collision.hash, shift),
+            new Object[] {collision});
+        return insert(parent, shift, leaf, edit);
+      }
+      Leaf<?, ?>[] leaves = new Leaf<?, ?>[collision.leaves.length + 1];
+      System.arraycopy(collision.leaves, 0, leaves, 0, collision.leaves.length);
+      leaves[collision.leaves.length] = leaf;
+      if (collision.edit == edit) {
+        collision.leaves = leaves;
+        return collision;
+      }
+      return new CollisionNode(edit, collision.hash, leaves);
+    }
+    BitmapNode bitmapNode = (BitmapNode) node;
+    int bit = bitOf(leaf.hash, shift);
+    int index = Integer.bitCount(bitmapNode.bitmap & (bit - 1));
+    if ((bitmapNode.bitmap & bit) == 0) {
+      Object[] slots = new Object[bitmapNode.slots.length + 1];
+      System.arraycopy(bitmapNode.slots, 0, slots, 0, index);
+      slots[index] = leaf;
+      System.arraycopy(bitmapNode.slots, index, slots, index + 1, bitmapNode.slots.length - index);
+      if (bitmapNode.edit == edit) {
+        bitmapNode.bitmap |= bit;
+        bitmapNode.slots = slots;
+        return bitmapNode;
+      }
+      return new BitmapNode(edit, bitmapNode.bitmap | bit, slots);
+    }
+    Object child = bitmapNode.slots[index];
+    Object newChild = child instanceof Leaf
+        ? split((Leaf<?, ?>) child, leaf, shift + BITS_PER_LEVEL, edit)
+        : insert(child, shift + BITS_PER_LEVEL, leaf, edit);
+    return withSlot(bitmapNode, index, newChild, edit);
+  }
+
+  /**
+   * Creates the subtrie holding two leaves that share the hash bits consumed above shift
+   */
+  private static Object split(Leaf<?, ?> first, Leaf<?, ?> second, int shift, Object edit) {
+    if (first.hash == second.hash) {
+      return new CollisionNode(edit, first.hash, new Leaf<?, ?>[] {first, second});
+    }
+    int firstBit = bitOf(first.hash, shift);
+    int secondBit = bitOf(second.hash, shift);
+    if (firstBit == secondBit) {
+      return new BitmapNode(edit, firstBit,
+          new Object[] {split(first, second, shift + BITS_PER_LEVEL, edit)});
+    }
+    return new BitmapNode(edit, firstBit | secondBit, Integer.compareUnsigned(firstBit, secondBit)
+        < 0 ? new Object[] {first, second} : new Object[] {second, first});
+  }
+
+  /**
+   * Removes a leaf that is known to be in the subtrie rooted at node
+   * @param node a BitmapNode or CollisionNode
+   * @param shift the number of hash bits consumed by the levels above node
+   * @param leaf the leaf to remove
+   * @param edit the token of the batch making the change
+   * @return the subtrie without leaf: node itself or a copy of it, a single remaining leaf that
+   *         the parent should hold directly, or null if the subtrie is now empty
+   */
+  private static Object delete(Object node, int shift, Leaf<?, ?> leaf, Object edit) {
+    if (node instanceof CollisionNode) {
+      CollisionNode collision = (CollisionNode) node;
+      if (collision.leaves.length == 2) {
+        return collision.leaves[collision.leaves[0] == leaf ? 1 : 0];
+      }
+      Leaf<?, ?>[] leaves = new Leaf<?, ?>[collision.leaves.length - 1];
+      int kept = 0;
+      for (Leaf<?, ?> other : collision.leaves) {
+        if (other != leaf) {
+          leaves[kept++] = other;
+        }
+      }
+      if (collision.edit == edit) {
+        collision.leaves = leaves;
+        return collision;
+      }
+      return new CollisionNode(edit, collision.hash, leaves);
+    }
+    BitmapNode bitmapNode = (BitmapNode) node;
+    int bit = bitOf(leaf.hash, shift);
+    int index = Integer.bitCount(bitmapNode.bitmap & (bit - 1));
+    Object child = bitmapNode.slots[index];
+    Object newChild = child == leaf ? null : delete(child, shift + BITS_PER_LEVEL, leaf, edit);
+    if (newChild != null) {
+      if (newChild instanceof Leaf && bitmapNode.slots.length == 1 && shift > 0) {
+        return newChild; // this node would only hold the leaf, so the parent can hold it instead
+      }
+      return withSlot(bitmapNode, index, newChild, edit);
+    }
+    if (bitmapNode.slots.length == 1) {
+      return null;
+    } else if (bitmapNode.slots.length == 2 && shift > 0 && bitmapNode.slots[1 - index]
+        instanceof Leaf) {
+      return bitmapNode.slots[1 - index];
+    }
+    Object[] slots = new Object[bitmapNode.slots.length - 1];
+    System.arraycopy(bitmapNode.slots, 0, slots, 0, index);
+    System.arraycopy(bitmapNode.slots, index + 1, slots, index, slots.length - index);
+    if (bitmapNode.edit == edit) {
+      bitmapNode.bitmap &= ~bit;
+      bitmapNode.slots = slots;
+      return bitmapNode;
+    }
+    return new BitmapNode(edit, bitmapNode.bitmap & ~bit, slots);
+  }
+
+  /**
+   * Replaces one child of a node, in place if the batch may edit it and otherwise in a copy
+   */
+  private static BitmapNode withSlot(BitmapNode node, int index, Object child, Object edit) {
+    if (node.slots[index] == child) {
+      return node;
+    } else if (node.edit == edit) {
+      node.slots[index] = child;
+      return node;
+    }
+    Object[] slots = node.slots.clone();
+    slots[index] = child;
+    return new BitmapNode(edit, node.bitmap, slots);
+  }
+
+  private static int bitOf(int hash, int shift) {
+    return 1 << ((hash >>> shift) & 31);
+  }
+
+  /**
+   * Applies a batch of writes and publishes them as one new version. Readers see either none or
+   * all of the batch. If changes throws, nothing is published and the exception is rethrown.
+   *
+   * @param changes the writes to make, applied to a Batch that starts from the current version
+   */
+  public void update(Consumer<? super Batch> changes) {
+    write(batch -> {
+      changes.accept(batch);
+      return null;
+    });
+  }
+
+  /**
+   * Runs a function on a new batch while holding the write lock, publishes the batch if the
+   * function returns normally, and closes it either way
+   * @return what the function returned
+   */
+  private <R> R write(Function<Batch, R> changes) {
+    writeLock.lock();
+    Batch batch = new Batch(current);
+    try {
+      R result = changes.apply(batch);
+      current = new Snapshot<>(hashStrategy, batch.root, batch.size);
+      return result;
+    } finally {
+      batch.edit = null;
+      writeLock.unlock();
+    }
+  }
+
+  /**
+   * Retrieves the current version of this collection, which later writes won't change
+   *
+   * @return an immutable snapshot of the pairs stored in this collection
+   */
+  public Snapshot<KeyType, ValueType> snapshot() {
+    return current;
+  }
+
+  /**
+   * Adds a new key,value pair/mapping to this collection.
+   *
+   * @param key   the key of the key,value pair
+   * @param value the value that key maps to
+   * @throws IllegalArgumentException if key already maps to a value
+   * @throws NullPointerException     if key is null
+   */
+  @Override
+  public void put(KeyType key, ValueType value) throws IllegalArgumentException {
+    update(batch -> batch.put(key, value));
+  }
+
+  /**
+   * Checks whether a key maps to a value in this collection.
+   *
+   * @param key the key to check
+   * @return true if the key maps to a value, and false is the key doesn't map to a value
+   */
+  @Override
+  public boolean containsKey(KeyType key) {
+    return current.containsKey(key);
+  }
+
+  /**
+   * Retrieves the specific value that a key maps to.
+   *
+   * @param key the key to look up
+   * @return the value that key maps to
+   * @throws NoSuchElementException when key is not stored in this collection
+   */
+  @Override
+  public ValueType get(KeyType key) throws NoSuchElementException {
+    return current.get(key);
+  }
+
+  @Override
+  public ValueType getOrDefault(KeyType key, ValueType defaultValue) {
+    return current.getOrDefault(key, defaultValue);
+  }
+
+  /**
+   * Remove the mapping for a key from this collection.
+   *
+   * @param key the key whose mapping to remove
+   * @return the value that the removed key mapped to
+   * @throws NoSuchElementException when key is not stored in this collection
+   */
+  @Override
+  public ValueType remove(KeyType key) throws NoSuchElementException {
+    return write(batch -> batch.remove(key));
+  }
+
+  @Override
+  public ValueType removeIfPresent(KeyType key) {
+    return current.containsKey(key) ? write(batch -> batch.removeIfPresent(key)) : null;
+  }
+
+  @Override
+  public ValueType putIfAbsent(KeyType key, ValueType value) {
+    return write(batch -> batch.putIfAbsent(key, value));
+  }
+
+  @Override
+  public ValueType compute(KeyType key,
+      BiFunction<? super KeyType, ? super ValueType, ? extends ValueType> remapping) {
+    return write(batch -> batch.compute(key, remapping));
+  }
+
+  /**
+   * Retrieves the value that key maps to, first computing and adding it if key is absent. A key
+   * that is already stored is found without taking the write lock.
+   *
+   * @param key     the key to look up
+   * @param mapping function from key to the value it should map to when it is absent
+   * @return the value that key now maps to, or null if nothing was added
+   * @throws NullPointerException if key is null
+   */
+  @Override
+  public ValueType computeIfAbsent(KeyType key,
+      Function<? super KeyType, ? extends ValueType> mapping) {
+    if (key == null) {
+      throw new NullPointerException("key is null");
+    }
+    Leaf<KeyType, ValueType> leaf = find(current.root, hashStrategy.hash(key), key);
+    return leaf != null ? leaf.value : write(batch -> batch.computeIfAbsent(key, mapping));
+  }
+
+  @Override
+  public ValueType merge(KeyType key, ValueType value,
+      BiFunction<? super ValueType, ? super ValueType, ? extends ValueType> remapping) {
+    return write(batch -> batch.merge(key, value, remapping));
+  }
+
+  /**
+   * Adds every key,value pair of another collection to this one as a single new version.
+   *
+   * @param other the collection whose pairs to add
+   * @throws IllegalArgumentException if a key of other already maps to a value in this
+   *                                  collection (nothing is added)
+   */
+  @Override
+  public void putAll(MapADT<? extends KeyType, ? extends ValueType> other) {
+    update(batch -> batch.putAll(other));
+  }
+
+  /**
+   * Adds the pairs keys[i],values[i] to this collection as a single new version.
+   *
+   * @param keys   the keys to add
+   * @param values the values that the keys map to, in the same order
+   * @throws IllegalArgumentException if the arrays differ in length, or if a key already maps to
+   *                                  a value (nothing is added in either case)
+   */
+  @Override
+  public void putAll(KeyType[] keys, ValueType[] values) {
+    update(batch -> batch.putAll(keys, values));
+  }
+
+  /**
+   * Adds every key,value pair of entries to this collection as a single new version.
+   *
+   * @param entries the pairs to add
+   * @throws IllegalArgumentException if a key already maps to a value (nothing is added)
+   */
+  @Override
+  public void putAll(
+      Iterable<? extends Map.Entry<? extends KeyType, ? extends ValueType>> entries) {
+    update(batch -> batch.putAll(entries));
+  }
+
+  /**
+   * Removes all key,value pairs from this collection.
+   */
+  @Override
+  public void clear() {
+    update(Batch::clear);
+  }
+
+  /**
+   * Retrieves the number of keys stored in this collection.
+   *
+   * @return the number of keys stored in this collection
+   */
+  @Override
+  public int getSize() {
+    return current.getSize();
+  }
+
+  /**
+   * Retrieves this collection's capacity.
+   *
+   * @return the number of keys stored, since the nodes of a trie hold exactly its pairs
+   */
+  @Override
+  public int getCapacity() {
+    return current.getCapacity();
+  }
+
+  /**
+   * Creates an iterator over the pairs of the version current when it was created. Later writes
+   * never affect it.
+   *
+   * @return an iterator over the entries of this collection
+   */
+  @Override
+  public Iterator<Map.Entry<KeyType, ValueType>> entryIterator() {
+    return current.entryIterator();
+  }
+
+  /**
+   * Tests the MapADT methods, that snapshots don't change, that a batch is published as a whole or
+   * not at all, that versions share their untouched nodes, and that keys with equal hash codes
+   * are stored and removed correctly
+   */
+  @Test
+  public void testSnapshotsAndBatches() {
+    CopyOnWriteHashtableMap<Integer, String> map = new CopyOnWriteHashtableMap<>();
+    for (int i = 0; i < 1000; i++) {
+      map.put(i, Integer.toString(i));
+    }
+    Assertions.assertThrows(IllegalArgumentException.class, () -> map.put(5, "5"));
+    Assertions.assertThrows(NullPointerException.class, () -> map.put(null, "null"));
+    Assertions.assertThrows(NoSuchElementException.class, () -> map.get(1000));
+    Snapshot<Integer, String> before = map.snapshot();
+    for (int i = 0; i < 1000; i += 2) {
+      Assertions.assertEquals(Integer.toString(i), map.remove(i));
+    }
+    Assertions.assertThrows(NoSuchElementException.class, () -> map.remove(0));
+    Assertions.assertEquals(500, map.getSize());
+    Assertions.assertEquals(500, map.entryStream(false).filter(e -> e.getKey() % 2 != 0).count());
+    Assertions.assertEquals(1000, before.getSize());
+    Assertions.assertEquals("0", before.get(0));
+    Assertions.assertThrows(UnsupportedOperationException.class, () -> before.remove(1));
+
+    // a failing batch publishes nothing, and a successful one publishes everything
+    Assertions.assertThrows(IllegalArgumentException.class, () -> map.update(batch -> {
+      batch.put(-1, "-1");
+      batch.put(1, "1");
+    }));
+    Assertions.assertFalse(map.containsKey(-1));
+    Assertions.assertThrows(IllegalArgumentException.class,
+        () -> map.putAll(new Integer[] {-1, 1}, new String[] {"-1", "1"}));
+    Assertions.assertFalse(map.containsKey(-1));
+    map.update(batch -> {
+      for (int i = 0; i < 1000; i += 2) {
+        batch.put(i, "even");
+      }
+      batch.remove(1);
+      batch.merge(3, "!", String::concat);
+    });
+    Assertions.assertEquals(999, map.getSize());
+    Assertions.assertEquals("even", map.get(0));
+    Assertions.assertEquals("3!", map.get(3));
+    Assertions.assertFalse(map.containsKey(1));
+
+    // one write copies only the path to its key
+    Snapshot<Integer, String> previous = map.snapshot();
+    map.put(1, "1");
+    int shared = 0;
+    for (int i = 0; i < previous.root.slots.length; i++) {
+      shared += previous.root.slots[i] == map.snapshot().root.slots[i] ? 1 : 0;
+    }
+    Assertions.assertEquals(previous.root.slots.length - 1, shared);
+    List<CopyOnWriteHashtableMap<Integer, String>.Batch> escaped = new ArrayList<>();
+    map.update(escaped::add);
+    Assertions.assertThrows(IllegalStateException.class, () -> escaped.get(0).put(-1, "-1"));
+    Assertions.assertThrows(ArithmeticException.class, () -> map.update(batch -> {
+      batch.put(-1, "-1");
+      throw new ArithmeticException("boom");
+    }));
+    map.put(-1, "-1"); // the write lock was released, and the failed batch wasn't published
+
+    // "Aa" and "BB" have the same hash code, so with the identity strategy every 4 letter string
+    // made of them collides, and the others only partly share their hash bits
+    CopyOnWriteHashtableMap<String, Integer> colliding =
+        new CopyOnWriteHashtableMap<>(HashStrategy.identity());
+    List<String> keys = new ArrayList<>();
+    for (String first : new String[] {"Aa", "BB"}) {
+      for (String second : new String[] {"Aa", "BB"}) {
+        keys.add(first + second);
+      }
+    }
+    keys.add("AaAb");
+    keys.add("C");
+    colliding.update(batch -> keys.forEach(key -> batch.put(key, key.length())));
+    for (String key : keys) {
+      Assertions.assertEquals(key.length(), colliding.get(key));
+    }
+    Assertions.assertFalse(colliding.containsKey("AaAc"));
+    for (String key : keys) {
+      colliding.remove(key);
+      Assertions.assertFalse(colliding.containsKey(key));
+      Assertions.assertEquals(colliding.getSize(), colliding.entryStream(false).count());
+    }
+    Assertions.assertEquals(0, colliding.snapshot().root.slots.length);
+  }
+
+  /**
+   * Tests that readers running alongside a writer always see whole batches: each batch adds a key
+   * and its negation, so every snapshot must hold both or neither
+   */
+  @Test
+  public void testConcurrentReaders() throws InterruptedException {
+    CopyOnWriteHashtableMap<Integer, Integer> map = new CopyOnWriteHashtableMap<>();
+    int batches = 5000;
+    List<Throwable> failures = new ArrayList<>();
+    CountDownLatch start = new CountDownLatch(1);
+    List<Thread> readers = new ArrayList<>();
+    for (int t = 0; t < 4; t++) {
+      Thread reader = new Thread(() -> {
+        try {
+          start.await();
+          while (map.getSize() < 2 * batches) {
+            Snapshot<Integer, Integer> snapshot = map.snapshot();
+            Assertions.assertEquals(0, snapshot.getSize() % 2);
+            int key = 1 + (int) (Math.random() * batches);
+            Assertions.assertEquals(snapshot.containsKey(key), snapshot.containsKey(-key));
+            Assertions.assertEquals(snapshot.getSize(), snapshot.entryStream(false).count());
+          }
+        } catch (Throwable failure) {
+          synchronized (failures) {
+            failures.add(failure);
+          }
+        }
+      });
+      readers.add(reader);
+      reader.start();
+    }
+    start.countDown();
+    for (int i = 1; i <= batches; i++) {
+      int key = i;
+      map.update(batch -> {
+        batch.put(key, key);
+        batch.put(-key, -key);
+      });
+    }
+    for (Thread reader : readers) {
+      reader.join();
+    }
+    Assertions.assertEquals(List.of(), failures);
+    Assertions.assertEquals(2 * batches, map.entryStream(true).count());
+  }
+}
@@ -0,0 +1,592 @@
+import java.util.AbstractMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Implementation of MapADT using bucketized cuckoo hashing. Every key can only live in one of the
+ * four slots of each of its candidate buckets (one bucket per hash function, two by default) or in
+ * a small stash of at most MAX_STASH_SIZE slots, so a lookup compares at most
+ * 4 * hashFunctions + MAX_STASH_SIZE keys in the table no matter how it is filled. Inserting into a
+ * full candidate bucket evicts a resident key to one of its own candidate buckets; when that chain
+ * of evictions gets too long the entry left over goes to the stash, and when the stash is full too
+ * the table is rebuilt with new hash functions.
+ *
+ * Keys with equal hash codes always share their candidate buckets, so no rebuild can place more of
+ * them than the buckets and the stash hold. Once a mostly empty table with a full-size stash still
+ * can't place an entry, it goes to an overflow HashtableMap instead. Lookups only search the
+ * overflow when it is non-empty and the key isn't in the table; HashtableMap keeps each bucket's
+ * keys in a tree once the bucket is long, so finding one of n colliding keys that are Comparable
+ * takes O(log n) compares there (keys that aren't Comparable are scanned).
+ */
+public class CuckooHashtableMap<KeyType, ValueType> implements MapADT<KeyType, ValueType> {
+
+  private static final int SLOTS_PER_BUCKET = 4;
+  private static final int MAX_EVICTIONS = 500; // evictions tried before an entry goes to the stash
+  private static final int INITIAL_STASH_SIZE = 4;
+  private static final int MAX_STASH_SIZE = 16;
+  private static final double MAX_LOAD_FACTOR = 0.9; // 4-slot buckets stay insertable up to ~95%
+
+  private int size; // number of key-value pairs stored in the CuckooHashtableMap
+  // bucket b owns slots 4b..4b+3; the slots after the last bucket form the stash
+  protected Object[] keys; // keys[i] == null means slot i is empty
+  protected Object[] values;
+  protected int[] hashes; // cached hash code of the key stored in each slot
+  private int tableSlots; // number of slots that belong to buckets (a power of two times 4)
+  private int stashed; // number of entries currently in the stash
+  private int[] seeds; // one seed per hash function
+  private final Random random = new Random();
+  // entries that collide too much to be placed in the buckets or the stash; null while there are
+  // none (the common case), so lookups of missing keys skip it with a null check
+  private HashtableMap<KeyType, ValueType> overflow;
+
+  // the entry that was left without a slot by the last failed placeHelper call
+  private Object homelessKey;
+  private Object homelessValue;
+  private int homelessHash;
+
+  /**
+   * constructor that instantiates the arrays with at least argument capacity and chooses the number
+   * of hash functions
+   * @param capacity minimum number of slots in the buckets (rounded up to a power of two)
+   * @param hashFunctions number of candidate buckets per key (at least 2)
+   */
+  public CuckooHashtableMap(int capacity, int hashFunctions) {
+    if (hashFunctions < 2) {
+      throw new IllegalArgumentException("cuckoo hashing needs at least two hash functions");
+    }
+    seeds = new int[hashFunctions];
+    allocateHelper(Math.max(1, Integer.highestOneBit(Math.max(1, capacity - 1)) * 2
+        / SLOTS_PER_BUCKET), INITIAL_STASH_SIZE);
+  }
+
+  /**
+   * constructor that instantiates the arrays with at least argument capacity and two hash functions
+   * @param capacity minimum number of slots in the buckets (rounded up to a power of two)
+   */
+  public CuckooHashtableMap(int capacity) {
+    this(capacity, 2);
+  }
+
+  /**
+   * Default constructor that instantiates arrays with default capacity of 32
+   */
+  public CuckooHashtableMap() { // with default capacity = 32
+    this(32);
+  }
+
+  /**
+   * Replaces the arrays with empty ones and picks new seeds for the hash functions
+   * @param buckets the number of buckets (a power of two)
+   * @param stashSize the number of stash slots
+   */
+  private void allocateHelper(int buckets, int stashSize) {
+    tableSlots = buckets * SLOTS_PER_BUCKET;
+    keys = new Object[tableSlots + stashSize];
+    values = new Object[tableSlots + stashSize];
+    hashes = new int[tableSlots + stashSize];
+    stashed = 0;
+    for (int i = 0; i < seeds.length; i++) {
+      seeds[i] = random.nextInt();
+    }
+  }
+
+  /**
+   * Calculates the first slot of the bucket that a hash function maps a hash code to. The hash code
+   * is mixed with the function's seed (murmur3's finalizer), so the functions are independent even
+   * for keys whose hash codes differ only in their high bits.
+   * @param hash the hash code of the key
+   * @param function which hash function to use
+   * @return the index of the first of the bucket's slots
+   */
+  private int bucketStart(int hash, int function) {
+    int mixed = hash ^ seeds[function];
+    mixed = (mixed ^ (mixed >>> 16)) * 0x85EBCA6B;
+    mixed = (mixed ^ (mixed >>> 13)) * 0xC2B2AE35;
+    mixed ^= mixed >>> 16;
+    return (mixed & (tableSlots / SLOTS_PER_BUCKET - 1)) * SLOTS_PER_BUCKET;
+  }
+
+  /**
+   * Finds the slot that holds key
+   * @param key the key to look up
+   * @return the index of the slot holding key, or -1 if key is not stored in this collection
+   */
+  private int findIndex(KeyType key) {
+    int hash = key.hashCode();
+    for (int function = 0; function < seeds.length; function++) {
+      int start = bucketStart(hash, function);
+      for (int index = start; index < start + SLOTS_PER_BUCKET; index++) {
+        if (hashes[index] == hash && key.equals(keys[index])) {
+          return index;
+        }
+      }
+    }
+    for (int index = tableSlots; stashed > 0 && index < keys.length; index++) {
+      if (hashes[index] == hash && key.equals(keys[index])) {
+        return index;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Stores an entry in slot index
+   */
+  private void storeHelper(int index, Object key, Object value, int hash) {
+    keys[index] = key;
+    values[index] = value;
+    hashes[index] = hash;
+  }
+
+  /**
+   * Puts an entry in a free slot of one of its candidate buckets, if there is one
+   * @return true if the entry was stored
+   */
+  private boolean placeInBucketHelper(Object key, Object value, int hash) {
+    for (int function = 0; function < seeds.length; function++) {
+      int start = bucketStart(hash, function);
+      for (int index = start; index < start + SLOTS_PER_BUCKET; index++) {
+        if (keys[index] == null) {
+          storeHelper(index, key, value, hash);
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Places an entry that is known not to be in the table, evicting resident entries to their other
+   * candidate buckets (a random walk) until every entry has a slot, and using the stash once the
+   * walk gets too long
+   * @return true if every entry was placed, and false if one was left over; that entry is then held
+   *         in the homeless fields
+   */
+  private boolean placeHelper(Object key, Object value, int hash) {
+    for (int evictions = 0; evictions < MAX_EVICTIONS; evictions++) {
+      if (placeInBucketHelper(key, value, hash)) {
+        return true;
+      }
+      // every candidate slot is taken: swap with a random resident and go on placing that one
+      int bucket = bucketStart(hash, random.nextInt(seeds.length));
+      int index = bucket + random.nextInt(SLOTS_PER_BUCKET);
+      Object evictedKey = keys[index];
+      Object evictedValue = values[index];
+      int evictedHash = hashes[index];
+      storeHelper(index, key, value, hash);
+      key = evictedKey;
+      value = evictedValue;
+      hash = evictedHash;
+    }
+    for (int index = tableSlots; index < keys.length; index++) {
+      if (keys[index] == null) {
+        storeHelper(index, key, value, hash);
+        stashed++;
+        return true;
+      }
+    }
+    homelessKey = key;
+    homelessValue = value;
+    homelessHash = hash;
+    return false;
+  }
+
+  /**
+   * Rebuilds the table with new hash functions and reinserts every entry (plus the homeless entry,
+   * if there is one, and the overflow entries). Each time four attempts in a row fail, the table is
+   * doubled; if it is already mostly empty, the stash is doubled instead, since only many keys with
+   * the same hash code can make insertion fail in a sparse table. Once the stash has reached
+   * MAX_STASH_SIZE and the table is mostly empty, entries that still can't be placed go to the
+   * overflow map.
+   * @param buckets the number of buckets to start with
+   */
+  private void rebuildHelper(int buckets) {
+    int count = 0;
+    Object[] allKeys = new Object[size];
+    Object[] allValues = new Object[size];
+    int[] allHashes = new int[size];
+    for (int index = 0; index < keys.length; index++) {
+      if (keys[index] != null) {
+        allKeys[count] = keys[index];
+        allValues[count] = values[index];
+        allHashes[count++] = hashes[index];
+      }
+    }
+    if (homelessKey != null) {
+      allKeys[count] = homelessKey;
+      allValues[count] = homelessValue;
+      allHashes[count++] = homelessHash;
+      homelessKey = null;
+      homelessValue = null;
+    }
+    if (overflow != null) {
+      for (Iterator<Map.Entry<KeyType, ValueType>> entries = overflow.entryIterator();
+          entries.hasNext();) {
+        Map.Entry<KeyType, ValueType> entry = entries.next();
+        allKeys[count] = entry.getKey();
+        allValues[count] = entry.getValue();
+        allHashes[count++] = entry.getKey().hashCode();
+      }
+    }
+    int stashSize = keys.length - tableSlots;
+    // as in put, only a sparse table gives up on placing keys; a dense one is doubled instead
+    boolean useOverflow = stashSize >= MAX_STASH_SIZE && size <= buckets * SLOTS_PER_BUCKET / 4;
+    for (int attempt = 1; ; attempt++) {
+      allocateHelper(buckets, stashSize);
+      overflow = null;
+      boolean placed = true;
+      for (int i = 0; i < size && placed; i++) {
+        placed = placeHelper(allKeys[i], allValues[i], allHashes[i]);
+        if (!placed && useOverflow) {
+          overflowHelper();
+          placed = true;
+        }
+      }
+      if (placed) {
+        return;
+      }
+      homelessKey = null;
+      homelessValue = null;
+      if (attempt % 4 == 0) {
+        if (size > tableSlots / 4) {
+          buckets *= 2;
+        } else if (stashSize < MAX_STASH_SIZE) {
+          stashSize *= 2;
+        } else {
+          useOverflow = true;
+        }
+      }
+    }
+  }
+
+  /**
+   * Moves the homeless entry to the overflow map
+   */
+  @SuppressWarnings("unchecked")
+  private void overflowHelper() {
+    if (overflow == null) {
+      overflow = new HashtableMap<>();
+    }
+    overflow.put((KeyType) homelessKey, (ValueType) homelessValue);
+    homelessKey = null;
+    homelessValue = null;
+  }
+
+  /**
+   * Adds a new key,value pair/mapping to this collection.
+   *
+   * @param key   the key of the key,value pair
+   * @param value the value that key maps to
+   * @throws IllegalArgumentException if key already maps to a value
+   * @throws NullPointerException     if key is null
+   */
+  @Override
+  public void put(KeyType key, ValueType value) throws IllegalArgumentException {
+    if (key == null) {
+      throw new NullPointerException("key is null");
+    } else if (containsKey(key)) {
+      throw new IllegalArgumentException("key already maps to a value");
+    }
+    size++;
+    if (((double) size / tableSlots) >= MAX_LOAD_FACTOR) {
+      // grow first, then place the new pair in the larger table
+      size--;
+      rebuildHelper(tableSlots / SLOTS_PER_BUCKET * 2);
+      size++;
+    }
+    if (!placeHelper(key, value, key.hashCode())) {
+      if (keys.length - tableSlots >= MAX_STASH_SIZE && size <= tableSlots / 4) {
+        // a sparse table with a full-size stash only fails to place keys that collide, and
+        // rebuilding wouldn't change that
+        overflowHelper();
+      } else {
+        rebuildHelper(tableSlots / SLOTS_PER_BUCKET);
+      }
+    }
+  }
+
+  /**
+   * Checks whether a key maps to a value in this collection.
+   *
+   * @param key the key to check
+   * @return true if the key maps to a value, and false is the key doesn't map to a value
+   */
+  @Override
+  public boolean containsKey(KeyType key) {
+    return findIndex(key) != -1 || (overflow != null && overflow.containsKey(key));
+  }
+
+  /**
+   * Retrieves the specific value that a key maps to.
+   *
+   * @param key the key to look up
+   * @return the value that key maps to
+   * @throws NoSuchElementException when key is not stored in this collection
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public ValueType get(KeyType key) throws NoSuchElementException {
+    int index = findIndex(key);
+    if (index == -1) {
+      if (overflow != null) {
+        return overflow.get(key);
+      }
+      throw new NoSuchElementException("key is not stored in this collection");
+    }
+    return (ValueType) values[index];
+  }
+
+  /**
+   * Retrieves the value that a key maps to, or a default when the key is not stored in this
+   * collection, checking each candidate bucket once.
+   *
+   * @param key          the key to look up
+   * @param defaultValue the value to return when key is not stored in this collection
+   * @return the value that key maps to, or defaultValue
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public ValueType getOrDefault(KeyType key, ValueType defaultValue) {
+    int index = findIndex(key);
+    if (index == -1) {
+      return overflow == null ? defaultValue : overflow.getOrDefault(key, defaultValue);
+    }
+    return (ValueType) values[index];
+  }
+
+  /**
+   * Remove the mapping for a key from this collection.
+   *
+   * @param key the key whose mapping to remove
+   * @return the value that the removed key mapped to
+   * @throws NoSuchElementException when key is not stored in this collection
+   */
+  @Override
+  public ValueType remove(KeyType key) throws NoSuchElementException {
+    int index = findIndex(key);
+    if (index == -1) {
+      if (overflow != null && overflow.containsKey(key)) {
+        return removeFromOverflow(key);
+      }
+      throw new NoSuchElementException("key is not stored in this collection");
+    }
+    return removeAt(index);
+  }
+
+  /**
+   * Removes the mapping for a key from this collection if there is one.
+   *
+   * @param key the key whose mapping to remove
+   * @return the value that the removed key mapped to, or null if key was not in this collection
+   */
+  @Override
+  public ValueType removeIfPresent(KeyType key) {
+    int index = findIndex(key);
+    if (index == -1) {
+      return overflow != null && overflow.containsKey(key) ? removeFromOverflow(key) : null;
+    }
+    return removeAt(index);
+  }
+
+  /**
+   * Empties slot index. Freeing a bucket slot may make room for a stashed entry, so the stash is
+   * moved back into the buckets where possible to keep lookups from having to scan it.
+   * @param index the slot of the entry to remove
+   * @return the value of the removed entry
+   */
+  @SuppressWarnings("unchecked")
+  private ValueType removeAt(int index) {
+    ValueType removed = (ValueType) values[index];
+    storeHelper(index, null, null, 0);
+    size--;
+    if (index >= tableSlots) {
+      stashed--;
+    }
+    for (int stash = tableSlots; stashed > 0 && stash < keys.length; stash++) {
+      if (keys[stash] != null && placeInBucketHelper(keys[stash], values[stash], hashes[stash])) {
+        storeHelper(stash, null, null, 0);
+        stashed--;
+      }
+    }
+    return removed;
+  }
+
+  /**
+   * Removes an entry that is known to be in the overflow map, releasing the map once it is empty
+   * @return the value of the removed entry
+   */
+  private ValueType removeFromOverflow(KeyType key) {
+    ValueType removed = overflow.remove(key);
+    size--;
+    if (overflow.getSize() == 0) {
+      overflow = null;
+    }
+    return removed;
+  }
+
+  /**
+   * Removes all key,value pairs from this collection.
+   */
+  @Override
+  public void clear() {
+    size = 0;
+    stashed = 0;
+    overflow = null;
+    for (int i = 0; i < keys.length; i++) {
+      storeHelper(i, null, null, 0);
+    }
+  }
+
+  /**
+   * Retrieves the number of keys stored in this collection.
+   *
+   * @return the number of keys stored in this collection
+   */
+  @Override
+  public int getSize() {
+    return size;
+  }
+
+  /**
+   * Retrieves this collection's capacity.
+   *
+   * @return the number of bucket slots (not counting the stash) of this collection
+   */
+  @Override
+  public int getCapacity() {
+    return tableSlots;
+  }
+
+  /**
+   * Creates an iterator over the key,value pairs stored in this collection, in slot order (the
+   * stash, then the overflow map, last).
+   *
+   * @return an iterator over the entries of this collection
+   */
+  @Override
+  public Iterator<Map.Entry<KeyType, ValueType>> entryIterator() {
+    return new Iterator<Map.Entry<KeyType, ValueType>>() {
+      private int index = nextUsed(0);
+      private final Iterator<Map.Entry<KeyType, ValueType>> overflowEntries =
+          overflow == null ? null : overflow.entryIterator();
+
+      private int nextUsed(int from) {
+        while (from < keys.length && keys[from] == null) {
+          from++;
+        }
+        return from;
+      }
+
+      @Override
+      public boolean hasNext() {
+        return index < keys.length || (overflowEntries != null && overflowEntries.hasNext());
+      }
+
+      @Override
+      @SuppressWarnings("unchecked")
+      public Map.Entry<KeyType, ValueType> next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException("no more entries");
+        } else if (index == keys.length) {
+          Map.Entry<KeyType, ValueType> entry = overflowEntries.next();
+          return new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), entry.getValue());
+        }
+        Map.Entry<KeyType, ValueType> entry = new AbstractMap.SimpleImmutableEntry<>(
+            (KeyType) keys[index], (ValueType) values[index]);
+        index = nextUsed(index + 1);
+        return entry;
+      }
+    };
+  }
+
+  /**
+   * Key whose hash code is chosen by the test, so that many keys can share one
+   */
+  private static class FixedHashKey {
+
+    public final int value;
+    public final int hash;
+
+    public FixedHashKey(int value, int hash) {
+      this.value = value;
+      this.hash = hash;
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof FixedHashKey && ((FixedHashKey) other).value == value;
+    }
+  }
+
+  /**
+   * Tests put, get and remove on a large map with two and three hash functions, and that the
+   * capacity is rounded up to a power of two and grows before the buckets are 90% full
+   */
+  @Test
+  public void testLargeMap() {
+    for (int hashFunctions = 2; hashFunctions <= 3; hashFunctions++) {
+      CuckooHashtableMap<Integer, String> map = new CuckooHashtableMap<>(12, hashFunctions);
+      Assertions.assertEquals(16, map.getCapacity());
+      for (int i = -50000; i < 50000; i++) {
+        map.put(i, Integer.toString(i));
+      }
+      map.put(Integer.MIN_VALUE, "min");
+      Assertions.assertThrows(IllegalArgumentException.class, () -> map.put(7, "seven"));
+      Assertions.assertThrows(NullPointerException.class, () -> map.put(null, "null"));
+      Assertions.assertEquals(100001, map.getSize());
+      Assertions.assertTrue(map.getCapacity() == 131072 || map.getCapacity() == 262144);
+      for (int i = -50000; i < 50000; i += 2) {
+        Assertions.assertEquals(Integer.toString(i), map.remove(i));
+      }
+      for (int i = -50000; i < 50000; i++) {
+        Assertions.assertEquals(i % 2 != 0, map.containsKey(i));
+      }
+      Assertions.assertEquals("min", map.get(Integer.MIN_VALUE));
+      Assertions.assertThrows(NoSuchElementException.class, () -> map.get(50000));
+      Assertions.assertEquals(50001, map.entryStream(false).count());
+      map.clear();
+      Assertions.assertEquals(0, map.getSize());
+      Assertions.assertFalse(map.containsKey(1));
+    }
+  }
+
+  /**
+   * Tests keys that share hash codes: with 50 keys per hash code the candidate buckets and the
+   * stash can't hold them all, so the stash stops growing at MAX_STASH_SIZE and the rest go to the
+   * overflow map rather than being rehashed forever
+   */
+  @Test
+  public void testCollidingKeys() {
+    CuckooHashtableMap<FixedHashKey, Integer> map = new CuckooHashtableMap<>();
+    for (int i = 0; i < 1000; i++) {
+      map.put(new FixedHashKey(i, i / 3), i); // triples of keys share a hash code
+    }
+    for (int i = 0; i < 50; i++) {
+      map.put(new FixedHashKey(-i - 1, 12345), i);
+    }
+    for (int i = 0; i < 1000; i++) {
+      Assertions.assertEquals(i, map.get(new FixedHashKey(i, i / 3)));
+    }
+    Assertions.assertTrue(map.keys.length - map.tableSlots <= MAX_STASH_SIZE);
+    Assertions.assertTrue(map.overflow.getSize() >= 50 - 2 * SLOTS_PER_BUCKET - MAX_STASH_SIZE);
+    Assertions.assertEquals(1050, map.entryStream(false).count());
+    Assertions.assertEquals(-1, map.getOrDefault(new FixedHashKey(-51, 12345), -1));
+    Assertions.assertThrows(IllegalArgumentException.class,
+        () -> map.put(new FixedHashKey(-50, 12345), 0));
+    for (int i = 0; i < 50; i++) {
+      Assertions.assertEquals(i, map.remove(new FixedHashKey(-i - 1, 12345)));
+    }
+    Assertions.assertNull(map.overflow);
+    Assertions.assertEquals(1000, map.getSize());
+    Assertions.assertEquals(999, map.get(new FixedHashKey(999, 333)));
+  }
+}
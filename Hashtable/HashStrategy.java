@@ -0,0 +1,51 @@
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Computes the hash a hash table uses to pick the bucket of a key. A seeded strategy mixes the
+ * key's hash code with a seed chosen when the table is created, so someone who can choose the
+ * keys but doesn't know the seed can't make them all land in the same bucket. Keys with equal
+ * hash codes still share a bucket under any strategy; HashtableMap bounds those with tree buckets.
+ */
+public interface HashStrategy<T> {
+
+  /**
+   * Calculates the hash of a key
+   * @param key the key to hash, never null
+   * @return the hash of key, with every bit depending on every bit of the key's hash code
+   */
+  int hash(T key);
+
+  /**
+   * @return a strategy that uses each key's hashCode unchanged (predictable, so only for keys
+   *         that don't come from untrusted input)
+   */
+  static <T> HashStrategy<T> identity() {
+    return Object::hashCode;
+  }
+
+  /**
+   * @return a strategy that mixes each key's hashCode with a new random seed
+   */
+  static <T> HashStrategy<T> seeded() {
+    return seeded(ThreadLocalRandom.current().nextLong());
+  }
+
+  /**
+   * @param seed the seed to mix into every hash
+   * @return a strategy that mixes each key's hashCode with seed
+   */
+  static <T> HashStrategy<T> seeded(long seed) {
+    return key -> mix(key.hashCode(), seed);
+  }
+
+  /**
+   * The finalizer of MurmurHash3 (fmix64) applied to the hash code offset by the seed
+   */
+  private static int mix(int hash, long seed) {
+    long mixed = hash + seed;
+    mixed = (mixed ^ (mixed >>> 33)) * 0xFF51AFD7ED558CCDL;
+    mixed = (mixed ^ (mixed >>> 33)) * 0xC4CEB9FE1A85EC53L;
+    return (int) (mixed ^ (mixed >>> 33));
+  }
+
+}
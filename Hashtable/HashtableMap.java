@@ -1,5 +1,25 @@
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
@@ -8,7 +28,7 @@ import org.junit.jupiter.api.Test;
  */
 public class HashtableMap<KeyType, ValueType> implements MapADT<KeyType, ValueType> {
 
-  protected class Pair {
+  protected class Pair implements Map.Entry<KeyType, ValueType> {
 
     public KeyType key;
     public ValueType value;
@@ -18,176 +38,1487 @@ public class HashtableMap<KeyType, ValueType> implements MapADT<KeyType, ValueTy
       this.value = value;
     }
 
+    @Override
+    public KeyType getKey() {
+      return key;
+    }
+
+    @Override
+    public ValueType getValue() {
+      return value;
+    }
+
+    /**
+     * Replaces the value of this pair, which writes through to the HashtableMap
+     * @return the previous value
+     */
+    @Override
+    public ValueType setValue(ValueType value) {
+      ValueType previous = this.value;
+      this.value = value;
+      return previous;
+    }
+
+    // equals and hashCode follow the Map.Entry contract, so pairs compare equal to any entry with
+    // an equal key and value
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof Map.Entry && key.equals(((Map.Entry<?, ?>) other).getKey())
+          && Objects.equals(value, ((Map.Entry<?, ?>) other).getValue());
+    }
+
+    @Override
+    public int hashCode() {
+      return key.hashCode() ^ Objects.hashCode(value);
+    }
+
+  }
+
+  /**
+   * Spliterator over a range of bucket indexes of the table. Splitting hands the first half of the
+   * remaining buckets to a new Spliterator, so parallel streams divide large tables evenly.
+   */
+  protected class BucketSpliterator implements Spliterator<Map.Entry<KeyType, ValueType>> {
+
+    private final Bucket<Pair>[] buckets;
+    private int index; // next bucket to visit
+    private final int fence; // one past the last bucket of this range
+    private Iterator<Pair> current; // pairs left in the bucket being visited, if any
+
+    public BucketSpliterator(Bucket<Pair>[] buckets, int index, int fence) {
+      this.buckets = buckets;
+      this.index = index;
+      this.fence = fence;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Map.Entry<KeyType, ValueType>> action) {
+      while (current == null || !current.hasNext()) {
+        if (index >= fence) {
+          return false;
+        }
+        current = buckets[index] == null ? null : buckets[index].iterator();
+        index++;
+      }
+      action.accept(current.next());
+      return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super Map.Entry<KeyType, ValueType>> action) {
+      if (current != null) {
+        current.forEachRemaining(action);
+      }
+      for (; index < fence; index++) {
+        if (buckets[index] != null) {
+          for (Pair pair : buckets[index]) {
+            action.accept(pair);
+          }
+        }
+      }
+    }
+
+    @Override
+    public Spliterator<Map.Entry<KeyType, ValueType>> trySplit() {
+      int mid = (index + fence) >>> 1;
+      if (mid <= index) {
+        return null;
+      }
+      BucketSpliterator prefix = new BucketSpliterator(buckets, index, mid);
+      index = mid;
+      return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+      // assume pairs are spread evenly across buckets
+      return (long) size * (fence - index) / buckets.length;
+    }
+
+    @Override
+    public int characteristics() {
+      return Spliterator.DISTINCT | Spliterator.NONNULL;
+    }
+
+  }
+
+  /**
+   * Wraps a pair so it can be stored in a RedBlackTree. Entries are ordered by hash code, then by
+   * the keys' natural ordering (when they are Comparable with each other), and finally by
+   * identity hash code and insertion order so that any two distinct entries have a fixed order.
+   */
+  protected class TreeEntry implements Comparable<TreeEntry> {
+
+    public final int hash;
+    public final KeyType key;
+    public final long order;
+    public Pair pair; // set to null when the pair is removed (until the tree is rebuilt)
+    public TreeEntry previous; // neighbours in the TreeBucket's list of entries with a pair
+    public TreeEntry next;
+
+    public TreeEntry(Pair pair, long order) {
+      this.hash = pair.key.hashCode();
+      this.key = pair.key;
+      this.order = order;
+      this.pair = pair;
+    }
+
+    @Override
+    public int compareTo(TreeEntry other) {
+      int compare = Integer.compare(hash, other.hash);
+      if (compare == 0) {
+        compare = compareKeys(key, other.key);
+      }
+      if (compare == 0) {
+        compare = Integer.compare(System.identityHashCode(key), System.identityHashCode(other.key));
+      }
+      return compare != 0 ? compare : Long.compare(order, other.order);
+    }
+
+  }
+
+  /**
+   * RedBlackTree of the entries of one bucket, with a lookup by key that follows the same ordering
+   * as TreeEntry but searches both subtrees when two keys tie on hash code and aren't Comparable
+   */
+  protected class BucketTree extends RedBlackTree<TreeEntry> {
+
+    /**
+     * Finds the entry for key, including entries whose pair has been removed
+     * @param key the key to look for
+     * @return the entry for key, or null if it is not in this tree
+     */
+    public TreeEntry findEntry(KeyType key) {
+      return findEntry(root, key.hashCode(), key);
+    }
+
+    private TreeEntry findEntry(Node<TreeEntry> node, int hash, KeyType key) {
+      while (node != null) {
+        TreeEntry entry = node.data;
+        int compare = Integer.compare(hash, entry.hash);
+        if (compare == 0) {
+          if (entry.key.equals(key)) {
+            return entry;
+          }
+          compare = compareKeys(key, entry.key);
+        }
+        if (compare == 0) {
+          // the ordering can't tell these keys apart, so key may be in either subtree
+          TreeEntry found = findEntry(node.down[0], hash, key);
+          if (found != null) {
+            return found;
+          }
+          node = node.down[1];
+        } else {
+          node = node.down[compare < 0 ? 0 : 1];
+        }
+      }
+      return null;
+    }
+
+  }
+
+  /**
+   * The pairs stored at one index of the table. HashtableMap only adds, removes, counts and
+   * iterates over the pairs of a bucket, so that is all a bucket has to support.
+   */
+  protected interface Bucket<P> extends Iterable<P> {
+
+    /**
+     * Adds a pair whose key is not yet in this bucket
+     * @return true
+     */
+    boolean add(P pair);
+
+    /**
+     * Removes a pair from this bucket
+     * @param pair the pair to remove
+     * @return true if this bucket held pair
+     */
+    boolean remove(Object pair);
+
+    /**
+     * @param pair the pair to look for
+     * @return true if this bucket holds pair
+     */
+    boolean contains(Object pair);
+
+    /**
+     * @return the number of pairs in this bucket
+     */
+    int size();
+
+    /**
+     * @return true if this bucket holds no pairs
+     */
+    boolean isEmpty();
+
+  }
+
+  /**
+   * A bucket that keeps its pairs in a LinkedList and is searched by walking it. Every bucket
+   * starts as one, and stays one until it grows past TREEIFY_THRESHOLD pairs.
+   */
+  protected class ListBucket extends LinkedList<Pair> implements Bucket<Pair> {
+
+    private static final long serialVersionUID = 1L;
+
+    public ListBucket() {
+    }
+
+    public ListBucket(Bucket<Pair> bucket) {
+      for (Pair pair : bucket) {
+        add(pair);
+      }
+    }
+
+  }
+
+  /**
+   * A bucket that has grown past TREEIFY_THRESHOLD pairs. Its pairs are held by a BucketTree index,
+   * so lookups, contains and remove take O(log n) rather than a linear scan, and the entries that
+   * hold a pair are also linked to each other in insertion order for iteration. RedBlackTree has
+   * no remove, so a removed pair leaves its entry behind as a tombstone until tombstones outnumber
+   * live pairs, at which point the tree is rebuilt.
+   */
+  protected class TreeBucket implements Bucket<Pair> {
+
+    private BucketTree tree = new BucketTree();
+    private TreeEntry first; // first and last entry that holds a pair, in insertion order
+    private TreeEntry last;
+    private int pairs; // number of entries that hold a pair
+    private long insertions; // used to give every entry a unique tie-breaking order
+    private int tombstones; // number of entries in tree whose pair has been removed
+
+    public TreeBucket(Bucket<Pair> bucket) {
+      for (Pair pair : bucket) {
+        add(pair);
+      }
+    }
+
+    /**
+     * Finds the pair containing key using the tree index
+     * @param key the key to look for
+     * @return the pair containing key, or null if it is not in this bucket
+     */
+    public Pair findPair(KeyType key) {
+      TreeEntry entry = tree.findEntry(key);
+      return entry == null ? null : entry.pair;
+    }
+
+    /**
+     * Finds the entry holding a pair equal to o using the tree index
+     * @return the entry, or null if no pair of this bucket equals o
+     */
+    @SuppressWarnings("unchecked")
+    private TreeEntry entryOf(Object o) {
+      if (!(o instanceof Map.Entry) || ((Map.Entry<?, ?>) o).getKey() == null) {
+        return null;
+      }
+      TreeEntry entry = tree.findEntry((KeyType) ((Map.Entry<?, ?>) o).getKey());
+      return entry != null && entry.pair != null && entry.pair.equals(o) ? entry : null;
+    }
+
+    @Override
+    public boolean add(Pair pair) {
+      TreeEntry entry = tree.findEntry(pair.key);
+      if (entry != null) {
+        // revive the tombstone left by an earlier remove of this key
+        entry.pair = pair;
+        tombstones--;
+      } else {
+        entry = new TreeEntry(pair, insertions++);
+        tree.insert(entry);
+      }
+      entry.previous = last;
+      entry.next = null;
+      if (last == null) {
+        first = entry;
+      } else {
+        last.next = entry;
+      }
+      last = entry;
+      pairs++;
+      return true;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+      TreeEntry entry = entryOf(o);
+      if (entry == null) {
+        return false;
+      }
+      if (entry.previous == null) {
+        first = entry.next;
+      } else {
+        entry.previous.next = entry.next;
+      }
+      if (entry.next == null) {
+        last = entry.previous;
+      } else {
+        entry.next.previous = entry.previous;
+      }
+      entry.pair = null;
+      entry.previous = null;
+      entry.next = null;
+      pairs--;
+      tombstones++;
+      if (tombstones > pairs) {
+        // reinsert the live entries (they keep their order, so they stay distinct)
+        tree = new BucketTree();
+        tombstones = 0;
+        for (TreeEntry live = first; live != null; live = live.next) {
+          tree.insert(live);
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+      return entryOf(o) != null;
+    }
+
+    @Override
+    public int size() {
+      return pairs;
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return pairs == 0;
+    }
+
+    @Override
+    public Iterator<Pair> iterator() {
+      return new Iterator<Pair>() {
+        private TreeEntry next = first;
+        private Pair returned; // the pair last returned by next, until it is removed
+
+        @Override
+        public boolean hasNext() {
+          return next != null;
+        }
+
+        @Override
+        public Pair next() {
+          if (next == null) {
+            throw new NoSuchElementException("no more pairs in this bucket");
+          }
+          returned = next.pair;
+          next = next.next;
+          return returned;
+        }
+
+        @Override
+        public void remove() {
+          if (returned == null) {
+            throw new IllegalStateException("next has not been called since the last remove");
+          }
+          TreeBucket.this.remove(returned);
+          returned = null;
+        }
+      };
+    }
+
+    @Override
+    public Spliterator<Pair> spliterator() {
+      return Spliterators.spliterator(iterator(), pairs, Spliterator.ORDERED);
+    }
+
   }
 
+  /**
+   * Statistics about a HashtableMap, returned by getStats. The lookup and resize counters are
+   * collected while stats are enabled; the load factor and chain lengths describe the table at
+   * the time getStats was called.
+   */
+  public static class Stats {
+
+    private long successfulLookups;
+    private long successfulProbes; // keys compared during lookups that found their key
+    private long unsuccessfulLookups;
+    private long unsuccessfulProbes; // keys compared during lookups that didn't find their key
+    private final ArrayList<Long> resizeNanos = new ArrayList<>();
+    private double loadFactor;
+    private int[] chainLengthHistogram = new int[0];
+
+    private void recordLookup(boolean found, int probes) {
+      if (found) {
+        successfulLookups++;
+        successfulProbes += probes;
+      } else {
+        unsuccessfulLookups++;
+        unsuccessfulProbes += probes;
+      }
+    }
+
+    /**
+     * @return the number of pairs divided by the number of buckets
+     */
+    public double getLoadFactor() {
+      return loadFactor;
+    }
+
+    /**
+     * @return an array whose element i is the number of buckets holding exactly i pairs
+     */
+    public int[] getChainLengthHistogram() {
+      return chainLengthHistogram.clone();
+    }
+
+    /**
+     * @return the number of pairs in the fullest bucket
+     */
+    public int getLongestChain() {
+      return Math.max(0, chainLengthHistogram.length - 1);
+    }
+
+    /**
+     * @return the number of times the table has been resized
+     */
+    public int getResizeCount() {
+      return resizeNanos.size();
+    }
+
+    /**
+     * @return the time each resize took, in nanoseconds, oldest first
+     */
+    public long[] getResizeNanos() {
+      return resizeNanos.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * @return the average number of keys compared per lookup that found its key
+     */
+    public double getAverageProbesPerHit() {
+      return successfulLookups == 0 ? 0 : (double) successfulProbes / successfulLookups;
+    }
+
+    /**
+     * @return the average number of keys compared per lookup that didn't find its key
+     */
+    public double getAverageProbesPerMiss() {
+      return unsuccessfulLookups == 0 ? 0 : (double) unsuccessfulProbes / unsuccessfulLookups;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("load factor %.3f, longest chain %d, chain lengths %s, "
+          + "%d resizes %s ns, %.2f probes per hit (%d), %.2f probes per miss (%d)", loadFactor,
+          getLongestChain(), Arrays.toString(chainLengthHistogram), getResizeCount(), resizeNanos,
+          getAverageProbesPerHit(), successfulLookups, getAverageProbesPerMiss(),
+          unsuccessfulLookups);
+    }
+
+  }
+
+  /**
+   * Blocked Bloom filter over the hashes of the keys in a HashtableMap. Each hash sets 7
+   * bits inside a single 512-bit block (one cache line), so a query touches one cache line, and at
+   * 10 bits per key about 1% of the keys that aren't stored are reported as possibly stored. Bits
+   * can't be cleared, so removed keys stay in the filter until it is rebuilt.
+   */
+  protected static class BloomFilter {
+
+    private static final int BITS_PER_KEY = 10;
+    private static final int BITS_PER_BLOCK = 512; // 8 longs
+    private static final int BITS_SET_PER_KEY = 7;
+
+    private final long[] bits;
+    private final int blocks;
+
+    public BloomFilter(int expectedKeys) {
+      blocks = (int) Math.max(1, ((long) expectedKeys * BITS_PER_KEY + BITS_PER_BLOCK - 1)
+          / BITS_PER_BLOCK);
+      bits = new long[blocks * 8];
+    }
+
+    /**
+     * Spreads a 32-bit hash code over 64 bits: the high half picks the block, and the low bits
+     * (mixed again) give the positions within it
+     */
+    private static long mix(int hash) {
+      long mixed = (hash & 0xffffffffL) * 0x9E3779B97F4A7C15L;
+      mixed ^= mixed >>> 29;
+      mixed *= 0xBF58476D1CE4E5B9L;
+      return mixed ^ (mixed >>> 32);
+    }
+
+    public void add(int hash) {
+      long mixed = mix(hash);
+      int block = (int) (((mixed >>> 32) * blocks) >>> 32) * 8;
+      for (int i = 0; i < BITS_SET_PER_KEY; i++) {
+        int position = (int) (mixed >>> (i * 9)) & (BITS_PER_BLOCK - 1);
+        bits[block + (position >>> 6)] |= 1L << position;
+      }
+    }
+
+    public boolean mightContain(int hash) {
+      long mixed = mix(hash);
+      int block = (int) (((mixed >>> 32) * blocks) >>> 32) * 8;
+      for (int i = 0; i < BITS_SET_PER_KEY; i++) {
+        int position = (int) (mixed >>> (i * 9)) & (BITS_PER_BLOCK - 1);
+        if ((bits[block + (position >>> 6)] & (1L << position)) == 0) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+  }
+
+  // a bucket is converted to a TreeBucket once it holds more than TREEIFY_THRESHOLD pairs, and
+  // back to a ListBucket once it shrinks to UNTREEIFY_THRESHOLD pairs (the gap avoids
+  // flip-flopping)
+  private static final int TREEIFY_THRESHOLD = 8;
+  private static final int UNTREEIFY_THRESHOLD = 6;
+
   private int size; // number of key-value pairs stored in the HashtableMap
-  protected LinkedList<Pair>[] table;
+  protected Bucket<Pair>[] table;
+  private final HashStrategy<? super KeyType> hashStrategy; // picks the bucket of each key
+  // removes halve the table once the load factor drops below 0.1875, a quarter of the 0.75 that
+  // doubles it, so a table that just grew or shrank is far from both thresholds. Shrinking never
+  // goes below minimumCapacity (the initial capacity, or the length left by trimToSize)
+  private int minimumCapacity;
+  // size asked for by the last ensureCapacity, or 0 once it has been reached: until then removes
+  // don't shrink the table, so a presized map isn't shrunk while it is still being filled
+  private int reservedSize;
+
+  // when incremental resizing is enabled, growing the table only allocates the new array; the
+  // buckets of the previous array are then moved over a few at a time by later put/remove calls
+  private final boolean incrementalResize;
+  protected Bucket<Pair>[] oldTable; // non-null only while an incremental resize is underway
+  private int migrateIndex; // buckets of oldTable before this index have already been moved
+  // each put or remove moves BUCKETS_MOVED_PER_OPERATION * oldTable.length / table.length old
+  // buckets: 4 after a grow and 16 after a shrink. A table of length L that was just resized holds
+  // 0.375L pairs, so at least 0.1875L puts or removes happen before either threshold is reached
+  // again, and those move at least 1.5 times the old table's buckets
+  private static final int BUCKETS_MOVED_PER_OPERATION = 8;
+
+  // binary dump format: a 16 byte header (magic, version, size, capacity) followed by one record
+  // per pair (key length, value length or -1 for a null value, key bytes, value bytes)
+  private static final int DUMP_MAGIC = 0x48544D44; // "HTMD"
+  private static final int DUMP_VERSION = 1;
+  private static final int DUMP_BUFFER_SIZE = 1 << 20;
+
+  // counters collected while stats are enabled; null when they are disabled, so the only cost of
+  // the feature for a disabled map is one null check per lookup and per resize
+  private Stats stats;
+
+  // optional filter over the keys' hashStrategy hashes that answers most lookups of missing keys
+  // without touching the table; null when disabled. Each resize starts a filter sized for the new
+  // table that is filled as buckets migrate and replaces bloomFilter once migration finishes, so
+  // no resize rehashes every key a second time. The filter is also rebuilt once more keys have
+  // been removed since it was started than are stored, since removed keys still set bits in it
+  private BloomFilter bloomFilter;
+  private BloomFilter nextBloomFilter; // non-null only while a resize with the filter on migrates
+  private int bloomRemovals; // keys removed since bloomFilter or nextBloomFilter was started
 
   /**
-   * constructor that instantiates array with argument capacity
+   * constructor that instantiates array with argument capacity and chooses the resize mode and
+   * the hash strategy
    * @param capacity maximum number of key-value pairs that can be stored in this HashtableMap
+   * @param incrementalResize true to spread each rehash across later operations instead of
+   *                          rehashing every pair in the put that crosses the load factor
+   * @param hashStrategy computes the hash that picks the bucket of each key
    */
   @SuppressWarnings("unchecked")
+  public HashtableMap(int capacity, boolean incrementalResize,
+      HashStrategy<? super KeyType> hashStrategy) {
+    if (hashStrategy == null) {
+      throw new NullPointerException("hashStrategy is null");
+    }
+    table = (Bucket<Pair>[]) new Bucket<?>[capacity];
+    minimumCapacity = capacity;
+    this.incrementalResize = incrementalResize;
+    this.hashStrategy = hashStrategy;
+  }
+
+  /**
+   * constructor that instantiates array with argument capacity and chooses the resize mode. Keys
+   * are hashed with a seed picked at random for this map, so their buckets can't be predicted.
+   * @param capacity maximum number of key-value pairs that can be stored in this HashtableMap
+   * @param incrementalResize true to spread each rehash across later operations instead of
+   *                          rehashing every pair in the put that crosses the load factor
+   */
+  public HashtableMap(int capacity, boolean incrementalResize) {
+    this(capacity, incrementalResize, HashStrategy.seeded());
+  }
+
+  /**
+   * constructor that instantiates array with argument capacity
+   * @param capacity maximum number of key-value pairs that can be stored in this HashtableMap
+   */
   public HashtableMap(int capacity) {
-    table = (LinkedList<Pair>[]) new LinkedList[capacity];
+    this(capacity, false);
+  }
+
+  /**
+   * Default constructor that instantiates array with default capacity of 32
+   */
+  public HashtableMap() { // with default capacity = 32
+    this(32);
+  }
+
+  /**
+   * Calculates the index of the bucket that key belongs to in an array of the given length
+   * @param key the key to locate
+   * @param length the length of the bucket array
+   * @return the bucket index of key
+   */
+  private int indexOf(KeyType key, int length) {
+    int hash = hashStrategy.hash(key);
+    // power-of-two lengths (such as the default capacity and its doublings) just take the low bits
+    return (length & (length - 1)) == 0 ? hash & (length - 1) : Math.floorMod(hash, length);
+  }
+
+  /**
+   * Compares two keys by their natural ordering when they are Comparable with each other
+   * @return the result of compareTo, or 0 if the keys aren't mutually Comparable
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static int compareKeys(Object key, Object other) {
+    if (key instanceof Comparable && key.getClass() == other.getClass()) {
+      return ((Comparable) key).compareTo(other);
+    }
+    return 0;
+  }
+
+  /**
+   * Finds the bucket of the old table that still holds key's pairs during an incremental resize
+   * @param key the key to locate
+   * @return the old bucket for key, or null if no resize is underway or that bucket already moved
+   */
+  private Bucket<Pair> oldBucketOf(KeyType key) {
+    if (oldTable == null) {
+      return null;
+    }
+    int index = indexOf(key, oldTable.length);
+    return index < migrateIndex ? null : oldTable[index];
+  }
+
+  /**
+   * Searches a single bucket for the pair containing key
+   * @param bucket the bucket to search (may be null)
+   * @param key the key to look for
+   * @return the pair containing key, or null if it is not in this bucket
+   */
+  private Pair findInBucket(Bucket<Pair> bucket, KeyType key) {
+    if (bucket instanceof TreeBucket) {
+      return ((TreeBucket) bucket).findPair(key);
+    } else if (bucket != null) {
+      for (Pair pair : bucket) {
+        if (pair.key.equals(key)) {
+          return pair;
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Finds the pair containing key, looking in the not yet moved part of the old table as well
+   * while an incremental resize is underway
+   * @param key the key to look for
+   * @return the pair containing key, or null if key is not stored in this collection
+   */
+  protected Pair findPair(KeyType key) {
+    if (bloomFilter != null && !bloomFilter.mightContain(hashStrategy.hash(key))) {
+      if (stats != null) {
+        stats.recordLookup(false, 0); // a miss that compared no keys
+      }
+      return null; // definitely not stored
+    }
+    if (stats != null) {
+      return findPairCounting(key);
+    }
+    Pair pair = findInBucket(oldBucketOf(key), key);
+    if (pair == null) {
+      pair = findInBucket(table[indexOf(key, table.length)], key);
+    }
+    return pair;
+  }
+
+  /**
+   * Does the same as findPair, but also records the number of keys compared in stats. A TreeBucket
+   * is counted as a single probe, since it is searched by a tree descent rather than a scan.
+   */
+  private Pair findPairCounting(KeyType key) {
+    int probes = 0;
+    Pair found = null;
+    Bucket<Pair> oldBucket = oldBucketOf(key);
+    Bucket<Pair> bucket = table[indexOf(key, table.length)];
+    for (Bucket<Pair> pairs : Arrays.asList(oldBucket, bucket)) {
+      if (found == null && pairs instanceof TreeBucket) {
+        probes++;
+        found = ((TreeBucket) pairs).findPair(key);
+      } else if (found == null && pairs != null) {
+        for (Pair pair : pairs) {
+          probes++;
+          if (pair.key.equals(key)) {
+            found = pair;
+            break;
+          }
+        }
+      }
+    }
+    stats.recordLookup(found != null, probes);
+    return found;
+  }
+
+  /**
+   * Appends a pair that is known not to be in the current table to its bucket
+   * @param pair the pair to add
+   */
+  private void addToTable(Pair pair) {
+    int index = indexOf(pair.key, table.length); // calculate index to put current key in
+    // if this key is the first to be mapped to this index, create new linked list
+    if (table[index] == null) {
+      table[index] = new ListBucket();
+    }
+    table[index].add(pair);
+    if (table[index].size() > TREEIFY_THRESHOLD && !(table[index] instanceof TreeBucket)) {
+      table[index] = new TreeBucket(table[index]);
+    }
+  }
+
+  /**
+   * Dynamically grows hashtable by doubling its capacity and rehashing (whenever load factor
+   * becomes greater than or equal to 75%), or shrinks it by halving. In incremental mode only the
+   * new array is allocated here, and the pairs are moved by migrateHelper during later operations.
+   * @param length the length of the new array
+   */
+  @SuppressWarnings("unchecked")
+  private void resizeHelper(int length) {
+    long start = stats != null ? System.nanoTime() : 0;
+    if (oldTable != null) {
+      // a previous incremental resize hasn't finished yet, so finish it before starting another
+      migrateHelper(oldTable.length);
+    }
+    // save reference to current table and replace table field with new table with double capacity
+    oldTable = table;
+    migrateIndex = 0;
+    table = (Bucket<Pair>[]) new Bucket<?>[length];
+    if (bloomFilter != null) {
+      // bloomFilter keeps answering lookups until every old bucket has moved into the new filter
+      nextBloomFilter = new BloomFilter(Math.max(size, length / 4 * 3));
+      bloomRemovals = 0;
+    }
+    if (!incrementalResize) {
+      migrateHelper(oldTable.length);
+    }
+    if (stats != null) {
+      stats.resizeNanos.add(System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * Moves up to the given number of buckets from the old table into the current table. The pairs
+   * are already known to be unique, so they are relinked directly rather than re-put.
+   * @param buckets the maximum number of old buckets to move
+   */
+  private void migrateHelper(int buckets) {
+    for (int moved = 0; moved < buckets && migrateIndex < oldTable.length; moved++) {
+      Bucket<Pair> pairs = oldTable[migrateIndex];
+      if (pairs != null) {
+        for (Pair pair : pairs) {
+          addToTable(pair);
+          if (nextBloomFilter != null) {
+            nextBloomFilter.add(hashStrategy.hash(pair.key));
+          }
+        }
+        oldTable[migrateIndex] = null;
+      }
+      migrateIndex++;
+    }
+    if (migrateIndex == oldTable.length) {
+      oldTable = null; // every pair has moved, so release the old array
+      if (nextBloomFilter != null) {
+        bloomFilter = nextBloomFilter;
+        nextBloomFilter = null;
+      }
+    }
+  }
+
+  /**
+   * Moves the old buckets that one put or remove owes while an incremental resize is underway, in
+   * proportion to how much larger the old table is than the current one
+   */
+  private void migrateStepHelper() {
+    if (oldTable != null) {
+      migrateHelper((int) Math.max(1,
+          (long) BUCKETS_MOVED_PER_OPERATION * oldTable.length / table.length));
+    }
+  }
+
+  /**
+   * Adds a new key,value pair/mapping to this collection.
+   *
+   * @param key   the key of the key,value pair
+   * @param value the value that key maps to
+   * @throws IllegalArgumentException if key already maps to a value
+   * @throws NullPointerException     if key is null
+   */
+  @Override
+  public void put(KeyType key, ValueType value) throws IllegalArgumentException {
+    // handle cases of duplicate or null keys
+    if (key == null) {
+      throw new NullPointerException("key is null");
+    } else if (findPair(key) != null) {
+      throw new IllegalArgumentException("key already maps to a value");
+    }
+    addNewPair(key, value);
+  }
+
+  /**
+   * Adds a pair for a key that is known not to be in this collection, growing the table if the
+   * load factor threshold is reached
+   * @param key the key of the new pair
+   * @param value the value of the new pair
+   * @return the new pair
+   */
+  private Pair addNewPair(KeyType key, ValueType value) {
+    migrateStepHelper();
+    Pair pair = new Pair(key, value);
+    addToTable(pair); // insert pair at calculated index
+    size++;
+    if (reservedSize != 0 && size >= reservedSize) {
+      reservedSize = 0; // the presized table has been filled, so removes may shrink it again
+    }
+    if (bloomFilter != null) {
+      int hash = hashStrategy.hash(key);
+      bloomFilter.add(hash);
+      if (nextBloomFilter != null) {
+        nextBloomFilter.add(hash);
+      }
+    }
+    if (((double) size/table.length) >= 0.75) { // check load factor and resize if it is >= 75%
+      this.resizeHelper(table.length * 2);
+    }
+    return pair;
+  }
+
+  /**
+   * Checks whether a key maps to a value in this collection.
+   *
+   * @param key the key to check
+   * @return true if the key maps to a value, and false is the key doesn't map to a value
+   */
+  @Override
+  public boolean containsKey(KeyType key) {
+    return findPair(key) != null;
+  }
+
+  /**
+   * Retrieves the specific value that a key maps to.
+   *
+   * @param key the key to look up
+   * @return the value that key maps to
+   * @throws NoSuchElementException when key is not stored in this collection
+   */
+  @Override
+  public ValueType get(KeyType key) throws NoSuchElementException {
+    Pair pair = findPair(key);
+    if (pair != null) {
+      return pair.value; // return value paired with key
+    }
+    // reaching this point means the argument key was not found in this collection
+    throw new NoSuchElementException("key is not stored in this collection");
+  }
+
+  /**
+   * Retrieves the value that a key maps to, or a default when the key is not stored in this
+   * collection, using a single lookup.
+   *
+   * @param key          the key to look up
+   * @param defaultValue the value to return when key is not stored in this collection
+   * @return the value that key maps to, or defaultValue
+   */
+  @Override
+  public ValueType getOrDefault(KeyType key, ValueType defaultValue) {
+    Pair pair = findPair(key);
+    return pair == null ? defaultValue : pair.value;
+  }
+
+  /**
+   * Unlinks the pair containing key from whichever table still holds it
+   * @param key the key whose pair to remove
+   * @return the removed pair, or null if key was not in this collection
+   */
+  private Pair removePair(KeyType key) {
+    Pair pair = findPair(key);
+    if (pair != null) {
+      unlinkPair(pair);
+    }
+    return pair;
+  }
+
+  /**
+   * Unlinks a pair that was just found by findPair from its bucket
+   * @param pair the pair to remove
+   */
+  private void unlinkPair(Pair pair) {
+    migrateStepHelper();
+    // the pair is either still in a not yet moved old bucket, or in the current table
+    Bucket<Pair>[] buckets = table;
+    int index = indexOf(pair.key, table.length);
+    if (oldTable != null && indexOf(pair.key, oldTable.length) >= migrateIndex) {
+      int oldIndex = indexOf(pair.key, oldTable.length);
+      if (oldTable[oldIndex] != null && oldTable[oldIndex].contains(pair)) {
+        buckets = oldTable;
+        index = oldIndex;
+      }
+    }
+    size--;
+    buckets[index].remove(pair);
+    if (buckets[index].isEmpty()) {
+      buckets[index] = null; // release the empty list, like a bucket that was never used
+    } else if (buckets[index] instanceof TreeBucket
+        && buckets[index].size() <= UNTREEIFY_THRESHOLD) {
+      buckets[index] = new ListBucket(buckets[index]);
+    }
+    if (size < table.length / 16.0 * 3 && table.length / 2 >= minimumCapacity
+        && reservedSize == 0) {
+      resizeHelper(table.length / 2); // also starts a new Bloom filter
+    } else if (bloomFilter != null && ++bloomRemovals > Math.max(16, size)) {
+      rebuildBloomFilter();
+    }
+  }
+
+  /**
+   * Remove the mapping for a key from this collection.
+   *
+   * @param key the key whose mapping to remove
+   * @return the value that the removed key mapped to
+   * @throws NoSuchElementException when key is not stored in this collection
+   */
+  @Override
+  public ValueType remove(KeyType key) throws NoSuchElementException {
+    Pair pair = removePair(key);
+    if (pair != null) {
+      return pair.value;
+    }
+    // if we reach this point, key was not in this collection
+    throw new NoSuchElementException("key is not stored in this collection");
+  }
+
+  /**
+   * Removes the mapping for a key from this collection if there is one, using a single lookup.
+   *
+   * @param key the key whose mapping to remove
+   * @return the value that the removed key mapped to, or null if key was not in this collection
+   */
+  @Override
+  public ValueType removeIfPresent(KeyType key) {
+    Pair pair = removePair(key);
+    return pair == null ? null : pair.value;
+  }
+
+  /**
+   * Adds a key,value pair/mapping to this collection only if key is not already stored in it,
+   * using a single lookup.
+   *
+   * @param key   the key of the key,value pair
+   * @param value the value that key should map to
+   * @return the value that key already mapped to, or null if key was added
+   * @throws NullPointerException if key is null
+   */
+  @Override
+  public ValueType putIfAbsent(KeyType key, ValueType value) {
+    if (key == null) {
+      throw new NullPointerException("key is null");
+    }
+    Pair pair = findPair(key);
+    if (pair != null) {
+      return pair.value;
+    }
+    addNewPair(key, value);
+    return null;
+  }
+
+  /**
+   * Computes a new value for key from its current value, using a single lookup. When the
+   * remapping function returns null, the mapping for key is removed (or not added).
+   *
+   * @param key       the key whose value to compute
+   * @param remapping function from key and its current value (null when absent) to its new value
+   * @return the new value that key maps to, or null if key is no longer stored
+   * @throws NullPointerException if key is null
+   */
+  @Override
+  public ValueType compute(KeyType key,
+      BiFunction<? super KeyType, ? super ValueType, ? extends ValueType> remapping) {
+    if (key == null) {
+      throw new NullPointerException("key is null");
+    }
+    Pair pair = findPair(key);
+    ValueType newValue = remapping.apply(key, pair == null ? null : pair.value);
+    if (newValue == null) {
+      if (pair != null) {
+        unlinkPair(pair);
+      }
+    } else if (pair != null) {
+      pair.value = newValue; // update in place, no need to touch the bucket again
+    } else {
+      addNewPair(key, newValue);
+    }
+    return newValue;
+  }
+
+  /**
+   * Retrieves the value that key maps to, first computing and adding it if key is absent, using a
+   * single lookup. When the mapping function returns null, nothing is added.
+   *
+   * @param key     the key to look up
+   * @param mapping function from key to the value it should map to when it is absent
+   * @return the value that key now maps to, or null if nothing was added
+   * @throws NullPointerException if key is null
+   */
+  @Override
+  public ValueType computeIfAbsent(KeyType key,
+      Function<? super KeyType, ? extends ValueType> mapping) {
+    if (key == null) {
+      throw new NullPointerException("key is null");
+    }
+    Pair pair = findPair(key);
+    if (pair != null) {
+      return pair.value;
+    }
+    ValueType newValue = mapping.apply(key);
+    if (newValue != null) {
+      addNewPair(key, newValue);
+    }
+    return newValue;
+  }
+
+  /**
+   * Adds value for key if it is absent, or otherwise combines the current value with value, using
+   * a single lookup. When the remapping function returns null, the mapping for key is removed.
+   *
+   * @param key       the key of the key,value pair
+   * @param value     the value to add, or to combine with the current value
+   * @param remapping function from the current value and value to the new value
+   * @return the new value that key maps to, or null if key is no longer stored
+   * @throws NullPointerException if key is null
+   */
+  @Override
+  public ValueType merge(KeyType key, ValueType value,
+      BiFunction<? super ValueType, ? super ValueType, ? extends ValueType> remapping) {
+    if (key == null) {
+      throw new NullPointerException("key is null");
+    }
+    Pair pair = findPair(key);
+    if (pair == null) {
+      addNewPair(key, value);
+      return value;
+    }
+    ValueType newValue = remapping.apply(pair.value, value);
+    if (newValue == null) {
+      unlinkPair(pair);
+    } else {
+      pair.value = newValue;
+    }
+    return newValue;
+  }
+
+  /**
+   * Removes all key,value pairs from this collection, and shrinks it back to its minimum capacity.
+   */
+  @Override
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  public void clear() {
+    size = 0;
+    reservedSize = 0;
+    oldTable = null;
+    if (table.length != minimumCapacity) {
+      table = (Bucket<Pair>[]) new Bucket<?>[minimumCapacity];
+    } else {
+      for (int i = 0; i < table.length; i++) {
+        table[i] = null;
+      }
+    }
+    if (bloomFilter != null) {
+      rebuildBloomFilter();
+    }
+  }
+
+  /**
+   * Retrieves the number of keys stored in this collection.
+   *
+   * @return the number of keys stored in this collection
+   */
+  @Override
+  public int getSize() {
+    return size;
+  }
+
+  /**
+   * Retrieves this collection's capacity.
+   *
+   * @return the size of te underlying array for this collection
+   */
+  @Override
+  public int getCapacity() {
+    return table.length;
+  }
+
+  /**
+   * Grows the table once, to the capacity that doubling would reach by the time size keys have been
+   * put, so that putting that many keys won't resize again. The pairs are moved right away even in
+   * incremental mode, since the caller asked for the work to be done up front. Removes don't shrink
+   * the table until size keys have been stored, but the minimum capacity is left unchanged.
+   *
+   * @param size the number of keys this collection should be able to hold
+   */
+  @Override
+  public void ensureCapacity(int size) {
+    int length = lengthFor(size, table.length);
+    if (length > table.length) {
+      resizeHelper(length);
+      finishResize();
+    }
+    reservedSize = size > this.size ? size : 0;
+  }
+
+  /**
+   * Doubles a table length until size keys fit under the 75% load factor
+   * @return the doubled length, or length itself if size keys already fit
+   */
+  private static int lengthFor(int size, int length) {
+    while (((double) size / length) >= 0.75 && length <= Integer.MAX_VALUE / 2) {
+      length *= 2;
+    }
+    return length;
+  }
+
+  /**
+   * Shrinks the table by halving it as many times as possible while keeping the load factor
+   * below 75%, releasing the memory of the buckets that a burst of puts left behind. The new length
+   * also becomes the minimum capacity, below which removes won't shrink the table.
+   */
+  public void trimToSize() {
+    int length = table.length;
+    while (length / 2 >= 1 && ((double) size / (length / 2)) < 0.75) {
+      length /= 2;
+    }
+    if (length < table.length) {
+      resizeHelper(length);
+      finishResize();
+    }
+    minimumCapacity = length;
+    reservedSize = 0;
+  }
+
+  /**
+   * Writes every pair of this collection to a file in a binary format that load reads back. The
+   * pairs are encoded with the given codecs into a large buffer that is written to the file each
+   * time it fills up, and the header records the size and capacity so that load can allocate the
+   * table once and skip the duplicate key checks of put.
+   *
+   * @param path the file to write, which is replaced if it exists
+   * @param keyCodec encodes the keys
+   * @param valueCodec encodes the values (null values are stored without calling it)
+   * @throws IOException if the file can't be written
+   */
+  public void dump(Path path, Codec<? super KeyType> keyCodec, Codec<? super ValueType> valueCodec)
+      throws IOException {
+    finishResize();
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer buffer = ByteBuffer.allocate(DUMP_BUFFER_SIZE);
+      buffer.putInt(DUMP_MAGIC).putInt(DUMP_VERSION).putInt(size).putInt(table.length);
+      for (Bucket<Pair> bucket : table) {
+        if (bucket == null) {
+          continue;
+        }
+        for (Pair pair : bucket) {
+          int keyLength = keyCodec.encodedLength(pair.key);
+          int valueLength = pair.value == null ? -1 : valueCodec.encodedLength(pair.value);
+          int length = 2 * Integer.BYTES + keyLength + Math.max(0, valueLength);
+          if (buffer.remaining() < length) {
+            writeHelper(channel, buffer);
+            if (buffer.capacity() < length) {
+              buffer = ByteBuffer.allocate(length); // a single pair larger than the buffer
+            }
+          }
+          buffer.putInt(keyLength).putInt(valueLength);
+          encodeHelper(keyCodec, pair.key, keyLength, buffer);
+          if (pair.value != null) {
+            encodeHelper(valueCodec, pair.value, valueLength, buffer);
+          }
+        }
+      }
+      writeHelper(channel, buffer);
+    }
+  }
+
+  /**
+   * Encodes a value and checks that the codec wrote as many bytes as it said it would, since a
+   * wrong length would make every later record of the dump unreadable
+   */
+  private static <T> void encodeHelper(Codec<T> codec, T value, int length, ByteBuffer buffer) {
+    int start = buffer.position();
+    codec.encode(value, buffer);
+    if (buffer.position() - start != length) {
+      throw new IllegalStateException("codec wrote " + (buffer.position() - start)
+          + " bytes for a value it said takes " + length);
+    }
+  }
+
+  /**
+   * Writes the contents of a buffer to a channel and clears it for more puts
+   */
+  private static void writeHelper(FileChannel channel, ByteBuffer buffer) throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  /**
+   * Reads a collection written by dump. The table is created with the capacity recorded in the
+   * file (unless that is larger than size keys need), so it never resizes while loading, and the
+   * pairs are linked in without checking for duplicate keys (the keys of a dump are already
+   * unique, and each value must decode from exactly the bytes its record gives it).
+   *
+   * @param path the file to read
+   * @param keyCodec decodes the keys
+   * @param valueCodec decodes the values
+   * @return a new HashtableMap holding the pairs of the file
+   * @throws IOException if the file can't be read, isn't a dump of a supported version, or is
+   *                     truncated or corrupted
+   */
+  public static <KeyType, ValueType> HashtableMap<KeyType, ValueType> load(Path path,
+      Codec<KeyType> keyCodec, Codec<ValueType> valueCodec) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      ByteBuffer buffer = ByteBuffer.allocate(DUMP_BUFFER_SIZE).flip();
+      buffer = readHelper(channel, buffer, 4 * Integer.BYTES);
+      if (buffer.getInt() != DUMP_MAGIC) {
+        throw new IOException(path + " is not a HashtableMap dump");
+      }
+      int version = buffer.getInt();
+      if (version != DUMP_VERSION) {
+        throw new IOException("unsupported HashtableMap dump version " + version);
+      }
+      int size = buffer.getInt();
+      int capacity = buffer.getInt();
+      // every record takes at least 8 bytes, so the file bounds size
+      if (size < 0 || capacity < 1 || size >= capacity * 0.75
+          || (long) size * 2 * Integer.BYTES > channel.size() - channel.position()
+              + buffer.remaining()) {
+        throw new IOException("corrupted HashtableMap dump header");
+      }
+      // a capacity beyond what size needs from the default of 32 isn't trusted, so a corrupted
+      // header can't make the table allocate gigabytes for a handful of pairs
+      HashtableMap<KeyType, ValueType> map =
+          new HashtableMap<>(Math.min(capacity, lengthFor(size, 32)));
+      for (int i = 0; i < size; i++) {
+        buffer = readHelper(channel, buffer, 2 * Integer.BYTES);
+        int keyLength = buffer.getInt();
+        int valueLength = buffer.getInt();
+        // computed as a long and checked against what is left of the file, so a corrupted length
+        // can neither overflow nor make readHelper allocate a buffer larger than the file
+        long length = (long) keyLength + Math.max(0, valueLength);
+        if (keyLength < 0 || valueLength < -1
+            || length > buffer.remaining() + channel.size() - channel.position()) {
+          throw new IOException("corrupted HashtableMap dump record");
+        }
+        buffer = readHelper(channel, buffer, (int) length);
+        KeyType key = decodeHelper(keyCodec, keyLength, buffer);
+        ValueType value = valueLength < 0 ? null : decodeHelper(valueCodec, valueLength, buffer);
+        map.addNewPair(key, value);
+      }
+      if (buffer.hasRemaining() || channel.position() < channel.size()) {
+        throw new IOException("HashtableMap dump has data after its last record");
+      }
+      return map;
+    }
+  }
+
+  /**
+   * Decodes a value from exactly its length bytes, and leaves the buffer positioned after them
+   * @throws IOException if the codec reads fewer or more bytes than the record says the value has
+   */
+  private static <T> T decodeHelper(Codec<T> codec, int length, ByteBuffer buffer)
+      throws IOException {
+    // the codec only sees this value's bytes, so it can't read into the next record
+    ByteBuffer bytes = buffer.slice(buffer.position(), length);
+    T value;
+    try {
+      value = codec.decode(bytes, length);
+    } catch (BufferUnderflowException e) {
+      throw new IOException("corrupted HashtableMap dump record", e);
+    }
+    if (bytes.hasRemaining()) {
+      throw new IOException("corrupted HashtableMap dump record");
+    }
+    buffer.position(buffer.position() + length);
+    return value;
   }
 
   /**
-   * Default constructor that instantiates array with default capacity of 32
+   * Makes sure the buffer (which is ready for gets) holds at least the given number of unread
+   * bytes, reading more from the channel and growing the buffer if it is too small
+   * @return the buffer, or a larger one holding the same unread bytes
+   * @throws IOException if the file ends before that many bytes are available
    */
-  public HashtableMap() { // with default capacity = 32
-    this(32);
+  private static ByteBuffer readHelper(FileChannel channel, ByteBuffer buffer, int length)
+      throws IOException {
+    if (buffer.remaining() >= length) {
+      return buffer;
+    }
+    if (buffer.capacity() < length) {
+      buffer = ByteBuffer.allocate(length).put(buffer);
+    } else {
+      buffer.compact();
+    }
+    while (buffer.position() < length) {
+      if (channel.read(buffer) < 0) {
+        throw new IOException("HashtableMap dump is truncated");
+      }
+    }
+    return buffer.flip();
   }
 
+  /**
+   * Turns the Bloom filter in front of lookups on or off. While it is on, most lookups of keys that
+   * aren't stored (containsKey, getOrDefault, getOrNull, ...) return without searching a bucket,
+   * at the cost of hashing each key into the filter on put.
+   *
+   * @param enabled true to maintain and use a Bloom filter
+   */
+  public void setBloomFilterEnabled(boolean enabled) {
+    if (!enabled) {
+      bloomFilter = null;
+      nextBloomFilter = null;
+    } else if (bloomFilter == null) {
+      rebuildBloomFilter();
+    }
+  }
 
   /**
-   * Dynamically grows hashtable by doubling its capacity and rehashing (whenever load factor
-   * becomes greater than or equal to 75%)
+   * Replaces the Bloom filter with one sized for the current capacity that holds exactly the keys
+   * stored now (including those still in the old table during an incremental resize)
    */
-  @SuppressWarnings("unchecked")
-  private void resizeHelper() {
-    // save reference to current table and replace table field with new table with double capacity
-    LinkedList<Pair>[] oldTable = table;
-    table = (LinkedList<Pair>[]) new LinkedList[table.length*2];
-    size = 0; // reset size because it will be corrected when pairs are rehashed below
-    // iterate through all existing pairs and rehash them
-    for (LinkedList<Pair> pairs : oldTable) {
-      if (pairs != null) {
-        for (Pair pair : pairs) {
-          this.put(pair.key, pair.value);
+  private void rebuildBloomFilter() {
+    bloomFilter = new BloomFilter(Math.max(size, table.length / 4 * 3));
+    nextBloomFilter = null; // the new filter already holds the keys that are still to migrate
+    bloomRemovals = 0;
+    for (Bucket<Pair>[] buckets : Arrays.asList(table, oldTable)) {
+      for (int i = 0; buckets != null && i < buckets.length; i++) {
+        if (buckets[i] != null && (buckets != oldTable || i >= migrateIndex)) {
+          for (Pair pair : buckets[i]) {
+            bloomFilter.add(hashStrategy.hash(pair.key));
+          }
         }
       }
     }
   }
 
   /**
-   * Adds a new key,value pair/mapping to this collection.
+   * Turns the collection of lookup and resize statistics on or off. Turning it on starts from zero
+   * counters; turning it off discards them.
    *
-   * @param key   the key of the key,value pair
-   * @param value the value that key maps to
-   * @throws IllegalArgumentException if key already maps to a value
-   * @throws NullPointerException     if key is null
+   * @param enabled true to collect statistics
    */
-  @Override
-  public void put(KeyType key, ValueType value) throws IllegalArgumentException {
-    // handle cases of duplicate or null keys
-    if (key == null) {
-      throw new NullPointerException("key is null");
-    } else if (this.containsKey(key)) {
-      throw new IllegalArgumentException("key already maps to a value");
-    }
-
-    int index = Math.abs(key.hashCode()) % table.length; // calculate index to put current key in
-    // if this key is the first to be mapped to this index, create new linked list
-    if (table[index] == null) {
-      table[index] = new LinkedList<>();
-    }
-
-    table[index].add(new Pair(key, value)); // insert pair at calculated index
-    size++;
-    if (((double) size/table.length) >= 0.75) { // check load factor and resize if it is >= 75%
-      this.resizeHelper();
+  public void setStatsEnabled(boolean enabled) {
+    if (!enabled) {
+      stats = null;
+    } else if (stats == null) {
+      stats = new Stats();
     }
   }
 
   /**
-   * Checks whether a key maps to a value in this collection.
+   * Retrieves the statistics of this collection: the current load factor and chain lengths (which
+   * are computed by walking the buckets), plus the lookup and resize counters if stats are enabled.
    *
-   * @param key the key to check
-   * @return true if the key maps to a value, and false is the key doesn't map to a value
+   * @return a snapshot of the statistics, which isn't updated by later operations
    */
-  @Override
-  public boolean containsKey(KeyType key) {
-    int index = Math.abs(key.hashCode()) % table.length; // calculate index of current key
-    if (table[index] != null) { // check if there is linked list at mapped index
-      // iterate through all pairs at mapped index of key and check if any of them contain key
-      for (Pair pair : table[index]) {
-        if (pair.key.equals(key)) {
-          return true;
-        }
-      }
+  public Stats getStats() {
+    Stats snapshot = new Stats();
+    if (stats != null) {
+      snapshot.successfulLookups = stats.successfulLookups;
+      snapshot.successfulProbes = stats.successfulProbes;
+      snapshot.unsuccessfulLookups = stats.unsuccessfulLookups;
+      snapshot.unsuccessfulProbes = stats.unsuccessfulProbes;
+      snapshot.resizeNanos.addAll(stats.resizeNanos);
     }
-    // reaching this point means key wasn't found
-    return false;
+    snapshot.loadFactor = (double) size / table.length;
+    snapshot.chainLengthHistogram = chainLengthHelper(new int[1], table, 0);
+    if (oldTable != null) {
+      // the buckets that an incremental resize hasn't moved yet are still searched by lookups
+      snapshot.chainLengthHistogram =
+          chainLengthHelper(snapshot.chainLengthHistogram, oldTable, migrateIndex);
+    }
+    return snapshot;
   }
 
   /**
-   * Retrieves the specific value that a key maps to.
-   *
-   * @param key the key to look up
-   * @return the value that key maps to
-   * @throws NoSuchElementException when key is not stored in this collection
+   * Adds the lengths of the buckets from index start onwards to a chain length histogram
+   * @return the histogram, grown if one of the buckets is longer than any seen before
    */
-  @Override
-  public ValueType get(KeyType key) throws NoSuchElementException {
-    int index = Math.abs(key.hashCode()) % table.length; // calculate index of current key
-    if (table[index] != null) { // check if there is linked list at mapped index
-      // iterate through all pairs at (hash) index of key until argument key is found
-      for (Pair pair : table[index]) {
-        if (pair.key.equals(key)) {
-          return pair.value; // return value paired with key
-        }
+  private int[] chainLengthHelper(int[] histogram, Bucket<Pair>[] buckets, int start) {
+    for (int i = start; i < buckets.length; i++) {
+      int length = buckets[i] == null ? 0 : buckets[i].size();
+      if (length >= histogram.length) {
+        histogram = Arrays.copyOf(histogram, length + 1);
       }
+      histogram[length]++;
     }
-    // reaching this point means the argument key was not found in this collection
-    throw new NoSuchElementException("key is not stored in this collection");
+    return histogram;
   }
 
   /**
-   * Remove the mapping for a key from this collection.
-   *
-   * @param key the key whose mapping to remove
-   * @return the value that the removed key mapped to
-   * @throws NoSuchElementException when key is not stored in this collection
+   * Finishes an incremental resize that is still underway, so that every pair is in table
    */
-  @Override
-  public ValueType remove(KeyType key) throws NoSuchElementException {
-    int index = Math.abs(key.hashCode()) % table.length; // calculate index of current key
-    LinkedList<Pair> pairs = table[index];
-    if (table[index] != null) { // check if there is linked list at mapped index
-      // iterate through all pairs in linked list at (hash) index of key in table until key is found
-      for (Pair pair : pairs) {
-        if (pair.key.equals(key)) {
-          // remove the pair, decrement size and return corresponding value
-          size--;
-          table[index].remove(pair);
-          return pair.value;
-        }
-      }
+  private void finishResize() {
+    if (oldTable != null) {
+      migrateHelper(oldTable.length);
     }
-    // if we reach this point, key was not in this collection
-    throw new NoSuchElementException("key is not stored in this collection");
   }
 
   /**
-   * Removes all key,value pairs from this collection.
+   * Creates an iterator over the pairs stored in this collection. The pairs are the entries
+   * themselves (no copies are made), so setValue on an entry changes the value its key maps to.
+   *
+   * @return an iterator over the entries of this collection
    */
   @Override
-  public void clear() {
-    size = 0;
-    for (int i = 0; i < table.length; i++) {
-      table[i] = null;
-    }
+  public Iterator<Map.Entry<KeyType, ValueType>> entryIterator() {
+    return Spliterators.iterator(entrySpliterator());
   }
 
   /**
-   * Retrieves the number of keys stored in this collection.
+   * Creates a Spliterator over the pairs stored in this collection that splits the bucket array
+   * into halves. Any incremental resize still underway is finished first, so only one array needs
+   * to be walked.
    *
-   * @return the number of keys stored in this collection
+   * @return a Spliterator over the entries of this collection
    */
   @Override
-  public int getSize() {
-    return size;
+  public Spliterator<Map.Entry<KeyType, ValueType>> entrySpliterator() {
+    finishResize();
+    return new BucketSpliterator(table, 0, table.length);
   }
 
   /**
-   * Retrieves this collection's capacity.
+   * Performs an action for each key,value pair stored in this collection.
    *
-   * @return the size of te underlying array for this collection
+   * @param action the action to perform with each key and the value it maps to
    */
   @Override
-  public int getCapacity() {
-    return table.length;
+  public void forEach(BiConsumer<? super KeyType, ? super ValueType> action) {
+    finishResize();
+    for (Bucket<Pair> pairs : table) {
+      if (pairs != null) {
+        for (Pair pair : pairs) {
+          action.accept(pair.key, pair.value);
+        }
+      }
+    }
   }
 
   /**
@@ -356,8 +1687,8 @@ public class HashtableMap<KeyType, ValueType> implements MapADT<KeyType, ValueTy
     map.put("4", 4);
     // clear map
     map.clear();
-    // ensure capacity remained the same
-    Assertions.assertEquals(8, map.getCapacity());
+    // ensure capacity went back to the initial capacity
+    Assertions.assertEquals(4, map.getCapacity());
     // ensure the key-value pairs were actually removed
     Assertions.assertEquals(0, map.getSize());
     Assertions.assertFalse(map.containsKey("1"));
@@ -365,4 +1696,600 @@ public class HashtableMap<KeyType, ValueType> implements MapADT<KeyType, ValueTy
     Assertions.assertFalse(map.containsKey("3"));
     Assertions.assertFalse(map.containsKey("4"));
   }
+
+  /**
+   * Tests that a map in incremental resize mode keeps every pair reachable while the old and new
+   * tables are both live, that each put moves only its share of the old buckets, and that the old
+   * table is drained by those puts before the next resize (so no put has to finish a migration all
+   * at once). Put latency of both modes is reported by MapBenchmark.
+   */
+  @Test
+  public void testIncrementalResize() {
+    HashtableMap<Integer, Integer> map = new HashtableMap<>(4, true);
+    for (int i = 0; i < 10000; i++) {
+      map.put(i, i);
+      // check that earlier keys are still found mid-migration, and that removes work in both tables
+      if ((i / 2) % 7 != 0) {
+        Assertions.assertEquals(i / 2, map.get(i / 2));
+      }
+      if (i % 7 == 0) {
+        Assertions.assertEquals(i, map.remove(i));
+        Assertions.assertFalse(map.containsKey(i));
+      }
+    }
+    for (int i = 0; i < 10000; i++) {
+      Assertions.assertEquals(i % 7 != 0, map.containsKey(i));
+    }
+    Assertions.assertThrows(IllegalArgumentException.class, () -> map.put(1, 1));
+
+    HashtableMap<Integer, Integer> counted = new HashtableMap<>(4, true);
+    int resizes = 0;
+    for (int i = 0; i < 1 << 16; i++) {
+      HashtableMap.Bucket<HashtableMap<Integer, Integer>.Pair>[] old = counted.oldTable;
+      int migrated = counted.migrateIndex;
+      int capacity = counted.getCapacity();
+      counted.put(i, i);
+      if (counted.getCapacity() != capacity) {
+        Assertions.assertNull(old, "resize at size " + i + " had to finish the previous one");
+        resizes++;
+      } else if (old != null) {
+        int moved = (counted.oldTable == null ? old.length : counted.migrateIndex) - migrated;
+        int share = Math.max(1, BUCKETS_MOVED_PER_OPERATION * old.length / capacity);
+        Assertions.assertTrue(moved <= share, moved + " buckets moved");
+      }
+    }
+    Assertions.assertEquals(15, resizes); // 4 doubled to 2^17
+  }
+
+  /**
+   * Tests that in incremental resize mode the old table of a shrink is drained by the removes that
+   * follow it, and the old table of a grow by the puts, so that neither a shrink nor a grow right
+   * after one ever has to move more than its own share of the previous migration's buckets
+   */
+  @Test
+  public void testIncrementalShrinkThenGrow() {
+    HashtableMap<Integer, Integer> map = new HashtableMap<>(4, true);
+    int[] resizes = new int[2]; // shrinks, grows
+    for (int round = 0; round < 3; round++) {
+      for (int i = 0; i < 1 << 14; i++) {
+        int owed = map.owedBuckets();
+        int capacity = map.getCapacity();
+        map.put(i, i);
+        if (map.getCapacity() != capacity) {
+          Assertions.assertTrue(owed <= 0, "grow at size " + i + " had to finish a migration");
+          resizes[1]++;
+        }
+      }
+      for (int i = 0; i < 1 << 14; i++) {
+        int owed = map.owedBuckets();
+        int capacity = map.getCapacity();
+        Assertions.assertEquals(i, map.remove(i));
+        if (map.getCapacity() != capacity) {
+          Assertions.assertTrue(owed <= 0, "shrink at size " + i + " had to finish a migration");
+          resizes[0]++;
+        }
+      }
+    }
+    Assertions.assertEquals(0, map.getSize());
+    Assertions.assertEquals(3 * 13, resizes[0]); // 2^15 halved to 4, three times
+    Assertions.assertEquals(3 * 13, resizes[1]);
+  }
+
+  /**
+   * @return how many old buckets would be left after the next put or remove moved its share, so a
+   *         resize by that operation would have to move them all at once when this is positive
+   */
+  private int owedBuckets() {
+    if (oldTable == null) {
+      return 0;
+    }
+    return oldTable.length - migrateIndex
+        - Math.max(1, BUCKETS_MOVED_PER_OPERATION * oldTable.length / table.length);
+  }
+
+  /**
+   * Key type whose hash code only depends on a small part of its value, so that many keys are
+   * forced into the same bucket. Comparable can be turned off to test the tree's fallback search.
+   */
+  private static class CollidingKey implements Comparable<CollidingKey> {
+
+    public static int equalsCalls; // counts the calls of equals, to check what a search costs
+    public final int value;
+
+    public CollidingKey(int value) {
+      this.value = value;
+    }
+
+    @Override
+    public int hashCode() {
+      return value % 3;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      equalsCalls++;
+      return other instanceof CollidingKey && ((CollidingKey) other).value == value;
+    }
+
+    @Override
+    public int compareTo(CollidingKey other) {
+      return Integer.compare(value, other.value);
+    }
+
+  }
+
+  /**
+   * Key type that collides like CollidingKey but gives the tree no ordering to search by
+   */
+  private static class UnorderedKey {
+
+    public final int value;
+
+    public UnorderedKey(int value) {
+      this.value = value;
+    }
+
+    @Override
+    public int hashCode() {
+      return 7;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof UnorderedKey && ((UnorderedKey) other).value == value;
+    }
+
+  }
+
+  /**
+   * Tests that a bucket with many colliding keys is converted to a tree, stays correct through
+   * resizes and removes, that a remove from it searches the tree rather than scanning the bucket,
+   * and that it is converted back to a list once it shrinks
+   */
+  @Test
+  public void testTreeifiedBuckets() {
+    HashtableMap<CollidingKey, Integer> map = new HashtableMap<>();
+    for (int i = 0; i < 3000; i++) {
+      map.put(new CollidingKey(i), i);
+    }
+    Assertions.assertTrue(map.table[map.indexOf(new CollidingKey(0), map.table.length)]
+        instanceof HashtableMap.TreeBucket);
+    for (int i = 0; i < 3000; i++) {
+      Assertions.assertEquals(i, map.get(new CollidingKey(i)));
+    }
+    Assertions.assertFalse(map.containsKey(new CollidingKey(3000)));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> map.put(new CollidingKey(5), 5));
+    CollidingKey.equalsCalls = 0;
+    Assertions.assertEquals(2998, map.remove(new CollidingKey(2998)));
+    Assertions.assertTrue(CollidingKey.equalsCalls < 100, CollidingKey.equalsCalls + " equals");
+    map.put(new CollidingKey(2998), 2998);
+    // remove most keys (creating and then clearing tombstones), and re-add a few removed ones
+    for (int i = 0; i < 2990; i++) {
+      Assertions.assertEquals(i, map.remove(new CollidingKey(i)));
+    }
+    map.put(new CollidingKey(3), -3);
+    Assertions.assertEquals(-3, map.get(new CollidingKey(3)));
+    Assertions.assertFalse(map.containsKey(new CollidingKey(4)));
+    Assertions.assertEquals(11, map.getSize());
+    for (HashtableMap.Bucket<HashtableMap<CollidingKey, Integer>.Pair> bucket : map.table) {
+      Assertions.assertFalse(bucket instanceof HashtableMap.TreeBucket);
+    }
+
+    // a tree bucket's iterator removes pairs through the tree index
+    HashtableMap<CollidingKey, Integer>.TreeBucket tree = map.new TreeBucket(map.new ListBucket());
+    for (int i = 0; i < 20; i++) {
+      tree.add(map.new Pair(new CollidingKey(i), i));
+    }
+    Iterator<HashtableMap<CollidingKey, Integer>.Pair> pairs = tree.iterator();
+    Assertions.assertThrows(IllegalStateException.class, pairs::remove);
+    while (pairs.hasNext()) {
+      if (pairs.next().value % 2 == 0) {
+        pairs.remove();
+      }
+    }
+    Assertions.assertEquals(10, tree.size());
+    Assertions.assertNull(tree.findPair(new CollidingKey(4)));
+    Assertions.assertEquals(5, tree.findPair(new CollidingKey(5)).value);
+
+    // keys that tie on hash code and have no ordering are still all found
+    HashtableMap<UnorderedKey, Integer> unordered = new HashtableMap<>();
+    for (int i = 0; i < 200; i++) {
+      unordered.put(new UnorderedKey(i), i);
+    }
+    for (int i = 0; i < 200; i += 2) {
+      unordered.remove(new UnorderedKey(i));
+    }
+    for (int i = 0; i < 200; i++) {
+      Assertions.assertEquals(i % 2 != 0, unordered.containsKey(new UnorderedKey(i)));
+    }
+  }
+
+  /**
+   * Tests the exception-free lookup methods on keys that are and aren't in the map, including a
+   * key that maps to null
+   */
+  @Test
+  public void testExceptionFreeLookups() {
+    HashtableMap<String, Integer> map = new HashtableMap<>(4);
+    map.put("a", 1);
+    map.put("b", 2);
+    map.put("c", null);
+    Assertions.assertEquals(1, map.getOrDefault("a", -1));
+    Assertions.assertEquals(-1, map.getOrDefault("z", -1));
+    Assertions.assertNull(map.getOrDefault("c", -1));
+    Assertions.assertEquals(2, map.getOrNull("b"));
+    Assertions.assertNull(map.getOrNull("z"));
+    Assertions.assertEquals(2, map.removeIfPresent("b"));
+    Assertions.assertNull(map.removeIfPresent("b"));
+    Assertions.assertFalse(map.containsKey("b"));
+    Assertions.assertEquals(2, map.getSize());
+  }
+
+  /**
+   * Tests putIfAbsent, compute, computeIfAbsent and merge, including removal through a null result
+   * and tallying counts with merge
+   */
+  @Test
+  public void testUpserts() {
+    HashtableMap<String, Integer> map = new HashtableMap<>(4);
+    Assertions.assertNull(map.putIfAbsent("a", 1));
+    Assertions.assertEquals(1, map.putIfAbsent("a", 2));
+    Assertions.assertEquals(1, map.get("a"));
+    Assertions.assertEquals(10, map.compute("a", (key, value) -> value * 10));
+    Assertions.assertEquals(5, map.compute("b", (key, value) -> value == null ? 5 : value));
+    Assertions.assertNull(map.compute("b", (key, value) -> null));
+    Assertions.assertFalse(map.containsKey("b"));
+    Assertions.assertEquals(1, map.computeIfAbsent("c", key -> key.length()));
+    Assertions.assertEquals(1, map.computeIfAbsent("c", key -> 100));
+    Assertions.assertNull(map.computeIfAbsent("d", key -> null));
+    Assertions.assertFalse(map.containsKey("d"));
+    Assertions.assertNull(map.merge("a", 0, (oldValue, value) -> null));
+    Assertions.assertEquals(1, map.getSize());
+
+    // tally words through merge, letting the map resize along the way
+    HashtableMap<String, Integer> counts = new HashtableMap<>(4);
+    for (int i = 0; i < 1000; i++) {
+      counts.merge("word" + (i % 37), 1, Integer::sum);
+    }
+    Assertions.assertEquals(37, counts.getSize());
+    Assertions.assertEquals(28, counts.get("word0"));
+    Assertions.assertEquals(27, counts.get("word36"));
+  }
+
+  /**
+   * Tests forEach, the key/value/entry iterators, and that a parallel stream over a large map
+   * visits every pair exactly once
+   */
+  @Test
+  public void testIteration() {
+    HashtableMap<Integer, Integer> map = new HashtableMap<>(4, true);
+    for (int i = 0; i < 100000; i++) {
+      map.put(i, 2 * i);
+    }
+    long[] sums = new long[2];
+    map.forEach((key, value) -> {
+      sums[0] += key;
+      sums[1] += value;
+    });
+    Assertions.assertEquals(4999950000L, sums[0]);
+    Assertions.assertEquals(2 * 4999950000L, sums[1]);
+    int keys = 0;
+    for (Iterator<Integer> iterator = map.keyIterator(); iterator.hasNext(); iterator.next()) {
+      keys++;
+    }
+    Assertions.assertEquals(100000, keys);
+    long values = 0;
+    for (Iterator<Integer> iterator = map.valueIterator(); iterator.hasNext();) {
+      values += iterator.next();
+    }
+    Assertions.assertEquals(2 * 4999950000L, values);
+    Assertions.assertEquals(100000,
+        map.entryStream(true).map(Map.Entry::getKey).distinct().count());
+    Assertions.assertEquals(2 * 4999950000L,
+        map.entryStream(true).mapToLong(entry -> entry.getValue()).sum());
+    Assertions.assertFalse(new HashtableMap<String, String>().entryIterator().hasNext());
+
+    Map.Entry<Integer, Integer> entry = map.entryIterator().next();
+    Assertions.assertEquals(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(),
+        entry.getKey() * 2), entry);
+    Assertions.assertEquals(Map.entry(entry.getKey(), entry.getKey() * 2).hashCode(),
+        entry.hashCode());
+    Assertions.assertEquals(entry.getKey() * 2, entry.setValue(-1));
+    Assertions.assertEquals(-1, map.get(entry.getKey()));
+  }
+
+  /**
+   * Tests the stats of a map whose Integer keys each get their own bucket, and that a map with
+   * stats disabled still reports its structure but no counters
+   */
+  @Test
+  public void testStats() {
+    // unseeded, so that the chain lengths are known
+    HashtableMap<Integer, Integer> map = new HashtableMap<>(10, false, HashStrategy.identity());
+    map.setStatsEnabled(true);
+    for (int i = 0; i < 100; i++) {
+      map.put(i, i);
+    }
+    for (int i = 0; i < 100; i++) {
+      map.get(i);
+    }
+    Assertions.assertFalse(map.containsKey(200)); // bucket 40 holds only key 40
+    Stats stats = map.getStats();
+    Assertions.assertEquals(100.0 / 160, stats.getLoadFactor());
+    Assertions.assertArrayEquals(new int[] {60, 100}, stats.getChainLengthHistogram());
+    Assertions.assertEquals(1, stats.getLongestChain());
+    Assertions.assertEquals(4, stats.getResizeCount()); // 10 -> 20 -> 40 -> 80 -> 160
+    Assertions.assertEquals(4, stats.getResizeNanos().length);
+    Assertions.assertEquals(1.0, stats.getAverageProbesPerHit());
+    Assertions.assertTrue(stats.getAverageProbesPerMiss() <= 1.0);
+    map.setStatsEnabled(false);
+    stats = map.getStats();
+    Assertions.assertEquals(0, stats.getResizeCount());
+    Assertions.assertEquals(0.0, stats.getAverageProbesPerHit());
+    Assertions.assertEquals(1, stats.getLongestChain());
+  }
+
+  /**
+   * Tests that ensureCapacity and the putAll methods grow the table once, to the same capacity
+   * that putting the keys one at a time would reach, and keep the duplicate key check
+   */
+  @Test
+  public void testBulkLoad() {
+    HashtableMap<Integer, Integer> source = new HashtableMap<>(12);
+    for (int i = 0; i < 1000; i++) {
+      source.put(i, -i);
+    }
+    HashtableMap<Integer, Integer> copy = new HashtableMap<>(12);
+    copy.setStatsEnabled(true);
+    copy.putAll(source);
+    Assertions.assertEquals(source.getCapacity(), copy.getCapacity()); // 12 * 2^7 = 1536
+    Assertions.assertEquals(1, copy.getStats().getResizeCount());
+    Assertions.assertEquals(-999, copy.get(999));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> copy.putAll(source));
+
+    HashtableMap<String, Integer> arrays = new HashtableMap<>(4, true);
+    arrays.putAll(new String[] {"a", "b", "c", "d"}, new Integer[] {1, 2, 3, 4});
+    Assertions.assertEquals(8, arrays.getCapacity());
+    Assertions.assertNull(arrays.oldTable);
+    Assertions.assertThrows(IllegalArgumentException.class,
+        () -> arrays.putAll(new String[] {"e"}, new Integer[0]));
+    Assertions.assertFalse(arrays.containsKey("e"));
+    arrays.putAll(List.of(Map.entry("e", 5), Map.entry("f", 6)));
+    Assertions.assertEquals(6, arrays.get("f"));
+    Assertions.assertEquals(16, arrays.getCapacity());
+
+    HashtableMap<Integer, Integer> presized = new HashtableMap<>();
+    presized.ensureCapacity(100000);
+    int capacity = presized.getCapacity();
+    for (int i = 0; i < 100000; i++) {
+      presized.put(i, i);
+    }
+    Assertions.assertEquals(capacity, presized.getCapacity());
+    presized.ensureCapacity(10); // never shrinks
+    Assertions.assertEquals(capacity, presized.getCapacity());
+  }
+
+  /**
+   * Tests that the Bloom filter never hides a stored key through puts, resizes, removes and
+   * clear, that a resize only replaces it once every old bucket has migrated into its successor,
+   * and that it rejects almost all keys that aren't stored (which stats count as misses)
+   */
+  @Test
+  public void testBloomFilter() {
+    HashtableMap<Integer, Integer> map = new HashtableMap<>(16, true);
+    map.setBloomFilterEnabled(true);
+    int replaced = 0;
+    for (int i = 0; i < 20000; i++) {
+      BloomFilter filter = map.bloomFilter;
+      map.put(i, i);
+      Assertions.assertEquals(map.oldTable != null, map.nextBloomFilter != null);
+      if (map.bloomFilter != filter) {
+        Assertions.assertNull(map.oldTable);
+        replaced++;
+      }
+      Assertions.assertTrue(map.containsKey(i / 2));
+    }
+    Assertions.assertTrue(replaced >= 10, replaced + " filters replaced");
+    for (int i = 0; i < 20000; i += 3) {
+      map.remove(i);
+    }
+    for (int i = 0; i < 20000; i++) {
+      Assertions.assertEquals(i % 3 != 0, map.containsKey(i));
+      Assertions.assertEquals(i % 3 != 0 ? Integer.valueOf(i) : null, map.getOrNull(i));
+    }
+    Assertions.assertThrows(NoSuchElementException.class, () -> map.get(20000));
+    int possible = 0;
+    for (int i = 20000; i < 120000; i++) {
+      if (map.bloomFilter.mightContain(map.hashStrategy.hash(i))) {
+        possible++;
+      }
+    }
+    Assertions.assertTrue(possible < 3000, possible + " false positives out of 100000");
+    map.setStatsEnabled(true); // lookups the filter rejects still count as misses
+    for (int i = 20000; i < 21000; i++) {
+      map.containsKey(i);
+    }
+    Stats stats = map.getStats();
+    Assertions.assertEquals(1000, stats.unsuccessfulLookups);
+    Assertions.assertTrue(stats.getAverageProbesPerMiss() < 0.2);
+    map.setStatsEnabled(false);
+    map.clear();
+    Assertions.assertFalse(map.bloomFilter.mightContain(map.hashStrategy.hash(5)));
+    map.put(5, 5);
+    Assertions.assertEquals(5, map.get(5));
+    map.setBloomFilterEnabled(false);
+    Assertions.assertTrue(map.containsKey(5));
+  }
+
+  /**
+   * Tests that hash codes of Integer.MIN_VALUE are placed in a valid bucket, and that a seeded
+   * strategy spreads keys that an unseeded power-of-two table would put in a single bucket
+   */
+  @Test
+  public void testHashStrategy() {
+    HashtableMap<Integer, Integer> odd = new HashtableMap<>(12, false, HashStrategy.identity());
+    odd.put(Integer.MIN_VALUE, 1);
+    odd.put(-7, 2);
+    Assertions.assertEquals(1, odd.get(Integer.MIN_VALUE));
+    Assertions.assertEquals(2, odd.get(-7));
+
+    HashtableMap<Integer, Integer> identity = new HashtableMap<>(32, false,
+        HashStrategy.identity());
+    HashtableMap<Integer, Integer> seeded = new HashtableMap<>();
+    identity.setStatsEnabled(true);
+    seeded.setStatsEnabled(true);
+    for (int i = 0; i < 1000; i++) {
+      identity.put(i << 12, i); // the low 12 bits are all 0
+      seeded.put(i << 12, i);
+    }
+    Assertions.assertEquals(2048, seeded.getCapacity());
+    Assertions.assertEquals(1000, identity.getStats().getLongestChain());
+    Assertions.assertTrue(seeded.getStats().getLongestChain() < 16);
+    for (int i = 0; i < 1000; i++) {
+      Assertions.assertEquals(i, seeded.get(i << 12));
+    }
+    Assertions.assertNotEquals(HashStrategy.seeded(1).hash("key"),
+        HashStrategy.seeded(2).hash("key"));
+    Assertions.assertThrows(NullPointerException.class, () -> new HashtableMap<>(8, false, null));
+  }
+
+  /**
+   * Tests that removes shrink the table with hysteresis and release empty buckets, that trimToSize
+   * and clear set how far it shrinks, and that ensureCapacity only holds shrinking off until the
+   * table is filled
+   */
+  @Test
+  public void testShrinking() {
+    for (boolean incremental : new boolean[] {false, true}) {
+      HashtableMap<Integer, Integer> map = new HashtableMap<>(8, incremental);
+      for (int i = 0; i < 1000; i++) {
+        map.put(i, i);
+      }
+      Assertions.assertEquals(2048, map.getCapacity());
+      for (int i = 10; i < 1000; i++) {
+        map.remove(i);
+      }
+      map.finishResize();
+      Assertions.assertEquals(32, map.getCapacity()); // 64 halved once size dropped to 11
+      for (int i = 0; i < 10; i++) {
+        Assertions.assertEquals(i, map.get(i));
+      }
+      for (HashtableMap.Bucket<HashtableMap<Integer, Integer>.Pair> bucket : map.table) {
+        Assertions.assertTrue(bucket == null || !bucket.isEmpty());
+      }
+      // hovering around a threshold doesn't resize back and forth
+      map.setStatsEnabled(true);
+      for (int i = 0; i < 100; i++) {
+        map.put(-1, -1);
+        map.remove(-1);
+      }
+      Assertions.assertEquals(0, map.getStats().getResizeCount());
+
+      map.trimToSize();
+      Assertions.assertEquals(16, map.getCapacity()); // 10 keys don't fit 8 buckets under 0.75
+      for (int i = 2; i < 10; i++) {
+        map.remove(i);
+      }
+      Assertions.assertEquals(16, map.getCapacity());
+      Assertions.assertEquals(1, map.get(1));
+    }
+
+    HashtableMap<Integer, Integer> cleared = new HashtableMap<>(4);
+    for (int i = 0; i < 100; i++) {
+      cleared.put(i, i);
+    }
+    cleared.clear();
+    Assertions.assertEquals(4, cleared.getCapacity());
+    Assertions.assertFalse(cleared.containsKey(5));
+
+    HashtableMap<Integer, Integer> presized = new HashtableMap<>();
+    presized.ensureCapacity(1000);
+    int capacity = presized.getCapacity();
+    presized.put(1, 1);
+    presized.remove(1);
+    Assertions.assertEquals(capacity, presized.getCapacity()); // not shrunk while being filled
+    for (int i = 0; i < 1000; i++) {
+      presized.put(i, i);
+    }
+    for (int i = 0; i < 1000; i++) {
+      presized.remove(i);
+    }
+    presized.finishResize();
+    Assertions.assertEquals(32, presized.getCapacity()); // back to the constructor's capacity
+    presized.putAll(new Integer[] {1, 2}, new Integer[] {1, 2});
+    presized.ensureCapacity(5000);
+    presized.clear();
+    Assertions.assertEquals(32, presized.getCapacity());
+  }
+
+  /**
+   * Tests that dump and load round trip pairs (including null values and a value larger than the
+   * buffer) at the same capacity, and that files that aren't complete dumps are rejected
+   */
+  @Test
+  public void testDumpAndLoad() throws IOException {
+    HashtableMap<String, String> map = new HashtableMap<>();
+    for (int i = 0; i < 100000; i++) {
+      map.put("key" + i, i % 1000 == 0 ? null : "value \u00e9 " + i);
+    }
+    map.remove("key5");
+    map.put("large", "x".repeat(3 * DUMP_BUFFER_SIZE));
+    Path path = Files.createTempFile("hashtable", ".dump");
+    try {
+      map.dump(path, Codec.STRING, Codec.STRING);
+      HashtableMap<String, String> loaded = HashtableMap.load(path, Codec.STRING, Codec.STRING);
+      Assertions.assertEquals(map.getSize(), loaded.getSize());
+      Assertions.assertEquals(map.getCapacity(), loaded.getCapacity());
+      for (int i = 0; i < 100000; i++) {
+        Assertions.assertEquals(i != 5, loaded.containsKey("key" + i));
+        if (i != 5) {
+          Assertions.assertEquals(map.get("key" + i), loaded.get("key" + i));
+        }
+      }
+      Assertions.assertEquals(3 * DUMP_BUFFER_SIZE, loaded.get("large").length());
+      Assertions.assertThrows(IllegalArgumentException.class, () -> loaded.put("key1", ""));
+
+      HashtableMap<Integer, Long> empty = new HashtableMap<>(4);
+      empty.dump(path, Codec.INTEGER, Codec.LONG);
+      Assertions.assertEquals(0, HashtableMap.load(path, Codec.INTEGER, Codec.LONG).getSize());
+
+      HashtableMap<Integer, Long> numbers = new HashtableMap<>(4);
+      numbers.put(1, 1L << 40);
+      numbers.dump(path, Codec.INTEGER, Codec.LONG);
+      byte[] bytes = Files.readAllBytes(path);
+      Files.write(path, Arrays.copyOf(bytes, bytes.length - 1));
+      Assertions.assertThrows(IOException.class,
+          () -> HashtableMap.load(path, Codec.INTEGER, Codec.LONG));
+      Files.write(path, Arrays.copyOf(bytes, bytes.length + 1));
+      Assertions.assertThrows(IOException.class,
+          () -> HashtableMap.load(path, Codec.INTEGER, Codec.LONG));
+      ByteBuffer.wrap(bytes).putInt(4 * Integer.BYTES, Integer.MAX_VALUE) // key length of record 1
+          .putInt(5 * Integer.BYTES, Integer.MAX_VALUE); // its value length, so the sum overflows
+      Files.write(path, bytes);
+      Assertions.assertThrows(IOException.class,
+          () -> HashtableMap.load(path, Codec.INTEGER, Codec.LONG));
+      ByteBuffer.wrap(bytes).putInt(4 * Integer.BYTES, 1 << 30).putInt(5 * Integer.BYTES, 8);
+      Files.write(path, bytes); // a 1GB key in a file of a few dozen bytes
+      Assertions.assertThrows(IOException.class,
+          () -> HashtableMap.load(path, Codec.INTEGER, Codec.LONG));
+      ByteBuffer.wrap(bytes).putInt(4 * Integer.BYTES, 3).putInt(5 * Integer.BYTES, 9);
+      Files.write(path, bytes); // the key's 4 bytes would run into the value
+      Assertions.assertThrows(IOException.class,
+          () -> HashtableMap.load(path, Codec.INTEGER, Codec.LONG));
+      ByteBuffer.wrap(bytes).putInt(2 * Integer.BYTES, 0).putInt(3 * Integer.BYTES,
+          Integer.MAX_VALUE); // no pairs, but a capacity of 2^31 - 1 buckets
+      Files.write(path, Arrays.copyOf(bytes, 4 * Integer.BYTES));
+      Assertions.assertEquals(32, HashtableMap.load(path, Codec.INTEGER, Codec.LONG).getCapacity());
+      ByteBuffer.wrap(bytes).putInt(2 * Integer.BYTES, 1000); // 1000 pairs in one record's bytes
+      Files.write(path, bytes);
+      Assertions.assertThrows(IOException.class,
+          () -> HashtableMap.load(path, Codec.INTEGER, Codec.LONG));
+      bytes[0]++;
+      Files.write(path, bytes);
+      Assertions.assertThrows(IOException.class,
+          () -> HashtableMap.load(path, Codec.INTEGER, Codec.LONG));
+    } finally {
+      Files.delete(path);
+    }
+  }
 }
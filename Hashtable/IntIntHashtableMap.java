@@ -0,0 +1,304 @@
+import java.util.AbstractMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Implementation of MapADT whose keys and values are both ints, such as counters or int-to-int
+ * indexes. Keys and values sit in two parallel int[] arrays, so the int overloads below store and
+ * return values without creating a single Integer. The Integer methods that MapADT requires unbox
+ * their arguments; since the values are unboxed too, this map can't hold null values, and
+ * getOrDefault/removeIfPresent/putIfAbsent are overridden so that they probe only once.
+ */
+public class IntIntHashtableMap extends PrimitiveHashtableMap<Integer, Integer> {
+
+  protected int[] keys;
+  protected int[] values;
+
+  /**
+   * constructor that instantiates arrays with argument capacity
+   * @param capacity number of slots in the underlying arrays
+   */
+  public IntIntHashtableMap(int capacity) {
+    super(capacity);
+    keys = new int[capacity];
+    values = new int[capacity];
+  }
+
+  /**
+   * Default constructor that instantiates arrays with default capacity of 32
+   */
+  public IntIntHashtableMap() { // with default capacity = 32
+    this(32);
+  }
+
+  /**
+   * Finds the slot that holds key, or the free slot that ends key's probe run when key is not
+   * stored, so that a lookup followed by an insert only walks the probe run once
+   * @param key the key to look up
+   * @return the index of the slot holding key, or of the free slot that key would be placed in
+   */
+  private int slotOf(int key) {
+    int index = LinearProbing.homeIndex(key, keys.length);
+    while (used[index] && keys[index] != key) {
+      index = (index + 1) % keys.length;
+    }
+    return index;
+  }
+
+  /**
+   * Finds the slot that holds key
+   * @param key the key to look up
+   * @return the index of the slot holding key, or -1 if key is not stored in this collection
+   */
+  private int findIndex(int key) {
+    return usedOrMissing(slotOf(key));
+  }
+
+  @Override
+  protected int homeOf(int slot) {
+    return LinearProbing.homeIndex(keys[slot], keys.length);
+  }
+
+  @Override
+  protected void moveSlot(int from, int to) {
+    keys[to] = keys[from];
+    values[to] = values[from];
+  }
+
+  @Override
+  protected void resizeHelper() {
+    int[] oldKeys = keys;
+    int[] oldValues = values;
+    boolean[] oldUsed = used;
+    keys = new int[oldKeys.length * 2];
+    values = new int[oldKeys.length * 2];
+    used = new boolean[oldKeys.length * 2];
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldUsed[i]) {
+        int index = slotOf(oldKeys[i]);
+        keys[index] = oldKeys[i];
+        values[index] = oldValues[i];
+        used[index] = true;
+      }
+    }
+  }
+
+  @Override
+  protected Map.Entry<Integer, Integer> entryAt(int slot) {
+    return new AbstractMap.SimpleImmutableEntry<>(keys[slot], values[slot]);
+  }
+
+  /**
+   * Adds a new key,value pair/mapping to this collection without boxing the key or value.
+   *
+   * @param key   the key of the key,value pair
+   * @param value the value that key maps to
+   * @throws IllegalArgumentException if key already maps to a value
+   */
+  public void put(int key, int value) throws IllegalArgumentException {
+    int index = slotOf(key);
+    if (used[index]) {
+      throw new IllegalArgumentException("key already maps to a value");
+    }
+    insertAt(index, key, value);
+  }
+
+  /**
+   * Stores a new pair in the free slot that slotOf returned for its key
+   */
+  private void insertAt(int index, int key, int value) {
+    keys[index] = key;
+    values[index] = value;
+    occupy(index);
+  }
+
+  /**
+   * Checks whether a key maps to a value in this collection without boxing the key.
+   *
+   * @param key the key to check
+   * @return true if the key maps to a value, and false is the key doesn't map to a value
+   */
+  public boolean containsKey(int key) {
+    return findIndex(key) != -1;
+  }
+
+  /**
+   * Retrieves the specific value that a key maps to without boxing the key.
+   *
+   * @param key the key to look up
+   * @return the value that key maps to
+   * @throws NoSuchElementException when key is not stored in this collection
+   */
+  public int get(int key) throws NoSuchElementException {
+    int index = findIndex(key);
+    if (index == -1) {
+      throw new NoSuchElementException("key is not stored in this collection");
+    }
+    return values[index];
+  }
+
+  /**
+   * Remove the mapping for a key from this collection without boxing the key. Entries later in
+   * the same probe run are shifted back into the freed slot, so no tombstone is needed.
+   *
+   * @param key the key whose mapping to remove
+   * @return the value that the removed key mapped to
+   * @throws NoSuchElementException when key is not stored in this collection
+   */
+  public int remove(int key) throws NoSuchElementException {
+    int index = findIndex(key);
+    if (index == -1) {
+      throw new NoSuchElementException("key is not stored in this collection");
+    }
+    return removeAt(index);
+  }
+
+  /**
+   * Removes the pair in slot index
+   * @return the value that the removed key mapped to
+   */
+  private int removeAt(int index) {
+    int removed = values[index];
+    vacate(index);
+    return removed;
+  }
+
+  /**
+   * Retrieves the value that a key maps to, or defaultValue when key is not stored, probing the
+   * table once and without boxing the key or value.
+   *
+   * @param key          the key to look up
+   * @param defaultValue the value to return when key is not stored in this collection
+   * @return the value that key maps to, or defaultValue
+   */
+  public int getOrDefault(int key, int defaultValue) {
+    int index = findIndex(key);
+    return index == -1 ? defaultValue : values[index];
+  }
+
+  /**
+   * Adds a new key,value pair/mapping to this collection. Values are stored unboxed, so null
+   * values can't be stored.
+   *
+   * @param key   the key of the key,value pair
+   * @param value the value that key maps to
+   * @throws IllegalArgumentException if key already maps to a value
+   * @throws NullPointerException     if key or value is null
+   */
+  @Override
+  public void put(Integer key, Integer value) throws IllegalArgumentException {
+    if (key == null) {
+      throw new NullPointerException("key is null");
+    } else if (value == null) {
+      throw new NullPointerException("value is null");
+    }
+    put(key.intValue(), value.intValue());
+  }
+
+  @Override
+  public boolean containsKey(Integer key) {
+    return containsKey(key.intValue());
+  }
+
+  @Override
+  public Integer get(Integer key) throws NoSuchElementException {
+    return get(key.intValue());
+  }
+
+  @Override
+  public Integer remove(Integer key) throws NoSuchElementException {
+    return remove(key.intValue());
+  }
+
+  @Override
+  public Integer getOrDefault(Integer key, Integer defaultValue) {
+    int index = findIndex(key.intValue());
+    return index == -1 ? defaultValue : Integer.valueOf(values[index]);
+  }
+
+  @Override
+  public Integer removeIfPresent(Integer key) {
+    int index = findIndex(key.intValue());
+    return index == -1 ? null : Integer.valueOf(removeAt(index));
+  }
+
+  /**
+   * Adds a key,value pair/mapping only if key is not already stored, probing the table once.
+   *
+   * @param key   the key of the key,value pair
+   * @param value the value that key should map to
+   * @return the value that key already mapped to (leaving it unchanged), or null if key now maps
+   *         to value
+   * @throws NullPointerException if key or value is null
+   */
+  @Override
+  public Integer putIfAbsent(Integer key, Integer value) {
+    if (key == null) {
+      throw new NullPointerException("key is null");
+    } else if (value == null) {
+      throw new NullPointerException("value is null");
+    }
+    int index = slotOf(key.intValue());
+    if (used[index]) {
+      return values[index];
+    }
+    insertAt(index, key.intValue(), value.intValue());
+    return null;
+  }
+
+  /**
+   * Tests the unboxed and boxed methods against each other on a large map, including key 0 and
+   * negative keys, and that resizing follows the same 75% load factor as HashtableMap
+   */
+  @Test
+  public void testPutGetRemove() {
+    IntIntHashtableMap map = new IntIntHashtableMap(8);
+    for (int i = -3000; i < 3000; i++) {
+      map.put(i, -i);
+    }
+    Assertions.assertEquals(8192, map.getCapacity());
+    Assertions.assertThrows(IllegalArgumentException.class, () -> map.put(0, 1));
+    Assertions.assertThrows(NullPointerException.class, () -> map.put(null, Integer.valueOf(1)));
+    Assertions.assertThrows(NullPointerException.class, () -> map.put(Integer.valueOf(1), null));
+    for (int i = -3000; i < 3000; i++) {
+      Assertions.assertEquals(-i, map.get(i));
+      Assertions.assertEquals(Integer.valueOf(-i), map.get(Integer.valueOf(i)));
+    }
+    for (int i = -3000; i < 3000; i += 2) {
+      Assertions.assertEquals(-i, map.remove(i));
+    }
+    for (int i = -3000; i < 3000; i++) {
+      Assertions.assertEquals(i % 2 != 0, map.containsKey(i));
+    }
+    Assertions.assertEquals(3000, map.getSize());
+    Assertions.assertThrows(NoSuchElementException.class, () -> map.get(3000));
+  }
+
+  /**
+   * Tests getOrDefault, removeIfPresent and putIfAbsent through both the int and Integer methods
+   */
+  @Test
+  public void testSingleProbeDefaults() {
+    IntIntHashtableMap map = new IntIntHashtableMap(8);
+    for (int i = 0; i < 1000; i++) {
+      Assertions.assertNull(map.putIfAbsent(Integer.valueOf(i), Integer.valueOf(-i)));
+    }
+    Assertions.assertEquals(2048, map.getCapacity());
+    Assertions.assertEquals(Integer.valueOf(-5), map.putIfAbsent(5, 1));
+    Assertions.assertThrows(NullPointerException.class, () -> map.putIfAbsent(null, 1));
+    Assertions.assertThrows(NullPointerException.class, () -> map.putIfAbsent(1, null));
+    Assertions.assertEquals(-7, map.getOrDefault(7, 1));
+    Assertions.assertEquals(1, map.getOrDefault(-7, 1));
+    Assertions.assertNull(map.getOrNull(-7));
+    for (int i = 0; i < 1000; i += 2) {
+      Assertions.assertEquals(Integer.valueOf(-i), map.removeIfPresent(i));
+      Assertions.assertNull(map.removeIfPresent(i));
+    }
+    for (int i = 0; i < 1000; i++) {
+      Assertions.assertEquals(i % 2 != 0, map.containsKey(i));
+    }
+    Assertions.assertEquals(500, map.getSize());
+  }
+}
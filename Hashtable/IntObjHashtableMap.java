@@ -0,0 +1,332 @@
+import java.util.AbstractMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Implementation of MapADT for int keys with object values. The keys sit unboxed in an int[]
+ * next to an Object[] of values, so looking a key up through the int overloads below never
+ * boxes it or calls hashCode/equals, and every lookup, insert or removal walks the key's probe
+ * run only once. The Integer methods that MapADT requires unbox their key and call those
+ * overloads.
+ */
+public class IntObjHashtableMap<ValueType> extends PrimitiveHashtableMap<Integer, ValueType> {
+
+  protected int[] keys;
+  protected Object[] values;
+
+  /**
+   * constructor that instantiates arrays with argument capacity
+   * @param capacity number of slots in the underlying arrays
+   */
+  public IntObjHashtableMap(int capacity) {
+    super(capacity);
+    keys = new int[capacity];
+    values = new Object[capacity];
+  }
+
+  /**
+   * Default constructor that instantiates arrays with default capacity of 32
+   */
+  public IntObjHashtableMap() { // with default capacity = 32
+    this(32);
+  }
+
+  /**
+   * Finds the slot that holds key, or the free slot that ends key's probe run when key is not
+   * stored, so that a lookup followed by an insert only walks the probe run once
+   * @param key the key to look up
+   * @return the index of the slot holding key, or of the free slot that key would be placed in
+   */
+  private int slotOf(int key) {
+    int index = LinearProbing.homeIndex(key, keys.length);
+    while (used[index] && keys[index] != key) {
+      index = (index + 1) % keys.length;
+    }
+    return index;
+  }
+
+  /**
+   * Finds the slot that holds key
+   * @param key the key to look up
+   * @return the index of the slot holding key, or -1 if key is not stored in this collection
+   */
+  private int findIndex(int key) {
+    return usedOrMissing(slotOf(key));
+  }
+
+  @Override
+  protected int homeOf(int slot) {
+    return LinearProbing.homeIndex(keys[slot], keys.length);
+  }
+
+  @Override
+  protected void moveSlot(int from, int to) {
+    keys[to] = keys[from];
+    values[to] = values[from];
+  }
+
+  @Override
+  protected void clearSlot(int slot) {
+    values[slot] = null;
+  }
+
+  @Override
+  protected void resizeHelper() {
+    int[] oldKeys = keys;
+    Object[] oldValues = values;
+    boolean[] oldUsed = used;
+    keys = new int[oldKeys.length * 2];
+    values = new Object[oldKeys.length * 2];
+    used = new boolean[oldKeys.length * 2];
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldUsed[i]) {
+        int index = slotOf(oldKeys[i]);
+        keys[index] = oldKeys[i];
+        values[index] = oldValues[i];
+        used[index] = true;
+      }
+    }
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  protected Map.Entry<Integer, ValueType> entryAt(int slot) {
+    return new AbstractMap.SimpleImmutableEntry<>(keys[slot], (ValueType) values[slot]);
+  }
+
+  /**
+   * Adds a new key,value pair/mapping to this collection without boxing the key.
+   *
+   * @param key   the key of the key,value pair
+   * @param value the value that key maps to
+   * @throws IllegalArgumentException if key already maps to a value
+   */
+  public void put(int key, ValueType value) throws IllegalArgumentException {
+    int index = slotOf(key);
+    if (used[index]) {
+      throw new IllegalArgumentException("key already maps to a value");
+    }
+    insertAt(index, key, value);
+  }
+
+  /**
+   * Stores a new pair in the free slot that slotOf returned for its key
+   */
+  private void insertAt(int index, int key, ValueType value) {
+    keys[index] = key;
+    values[index] = value;
+    occupy(index);
+  }
+
+  /**
+   * Checks whether a key maps to a value in this collection without boxing the key.
+   *
+   * @param key the key to check
+   * @return true if the key maps to a value, and false is the key doesn't map to a value
+   */
+  public boolean containsKey(int key) {
+    return findIndex(key) != -1;
+  }
+
+  /**
+   * Retrieves the specific value that a key maps to without boxing the key.
+   *
+   * @param key the key to look up
+   * @return the value that key maps to
+   * @throws NoSuchElementException when key is not stored in this collection
+   */
+  @SuppressWarnings("unchecked")
+  public ValueType get(int key) throws NoSuchElementException {
+    int index = findIndex(key);
+    if (index == -1) {
+      throw new NoSuchElementException("key is not stored in this collection");
+    }
+    return (ValueType) values[index];
+  }
+
+  /**
+   * Remove the mapping for a key from this collection without boxing the key. Entries later in
+   * the same probe run are shifted back into the freed slot, so no tombstone is needed.
+   *
+   * @param key the key whose mapping to remove
+   * @return the value that the removed key mapped to
+   * @throws NoSuchElementException when key is not stored in this collection
+   */
+  public ValueType remove(int key) throws NoSuchElementException {
+    int index = findIndex(key);
+    if (index == -1) {
+      throw new NoSuchElementException("key is not stored in this collection");
+    }
+    return removeAt(index);
+  }
+
+  /**
+   * Removes the pair in slot index
+   * @return the value that the removed key mapped to
+   */
+  @SuppressWarnings("unchecked")
+  private ValueType removeAt(int index) {
+    ValueType removed = (ValueType) values[index];
+    vacate(index);
+    return removed;
+  }
+
+  /**
+   * Retrieves the value that a key maps to, or defaultValue when key is not stored, probing the
+   * table once and without boxing the key.
+   *
+   * @param key          the key to look up
+   * @param defaultValue the value to return when key is not stored in this collection
+   * @return the value that key maps to, or defaultValue
+   */
+  @SuppressWarnings("unchecked")
+  public ValueType getOrDefault(int key, ValueType defaultValue) {
+    int index = findIndex(key);
+    return index == -1 ? defaultValue : (ValueType) values[index];
+  }
+
+  /**
+   * Removes the mapping for a key if there is one, probing the table once and without boxing the
+   * key.
+   *
+   * @param key the key whose mapping to remove
+   * @return the value that the removed key mapped to, or null if key was not stored
+   */
+  public ValueType removeIfPresent(int key) {
+    int index = findIndex(key);
+    return index == -1 ? null : removeAt(index);
+  }
+
+  /**
+   * Adds a key,value pair/mapping only if key is not already stored, probing the table once and
+   * without boxing the key.
+   *
+   * @param key   the key of the key,value pair
+   * @param value the value that key should map to
+   * @return the value that key already mapped to (leaving it unchanged), or null if key now maps
+   *         to value
+   */
+  @SuppressWarnings("unchecked")
+  public ValueType putIfAbsent(int key, ValueType value) {
+    int index = slotOf(key);
+    if (used[index]) {
+      return (ValueType) values[index];
+    }
+    insertAt(index, key, value);
+    return null;
+  }
+
+  @Override
+  public void put(Integer key, ValueType value) throws IllegalArgumentException {
+    if (key == null) {
+      throw new NullPointerException("key is null");
+    }
+    put(key.intValue(), value);
+  }
+
+  @Override
+  public boolean containsKey(Integer key) {
+    return containsKey(key.intValue());
+  }
+
+  @Override
+  public ValueType get(Integer key) throws NoSuchElementException {
+    return get(key.intValue());
+  }
+
+  @Override
+  public ValueType remove(Integer key) throws NoSuchElementException {
+    return remove(key.intValue());
+  }
+
+  @Override
+  public ValueType getOrDefault(Integer key, ValueType defaultValue) {
+    return getOrDefault(key.intValue(), defaultValue);
+  }
+
+  @Override
+  public ValueType removeIfPresent(Integer key) {
+    return removeIfPresent(key.intValue());
+  }
+
+  @Override
+  public ValueType putIfAbsent(Integer key, ValueType value) {
+    if (key == null) {
+      throw new NullPointerException("key is null");
+    }
+    return putIfAbsent(key.intValue(), value);
+  }
+
+  /**
+   * Tests the unboxed and boxed methods against each other on a large map, including key 0 and
+   * negative keys, and that resizing follows the same 75% load factor as HashtableMap
+   */
+  @Test
+  public void testPutGetRemove() {
+    IntObjHashtableMap<String> map = new IntObjHashtableMap<>(8);
+    for (int i = -3000; i < 3000; i++) {
+      map.put(i, Integer.toString(i));
+    }
+    Assertions.assertEquals(8192, map.getCapacity());
+    Assertions.assertThrows(IllegalArgumentException.class, () -> map.put(0, "zero"));
+    Assertions.assertThrows(NullPointerException.class, () -> map.put((Integer) null, "null"));
+    for (int i = -3000; i < 3000; i++) {
+      Assertions.assertEquals(Integer.toString(i), map.get(i));
+      Assertions.assertEquals(Integer.toString(i), map.get(Integer.valueOf(i)));
+    }
+    for (int i = -3000; i < 3000; i += 2) {
+      Assertions.assertEquals(Integer.toString(i), map.remove(i));
+    }
+    for (int i = -3000; i < 3000; i++) {
+      Assertions.assertEquals(i % 2 != 0, map.containsKey(i));
+    }
+    Assertions.assertEquals(3000, map.getSize());
+    Assertions.assertThrows(NoSuchElementException.class, () -> map.get(3000));
+  }
+
+  /**
+   * Tests that removing from the middle of a probe run keeps the later colliding keys reachable
+   */
+  @Test
+  public void testRemoveInProbeRun() {
+    IntObjHashtableMap<String> map = new IntObjHashtableMap<>(1 << 12);
+    // fill part of a small table so many keys share probe runs, then remove in a scattered order
+    for (int i = 0; i < 3000; i++) {
+      map.put(i * 31, Integer.toString(i));
+    }
+    for (int i = 0; i < 3000; i += 3) {
+      map.remove(i * 31);
+    }
+    for (int i = 0; i < 3000; i++) {
+      Assertions.assertEquals(i % 3 != 0, map.containsKey(i * 31));
+    }
+  }
+
+  /**
+   * Tests getOrDefault, removeIfPresent and putIfAbsent through both the int and Integer methods
+   */
+  @Test
+  public void testSingleProbeDefaults() {
+    IntObjHashtableMap<String> map = new IntObjHashtableMap<>(8);
+    for (int i = 0; i < 1000; i++) {
+      Assertions.assertNull(map.putIfAbsent(i, Integer.toString(i)));
+    }
+    Assertions.assertEquals(2048, map.getCapacity());
+    Assertions.assertEquals("5", map.putIfAbsent(5, "x"));
+    Assertions.assertEquals("5", map.putIfAbsent(Integer.valueOf(5), "x"));
+    Assertions.assertThrows(NullPointerException.class, () -> map.putIfAbsent(null, "x"));
+    Assertions.assertEquals("7", map.getOrDefault(7, "x"));
+    Assertions.assertEquals("x", map.getOrDefault(Integer.valueOf(-7), "x"));
+    Assertions.assertNull(map.getOrNull(-7));
+    for (int i = 0; i < 1000; i += 2) {
+      Assertions.assertEquals(Integer.toString(i), map.removeIfPresent(i));
+      Assertions.assertNull(map.removeIfPresent(Integer.valueOf(i)));
+    }
+    for (int i = 0; i < 1000; i++) {
+      Assertions.assertEquals(i % 2 != 0, map.containsKey(i));
+    }
+    Assertions.assertEquals(500, map.getSize());
+  }
+}
@@ -0,0 +1,48 @@
+/**
+ * Slot arithmetic shared by the maps that store primitive keys with linear probing, so that all
+ * of them place and shift keys the same way.
+ */
+final class LinearProbing {
+
+  private LinearProbing() {
+  }
+
+  /**
+   * Calculates the slot an int key is first probed at. Multiplying by a large odd constant
+   * scatters sequential keys, which would otherwise fill one contiguous run of slots.
+   * @param key the key to locate
+   * @param capacity the number of slots in the table
+   * @return the home slot of key
+   */
+  static int homeIndex(int key, int capacity) {
+    int hash = key * 0x9E3779B9;
+    return ((hash ^ (hash >>> 16)) & 0x7fffffff) % capacity;
+  }
+
+  /**
+   * Calculates the slot a long key is first probed at. The upper half of the product is folded
+   * into the lower half, so keys that differ only in their upper 32 bits still get different
+   * home slots.
+   * @param key the key to locate
+   * @param capacity the number of slots in the table
+   * @return the home slot of key
+   */
+  static int homeIndex(long key, int capacity) {
+    long hash = key * 0x9E3779B97F4A7C15L;
+    return ((int) (hash ^ (hash >>> 32)) & 0x7fffffff) % capacity;
+  }
+
+  /**
+   * Decides, during a backward-shift removal, whether the entry in slot next may move back into
+   * the freed slot: it may when the freed slot lies between the entry's home slot and its
+   * current slot (wrapping around the end of the table), since it is then still reachable from
+   * its home slot.
+   * @param freed the slot that was emptied
+   * @param next a later slot of the same probe run
+   * @param home the home slot of the entry in slot next
+   * @return true if the entry in slot next should move into slot freed
+   */
+  static boolean canShiftBack(int freed, int next, int home) {
+    return freed <= next ? (home <= freed || home > next) : (home <= freed && home > next);
+  }
+}
@@ -0,0 +1,196 @@
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+
+/**
+ * The slot table behind OffHeapLongLongMap and MappedLongLongMap: long keys and long values
+ * probed linearly inside a series of ByteBuffers (direct ones for the off-heap map, mapped ones
+ * for the persistent map). Each slot is 16 bytes, key then value, and a slot whose key is 0 is
+ * empty, so both maps keep key 0 outside the table. Removal shifts later entries back instead of
+ * leaving tombstones, so a slot is never in any state other than empty or holding a key.
+ */
+final class LongLongSlots {
+
+  static final int SLOT_BYTES = 16;
+  // invokeCleaner frees a direct or mapped buffer immediately instead of waiting for it to be
+  // collected
+  private static final Method INVOKE_CLEANER;
+  private static final Object UNSAFE;
+
+  static {
+    Method invokeCleaner = null;
+    Object unsafe = null;
+    try {
+      Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+      Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+      theUnsafe.setAccessible(true);
+      unsafe = theUnsafe.get(null);
+      invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      // not available on this JVM: released buffers are then freed by the garbage collector
+    }
+    INVOKE_CLEANER = invokeCleaner;
+    UNSAFE = unsafe;
+  }
+
+  private final ByteBuffer[] chunks;
+  private final int chunkBits; // every chunk but the last holds 2^chunkBits slots
+  private final int chunkMask;
+  private final int capacity;
+
+  /**
+   * constructor that probes the given buffers as one table
+   * @param chunks buffers of chunkSlots(capacity, chunkBits, i) * SLOT_BYTES bytes each
+   * @param chunkBits log2 of the number of slots in a full chunk
+   * @param capacity total number of slots in the chunks
+   */
+  LongLongSlots(ByteBuffer[] chunks, int chunkBits, int capacity) {
+    this.chunks = chunks;
+    this.chunkBits = chunkBits;
+    this.chunkMask = (1 << chunkBits) - 1;
+    this.capacity = capacity;
+  }
+
+  /**
+   * @return the number of chunks needed for a table of capacity slots
+   */
+  static int chunkCount(int capacity, int chunkBits) {
+    return (int) (((long) capacity + (1 << chunkBits) - 1) >>> chunkBits);
+  }
+
+  /**
+   * @return the number of slots in chunk i of a table of capacity slots
+   */
+  static int chunkSlots(int capacity, int chunkBits, int i) {
+    return (int) Math.min(1 << chunkBits, capacity - ((long) i << chunkBits));
+  }
+
+  /**
+   * Frees the memory of a buffer that is no longer used (or unmaps it, for a mapped buffer). The
+   * buffer must not be touched afterwards.
+   */
+  static void release(ByteBuffer buffer) {
+    if (buffer != null && INVOKE_CLEANER != null) {
+      try {
+        INVOKE_CLEANER.invoke(UNSAFE, buffer);
+      } catch (ReflectiveOperationException e) {
+        // leave the buffer to the garbage collector
+      }
+    }
+  }
+
+  /**
+   * Releases every chunk of this table
+   */
+  void release() {
+    for (ByteBuffer chunk : chunks) {
+      release(chunk);
+    }
+  }
+
+  int capacity() {
+    return capacity;
+  }
+
+  long keyAt(int slot) {
+    return chunks[slot >>> chunkBits].getLong((slot & chunkMask) * SLOT_BYTES);
+  }
+
+  long valueAt(int slot) {
+    return chunks[slot >>> chunkBits].getLong((slot & chunkMask) * SLOT_BYTES + 8);
+  }
+
+  void store(int slot, long key, long value) {
+    ByteBuffer chunk = chunks[slot >>> chunkBits];
+    // write the value first, so that a slot whose key is visible never has a stale value (this
+    // matters when a mapped table is reopened after a crash)
+    chunk.putLong((slot & chunkMask) * SLOT_BYTES + 8, value);
+    chunk.putLong((slot & chunkMask) * SLOT_BYTES, key);
+  }
+
+  /**
+   * Finds the slot that holds a non-zero key
+   * @param key the key to look up
+   * @return the index of the slot holding key, or -1 if key is not in the table
+   */
+  int findIndex(long key) {
+    int index = LinearProbing.homeIndex(key, capacity);
+    for (long stored = keyAt(index); stored != 0; stored = keyAt(index)) {
+      if (stored == key) {
+        return index;
+      }
+      index = (index + 1) % capacity;
+    }
+    return -1;
+  }
+
+  /**
+   * Stores a non-zero key in the first free slot of its probe run, unless the run already holds
+   * it. The table must have at least one free slot.
+   * @return true if key was stored, or false if it was already in the table (which is unchanged)
+   */
+  boolean insert(long key, long value) {
+    int index = LinearProbing.homeIndex(key, capacity);
+    for (long stored = keyAt(index); stored != 0; stored = keyAt(index)) {
+      if (stored == key) {
+        return false;
+      }
+      index = (index + 1) % capacity;
+    }
+    store(index, key, value);
+    return true;
+  }
+
+  /**
+   * Empties slot index, shifting the later entries of its probe run back into the freed slot
+   * @return the value that was stored in slot index
+   */
+  long removeAt(int index) {
+    long removed = valueAt(index);
+    int next = (index + 1) % capacity;
+    for (long nextKey = keyAt(next); nextKey != 0; nextKey = keyAt(next)) {
+      if (LinearProbing.canShiftBack(index, next, LinearProbing.homeIndex(nextKey, capacity))) {
+        store(index, nextKey, valueAt(next));
+        index = next;
+      }
+      next = (next + 1) % capacity;
+    }
+    store(index, 0, 0);
+    return removed;
+  }
+
+  /**
+   * Reinserts every key stored in another table into this one (a key found in more than one of
+   * its slots is inserted once)
+   * @return the number of keys inserted
+   */
+  int insertAll(LongLongSlots other) {
+    int inserted = 0;
+    for (int slot = 0; slot < other.capacity; slot++) {
+      long key = other.keyAt(slot);
+      if (key != 0 && insert(key, other.valueAt(slot))) {
+        inserted++;
+      }
+    }
+    return inserted;
+  }
+
+  /**
+   * Empties every slot
+   */
+  void clear() {
+    for (int slot = 0; slot < capacity; slot++) {
+      store(slot, 0, 0);
+    }
+  }
+
+  /**
+   * @return the first slot at or after from that holds a key, or capacity if there is none
+   */
+  int nextUsed(int from) {
+    while (from < capacity && keyAt(from) == 0) {
+      from++;
+    }
+    return from;
+  }
+}
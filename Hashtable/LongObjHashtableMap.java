@@ -0,0 +1,314 @@
+import java.util.AbstractMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Implementation of MapADT for long keys (ids, timestamps, packed pairs of ints) with object
+ * values. The keys sit unboxed in a long[], so the long overloads below never allocate a Long or
+ * call hashCode/equals, and each of them walks the key's probe run once. The Long methods that
+ * MapADT requires just unbox their key and call the long overloads.
+ */
+public class LongObjHashtableMap<ValueType> extends PrimitiveHashtableMap<Long, ValueType> {
+
+  protected long[] keys;
+  protected Object[] values;
+
+  /**
+   * constructor that instantiates arrays with argument capacity
+   * @param capacity number of slots in the underlying arrays
+   */
+  public LongObjHashtableMap(int capacity) {
+    super(capacity);
+    keys = new long[capacity];
+    values = new Object[capacity];
+  }
+
+  /**
+   * Default constructor that instantiates arrays with default capacity of 32
+   */
+  public LongObjHashtableMap() { // with default capacity = 32
+    this(32);
+  }
+
+  /**
+   * Finds the slot that holds key, or the free slot that ends key's probe run when key is not
+   * stored, so that a lookup followed by an insert only walks the probe run once
+   * @param key the key to look up
+   * @return the index of the slot holding key, or of the free slot that key would be placed in
+   */
+  private int slotOf(long key) {
+    int index = LinearProbing.homeIndex(key, keys.length);
+    while (used[index] && keys[index] != key) {
+      index = (index + 1) % keys.length;
+    }
+    return index;
+  }
+
+  /**
+   * Finds the slot that holds key
+   * @param key the key to look up
+   * @return the index of the slot holding key, or -1 if key is not stored in this collection
+   */
+  private int findIndex(long key) {
+    return usedOrMissing(slotOf(key));
+  }
+
+  @Override
+  protected int homeOf(int slot) {
+    return LinearProbing.homeIndex(keys[slot], keys.length);
+  }
+
+  @Override
+  protected void moveSlot(int from, int to) {
+    keys[to] = keys[from];
+    values[to] = values[from];
+  }
+
+  @Override
+  protected void clearSlot(int slot) {
+    values[slot] = null;
+  }
+
+  @Override
+  protected void resizeHelper() {
+    long[] oldKeys = keys;
+    Object[] oldValues = values;
+    boolean[] oldUsed = used;
+    keys = new long[oldKeys.length * 2];
+    values = new Object[oldKeys.length * 2];
+    used = new boolean[oldKeys.length * 2];
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldUsed[i]) {
+        int index = slotOf(oldKeys[i]);
+        keys[index] = oldKeys[i];
+        values[index] = oldValues[i];
+        used[index] = true;
+      }
+    }
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  protected Map.Entry<Long, ValueType> entryAt(int slot) {
+    return new AbstractMap.SimpleImmutableEntry<>(keys[slot], (ValueType) values[slot]);
+  }
+
+  /**
+   * Adds a new key,value pair/mapping to this collection without boxing the key.
+   *
+   * @param key   the key of the key,value pair
+   * @param value the value that key maps to
+   * @throws IllegalArgumentException if key already maps to a value
+   */
+  public void put(long key, ValueType value) throws IllegalArgumentException {
+    int index = slotOf(key);
+    if (used[index]) {
+      throw new IllegalArgumentException("key already maps to a value");
+    }
+    insertAt(index, key, value);
+  }
+
+  /**
+   * Stores a new pair in the free slot that slotOf returned for its key
+   */
+  private void insertAt(int index, long key, ValueType value) {
+    keys[index] = key;
+    values[index] = value;
+    occupy(index);
+  }
+
+  /**
+   * Checks whether a key maps to a value in this collection without boxing the key.
+   *
+   * @param key the key to check
+   * @return true if the key maps to a value, and false is the key doesn't map to a value
+   */
+  public boolean containsKey(long key) {
+    return findIndex(key) != -1;
+  }
+
+  /**
+   * Retrieves the specific value that a key maps to without boxing the key.
+   *
+   * @param key the key to look up
+   * @return the value that key maps to
+   * @throws NoSuchElementException when key is not stored in this collection
+   */
+  @SuppressWarnings("unchecked")
+  public ValueType get(long key) throws NoSuchElementException {
+    int index = findIndex(key);
+    if (index == -1) {
+      throw new NoSuchElementException("key is not stored in this collection");
+    }
+    return (ValueType) values[index];
+  }
+
+  /**
+   * Remove the mapping for a key from this collection without boxing the key. Entries later in
+   * the same probe run are shifted back into the freed slot, so no tombstone is needed.
+   *
+   * @param key the key whose mapping to remove
+   * @return the value that the removed key mapped to
+   * @throws NoSuchElementException when key is not stored in this collection
+   */
+  public ValueType remove(long key) throws NoSuchElementException {
+    int index = findIndex(key);
+    if (index == -1) {
+      throw new NoSuchElementException("key is not stored in this collection");
+    }
+    return removeAt(index);
+  }
+
+  /**
+   * Removes the pair in slot index
+   * @return the value that the removed key mapped to
+   */
+  @SuppressWarnings("unchecked")
+  private ValueType removeAt(int index) {
+    ValueType removed = (ValueType) values[index];
+    vacate(index);
+    return removed;
+  }
+
+  /**
+   * Retrieves the value that a key maps to, or defaultValue when key is not stored, probing the
+   * table once and without boxing the key.
+   *
+   * @param key          the key to look up
+   * @param defaultValue the value to return when key is not stored in this collection
+   * @return the value that key maps to, or defaultValue
+   */
+  @SuppressWarnings("unchecked")
+  public ValueType getOrDefault(long key, ValueType defaultValue) {
+    int index = findIndex(key);
+    return index == -1 ? defaultValue : (ValueType) values[index];
+  }
+
+  /**
+   * Removes the mapping for a key if there is one, probing the table once and without boxing the
+   * key.
+   *
+   * @param key the key whose mapping to remove
+   * @return the value that the removed key mapped to, or null if key was not stored
+   */
+  public ValueType removeIfPresent(long key) {
+    int index = findIndex(key);
+    return index == -1 ? null : removeAt(index);
+  }
+
+  /**
+   * Adds a key,value pair/mapping only if key is not already stored, probing the table once and
+   * without boxing the key.
+   *
+   * @param key   the key of the key,value pair
+   * @param value the value that key should map to
+   * @return the value that key already mapped to (leaving it unchanged), or null if key now maps
+   *         to value
+   */
+  @SuppressWarnings("unchecked")
+  public ValueType putIfAbsent(long key, ValueType value) {
+    int index = slotOf(key);
+    if (used[index]) {
+      return (ValueType) values[index];
+    }
+    insertAt(index, key, value);
+    return null;
+  }
+
+  @Override
+  public void put(Long key, ValueType value) throws IllegalArgumentException {
+    if (key == null) {
+      throw new NullPointerException("key is null");
+    }
+    put(key.longValue(), value);
+  }
+
+  @Override
+  public boolean containsKey(Long key) {
+    return containsKey(key.longValue());
+  }
+
+  @Override
+  public ValueType get(Long key) throws NoSuchElementException {
+    return get(key.longValue());
+  }
+
+  @Override
+  public ValueType remove(Long key) throws NoSuchElementException {
+    return remove(key.longValue());
+  }
+
+  @Override
+  public ValueType getOrDefault(Long key, ValueType defaultValue) {
+    return getOrDefault(key.longValue(), defaultValue);
+  }
+
+  @Override
+  public ValueType removeIfPresent(Long key) {
+    return removeIfPresent(key.longValue());
+  }
+
+  @Override
+  public ValueType putIfAbsent(Long key, ValueType value) {
+    if (key == null) {
+      throw new NullPointerException("key is null");
+    }
+    return putIfAbsent(key.longValue(), value);
+  }
+
+  /**
+   * Tests the unboxed and boxed methods against each other, using keys that differ only in their
+   * upper 32 bits, and that resizing follows the same 75% load factor as HashtableMap
+   */
+  @Test
+  public void testPutGetRemove() {
+    LongObjHashtableMap<String> map = new LongObjHashtableMap<>(8);
+    for (long i = 0; i < 3000; i++) {
+      map.put(i << 32, Long.toString(i));
+      map.put(-i - 1, Long.toString(-i - 1));
+    }
+    Assertions.assertEquals(8192, map.getCapacity());
+    Assertions.assertThrows(IllegalArgumentException.class, () -> map.put(0L, "zero"));
+    Assertions.assertThrows(NullPointerException.class, () -> map.put((Long) null, "null"));
+    for (long i = 0; i < 3000; i++) {
+      Assertions.assertEquals(Long.toString(i), map.get(i << 32));
+      Assertions.assertEquals(Long.toString(-i - 1), map.get(Long.valueOf(-i - 1)));
+    }
+    for (long i = 0; i < 3000; i += 2) {
+      Assertions.assertEquals(Long.toString(i), map.remove(i << 32));
+    }
+    for (long i = 0; i < 3000; i++) {
+      Assertions.assertEquals(i % 2 != 0, map.containsKey(i << 32));
+    }
+    Assertions.assertEquals(4500, map.getSize());
+    Assertions.assertThrows(NoSuchElementException.class, () -> map.get(1L));
+  }
+
+  /**
+   * Tests getOrDefault, removeIfPresent and putIfAbsent through both the long and Long methods
+   */
+  @Test
+  public void testSingleProbeDefaults() {
+    LongObjHashtableMap<String> map = new LongObjHashtableMap<>(8);
+    for (long i = 0; i < 1000; i++) {
+      Assertions.assertNull(map.putIfAbsent(i << 32, Long.toString(i)));
+    }
+    Assertions.assertEquals(2048, map.getCapacity());
+    Assertions.assertEquals("5", map.putIfAbsent(5L << 32, "x"));
+    Assertions.assertEquals("5", map.putIfAbsent(Long.valueOf(5L << 32), "x"));
+    Assertions.assertThrows(NullPointerException.class, () -> map.putIfAbsent(null, "x"));
+    Assertions.assertEquals("7", map.getOrDefault(7L << 32, "x"));
+    Assertions.assertEquals("x", map.getOrDefault(Long.valueOf(7), "x"));
+    Assertions.assertNull(map.getOrNull(7L));
+    for (long i = 0; i < 1000; i += 2) {
+      Assertions.assertEquals(Long.toString(i), map.removeIfPresent(i << 32));
+      Assertions.assertNull(map.removeIfPresent(Long.valueOf(i << 32)));
+    }
+    for (long i = 0; i < 1000; i++) {
+      Assertions.assertEquals(i % 2 != 0, map.containsKey(i << 32));
+    }
+    Assertions.assertEquals(500, map.getSize());
+  }
+}
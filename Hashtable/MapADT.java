@@ -1,4 +1,14 @@
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * This abstract data type represents a collection that maps keys to values,
@@ -41,6 +51,113 @@ public interface MapADT<KeyType, ValueType> {
      */
     public ValueType remove(KeyType key) throws NoSuchElementException;
 
+    /**
+     * Retrieves the value that a key maps to, or a default when the key is not stored in this
+     * collection. Unlike get, a missing key costs neither an exception nor a second lookup.
+     * @param key the key to look up
+     * @param defaultValue the value to return when key is not stored in this collection
+     * @return the value that key maps to, or defaultValue
+     */
+    public default ValueType getOrDefault(KeyType key, ValueType defaultValue) {
+        return containsKey(key) ? get(key) : defaultValue;
+    }
+
+    /**
+     * Retrieves the value that a key maps to, or null when the key is not stored in this
+     * collection (so a null result is ambiguous for collections that store null values).
+     * @param key the key to look up
+     * @return the value that key maps to, or null
+     */
+    public default ValueType getOrNull(KeyType key) {
+        return getOrDefault(key, null);
+    }
+
+    /**
+     * Removes the mapping for a key from this collection if there is one.
+     * @param key the key whose mapping to remove
+     * @return the value that the removed key mapped to, or null if key was not
+     *         stored in this collection
+     */
+    public default ValueType removeIfPresent(KeyType key) {
+        return containsKey(key) ? remove(key) : null;
+    }
+
+    /**
+     * Adds a key,value pair/mapping to this collection only if key is not already stored in it.
+     * @param key the key of the key,value pair
+     * @param value the value that key should map to
+     * @return the value that key already mapped to (leaving it unchanged), or null if key
+     *         was not stored in this collection and now maps to value
+     * @throws NullPointerException if key is null
+     */
+    public default ValueType putIfAbsent(KeyType key, ValueType value) {
+        if (containsKey(key))
+            return get(key);
+        put(key, value);
+        return null;
+    }
+
+    /**
+     * Computes a new value for key from its current value. When the remapping function returns
+     * null, the mapping for key is removed (or not added).
+     * @param key the key whose value to compute
+     * @param remapping function from key and its current value (null when key is not stored in
+     *        this collection) to its new value
+     * @return the new value that key maps to, or null if key is no longer stored
+     * @throws NullPointerException if key is null
+     */
+    public default ValueType compute(KeyType key,
+            BiFunction<? super KeyType, ? super ValueType, ? extends ValueType> remapping) {
+        boolean present = containsKey(key);
+        ValueType newValue = remapping.apply(key, present ? get(key) : null);
+        if (present)
+            remove(key);
+        if (newValue != null)
+            put(key, newValue);
+        return newValue;
+    }
+
+    /**
+     * Retrieves the value that key maps to, first computing and adding it if key is not already
+     * stored in this collection. When the mapping function returns null, nothing is added.
+     * @param key the key to look up
+     * @param mapping function from key to the value it should map to when it is absent
+     * @return the value that key now maps to, or null if nothing was added
+     * @throws NullPointerException if key is null
+     */
+    public default ValueType computeIfAbsent(KeyType key,
+            Function<? super KeyType, ? extends ValueType> mapping) {
+        if (containsKey(key))
+            return get(key);
+        ValueType newValue = mapping.apply(key);
+        if (newValue != null)
+            put(key, newValue);
+        return newValue;
+    }
+
+    /**
+     * Adds value for key if key is not already stored in this collection, or otherwise combines
+     * the current value with value. When the remapping function returns null, the mapping for key
+     * is removed.
+     * @param key the key of the key,value pair
+     * @param value the value to add, or to combine with the current value
+     * @param remapping function from the current value and value to the new value
+     * @return the new value that key maps to, or null if key is no longer stored
+     * @throws NullPointerException if key is null
+     */
+    public default ValueType merge(KeyType key, ValueType value,
+            BiFunction<? super ValueType, ? super ValueType, ? extends ValueType> remapping) {
+        if (!containsKey(key)) {
+            put(key, value);
+            return value;
+        }
+        ValueType newValue = remapping.apply(get(key), value);
+        remove(key);
+        if (newValue != null)
+            put(key, newValue);
+        return newValue;
+    }
+
     /**
      * Removes all key,value pairs from this collection.
      */
@@ -58,4 +175,119 @@ public interface MapADT<KeyType, ValueType> {
      */
     public int getCapacity();
 
+    /**
+     * Prepares this collection to hold at least the given number of keys without growing again.
+     * Implementations that can't be pre-sized may ignore this (the default does nothing).
+     * @param size the number of keys this collection should be able to hold
+     */
+    public default void ensureCapacity(int size) {
+    }
+
+    /**
+     * Adds every key,value pair of another collection to this one, growing this collection at
+     * most once beforehand.
+     * @param other the collection whose pairs to add
+     * @throws IllegalArgumentException if a key of other already maps to a value in this
+     *                                  collection (the pairs before it have been added)
+     */
+    public default void putAll(MapADT<? extends KeyType, ? extends ValueType> other) {
+        ensureCapacity(getSize() + other.getSize());
+        other.forEach(this::put);
+    }
+
+    /**
+     * Adds the pairs keys[i],values[i] to this collection, growing it at most once beforehand.
+     * @param keys the keys to add
+     * @param values the values that the keys map to, in the same order
+     * @throws IllegalArgumentException if the arrays differ in length (nothing is added), or if a
+     *                                  key already maps to a value (the pairs before it have been
+     *                                  added)
+     */
+    public default void putAll(KeyType[] keys, ValueType[] values) {
+        if (keys.length != values.length)
+            throw new IllegalArgumentException("keys and values have different lengths");
+        ensureCapacity(getSize() + keys.length);
+        for (int i = 0; i < keys.length; i++)
+            put(keys[i], values[i]);
+    }
+
+    /**
+     * Adds every key,value pair of entries to this collection. A Collection of entries is
+     * counted first so that this collection can grow at most once.
+     * @param entries the pairs to add
+     * @throws IllegalArgumentException if a key already maps to a value (the pairs before it have
+     *                                  been added)
+     */
+    public default void putAll(Iterable<? extends Map.Entry<? extends KeyType, ? extends ValueType>>
+            entries) {
+        if (entries instanceof Collection)
+            ensureCapacity(getSize() + ((Collection<?>) entries).size());
+        for (Map.Entry<? extends KeyType, ? extends ValueType> entry : entries)
+            put(entry.getKey(), entry.getValue());
+    }
+
+    /**
+     * Creates an iterator over the key,value pairs stored in this collection, in no particular
+     * order. The iterator does not support remove, and its behavior is undefined if this
+     * collection is modified while it is in use.
+     * @return an iterator over the entries of this collection
+     */
+    public Iterator<Map.Entry<KeyType, ValueType>> entryIterator();
+
+    /**
+     * Creates an iterator over the keys stored in this collection.
+     * @return an iterator over the keys of this collection
+     */
+    public default Iterator<KeyType> keyIterator() {
+        Iterator<Map.Entry<KeyType, ValueType>> entries = entryIterator();
+        return new Iterator<KeyType>() {
+            public boolean hasNext() { return entries.hasNext(); }
+            public KeyType next() { return entries.next().getKey(); }
+        };
+    }
+
+    /**
+     * Creates an iterator over the values stored in this collection.
+     * @return an iterator over the values of this collection
+     */
+    public default Iterator<ValueType> valueIterator() {
+        Iterator<Map.Entry<KeyType, ValueType>> entries = entryIterator();
+        return new Iterator<ValueType>() {
+            public boolean hasNext() { return entries.hasNext(); }
+            public ValueType next() { return entries.next().getValue(); }
+        };
+    }
+
+    /**
+     * Performs an action for each key,value pair stored in this collection.
+     * @param action the action to perform with each key and the value it maps to
+     */
+    public default void forEach(BiConsumer<? super KeyType, ? super ValueType> action) {
+        Iterator<Map.Entry<KeyType, ValueType>> entries = entryIterator();
+        while (entries.hasNext()) {
+            Map.Entry<KeyType, ValueType> entry = entries.next();
+            action.accept(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Creates a Spliterator over the key,value pairs stored in this collection. Implementations
+     * should override this with one that splits along their own storage so that parallel streams
+     * divide the work evenly; this default can only split off batches of its iterator.
+     * @return a Spliterator over the entries of this collection
+     */
+    public default Spliterator<Map.Entry<KeyType, ValueType>> entrySpliterator() {
+        return Spliterators.spliterator(entryIterator(), getSize(),
+                Spliterator.DISTINCT | Spliterator.NONNULL);
+    }
+
+    /**
+     * Creates a stream of the key,value pairs stored in this collection.
+     * @param parallel true for a parallel stream, false for a sequential one
+     * @return a stream of the entries of this collection
+     */
+    public default Stream<Map.Entry<KeyType, ValueType>> entryStream(boolean parallel) {
+        return StreamSupport.stream(entrySpliterator(), parallel);
+    }
+
 }
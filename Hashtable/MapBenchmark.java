@@ -0,0 +1,304 @@
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Micro-benchmark that compares the MapADT implementations in this directory with
+ * java.util.HashMap. Every combination of map, key type, size and workload is run for a few
+ * warmup rounds and then measured, and the average time per operation is printed together with
+ * the garbage collections that happened while measuring and (for put) the slowest single put.
+ *
+ * Usage: java MapBenchmark [size...]   (sizes default to 1000 10000 100000 1000000; 10000000
+ * works too, given a large enough heap, e.g. -Xmx8g)
+ */
+public class MapBenchmark {
+
+  private static final int WARMUP_ROUNDS = 3;
+  private static final int MEASURED_ROUNDS = 5;
+
+  // results are accumulated here so the JIT can't remove the lookups being measured
+  private static volatile long sink;
+
+  /**
+   * Key with its own hashCode and equals, standing in for user-defined key classes. Its hash only
+   * mixes the two fields weakly, as hand-written hashCodes often do.
+   */
+  private static class CustomKey {
+
+    private final int id;
+    private final int group;
+
+    public CustomKey(int id, int group) {
+      this.id = id;
+      this.group = group;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * group + id;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof CustomKey && ((CustomKey) other).id == id
+          && ((CustomKey) other).group == group;
+    }
+
+  }
+
+  /**
+   * MapADT over java.util.HashMap (the same thing ShortestPath's PlaceholderMap is), used as the
+   * baseline the other maps are measured against
+   */
+  private static class JdkMap<KeyType, ValueType> implements MapADT<KeyType, ValueType> {
+
+    private final HashMap<KeyType, ValueType> map = new HashMap<>();
+    // HashMap doesn't expose its table length, so its resize policy is replayed here instead:
+    // the table starts at 16 buckets, doubles once size exceeds 3/4 of it, and never shrinks
+    private int capacity = 16;
+
+    @Override
+    public void put(KeyType key, ValueType value) throws IllegalArgumentException {
+      if (map.putIfAbsent(key, value) != null) {
+        throw new IllegalArgumentException("key already maps to a value");
+      }
+      while (map.size() > capacity / 4 * 3) {
+        capacity *= 2;
+      }
+    }
+
+    @Override
+    public boolean containsKey(KeyType key) {
+      return map.containsKey(key);
+    }
+
+    @Override
+    public ValueType get(KeyType key) throws NoSuchElementException {
+      ValueType value = map.get(key);
+      if (value == null) {
+        throw new NoSuchElementException("key is not stored in this collection");
+      }
+      return value;
+    }
+
+    @Override
+    public ValueType getOrDefault(KeyType key, ValueType defaultValue) {
+      return map.getOrDefault(key, defaultValue);
+    }
+
+    @Override
+    public ValueType remove(KeyType key) throws NoSuchElementException {
+      ValueType value = map.remove(key);
+      if (value == null) {
+        throw new NoSuchElementException("key is not stored in this collection");
+      }
+      return value;
+    }
+
+    @Override
+    public void clear() {
+      map.clear();
+    }
+
+    @Override
+    public int getSize() {
+      return map.size();
+    }
+
+    @Override
+    public int getCapacity() {
+      return capacity;
+    }
+
+    @Override
+    public Iterator<Map.Entry<KeyType, ValueType>> entryIterator() {
+      return map.entrySet().iterator();
+    }
+
+  }
+
+  /**
+   * Result of measuring one workload: nanoseconds per operation, plus the garbage collections that
+   * ran and the slowest single operation (only tracked for put)
+   */
+  private static class Measurement {
+
+    public double nanosPerOperation;
+    public long gcCount;
+    public long gcMillis;
+    public long worstNanos;
+
+  }
+
+  private static long[] gcTotals() {
+    long[] totals = new long[2];
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+      totals[0] += Math.max(0, gc.getCollectionCount());
+      totals[1] += Math.max(0, gc.getCollectionTime());
+    }
+    return totals;
+  }
+
+  /**
+   * Runs a workload against a freshly filled map once
+   * @param workload the name of the workload (put, get-hit, get-miss, remove or mixed)
+   * @param factory creates the empty map
+   * @param keys the keys the map is filled with
+   * @param missingKeys keys that are never stored
+   * @param measurement receives the time taken
+   */
+  private static <K> void runOnce(String workload, Supplier<MapADT<K, Integer>> factory, K[] keys,
+      K[] missingKeys, Measurement measurement) {
+    MapADT<K, Integer> map = factory.get();
+    if (!workload.equals("put")) {
+      for (int i = 0; i < keys.length; i++) {
+        map.put(keys[i], i);
+      }
+    }
+    long result = 0;
+    long start = System.nanoTime();
+    switch (workload) {
+      case "put":
+        for (int i = 0; i < keys.length; i++) {
+          map.put(keys[i], i);
+        }
+        break;
+      case "get-hit":
+        for (K key : keys) {
+          result += map.get(key);
+        }
+        break;
+      case "get-miss":
+        for (K key : missingKeys) {
+          result += map.getOrDefault(key, 1);
+        }
+        break;
+      case "remove":
+        for (K key : keys) {
+          result += map.remove(key);
+        }
+        break;
+      default: // mixed: 80% hits, 10% misses, 5% removes that are put back 5% of the time
+        for (int i = 0; i < keys.length; i++) {
+          int choice = i % 20;
+          if (choice < 16) {
+            result += map.get(keys[i]);
+          } else if (choice < 18) {
+            result += map.getOrDefault(missingKeys[i], 1);
+          } else if (choice == 18) {
+            result += map.remove(keys[i]);
+          } else {
+            map.put(keys[i - 1], i);
+          }
+        }
+    }
+    measurement.nanosPerOperation += (double) (System.nanoTime() - start) / keys.length;
+    sink += result;
+  }
+
+  /**
+   * Fills a fresh map while timing every put on its own. This is kept out of the put workload's
+   * timed loop, where two nanoTime calls per put would be a large share of what is measured.
+   * @return the slowest single put in nanoseconds
+   */
+  private static <K> long worstPut(Supplier<MapADT<K, Integer>> factory, K[] keys) {
+    MapADT<K, Integer> map = factory.get();
+    long worst = 0;
+    for (int i = 0; i < keys.length; i++) {
+      long before = System.nanoTime();
+      map.put(keys[i], i);
+      worst = Math.max(worst, System.nanoTime() - before);
+    }
+    return worst;
+  }
+
+  /**
+   * Warms up and then measures one workload, averaging over the measured rounds
+   */
+  private static <K> Measurement measure(String workload, Supplier<MapADT<K, Integer>> factory,
+      K[] keys, K[] missingKeys) {
+    for (int round = 0; round < WARMUP_ROUNDS; round++) {
+      runOnce(workload, factory, keys, missingKeys, new Measurement());
+    }
+    Measurement measurement = new Measurement();
+    long[] gcBefore = gcTotals();
+    for (int round = 0; round < MEASURED_ROUNDS; round++) {
+      runOnce(workload, factory, keys, missingKeys, measurement);
+    }
+    long[] gcAfter = gcTotals();
+    measurement.nanosPerOperation /= MEASURED_ROUNDS;
+    measurement.gcCount = gcAfter[0] - gcBefore[0];
+    measurement.gcMillis = gcAfter[1] - gcBefore[1];
+    if (workload.equals("put")) {
+      for (int round = 0; round < MEASURED_ROUNDS; round++) {
+        measurement.worstNanos = Math.max(measurement.worstNanos, worstPut(factory, keys));
+      }
+    }
+    return measurement;
+  }
+
+  /**
+   * Creates 2n distinct keys in random order; the first n are stored and the rest are the misses
+   */
+  private static <K> K[] makeKeys(int n, Function<Integer, K> keyOf, K[] type) {
+    List<K> all = new ArrayList<>(2 * n);
+    for (int i = 0; i < 2 * n; i++) {
+      all.add(keyOf.apply(i));
+    }
+    Collections.shuffle(all, new Random(42));
+    return all.toArray(type);
+  }
+
+  private static <K> void runKeyType(String keyType, int n, K[] allKeys,
+      Map<String, Supplier<MapADT<K, Integer>>> maps) {
+    K[] keys = Arrays.copyOfRange(allKeys, 0, n);
+    K[] missingKeys = Arrays.copyOfRange(allKeys, n, 2 * n);
+    for (String workload : new String[] {"put", "get-hit", "get-miss", "remove", "mixed"}) {
+      for (Map.Entry<String, Supplier<MapADT<K, Integer>>> map : maps.entrySet()) {
+        Measurement m = measure(workload, map.getValue(), keys, missingKeys);
+        System.out.printf("%-26s %-8s %9d %-9s %9.1f ns/op %5d gcs %6d ms gc%s%n", map.getKey(),
+            keyType, n, workload, m.nanosPerOperation, m.gcCount, m.gcMillis,
+            workload.equals("put") ? String.format(" %9.1f us worst put", m.worstNanos / 1e3) : "");
+      }
+    }
+  }
+
+  /**
+   * The maps being compared, by name, created with the default capacity of each
+   */
+  private static <K> Map<String, Supplier<MapADT<K, Integer>>> maps() {
+    Map<String, Supplier<MapADT<K, Integer>>> maps = new LinkedHashMap<>();
+    maps.put("HashtableMap", HashtableMap::new);
+    maps.put("HashtableMap(incremental)", () -> new HashtableMap<>(32, true));
+    maps.put("RobinHoodHashtableMap", RobinHoodHashtableMap::new);
+    maps.put("ConcurrentHashtableMap", ConcurrentHashtableMap::new);
+    maps.put("CuckooHashtableMap", CuckooHashtableMap::new);
+    maps.put("SwissHashtableMap", SwissHashtableMap::new);
+    maps.put("CopyOnWriteHashtableMap", CopyOnWriteHashtableMap::new);
+    maps.put("java.util.HashMap", JdkMap::new);
+    return maps;
+  }
+
+  public static void main(String[] args) {
+    int[] sizes = args.length == 0 ? new int[] {1000, 10000, 100000, 1000000}
+        : Arrays.stream(args).mapToInt(size -> (int) Double.parseDouble(size)).toArray();
+    for (int n : sizes) {
+      runKeyType("String", n, makeKeys(n, i -> "key" + i, new String[0]), maps());
+      runKeyType("Integer", n, makeKeys(n, i -> i, new Integer[0]), maps());
+      runKeyType("Custom", n, makeKeys(n, i -> new CustomKey(i % 1000, i / 1000),
+          new CustomKey[0]), maps());
+    }
+    System.out.println("(checksum " + sink + ")");
+  }
+}
@@ -0,0 +1,529 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Implementation of MapADT for long keys and long values whose table lives in a memory-mapped
+ * file, so the map survives restarts: opening an existing file only maps it (no entry is read or
+ * reinserted), and every change is made directly to the mapped pages.
+ *
+ * The file starts with a header holding a magic number, the format version, the capacity, the
+ * size and a few flags, followed by the slots (16 bytes each: key, then value) probed linearly.
+ * checkpoint() forces the pages to disk and marks the file clean; changes made after the last
+ * checkpoint may be partly lost if the process dies. Such a file can also be structurally
+ * inconsistent (a remove that shifts entries back may have left a key in two slots, or a lost page
+ * may have cut a probe run short), so opening a file that wasn't checkpointed rebuilds its table
+ * from the slots before using it. Growing the table writes a new file next to the old one and
+ * atomically moves it into place.
+ */
+public class MappedLongLongMap implements MapADT<Long, Long>, AutoCloseable {
+
+  private static final int MAGIC = 0x4D4C4C4D; // "MLLM"
+  private static final int VERSION = 1;
+  private static final int HEADER_BYTES = 64;
+  // header layout
+  private static final int MAGIC_OFFSET = 0;
+  private static final int VERSION_OFFSET = 4;
+  private static final int CAPACITY_OFFSET = 8;
+  private static final int SIZE_OFFSET = 12;
+  private static final int FLAGS_OFFSET = 16;
+  private static final int ZERO_KEY_VALUE_OFFSET = 24;
+  private static final int HAS_ZERO_KEY = 1; // flag: key 0 is stored (its value is in the header)
+  private static final int DIRTY = 2; // flag: changed since the last checkpoint
+
+  private static final int CHUNK_BITS = 20; // each chunk maps 2^20 slots of 16 bytes = 16MB
+
+  private final Path file;
+  private FileChannel channel; // null once the map is closed
+  private MappedByteBuffer header;
+  private MappedByteBuffer[] chunks;
+  private LongLongSlots slots; // probes the mapped chunks
+  private int capacity; // number of slots, also stored in the header
+  private int size; // number of key-value pairs, also stored in the header
+
+  /**
+   * constructor that opens the map stored in file, or creates it with argument capacity if the
+   * file doesn't exist yet (or is empty)
+   * @param file the file holding the map
+   * @param capacity number of slots in the table of a new map (ignored when reopening)
+   * @throws IOException if the file can't be opened or mapped, or isn't a map of this format
+   */
+  public MappedLongLongMap(Path file, int capacity) throws IOException {
+    this.file = file;
+    openHelper(capacity);
+  }
+
+  /**
+   * constructor that opens the map stored in file, or creates it with the default capacity of 32
+   * @param file the file holding the map
+   * @throws IOException if the file can't be opened or mapped, or isn't a map of this format
+   */
+  public MappedLongLongMap(Path file) throws IOException { // with default capacity = 32
+    this(file, 32);
+  }
+
+  /**
+   * Maps the file, initializing the header first if the file is new
+   */
+  private void openHelper(int newCapacity) throws IOException {
+    channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+        StandardOpenOption.WRITE);
+    boolean created = channel.size() == 0;
+    if (created) {
+      channel.truncate(HEADER_BYTES + (long) newCapacity * LongLongSlots.SLOT_BYTES);
+    }
+    header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+    header.order(ByteOrder.LITTLE_ENDIAN);
+    if (created) {
+      header.putInt(MAGIC_OFFSET, MAGIC);
+      header.putInt(VERSION_OFFSET, VERSION);
+      header.putInt(CAPACITY_OFFSET, newCapacity);
+    } else if (header.getInt(MAGIC_OFFSET) != MAGIC) {
+      closeHelper();
+      throw new IOException(file + " is not a MappedLongLongMap file");
+    } else if (header.getInt(VERSION_OFFSET) != VERSION) {
+      closeHelper();
+      throw new IOException(file + " has unsupported format version "
+          + header.getInt(VERSION_OFFSET));
+    }
+    capacity = header.getInt(CAPACITY_OFFSET);
+    size = header.getInt(SIZE_OFFSET);
+    if (capacity <= 0
+        || !created && HEADER_BYTES + (long) capacity * LongLongSlots.SLOT_BYTES > channel.size()) {
+      closeHelper();
+      throw new IOException(file + " is too short for its capacity of " + capacity + " slots");
+    }
+    chunks = new MappedByteBuffer[LongLongSlots.chunkCount(capacity, CHUNK_BITS)];
+    for (int i = 0; i < chunks.length; i++) {
+      long offset = HEADER_BYTES + ((long) i << CHUNK_BITS) * LongLongSlots.SLOT_BYTES;
+      long bytes = (long) LongLongSlots.chunkSlots(capacity, CHUNK_BITS, i)
+          * LongLongSlots.SLOT_BYTES;
+      chunks[i] = channel.map(FileChannel.MapMode.READ_WRITE, offset, bytes);
+      chunks[i].order(ByteOrder.LITTLE_ENDIAN);
+    }
+    slots = new LongLongSlots(chunks, CHUNK_BITS, capacity);
+    if ((flags() & DIRTY) != 0) {
+      // the last session ended without a checkpoint, so neither the stored size nor the probe
+      // runs can be trusted: rebuild the table (this recounts the size too)
+      rebuildHelper(capacity);
+    } else if (size < 0 || size > capacity + 1) {
+      closeHelper();
+      throw new IOException(file + " has an invalid size of " + size);
+    }
+  }
+
+  /**
+   * Unmaps the file and closes the channel, without writing anything
+   */
+  private void closeHelper() throws IOException {
+    // release the mappings right away, so the file can be replaced (this matters on Windows)
+    LongLongSlots.release(header);
+    if (slots != null) {
+      slots.release();
+    }
+    header = null;
+    chunks = null;
+    slots = null;
+    channel.close();
+    channel = null;
+  }
+
+  private void ensureOpen() {
+    if (channel == null) {
+      throw new IllegalStateException("map is closed");
+    }
+  }
+
+  private int flags() {
+    return header.getInt(FLAGS_OFFSET);
+  }
+
+  /**
+   * Records a change: updates the stored size and marks the file dirty until the next checkpoint
+   */
+  private void changedHelper(int flags) {
+    header.putInt(SIZE_OFFSET, size);
+    header.putInt(FLAGS_OFFSET, flags | DIRTY);
+  }
+
+  /**
+   * Dynamically grows the table by doubling its capacity (whenever load factor becomes greater
+   * than or equal to 75%).
+   */
+  private void resizeHelper() {
+    try {
+      rebuildHelper(capacity * 2);
+    } catch (IOException e) {
+      throw new UncheckedIOException("could not resize " + file, e);
+    }
+  }
+
+  /**
+   * Rebuilds the table with argument capacity by reinserting every key found in the slots (a key
+   * found in more than one slot is kept once). The new table is built in a temporary file which
+   * then atomically replaces the map's file, so a crash during the rebuild leaves the old file
+   * untouched.
+   */
+  private void rebuildHelper(int newCapacity) throws IOException {
+    Path rebuilt = file.resolveSibling(file.getFileName() + ".resize");
+    Files.deleteIfExists(rebuilt);
+    try (MappedLongLongMap other = new MappedLongLongMap(rebuilt, newCapacity)) {
+      if ((flags() & HAS_ZERO_KEY) != 0) {
+        other.put(0, header.getLong(ZERO_KEY_VALUE_OFFSET));
+      }
+      other.size += other.slots.insertAll(slots);
+      other.changedHelper(other.flags());
+    } // closing checkpoints the new file
+    closeHelper();
+    Files.move(rebuilt, file, StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+    openHelper(newCapacity);
+  }
+
+  /**
+   * Adds a new key,value pair/mapping to this collection without boxing.
+   *
+   * @param key   the key of the key,value pair
+   * @param value the value that key maps to
+   * @throws IllegalArgumentException if key already maps to a value
+   * @throws IllegalStateException    if this map has been closed
+   */
+  public void put(long key, long value) throws IllegalArgumentException {
+    ensureOpen();
+    int flags = flags();
+    if (key == 0) {
+      if ((flags & HAS_ZERO_KEY) != 0) {
+        throw new IllegalArgumentException("key already maps to a value");
+      }
+      header.putLong(ZERO_KEY_VALUE_OFFSET, value);
+      flags |= HAS_ZERO_KEY;
+    } else if (!slots.insert(key, value)) {
+      throw new IllegalArgumentException("key already maps to a value");
+    }
+    size++;
+    changedHelper(flags);
+    if (((double) size / capacity) >= 0.75) { // check load factor and resize if it is >= 75%
+      this.resizeHelper();
+    }
+  }
+
+  /**
+   * Checks whether a key maps to a value in this collection without boxing.
+   *
+   * @param key the key to check
+   * @return true if the key maps to a value, and false is the key doesn't map to a value
+   * @throws IllegalStateException if this map has been closed
+   */
+  public boolean containsKey(long key) {
+    ensureOpen();
+    return key == 0 ? (flags() & HAS_ZERO_KEY) != 0 : slots.findIndex(key) != -1;
+  }
+
+  /**
+   * Retrieves the specific value that a key maps to without boxing.
+   *
+   * @param key the key to look up
+   * @return the value that key maps to
+   * @throws NoSuchElementException when key is not stored in this collection
+   * @throws IllegalStateException  if this map has been closed
+   */
+  public long get(long key) throws NoSuchElementException {
+    ensureOpen();
+    if (key == 0) {
+      if ((flags() & HAS_ZERO_KEY) == 0) {
+        throw new NoSuchElementException("key is not stored in this collection");
+      }
+      return header.getLong(ZERO_KEY_VALUE_OFFSET);
+    }
+    int index = slots.findIndex(key);
+    if (index == -1) {
+      throw new NoSuchElementException("key is not stored in this collection");
+    }
+    return slots.valueAt(index);
+  }
+
+  /**
+   * Remove the mapping for a key from this collection without boxing. Entries later in the same
+   * probe run are shifted back into the freed slot, so no tombstone is needed.
+   *
+   * @param key the key whose mapping to remove
+   * @return the value that the removed key mapped to
+   * @throws NoSuchElementException when key is not stored in this collection
+   * @throws IllegalStateException  if this map has been closed
+   */
+  public long remove(long key) throws NoSuchElementException {
+    ensureOpen();
+    long removed;
+    int flags = flags();
+    if (key == 0) {
+      if ((flags & HAS_ZERO_KEY) == 0) {
+        throw new NoSuchElementException("key is not stored in this collection");
+      }
+      removed = header.getLong(ZERO_KEY_VALUE_OFFSET);
+      flags &= ~HAS_ZERO_KEY;
+    } else {
+      int index = slots.findIndex(key);
+      if (index == -1) {
+        throw new NoSuchElementException("key is not stored in this collection");
+      }
+      removed = slots.removeAt(index);
+    }
+    size--;
+    changedHelper(flags);
+    return removed;
+  }
+
+  @Override
+  public void put(Long key, Long value) throws IllegalArgumentException {
+    if (key == null) {
+      throw new NullPointerException("key is null");
+    } else if (value == null) {
+      throw new NullPointerException("value is null");
+    }
+    put(key.longValue(), value.longValue());
+  }
+
+  @Override
+  public boolean containsKey(Long key) {
+    return containsKey(key.longValue());
+  }
+
+  @Override
+  public Long get(Long key) throws NoSuchElementException {
+    return get(key.longValue());
+  }
+
+  @Override
+  public Long remove(Long key) throws NoSuchElementException {
+    return remove(key.longValue());
+  }
+
+  /**
+   * Removes all key,value pairs from this collection.
+   *
+   * @throws IllegalStateException if this map has been closed
+   */
+  @Override
+  public void clear() {
+    ensureOpen();
+    slots.clear();
+    size = 0;
+    changedHelper(0);
+  }
+
+  /**
+   * Retrieves the number of keys stored in this collection.
+   *
+   * @return the number of keys stored in this collection
+   */
+  @Override
+  public int getSize() {
+    return size;
+  }
+
+  /**
+   * Retrieves this collection's capacity.
+   *
+   * @return the number of slots in the mapped table
+   */
+  @Override
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * Forces every change made so far out to the file and marks the file clean, so that reopening it
+   * after a crash doesn't need to recount the entries.
+   *
+   * @throws IllegalStateException if this map has been closed
+   */
+  public void checkpoint() {
+    ensureOpen();
+    for (MappedByteBuffer chunk : chunks) {
+      chunk.force();
+    }
+    header.putInt(FLAGS_OFFSET, flags() & ~DIRTY);
+    header.force();
+  }
+
+  /**
+   * Checkpoints this collection and releases the file. Calling close again has no effect.
+   *
+   * @throws UncheckedIOException if the file can't be closed
+   */
+  @Override
+  public void close() {
+    if (channel != null) {
+      checkpoint();
+      try {
+        closeHelper();
+      } catch (IOException e) {
+        throw new UncheckedIOException("could not close " + file, e);
+      }
+    }
+  }
+
+  /**
+   * Creates an iterator over the key,value pairs stored in this collection (key 0 first, then in
+   * slot order).
+   *
+   * @return an iterator over the entries of this collection; once a put has grown the table, its
+   *         hasNext and next throw ConcurrentModificationException (the old table has been
+   *         unmapped by then)
+   * @throws IllegalStateException if this map has been closed
+   */
+  @Override
+  public Iterator<Map.Entry<Long, Long>> entryIterator() {
+    ensureOpen();
+    return new Iterator<Map.Entry<Long, Long>>() {
+      private final LongLongSlots iterated = slots;
+      private int index = (flags() & HAS_ZERO_KEY) != 0 ? -1 : iterated.nextUsed(0);
+
+      @Override
+      public boolean hasNext() {
+        if (slots != null && slots != iterated) {
+          throw new ConcurrentModificationException("the table was rebuilt");
+        }
+        return index < iterated.capacity();
+      }
+
+      @Override
+      public Map.Entry<Long, Long> next() {
+        ensureOpen();
+        if (!hasNext()) {
+          throw new NoSuchElementException("no more entries");
+        }
+        Map.Entry<Long, Long> entry = index == -1
+            ? new AbstractMap.SimpleImmutableEntry<>(0L, header.getLong(ZERO_KEY_VALUE_OFFSET))
+            : new AbstractMap.SimpleImmutableEntry<>(iterated.keyAt(index),
+                iterated.valueAt(index));
+        index = iterated.nextUsed(index + 1);
+        return entry;
+      }
+    };
+  }
+
+  /**
+   * Tests that a map (including key 0 and entries moved by resizes and removes) is the same after
+   * it is closed and reopened, and that the header's capacity wins over the constructor argument
+   */
+  @Test
+  public void testReopen() throws IOException {
+    Path file = Files.createTempFile("mapped", ".map");
+    Files.delete(file);
+    try {
+      try (MappedLongLongMap map = new MappedLongLongMap(file, 16)) {
+        for (long i = 0; i < 20000; i++) {
+          map.put(i * 31, -i);
+        }
+        for (long i = 0; i < 20000; i += 4) {
+          Assertions.assertEquals(-i, map.remove(i * 31));
+        }
+        Assertions.assertThrows(IllegalArgumentException.class, () -> map.put(31, 0));
+      }
+      try (MappedLongLongMap map = new MappedLongLongMap(file, 16)) {
+        Assertions.assertEquals(32768, map.getCapacity());
+        Assertions.assertEquals(15000, map.getSize());
+        Assertions.assertThrows(NoSuchElementException.class, () -> map.get(0));
+        for (long i = 0; i < 20000; i++) {
+          Assertions.assertEquals(i % 4 != 0, map.containsKey(i * 31));
+        }
+        Assertions.assertEquals(-1L, map.get(Long.valueOf(31)));
+        map.put(0, 99);
+      }
+      try (MappedLongLongMap map = new MappedLongLongMap(file)) {
+        Assertions.assertEquals(99, map.get(0));
+        Assertions.assertEquals(15001, map.entryStream(false).count());
+      }
+      Assertions.assertFalse(Files.exists(file.resolveSibling(file.getFileName() + ".resize")));
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  /**
+   * Tests that an iterator taken before the table is rebuilt throws instead of reading the
+   * unmapped table
+   */
+  @Test
+  public void testResizeDuringIteration() throws IOException {
+    Path file = Files.createTempFile("mapped", ".map");
+    Files.delete(file);
+    try (MappedLongLongMap map = new MappedLongLongMap(file, 1 << 17)) {
+      for (long i = 1; i <= 90000; i++) {
+        map.put(i, i);
+      }
+      Iterator<Map.Entry<Long, Long>> entries = map.entryIterator();
+      entries.next();
+      for (long i = 90001; i <= 100000; i++) {
+        map.put(i, i); // grows the table past 0.75 * 2^17 entries
+      }
+      Assertions.assertEquals(1 << 18, map.getCapacity());
+      Assertions.assertThrows(ConcurrentModificationException.class, entries::hasNext);
+      Assertions.assertThrows(ConcurrentModificationException.class, entries::next);
+      Assertions.assertEquals(100000, map.entryStream(false).count());
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  /**
+   * Tests that a file that wasn't checkpointed after its last change gets its size recounted and
+   * its table rebuilt, and that a file of another format or with a bad capacity is rejected
+   */
+  @Test
+  public void testRecoveryAndBadFiles() throws IOException {
+    Path file = Files.createTempFile("mapped", ".map");
+    Files.delete(file);
+    try {
+      MappedLongLongMap map = new MappedLongLongMap(file, 64);
+      map.put(1, 1);
+      map.put(2, 2);
+      map.checkpoint();
+      map.put(3, 3);
+      map.header.putInt(SIZE_OFFSET, 0); // as if the size update was lost in a crash
+      map.closeHelper(); // no checkpoint
+      try (MappedLongLongMap reopened = new MappedLongLongMap(file)) {
+        Assertions.assertEquals(3, reopened.getSize());
+        Assertions.assertEquals(3, reopened.get(3));
+      }
+      map = new MappedLongLongMap(file);
+      int one = map.slots.findIndex(1);
+      int two = map.slots.findIndex(2);
+      map.slots.store((one + 7) % 64, 1, 1); // a remove's shift copied key 1 but didn't clear it
+      map.slots.store(two, 0, 0);
+      map.slots.store((two + 9) % 64, 2, 2); // key 2 lies after a gap in its probe run
+      map.changedHelper(map.flags());
+      map.closeHelper();
+      try (MappedLongLongMap reopened = new MappedLongLongMap(file)) {
+        Assertions.assertEquals(3, reopened.getSize());
+        Assertions.assertEquals(2, reopened.get(2));
+        Assertions.assertEquals(1, reopened.remove(1));
+        Assertions.assertFalse(reopened.containsKey(1));
+      }
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+        ByteBuffer capacity = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+        channel.write(capacity.putInt(0, 65), CAPACITY_OFFSET); // one slot more than the file has
+      }
+      Assertions.assertThrows(IOException.class, () -> new MappedLongLongMap(file));
+      Files.write(file, new byte[HEADER_BYTES]);
+      Assertions.assertThrows(IOException.class, () -> new MappedLongLongMap(file));
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+}
@@ -0,0 +1,380 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.AbstractMap;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Implementation of MapADT for long keys and long values that keeps its table off the Java heap,
+ * in direct ByteBuffers. Each slot is 16 bytes (key, then value) and slots are found with linear
+ * probing, so the map holds no objects per entry and adds nothing for the garbage collector to
+ * trace no matter how many entries it has. The table is split into chunks of 65536 slots, so it
+ * isn't limited by the 2GB maximum size of a single ByteBuffer. Call close() to release the memory
+ * as soon as the map is no longer needed; afterwards every method throws IllegalStateException.
+ */
+public class OffHeapLongLongMap implements MapADT<Long, Long>, AutoCloseable {
+
+  private static final int CHUNK_BITS = 16; // 2^16 slots of 16 bytes = 1MB per chunk
+
+  private int size; // number of key-value pairs stored in the OffHeapLongLongMap
+  private int capacity; // number of slots in the table
+  protected LongLongSlots slots; // null once the map is closed
+  // a slot whose key is 0 is empty (direct buffers start zeroed), so key 0 is stored separately
+  private boolean hasZeroKey;
+  private long zeroKeyValue;
+
+  /**
+   * constructor that allocates off-heap memory for argument capacity slots
+   * @param capacity number of slots in the table
+   */
+  public OffHeapLongLongMap(int capacity) {
+    this.capacity = capacity;
+    slots = allocateHelper(capacity);
+  }
+
+  /**
+   * Default constructor that allocates off-heap memory for the default capacity of 32 slots
+   */
+  public OffHeapLongLongMap() { // with default capacity = 32
+    this(32);
+  }
+
+  /**
+   * Allocates zeroed direct buffers that together hold the given number of slots
+   */
+  private static LongLongSlots allocateHelper(int capacity) {
+    ByteBuffer[] chunks = new ByteBuffer[LongLongSlots.chunkCount(capacity, CHUNK_BITS)];
+    for (int i = 0; i < chunks.length; i++) {
+      int bytes = LongLongSlots.chunkSlots(capacity, CHUNK_BITS, i) * LongLongSlots.SLOT_BYTES;
+      chunks[i] = ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+    }
+    return new LongLongSlots(chunks, CHUNK_BITS, capacity);
+  }
+
+  private void ensureOpen() {
+    if (slots == null) {
+      throw new IllegalStateException("map is closed");
+    }
+  }
+
+  /**
+   * Dynamically grows the table by doubling its capacity and reinserting every entry (whenever
+   * load factor becomes greater than or equal to 75%), then frees the old table's memory
+   */
+  private void resizeHelper() {
+    LongLongSlots oldSlots = slots;
+    capacity = oldSlots.capacity() * 2;
+    slots = allocateHelper(capacity);
+    slots.insertAll(oldSlots);
+    oldSlots.release();
+  }
+
+  /**
+   * Adds a new key,value pair/mapping to this collection without boxing.
+   *
+   * @param key   the key of the key,value pair
+   * @param value the value that key maps to
+   * @throws IllegalArgumentException if key already maps to a value
+   * @throws IllegalStateException    if this map has been closed
+   */
+  public void put(long key, long value) throws IllegalArgumentException {
+    ensureOpen();
+    if (key == 0) {
+      if (hasZeroKey) {
+        throw new IllegalArgumentException("key already maps to a value");
+      }
+      hasZeroKey = true;
+      zeroKeyValue = value;
+    } else if (!slots.insert(key, value)) {
+      throw new IllegalArgumentException("key already maps to a value");
+    }
+    size++;
+    if (((double) size / capacity) >= 0.75) { // check load factor and resize if it is >= 75%
+      this.resizeHelper();
+    }
+  }
+
+  /**
+   * Checks whether a key maps to a value in this collection without boxing.
+   *
+   * @param key the key to check
+   * @return true if the key maps to a value, and false is the key doesn't map to a value
+   * @throws IllegalStateException if this map has been closed
+   */
+  public boolean containsKey(long key) {
+    ensureOpen();
+    return key == 0 ? hasZeroKey : slots.findIndex(key) != -1;
+  }
+
+  /**
+   * Retrieves the specific value that a key maps to without boxing.
+   *
+   * @param key the key to look up
+   * @return the value that key maps to
+   * @throws NoSuchElementException when key is not stored in this collection
+   * @throws IllegalStateException  if this map has been closed
+   */
+  public long get(long key) throws NoSuchElementException {
+    ensureOpen();
+    if (key == 0) {
+      if (!hasZeroKey) {
+        throw new NoSuchElementException("key is not stored in this collection");
+      }
+      return zeroKeyValue;
+    }
+    int index = slots.findIndex(key);
+    if (index == -1) {
+      throw new NoSuchElementException("key is not stored in this collection");
+    }
+    return slots.valueAt(index);
+  }
+
+  /**
+   * Retrieves the value that a key maps to without boxing, or a default when the key is not stored
+   * in this collection.
+   *
+   * @param key          the key to look up
+   * @param defaultValue the value to return when key is not stored in this collection
+   * @return the value that key maps to, or defaultValue
+   * @throws IllegalStateException if this map has been closed
+   */
+  public long getOrDefault(long key, long defaultValue) {
+    ensureOpen();
+    if (key == 0) {
+      return hasZeroKey ? zeroKeyValue : defaultValue;
+    }
+    int index = slots.findIndex(key);
+    return index == -1 ? defaultValue : slots.valueAt(index);
+  }
+
+  /**
+   * Remove the mapping for a key from this collection without boxing. Entries later in the same
+   * probe run are shifted back into the freed slot, so no tombstone is needed.
+   *
+   * @param key the key whose mapping to remove
+   * @return the value that the removed key mapped to
+   * @throws NoSuchElementException when key is not stored in this collection
+   * @throws IllegalStateException  if this map has been closed
+   */
+  public long remove(long key) throws NoSuchElementException {
+    ensureOpen();
+    if (key == 0) {
+      if (!hasZeroKey) {
+        throw new NoSuchElementException("key is not stored in this collection");
+      }
+      hasZeroKey = false;
+      size--;
+      return zeroKeyValue;
+    }
+    int index = slots.findIndex(key);
+    if (index == -1) {
+      throw new NoSuchElementException("key is not stored in this collection");
+    }
+    size--;
+    return slots.removeAt(index);
+  }
+
+  @Override
+  public void put(Long key, Long value) throws IllegalArgumentException {
+    if (key == null) {
+      throw new NullPointerException("key is null");
+    } else if (value == null) {
+      throw new NullPointerException("value is null");
+    }
+    put(key.longValue(), value.longValue());
+  }
+
+  @Override
+  public boolean containsKey(Long key) {
+    return containsKey(key.longValue());
+  }
+
+  @Override
+  public Long get(Long key) throws NoSuchElementException {
+    return get(key.longValue());
+  }
+
+  @Override
+  public Long getOrDefault(Long key, Long defaultValue) {
+    ensureOpen();
+    long primitiveKey = key.longValue();
+    if (primitiveKey == 0) {
+      return hasZeroKey ? Long.valueOf(zeroKeyValue) : defaultValue;
+    }
+    int index = slots.findIndex(primitiveKey);
+    return index == -1 ? defaultValue : Long.valueOf(slots.valueAt(index));
+  }
+
+  @Override
+  public Long remove(Long key) throws NoSuchElementException {
+    return remove(key.longValue());
+  }
+
+  /**
+   * Removes all key,value pairs from this collection.
+   *
+   * @throws IllegalStateException if this map has been closed
+   */
+  @Override
+  public void clear() {
+    ensureOpen();
+    size = 0;
+    hasZeroKey = false;
+    slots.clear();
+  }
+
+  /**
+   * Retrieves the number of keys stored in this collection.
+   *
+   * @return the number of keys stored in this collection
+   */
+  @Override
+  public int getSize() {
+    return size;
+  }
+
+  /**
+   * Retrieves this collection's capacity.
+   *
+   * @return the number of slots in the off-heap table
+   */
+  @Override
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * Releases the off-heap memory of this collection. Calling close again has no effect.
+   */
+  @Override
+  public void close() {
+    if (slots != null) {
+      slots.release();
+      slots = null;
+      size = 0;
+      hasZeroKey = false;
+    }
+  }
+
+  /**
+   * Creates an iterator over the key,value pairs stored in this collection (key 0 first, then in
+   * slot order).
+   *
+   * @return an iterator over the entries of this collection; once a put has grown the table, its
+   *         hasNext and next throw ConcurrentModificationException (the old table's memory has
+   *         been freed by then)
+   * @throws IllegalStateException if this map has been closed
+   */
+  @Override
+  public Iterator<Map.Entry<Long, Long>> entryIterator() {
+    ensureOpen();
+    return new Iterator<Map.Entry<Long, Long>>() {
+      private final LongLongSlots iterated = slots;
+      private int index = hasZeroKey ? -1 : iterated.nextUsed(0);
+
+      @Override
+      public boolean hasNext() {
+        if (slots != null && slots != iterated) {
+          throw new ConcurrentModificationException("the table was resized");
+        }
+        return index < iterated.capacity();
+      }
+
+      @Override
+      public Map.Entry<Long, Long> next() {
+        ensureOpen();
+        if (!hasNext()) {
+          throw new NoSuchElementException("no more entries");
+        }
+        Map.Entry<Long, Long> entry = index == -1
+            ? new AbstractMap.SimpleImmutableEntry<>(0L, zeroKeyValue)
+            : new AbstractMap.SimpleImmutableEntry<>(iterated.keyAt(index),
+                iterated.valueAt(index));
+        index = iterated.nextUsed(index + 1);
+        return entry;
+      }
+    };
+  }
+
+  /**
+   * Tests the unboxed and boxed methods on a map large enough to span several chunks, including
+   * key 0 and the extreme long values
+   */
+  @Test
+  public void testPutGetRemove() {
+    try (OffHeapLongLongMap map = new OffHeapLongLongMap(8)) {
+      for (long i = -100000; i < 100000; i++) {
+        map.put(i * 7919, i);
+      }
+      map.put(Long.MIN_VALUE, 1);
+      map.put(Long.MAX_VALUE, 2);
+      Assertions.assertEquals(524288, map.getCapacity()); // 8 chunks of 65536 slots
+      Assertions.assertThrows(IllegalArgumentException.class, () -> map.put(0, 5));
+      Assertions.assertThrows(NullPointerException.class,
+          () -> map.put(Long.valueOf(1), (Long) null));
+      for (long i = -100000; i < 100000; i++) {
+        Assertions.assertEquals(i, map.get(i * 7919));
+      }
+      Assertions.assertEquals(1, map.get(Long.MIN_VALUE));
+      Assertions.assertEquals(2L, map.get(Long.valueOf(Long.MAX_VALUE)));
+      for (long i = -100000; i < 100000; i += 2) {
+        Assertions.assertEquals(i, map.remove(i * 7919));
+      }
+      for (long i = -100000; i < 100000; i++) {
+        Assertions.assertEquals(i % 2 != 0, map.containsKey(i * 7919));
+      }
+      Assertions.assertEquals(100002, map.getSize());
+      Assertions.assertEquals(100002, map.entryStream(false).count());
+      Assertions.assertEquals(-1, map.getOrDefault(2, -1));
+      Assertions.assertEquals(-1L, map.getOrDefault(Long.valueOf(2), Long.valueOf(-1)));
+      Assertions.assertNull(map.getOrNull(2L));
+      Assertions.assertNull(map.getOrNull(0L));
+      Assertions.assertThrows(NoSuchElementException.class, () -> map.get(0));
+      map.put(0, 42);
+      Assertions.assertEquals(42, map.entryIterator().next().getValue());
+      map.clear();
+      Assertions.assertFalse(map.containsKey(Long.MIN_VALUE));
+      Assertions.assertEquals(0, map.getSize());
+    }
+  }
+
+  /**
+   * Tests that an iterator taken before a resize throws instead of reading the freed table
+   */
+  @Test
+  public void testResizeDuringIteration() {
+    try (OffHeapLongLongMap map = new OffHeapLongLongMap(1 << 17)) {
+      for (long i = 1; i <= 90000; i++) {
+        map.put(i, i);
+      }
+      Iterator<Map.Entry<Long, Long>> entries = map.entryIterator();
+      entries.next();
+      for (long i = 90001; i <= 100000; i++) {
+        map.put(i, i); // grows the table past 0.75 * 2^17 entries
+      }
+      Assertions.assertEquals(1 << 18, map.getCapacity());
+      Assertions.assertThrows(ConcurrentModificationException.class, entries::hasNext);
+      Assertions.assertThrows(ConcurrentModificationException.class, entries::next);
+      Assertions.assertEquals(100000, map.entryStream(false).count());
+    }
+  }
+
+  /**
+   * Tests that a closed map refuses to be used, and that close can be called more than once
+   */
+  @Test
+  public void testClose() {
+    OffHeapLongLongMap map = new OffHeapLongLongMap();
+    map.put(1, 1);
+    map.close();
+    Assertions.assertThrows(IllegalStateException.class, () -> map.get(1));
+    Assertions.assertThrows(IllegalStateException.class, () -> map.put(2, 2));
+    Assertions.assertThrows(IllegalStateException.class, () -> map.entryIterator());
+    Assertions.assertEquals(0, map.getSize());
+    map.close();
+  }
+}
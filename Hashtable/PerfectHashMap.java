@@ -0,0 +1,609 @@
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Read-only implementation of MapADT for a key set that is fixed once it is built. The keys are
+ * placed with a minimal perfect hash function (hash-and-displace, as in CHD): keys are first split
+ * into small buckets by one hash, and each bucket gets a displacement that sends its keys to slots
+ * no other key uses. The table therefore has exactly one slot per key, and a lookup computes the
+ * bucket, reads its displacement and compares the key in a single slot. Keys whose hash code is
+ * the same as another key's can't be told apart by any function of the hash code, so all but one
+ * of them are kept in a small overflow area after the table, which is only searched when the key
+ * in the slot has the same hash code as the key being looked up.
+ *
+ * Maps are created with a Builder. A built map can be saved to a file and loaded again without
+ * rebuilding it, as long as its keys and values are Serializable and their hash codes are the same
+ * in every JVM (true for String, Integer, Long and other value classes, but not for keys that use
+ * Object's identity hashCode).
+ */
+public class PerfectHashMap<KeyType, ValueType> implements MapADT<KeyType, ValueType>,
+    Serializable {
+
+  private static final long serialVersionUID = 1L;
+  private static final int KEYS_PER_BUCKET = 4; // average, trading build time for table size
+  private static final int MAX_DISPLACEMENT = 1 << 16; // tried per bucket before picking a new seed
+  // the key and value classes load accepts when the caller doesn't name them
+  private static final Class<?>[] VALUE_CLASSES = {String.class, Integer.class, Long.class,
+      Short.class, Byte.class, Character.class, Boolean.class, Double.class, Float.class};
+
+  /**
+   * Collects the key,value pairs of a PerfectHashMap before it is built
+   */
+  public static class Builder<KeyType, ValueType> {
+
+    private final HashtableMap<KeyType, ValueType> pairs = new HashtableMap<>();
+
+    /**
+     * Adds a key,value pair to the map being built.
+     *
+     * @param key   the key of the key,value pair
+     * @param value the value that key maps to
+     * @return this builder
+     * @throws IllegalArgumentException if key was already added
+     * @throws NullPointerException     if key is null
+     */
+    public Builder<KeyType, ValueType> put(KeyType key, ValueType value) {
+      pairs.put(key, value);
+      return this;
+    }
+
+    /**
+     * Adds every key,value pair of a collection to the map being built.
+     *
+     * @param other the collection whose pairs to add
+     * @return this builder
+     * @throws IllegalArgumentException if a key of other was already added
+     */
+    public Builder<KeyType, ValueType> putAll(
+        MapADT<? extends KeyType, ? extends ValueType> other) {
+      pairs.putAll(other);
+      return this;
+    }
+
+    /**
+     * Freezes the pairs added so far into a PerfectHashMap.
+     *
+     * @return the new map
+     */
+    public PerfectHashMap<KeyType, ValueType> build() {
+      return new PerfectHashMap<>(this);
+    }
+
+  }
+
+  private final long seed; // chosen at build time so that every bucket could be displaced
+  // one per bucket; a negative value -(slot + 1) stores the slot of a bucket with a single key
+  private final int[] displacements;
+  private final int slots; // number of slots in the table (one per distinct hash code)
+  // keys[slot] is the only key that hashes to slot; keys from index slots on are the overflow area
+  private final Object[] keys;
+  private final Object[] values;
+
+  /**
+   * constructor that places the pairs collected by a builder
+   * @param builder the builder holding the pairs
+   */
+  protected PerfectHashMap(Builder<KeyType, ValueType> builder) {
+    int n = builder.pairs.getSize();
+    Object[] pairKeys = new Object[n];
+    Object[] pairValues = new Object[n];
+    int[] hashes = new int[n];
+    int count = 0;
+    for (Iterator<Map.Entry<KeyType, ValueType>> entries = builder.pairs.entryIterator();
+        entries.hasNext(); count++) {
+      Map.Entry<KeyType, ValueType> entry = entries.next();
+      pairKeys[count] = entry.getKey();
+      pairValues[count] = entry.getValue();
+      hashes[count] = entry.getKey().hashCode();
+    }
+    // sort the pairs by hash code, so that pairs sharing one are next to each other
+    Integer[] order = new Integer[n];
+    for (int i = 0; i < n; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(order, (first, second) -> Integer.compare(hashes[first], hashes[second]));
+    int[] distinctHashes = new int[n];
+    int distinct = 0;
+    for (int i = 0; i < n; i++) {
+      if (i == 0 || hashes[order[i]] != hashes[order[i - 1]]) {
+        distinctHashes[distinct++] = hashes[order[i]];
+      }
+    }
+    slots = distinct;
+    displacements = new int[Math.max(1, (slots + KEYS_PER_BUCKET - 1) / KEYS_PER_BUCKET)];
+    keys = new Object[n];
+    values = new Object[n];
+    Random random = new Random();
+    long chosenSeed;
+    do {
+      chosenSeed = random.nextLong();
+    } while (!placeHelper(chosenSeed, Arrays.copyOf(distinctHashes, slots)));
+    seed = chosenSeed;
+    int overflow = slots;
+    for (int i = 0; i < n; i++) {
+      int index = i > 0 && hashes[order[i]] == hashes[order[i - 1]] ? overflow++
+          : slotOf(hashes[order[i]]);
+      keys[index] = pairKeys[order[i]];
+      values[index] = pairValues[order[i]];
+    }
+  }
+
+  /**
+   * Mixes a hash code with a seed into 64 well-distributed bits (the finalizer of MurmurHash3)
+   */
+  private static long mix(int hash, long seed) {
+    long mixed = (hash & 0xffffffffL) ^ (seed * 0x9E3779B97F4A7C15L);
+    mixed = (mixed ^ (mixed >>> 33)) * 0xFF51AFD7ED558CCDL;
+    mixed = (mixed ^ (mixed >>> 33)) * 0xC4CEB9FE1A85EC53L;
+    return mixed ^ (mixed >>> 33);
+  }
+
+  /**
+   * Maps 64 mixed bits onto [0, range) using the high 32 bits (a multiply instead of a modulo)
+   */
+  private static int reduce(long mixed, int range) {
+    return (int) (((mixed >>> 32) * range) >>> 32);
+  }
+
+  private int bucketOf(int hash, long seed) {
+    return reduce(mix(hash, seed), displacements.length);
+  }
+
+  private static int slotOf(int hash, long seed, int displacement, int slots) {
+    return reduce(mix(hash, seed + 1 + displacement), slots);
+  }
+
+  private int slotOf(int hash) {
+    int displacement = displacements[bucketOf(hash, seed)];
+    return displacement < 0 ? -displacement - 1 : slotOf(hash, seed, displacement, slots);
+  }
+
+  /**
+   * Tries to find a displacement for every bucket, largest buckets first (they are the hardest to
+   * place, so they go while most slots are still free). The buckets with a single key are left for
+   * last and simply given the remaining free slots, so the table can be filled completely.
+   * @param seed the seed of the bucket hash and slot hashes
+   * @param hashes the hash codes of all keys
+   * @return true if every bucket was placed, so displacements now holds a perfect hash function
+   */
+  private boolean placeHelper(long seed, int[] hashes) {
+    int buckets = displacements.length;
+    // group the keys by bucket with a counting sort
+    int[] start = new int[buckets + 1];
+    for (int hash : hashes) {
+      start[bucketOf(hash, seed) + 1]++;
+    }
+    int largest = 0;
+    for (int bucket = 0; bucket < buckets; bucket++) {
+      largest = Math.max(largest, start[bucket + 1]);
+      start[bucket + 1] += start[bucket];
+    }
+    int[] members = new int[hashes.length];
+    int[] next = Arrays.copyOf(start, buckets);
+    for (int i = 0; i < hashes.length; i++) {
+      members[next[bucketOf(hashes[i], seed)]++] = i;
+    }
+    ArrayList<ArrayList<Integer>> bucketsBySize = new ArrayList<>();
+    for (int size = 0; size <= largest; size++) {
+      bucketsBySize.add(new ArrayList<>());
+    }
+    for (int bucket = 0; bucket < buckets; bucket++) {
+      bucketsBySize.get(start[bucket + 1] - start[bucket]).add(bucket);
+    }
+    boolean[] used = new boolean[hashes.length];
+    int[] bucketSlots = new int[largest];
+    for (int size = largest; size > 1; size--) {
+      for (int bucket : bucketsBySize.get(size)) {
+        int displacement = 0;
+        while (!tryDisplacement(seed, displacement, hashes, members, start[bucket], size, used,
+            bucketSlots)) {
+          if (++displacement == MAX_DISPLACEMENT) {
+            return false;
+          }
+        }
+        displacements[bucket] = displacement;
+        for (int i = 0; i < size; i++) {
+          used[bucketSlots[i]] = true;
+        }
+      }
+    }
+    int free = 0;
+    for (int bucket : largest == 0 ? new ArrayList<Integer>() : bucketsBySize.get(1)) {
+      while (used[free]) {
+        free++;
+      }
+      used[free] = true;
+      displacements[bucket] = -free - 1;
+    }
+    return true;
+  }
+
+  /**
+   * Checks whether a displacement sends the keys of one bucket to distinct free slots
+   * @param slots receives the slots of the bucket's keys
+   */
+  private static boolean tryDisplacement(long seed, int displacement, int[] hashes, int[] members,
+      int from, int size, boolean[] used, int[] slots) {
+    for (int i = 0; i < size; i++) {
+      slots[i] = slotOf(hashes[members[from + i]], seed, displacement, used.length);
+      if (used[slots[i]]) {
+        return false;
+      }
+      for (int j = 0; j < i; j++) {
+        if (slots[j] == slots[i]) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Finds the slot that holds key
+   * @param key the key to look up
+   * @return the index of the slot holding key, or -1 if key is not stored in this collection
+   */
+  private int findIndex(KeyType key) {
+    if (slots == 0) {
+      return -1;
+    }
+    int hash = key.hashCode();
+    int slot = slotOf(hash);
+    if (key.equals(keys[slot])) {
+      return slot;
+    } else if (keys.length > slots && keys[slot].hashCode() == hash) {
+      for (int index = slots; index < keys.length; index++) {
+        if (key.equals(keys[index])) {
+          return index;
+        }
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Not supported, since the key set of this collection is fixed when it is built.
+   *
+   * @throws UnsupportedOperationException always
+   */
+  @Override
+  public void put(KeyType key, ValueType value) {
+    throw new UnsupportedOperationException("PerfectHashMap is read-only");
+  }
+
+  /**
+   * Checks whether a key maps to a value in this collection.
+   *
+   * @param key the key to check
+   * @return true if the key maps to a value, and false is the key doesn't map to a value
+   */
+  @Override
+  public boolean containsKey(KeyType key) {
+    return findIndex(key) != -1;
+  }
+
+  /**
+   * Retrieves the specific value that a key maps to.
+   *
+   * @param key the key to look up
+   * @return the value that key maps to
+   * @throws NoSuchElementException when key is not stored in this collection
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public ValueType get(KeyType key) throws NoSuchElementException {
+    int index = findIndex(key);
+    if (index == -1) {
+      throw new NoSuchElementException("key is not stored in this collection");
+    }
+    return (ValueType) values[index];
+  }
+
+  /**
+   * Retrieves the value that a key maps to, or a default when the key is not stored in this
+   * collection, using a single probe.
+   *
+   * @param key          the key to look up
+   * @param defaultValue the value to return when key is not stored in this collection
+   * @return the value that key maps to, or defaultValue
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public ValueType getOrDefault(KeyType key, ValueType defaultValue) {
+    int index = findIndex(key);
+    return index == -1 ? defaultValue : (ValueType) values[index];
+  }
+
+  /**
+   * Not supported, since the key set of this collection is fixed when it is built.
+   *
+   * @throws UnsupportedOperationException always
+   */
+  @Override
+  public ValueType remove(KeyType key) {
+    throw new UnsupportedOperationException("PerfectHashMap is read-only");
+  }
+
+  /**
+   * Not supported, since the key set of this collection is fixed when it is built.
+   *
+   * @throws UnsupportedOperationException always
+   */
+  @Override
+  public void clear() {
+    throw new UnsupportedOperationException("PerfectHashMap is read-only");
+  }
+
+  /**
+   * Retrieves the number of keys stored in this collection.
+   *
+   * @return the number of keys stored in this collection
+   */
+  @Override
+  public int getSize() {
+    return keys.length;
+  }
+
+  /**
+   * Retrieves this collection's capacity.
+   *
+   * @return the size of the underlying arrays for this collection, which is the number of keys
+   */
+  @Override
+  public int getCapacity() {
+    return keys.length;
+  }
+
+  /**
+   * Creates an iterator over the key,value pairs stored in this collection, in slot order.
+   *
+   * @return an iterator over the entries of this collection
+   */
+  @Override
+  public Iterator<Map.Entry<KeyType, ValueType>> entryIterator() {
+    return new Iterator<Map.Entry<KeyType, ValueType>>() {
+      private int index = 0;
+
+      @Override
+      public boolean hasNext() {
+        return index < keys.length;
+      }
+
+      @Override
+      @SuppressWarnings("unchecked")
+      public Map.Entry<KeyType, ValueType> next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException("no more entries");
+        }
+        Map.Entry<KeyType, ValueType> entry = new AbstractMap.SimpleImmutableEntry<>(
+            (KeyType) keys[index], (ValueType) values[index]);
+        index++;
+        return entry;
+      }
+    };
+  }
+
+  /**
+   * Writes this collection to a file, from which load can read it back without rebuilding it.
+   *
+   * @param file the file to write
+   * @throws IOException if the file can't be written, or a key or value isn't Serializable
+   */
+  public void save(Path file) throws IOException {
+    try (ObjectOutputStream out = new ObjectOutputStream(Files.newOutputStream(file))) {
+      out.writeObject(this);
+    }
+  }
+
+  /**
+   * Reads a collection that was written by save, whose keys and values are Strings or boxed
+   * primitives.
+   *
+   * @param file the file to read
+   * @return the collection stored in file
+   * @throws IOException if the file can't be read, doesn't hold a valid PerfectHashMap, or holds
+   *                     a key or value of another class
+   */
+  public static <KeyType, ValueType> PerfectHashMap<KeyType, ValueType> load(Path file)
+      throws IOException {
+    return loadHelper(file, VALUE_CLASSES);
+  }
+
+  /**
+   * Reads a collection that was written by save.
+   *
+   * @param file      the file to read
+   * @param keyType   the class of the keys stored in file
+   * @param valueType the class of the values stored in file
+   * @return the collection stored in file
+   * @throws IOException if the file can't be read, doesn't hold a valid PerfectHashMap, or holds
+   *                     a key or value that isn't a keyType or valueType
+   */
+  public static <KeyType, ValueType> PerfectHashMap<KeyType, ValueType> load(Path file,
+      Class<KeyType> keyType, Class<ValueType> valueType) throws IOException {
+    return loadHelper(file, keyType, valueType);
+  }
+
+  /**
+   * Deserializes file with a filter that rejects every class but PerfectHashMap, arrays and the
+   * allowed key and value classes, so the file can't make load instantiate anything else on the
+   * classpath
+   */
+  @SuppressWarnings("unchecked")
+  private static <KeyType, ValueType> PerfectHashMap<KeyType, ValueType> loadHelper(Path file,
+      Class<?>... allowed) throws IOException {
+    try (ObjectInputStream in = new ObjectInputStream(Files.newInputStream(file))) {
+      in.setObjectInputFilter(info -> filterHelper(info.serialClass(), allowed));
+      Object map = in.readObject();
+      if (!(map instanceof PerfectHashMap)) {
+        throw new IOException(file + " does not hold a PerfectHashMap");
+      }
+      return (PerfectHashMap<KeyType, ValueType>) map;
+    } catch (ClassNotFoundException e) {
+      throw new IOException(file + " holds a class that can't be found", e);
+    }
+  }
+
+  /**
+   * Decides whether load may deserialize an object of a class. Besides the allowed classes
+   * themselves (and their subclasses), their superclasses are accepted, since the stream
+   * describes those as well (Number for an Integer, for example).
+   * @param type the class about to be deserialized, or null for checks that aren't about a class
+   */
+  private static ObjectInputFilter.Status filterHelper(Class<?> type, Class<?>[] allowed) {
+    if (type == null) {
+      return ObjectInputFilter.Status.UNDECIDED;
+    }
+    while (type.isArray()) {
+      type = type.getComponentType();
+    }
+    if (type.isPrimitive() || type == Object.class || type == PerfectHashMap.class) {
+      return ObjectInputFilter.Status.ALLOWED;
+    }
+    for (Class<?> permitted : allowed) {
+      if (permitted.isAssignableFrom(type) || type.isAssignableFrom(permitted)) {
+        return ObjectInputFilter.Status.ALLOWED;
+      }
+    }
+    return ObjectInputFilter.Status.REJECTED;
+  }
+
+  /**
+   * Restores a collection written by save, checking that its arrays have the shape the
+   * constructor gives them, so a corrupt file fails here instead of in a later lookup
+   * @throws InvalidObjectException if the restored fields can't belong to a built map
+   */
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    if (displacements == null || keys == null || values == null) {
+      throw new InvalidObjectException("missing table arrays");
+    }
+    if (slots < 0 || slots > keys.length || keys.length != values.length
+        || (slots == 0) != (keys.length == 0)) {
+      throw new InvalidObjectException("bad table size: " + slots + " slots for " + keys.length
+          + " keys and " + values.length + " values");
+    }
+    if (displacements.length != Math.max(1, (slots + KEYS_PER_BUCKET - 1) / KEYS_PER_BUCKET)) {
+      throw new InvalidObjectException(displacements.length + " buckets for " + slots + " slots");
+    }
+    for (int displacement : displacements) {
+      if (displacement >= MAX_DISPLACEMENT || displacement < -slots) {
+        throw new InvalidObjectException("bad displacement " + displacement);
+      }
+    }
+    for (Object key : keys) {
+      if (key == null) {
+        throw new InvalidObjectException("missing key");
+      }
+    }
+  }
+
+  /**
+   * Tests that every key of a large map is found with one slot per key, that missing keys aren't,
+   * and that the map refuses to be changed
+   */
+  @Test
+  public void testBuildAndLookup() {
+    Builder<String, Integer> builder = new Builder<>();
+    for (int i = 0; i < 50000; i++) {
+      builder.put("K" + Integer.toString(i, 36).toUpperCase(), i);
+    }
+    PerfectHashMap<String, Integer> map = builder.build();
+    Assertions.assertEquals(50000, map.getSize());
+    Assertions.assertEquals(50000, map.getCapacity());
+    for (int i = 0; i < 50000; i++) {
+      Assertions.assertEquals(i, map.get("K" + Integer.toString(i, 36).toUpperCase()));
+    }
+    Assertions.assertFalse(map.containsKey("MSN"));
+    Assertions.assertNull(map.getOrNull("k0"));
+    Assertions.assertThrows(NoSuchElementException.class, () -> map.get("ORD"));
+    Assertions.assertThrows(UnsupportedOperationException.class, () -> map.put("ORD", 1));
+    Assertions.assertThrows(UnsupportedOperationException.class, () -> map.remove("K0"));
+    Assertions.assertEquals(50000,
+        map.entryStream(false).map(Map.Entry::getKey).distinct().count());
+    Assertions.assertFalse(new Builder<String, String>().build().containsKey("K0"));
+    PerfectHashMap<String, Integer> colliding = new Builder<String, Integer>()
+        .put("Aa", 1).put("BB", 2).put("AaAa", 3).put("BBBB", 4).put("AaBB", 5).build();
+    Assertions.assertEquals(2, colliding.get("BB")); // "Aa" and "BB" have the same hash code
+    Assertions.assertEquals(5, colliding.get("AaBB"));
+    Assertions.assertFalse(colliding.containsKey("BBAa"));
+    Assertions.assertEquals(5, colliding.entryStream(false).count());
+  }
+
+  /**
+   * Tests that a saved map is loaded back with the same pairs
+   */
+  @Test
+  public void testSaveAndLoad() throws IOException {
+    HashtableMap<Integer, String> pairs = new HashtableMap<>();
+    for (int i = -500; i < 500; i++) {
+      pairs.put(i * 1009, "value" + i);
+    }
+    PerfectHashMap<Integer, String> map = new Builder<Integer, String>().putAll(pairs).build();
+    Path file = Files.createTempFile("perfect", ".map");
+    try {
+      map.save(file);
+      PerfectHashMap<Integer, String> loaded = load(file);
+      for (int i = -500; i < 500; i++) {
+        Assertions.assertEquals("value" + i, loaded.get(i * 1009));
+      }
+      Assertions.assertFalse(loaded.containsKey(1));
+      Files.write(file, new byte[] {1, 2, 3});
+      Assertions.assertThrows(IOException.class, () -> load(file));
+      // a map of another value class is only loaded when the caller names that class
+      new Builder<Integer, Date>().put(1, new Date(0)).build().save(file);
+      Assertions.assertThrows(IOException.class, () -> load(file));
+      Assertions.assertEquals(new Date(0), load(file, Integer.class, Date.class).get(1));
+      try (ObjectOutputStream out = new ObjectOutputStream(Files.newOutputStream(file))) {
+        out.writeObject(new ArrayList<>(Arrays.asList(1, 2)));
+      }
+      Assertions.assertThrows(IOException.class, () -> load(file));
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  /**
+   * Tests that load rejects a saved map whose arrays don't match its slot count
+   */
+  @Test
+  public void testLoadCorrupt() throws IOException, ReflectiveOperationException {
+    Path file = Files.createTempFile("perfect", ".map");
+    try {
+      for (String field : new String[] {"slots", "displacements", "keys"}) {
+        PerfectHashMap<Integer, String> map = new Builder<Integer, String>()
+            .put(1, "one").put(2, "two").put(3, "three").build();
+        Field corrupted = PerfectHashMap.class.getDeclaredField(field);
+        corrupted.setAccessible(true);
+        if (field.equals("slots")) {
+          corrupted.setInt(map, 4);
+        } else if (field.equals("displacements")) {
+          corrupted.set(map, new int[0]);
+        } else {
+          corrupted.set(map, new Object[] {1, 2});
+        }
+        map.save(file);
+        Assertions.assertThrows(InvalidObjectException.class, () -> load(file));
+      }
+    } finally {
+      Files.delete(file);
+    }
+  }
+}
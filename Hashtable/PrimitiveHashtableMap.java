@@ -0,0 +1,157 @@
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Base class of the array-backed primitive maps (IntIntHashtableMap, IntObjHashtableMap and
+ * LongObjHashtableMap). Subclasses keep their keys and values in arrays of their own types and
+ * look keys up themselves; this class keeps track of which slots are used and does the parts of
+ * linear probing that don't depend on the key type: growing at the 75% load factor, removing
+ * without tombstones and iterating in slot order.
+ */
+abstract class PrimitiveHashtableMap<KeyType, ValueType> implements MapADT<KeyType, ValueType> {
+
+  protected int size; // number of key-value pairs stored in the map
+  protected boolean[] used; // used[i] is true when slot i holds a key (so that 0 is a valid key)
+
+  /**
+   * constructor that marks argument capacity slots as free; subclasses allocate their key and
+   * value arrays with the same length
+   * @param capacity number of slots in the underlying arrays
+   */
+  protected PrimitiveHashtableMap(int capacity) {
+    used = new boolean[capacity];
+  }
+
+  /**
+   * @return the home slot of the key stored in slot, for the current capacity
+   */
+  protected abstract int homeOf(int slot);
+
+  /**
+   * Copies the key and value stored in slot from into slot to
+   */
+  protected abstract void moveSlot(int from, int to);
+
+  /**
+   * Drops whatever the value array still holds for a slot that was just freed
+   */
+  protected void clearSlot(int slot) {
+  }
+
+  /**
+   * Replaces the key, value and used arrays with ones of twice the length, placing every entry
+   * at the first free slot of its new probe run
+   */
+  protected abstract void resizeHelper();
+
+  /**
+   * @return the key,value pair stored in a used slot
+   */
+  protected abstract Map.Entry<KeyType, ValueType> entryAt(int slot);
+
+  /**
+   * Turns the result of a subclass's probe into a lookup result
+   * @param slot the slot holding the key, or the free slot that ended its probe run
+   * @return slot if it holds the key, or -1 if the key is not stored in this collection
+   */
+  protected int usedOrMissing(int slot) {
+    return used[slot] ? slot : -1;
+  }
+
+  /**
+   * Marks a slot that a subclass has just stored a new pair in as used, and grows the table once
+   * the load factor reaches 75%
+   */
+  protected void occupy(int index) {
+    used[index] = true;
+    size++;
+    if (((double) size / used.length) >= 0.75) { // check load factor and resize if it is >= 75%
+      resizeHelper();
+    }
+  }
+
+  /**
+   * Frees slot index, shifting the later entries of its probe run back so that no tombstone is
+   * needed. Subclasses read the removed value before calling this.
+   */
+  protected void vacate(int index) {
+    int next = (index + 1) % used.length;
+    while (used[next]) {
+      if (LinearProbing.canShiftBack(index, next, homeOf(next))) {
+        moveSlot(next, index);
+        index = next;
+      }
+      next = (next + 1) % used.length;
+    }
+    used[index] = false;
+    clearSlot(index);
+    size--;
+  }
+
+  /**
+   * Removes all key,value pairs from this collection.
+   */
+  @Override
+  public void clear() {
+    size = 0;
+    for (int i = 0; i < used.length; i++) {
+      used[i] = false;
+      clearSlot(i);
+    }
+  }
+
+  /**
+   * Retrieves the number of keys stored in this collection.
+   *
+   * @return the number of keys stored in this collection
+   */
+  @Override
+  public int getSize() {
+    return size;
+  }
+
+  /**
+   * Retrieves this collection's capacity.
+   *
+   * @return the size of the underlying arrays for this collection
+   */
+  @Override
+  public int getCapacity() {
+    return used.length;
+  }
+
+  /**
+   * Creates an iterator over the key,value pairs stored in this collection, in slot order.
+   *
+   * @return an iterator over the entries of this collection
+   */
+  @Override
+  public Iterator<Map.Entry<KeyType, ValueType>> entryIterator() {
+    return new Iterator<Map.Entry<KeyType, ValueType>>() {
+      private int index = nextUsed(0);
+
+      private int nextUsed(int from) {
+        while (from < used.length && !used[from]) {
+          from++;
+        }
+        return from;
+      }
+
+      @Override
+      public boolean hasNext() {
+        return index < used.length;
+      }
+
+      @Override
+      public Map.Entry<KeyType, ValueType> next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException("no more entries");
+        }
+        Map.Entry<KeyType, ValueType> entry = entryAt(index);
+        index = nextUsed(index + 1);
+        return entry;
+      }
+    };
+  }
+}
@@ -0,0 +1,426 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Shard of a ShardedHashtableMap held by a ShardWorker process and reached over a loopback socket.
+ * Keys and values are encoded with codecs before they are sent, and each method is one round trip
+ * to the worker, including the batch methods getAll, removeAll and putAll(keys, values), which is
+ * what makes them worth using. Keys and values are all encoded before anything is written, and a
+ * response is read in full before anything is decoded, so a codec that throws leaves no partial
+ * request or response in the stream. IOExceptions are rethrown as
+ * UncheckedIOExceptions, since the methods of MapADT don't declare them.
+ */
+public class RemoteShard<KeyType, ValueType>
+    implements ShardedHashtableMap.Shard<KeyType, ValueType>, AutoCloseable {
+
+  private static final long START_TIMEOUT_SECONDS = 30; // for a new worker to report its port
+
+  private final Codec<KeyType> keyCodec;
+  private final Codec<ValueType> valueCodec;
+  private final Socket socket;
+  private final DataInputStream in;
+  private final DataOutputStream out;
+  private final Process process; // the worker started by start, or null
+  private long roundTrips; // number of requests sent to the worker
+
+  /**
+   * constructor that connects to a ShardWorker already listening on a loopback port
+   * @param port the port the worker printed
+   * @param keyCodec encodes the keys
+   * @param valueCodec encodes the values
+   * @throws IOException if the worker can't be reached
+   */
+  public RemoteShard(int port, Codec<KeyType> keyCodec, Codec<ValueType> valueCodec)
+      throws IOException {
+    this(port, keyCodec, valueCodec, null);
+  }
+
+  private RemoteShard(int port, Codec<KeyType> keyCodec, Codec<ValueType> valueCodec,
+      Process process) throws IOException {
+    this.keyCodec = keyCodec;
+    this.valueCodec = valueCodec;
+    this.process = process;
+    socket = new Socket(InetAddress.getLoopbackAddress(), port);
+    socket.setTcpNoDelay(true);
+    in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+    out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+  }
+
+  /**
+   * Starts a ShardWorker in a new JVM, with the classpath this class was loaded from, and connects
+   * to it. The worker exits when this shard is closed.
+   *
+   * @param keyCodec encodes the keys
+   * @param valueCodec encodes the values
+   * @return a shard held by the new worker
+   * @throws IOException if the worker can't be started or reached, or doesn't report its port
+   *                     within START_TIMEOUT_SECONDS
+   */
+  public static <KeyType, ValueType> RemoteShard<KeyType, ValueType> start(
+      Codec<KeyType> keyCodec, Codec<ValueType> valueCodec) throws IOException {
+    String classPath;
+    try {
+      classPath = Path.of(ShardWorker.class.getProtectionDomain().getCodeSource().getLocation()
+          .toURI()) + File.pathSeparator + System.getProperty("java.class.path");
+    } catch (URISyntaxException e) {
+      throw new IOException(e);
+    }
+    Process process = new ProcessBuilder(
+        Path.of(System.getProperty("java.home"), "bin", "java").toString(), "-cp", classPath,
+        "ShardWorker").redirectError(ProcessBuilder.Redirect.INHERIT).start();
+    BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream(),
+        StandardCharsets.UTF_8));
+    // readLine can't time out by itself, so it runs on a daemon thread that the wait below bounds;
+    // destroying the worker closes its output, which ends that thread too
+    FutureTask<String> portLine = new FutureTask<>(output::readLine);
+    Thread reader = new Thread(portLine, "shard worker port reader");
+    reader.setDaemon(true);
+    reader.start();
+    String port;
+    try {
+      port = portLine.get(START_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    } catch (TimeoutException e) {
+      process.destroyForcibly();
+      throw new IOException("shard worker didn't report its port within "
+          + START_TIMEOUT_SECONDS + " seconds");
+    } catch (ExecutionException e) {
+      process.destroyForcibly();
+      throw new IOException("could not read the shard worker's port", e.getCause());
+    } catch (InterruptedException e) {
+      process.destroyForcibly();
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("interrupted while starting a shard worker");
+    }
+    if (port == null) {
+      process.destroy();
+      throw new IOException("shard worker exited before reporting its port");
+    }
+    try {
+      return new RemoteShard<>(Integer.parseInt(port.trim()), keyCodec, valueCodec, process);
+    } catch (IOException | RuntimeException e) {
+      process.destroy();
+      throw e;
+    }
+  }
+
+  private static <T> ByteBuffer encodeHelper(Codec<T> codec, T value) {
+    if (value == null) {
+      return null;
+    }
+    ByteBuffer buffer = ByteBuffer.allocate(codec.encodedLength(value));
+    codec.encode(value, buffer);
+    return buffer.flip();
+  }
+
+  private static <T> T decodeHelper(Codec<T> codec, ByteBuffer bytes) {
+    return bytes == null ? null : codec.decode(bytes, bytes.remaining());
+  }
+
+  /**
+   * Starts a request: checks that the shard is open and writes the operation byte
+   */
+  private void beginHelper(byte operation) throws IOException {
+    if (socket.isClosed()) {
+      throw new IllegalStateException("shard is closed");
+    }
+    roundTrips++;
+    out.writeByte(operation);
+  }
+
+  /**
+   * Sends the request written so far and reads the status of the response
+   * @throws IllegalArgumentException if the worker rejected a key as a duplicate
+   * @throws IllegalStateException if the worker failed to carry out the request
+   */
+  private void finishHelper() throws IOException {
+    out.flush();
+    byte status = in.readByte();
+    if (status == ShardWorker.ILLEGAL_ARGUMENT) {
+      throw new IllegalArgumentException(in.readUTF());
+    } else if (status != ShardWorker.OK) {
+      throw new IllegalStateException("shard worker failed: " + in.readUTF());
+    }
+  }
+
+  /**
+   * Sends a GET_ALL or REMOVE_ALL request
+   * @return the values of the keys in order, each wrapped in a one element list, or null for keys
+   *         that weren't found
+   */
+  private synchronized List<List<ValueType>> lookupHelper(byte operation,
+      Collection<? extends KeyType> keys) {
+    List<ByteBuffer> encoded = new ArrayList<>(keys.size());
+    for (KeyType key : keys) {
+      encoded.add(encodeHelper(keyCodec, key));
+    }
+    try {
+      beginHelper(operation);
+      out.writeInt(encoded.size());
+      for (ByteBuffer key : encoded) {
+        ShardWorker.writeBytes(out, key);
+      }
+      finishHelper();
+      int count = in.readInt();
+      boolean[] found = new boolean[count];
+      ByteBuffer[] results = new ByteBuffer[count];
+      for (int i = 0; i < count; i++) {
+        found[i] = in.readBoolean();
+        results[i] = found[i] ? ShardWorker.readBytes(in) : null;
+      }
+      // the whole response has been read, so a codec that throws can't desync the stream
+      List<List<ValueType>> values = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        values.add(found[i] ? Arrays.asList(decodeHelper(valueCodec, results[i])) : null);
+      }
+      return values;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Adds a new key,value pair/mapping to this collection.
+   *
+   * @param key   the key of the key,value pair
+   * @param value the value that key maps to
+   * @throws IllegalArgumentException if key already maps to a value
+   * @throws NullPointerException     if key is null
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public void put(KeyType key, ValueType value) throws IllegalArgumentException {
+    putAll((KeyType[]) new Object[] {key}, (ValueType[]) new Object[] {value});
+  }
+
+  /**
+   * Adds the pairs keys[i],values[i] to this collection in one round trip.
+   *
+   * @param keys   the keys to add
+   * @param values the values that the keys map to, in the same order
+   * @throws IllegalArgumentException if the arrays differ in length (nothing is added), or if a
+   *                                  key already maps to a value (the pairs before it have been
+   *                                  added)
+   * @throws NullPointerException     if a key is null (nothing is added)
+   */
+  @Override
+  public synchronized void putAll(KeyType[] keys, ValueType[] values) {
+    if (keys.length != values.length) {
+      throw new IllegalArgumentException("keys and values have different lengths");
+    }
+    ByteBuffer[] encodedKeys = new ByteBuffer[keys.length];
+    ByteBuffer[] encodedValues = new ByteBuffer[values.length];
+    for (int i = 0; i < keys.length; i++) {
+      if (keys[i] == null) {
+        throw new NullPointerException("key is null");
+      }
+      encodedKeys[i] = encodeHelper(keyCodec, keys[i]);
+      encodedValues[i] = encodeHelper(valueCodec, values[i]);
+    }
+    try {
+      beginHelper(ShardWorker.PUT_ALL);
+      out.writeInt(keys.length);
+      for (int i = 0; i < keys.length; i++) {
+        ShardWorker.writeBytes(out, encodedKeys[i]);
+        ShardWorker.writeBytes(out, encodedValues[i]);
+      }
+      finishHelper();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public synchronized boolean containsKey(KeyType key) {
+    if (key == null) {
+      return false;
+    }
+    ByteBuffer encoded = encodeHelper(keyCodec, key);
+    try {
+      beginHelper(ShardWorker.CONTAINS);
+      ShardWorker.writeBytes(out, encoded);
+      finishHelper();
+      return in.readBoolean();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public ValueType get(KeyType key) throws NoSuchElementException {
+    List<ValueType> value = key == null ? null : lookupHelper(ShardWorker.GET_ALL,
+        List.of(key)).get(0);
+    if (value == null) {
+      throw new NoSuchElementException("key is not stored in this collection");
+    }
+    return value.get(0);
+  }
+
+  @Override
+  public ValueType getOrDefault(KeyType key, ValueType defaultValue) {
+    List<ValueType> value = key == null ? null : lookupHelper(ShardWorker.GET_ALL,
+        List.of(key)).get(0);
+    return value == null ? defaultValue : value.get(0);
+  }
+
+  /**
+   * Looks up several keys in one round trip
+   *
+   * @param keys the keys to look up
+   * @return a new collection holding the pairs of the keys that are stored in this shard
+   */
+  @Override
+  public MapADT<KeyType, ValueType> getAll(Collection<? extends KeyType> keys) {
+    List<List<ValueType>> values = lookupHelper(ShardWorker.GET_ALL, keys);
+    HashtableMap<KeyType, ValueType> found = new HashtableMap<>();
+    found.ensureCapacity(keys.size());
+    Iterator<List<ValueType>> value = values.iterator();
+    for (KeyType key : keys) {
+      List<ValueType> next = value.next();
+      if (next != null) {
+        found.putIfAbsent(key, next.get(0));
+      }
+    }
+    return found;
+  }
+
+  @Override
+  public ValueType remove(KeyType key) throws NoSuchElementException {
+    List<ValueType> value = key == null ? null : lookupHelper(ShardWorker.REMOVE_ALL,
+        List.of(key)).get(0);
+    if (value == null) {
+      throw new NoSuchElementException("key is not stored in this collection");
+    }
+    return value.get(0);
+  }
+
+  @Override
+  public ValueType removeIfPresent(KeyType key) {
+    List<ValueType> value = key == null ? null : lookupHelper(ShardWorker.REMOVE_ALL,
+        List.of(key)).get(0);
+    return value == null ? null : value.get(0);
+  }
+
+  /**
+   * Removes several keys in one round trip, skipping those that aren't stored in this shard
+   *
+   * @param keys the keys to remove
+   */
+  @Override
+  public void removeAll(Collection<? extends KeyType> keys) {
+    lookupHelper(ShardWorker.REMOVE_ALL, keys);
+  }
+
+  @Override
+  public synchronized void clear() {
+    try {
+      beginHelper(ShardWorker.CLEAR);
+      finishHelper();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Asks the worker for its size and capacity
+   */
+  private synchronized int[] sizeHelper() {
+    try {
+      beginHelper(ShardWorker.SIZE);
+      finishHelper();
+      return new int[] {in.readInt(), in.readInt()};
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public int getSize() {
+    return sizeHelper()[0];
+  }
+
+  @Override
+  public int getCapacity() {
+    return sizeHelper()[1];
+  }
+
+  /**
+   * Creates an iterator over a copy of the pairs stored in this collection, which are fetched in
+   * one round trip when the iterator is created. Writes made while it is in use don't affect it.
+   *
+   * @return an iterator over the entries of this collection
+   */
+  @Override
+  public synchronized Iterator<Map.Entry<KeyType, ValueType>> entryIterator() {
+    try {
+      beginHelper(ShardWorker.ENTRIES);
+      finishHelper();
+      int count = in.readInt();
+      ByteBuffer[] encoded = new ByteBuffer[2 * count]; // key, then value
+      for (int i = 0; i < encoded.length; i++) {
+        encoded[i] = ShardWorker.readBytes(in);
+      }
+      List<Map.Entry<KeyType, ValueType>> entries = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        entries.add(new AbstractMap.SimpleImmutableEntry<>(
+            decodeHelper(keyCodec, encoded[2 * i]), decodeHelper(valueCodec, encoded[2 * i + 1])));
+      }
+      return entries.iterator();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * @return the number of requests sent to the worker so far
+   */
+  public synchronized long getRoundTrips() {
+    return roundTrips;
+  }
+
+  /**
+   * Closes the connection, which makes the worker exit, and waits for a worker started by start
+   * to do so
+   *
+   * @throws IOException if closing the connection fails
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    socket.close();
+    if (process != null) {
+      try {
+        if (!process.waitFor(10, TimeUnit.SECONDS)) {
+          process.destroyForcibly();
+        }
+      } catch (InterruptedException e) {
+        process.destroyForcibly();
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
@@ -0,0 +1,427 @@
+import java.util.AbstractMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Implementation of MapADT using open addressing with Robin Hood hashing. Keys, values and cached
+ * hash codes are kept in parallel arrays (no Pair or linked list node per entry), and removal uses
+ * backward-shift deletion so no tombstones are ever left behind in the table.
+ */
+public class RobinHoodHashtableMap<KeyType, ValueType> implements MapADT<KeyType, ValueType> {
+
+  private int size; // number of key-value pairs stored in the RobinHoodHashtableMap
+  protected Object[] keys; // keys[i] == null means slot i is empty
+  protected Object[] values;
+  protected int[] hashes; // cached spread hash code of the key stored in each slot
+
+  /**
+   * constructor that instantiates the arrays with argument capacity
+   * @param capacity number of slots in the underlying arrays
+   */
+  public RobinHoodHashtableMap(int capacity) {
+    keys = new Object[capacity];
+    values = new Object[capacity];
+    hashes = new int[capacity];
+  }
+
+  /**
+   * Default constructor that instantiates arrays with default capacity of 32
+   */
+  public RobinHoodHashtableMap() { // with default capacity = 32
+    this(32);
+  }
+
+  /**
+   * Spreads a key's hash code with murmur3's finalizer. Robin Hood probing degrades badly when home
+   * slots cluster, which sequential or poorly distributed hash codes would otherwise cause.
+   * @param key the key to hash
+   * @return the mixed hash code of key
+   */
+  private static int spread(Object key) {
+    int hash = key.hashCode();
+    hash = (hash ^ (hash >>> 16)) * 0x85EBCA6B;
+    hash = (hash ^ (hash >>> 13)) * 0xC2B2AE35;
+    return hash ^ (hash >>> 16);
+  }
+
+  /**
+   * Calculates the home slot (the slot a key would occupy with no collisions) for a hash code
+   * @param hash the hash code of the key
+   * @param capacity the number of slots in the table
+   * @return the home slot of the hash code
+   */
+  private static int homeIndex(int hash, int capacity) {
+    return (hash & 0x7fffffff) % capacity;
+  }
+
+  /**
+   * Calculates how far the entry stored at index is from its home slot
+   * @param index the slot holding the entry
+   * @return the number of slots between the entry and its home slot
+   */
+  private int probeDistance(int index) {
+    int home = homeIndex(hashes[index], keys.length);
+    return index >= home ? index - home : index + keys.length - home;
+  }
+
+  /**
+   * Finds the slot that holds key
+   * @param key the key to look up
+   * @return the index of the slot holding key, or -1 if key is not stored in this collection
+   */
+  private int findIndex(KeyType key) {
+    int hash = spread(key);
+    int index = homeIndex(hash, keys.length);
+    // walk the probe sequence until we reach an empty slot or an entry that is closer to its home
+    // than we are to ours (Robin Hood invariant: key would have displaced that entry if present)
+    for (int distance = 0; keys[index] != null; distance++) {
+      if (probeDistance(index) < distance) {
+        return -1;
+      }
+      if (hashes[index] == hash && keys[index].equals(key)) {
+        return index;
+      }
+      index = (index + 1) % keys.length;
+    }
+    return -1;
+  }
+
+  /**
+   * Places an entry that is known not to be in the table, displacing entries that are closer to
+   * their home slots than the entry being inserted is to its own
+   */
+  private void insertHelper(Object key, Object value, int hash) {
+    int index = homeIndex(hash, keys.length);
+    int distance = 0;
+    while (keys[index] != null) {
+      int existingDistance = probeDistance(index);
+      if (existingDistance < distance) {
+        // steal the slot from the "richer" entry and continue inserting the evicted one
+        Object tempKey = keys[index];
+        Object tempValue = values[index];
+        int tempHash = hashes[index];
+        keys[index] = key;
+        values[index] = value;
+        hashes[index] = hash;
+        key = tempKey;
+        value = tempValue;
+        hash = tempHash;
+        distance = existingDistance;
+      }
+      index = (index + 1) % keys.length;
+      distance++;
+    }
+    keys[index] = key;
+    values[index] = value;
+    hashes[index] = hash;
+  }
+
+  /**
+   * Dynamically grows the table by doubling its capacity and reinserting every entry (whenever
+   * load factor becomes greater than or equal to 75%)
+   */
+  private void resizeHelper() {
+    Object[] oldKeys = keys;
+    Object[] oldValues = values;
+    int[] oldHashes = hashes;
+    keys = new Object[oldKeys.length * 2];
+    values = new Object[oldKeys.length * 2];
+    hashes = new int[oldKeys.length * 2];
+    // every key is already known to be unique, so skip the duplicate check done by put
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != null) {
+        insertHelper(oldKeys[i], oldValues[i], oldHashes[i]);
+      }
+    }
+  }
+
+  /**
+   * Adds a new key,value pair/mapping to this collection.
+   *
+   * @param key   the key of the key,value pair
+   * @param value the value that key maps to
+   * @throws IllegalArgumentException if key already maps to a value
+   * @throws NullPointerException     if key is null
+   */
+  @Override
+  public void put(KeyType key, ValueType value) throws IllegalArgumentException {
+    if (key == null) {
+      throw new NullPointerException("key is null");
+    } else if (findIndex(key) != -1) {
+      throw new IllegalArgumentException("key already maps to a value");
+    }
+    insertHelper(key, value, spread(key));
+    size++;
+    if (((double) size / keys.length) >= 0.75) { // check load factor and resize if it is >= 75%
+      this.resizeHelper();
+    }
+  }
+
+  /**
+   * Checks whether a key maps to a value in this collection.
+   *
+   * @param key the key to check
+   * @return true if the key maps to a value, and false is the key doesn't map to a value
+   */
+  @Override
+  public boolean containsKey(KeyType key) {
+    return findIndex(key) != -1;
+  }
+
+  /**
+   * Retrieves the specific value that a key maps to.
+   *
+   * @param key the key to look up
+   * @return the value that key maps to
+   * @throws NoSuchElementException when key is not stored in this collection
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public ValueType get(KeyType key) throws NoSuchElementException {
+    int index = findIndex(key);
+    if (index == -1) {
+      throw new NoSuchElementException("key is not stored in this collection");
+    }
+    return (ValueType) values[index];
+  }
+
+  /**
+   * Remove the mapping for a key from this collection. Entries following the removed one in its
+   * probe sequence are shifted back by one slot, so no tombstone is needed.
+   *
+   * @param key the key whose mapping to remove
+   * @return the value that the removed key mapped to
+   * @throws NoSuchElementException when key is not stored in this collection
+   */
+  @Override
+  public ValueType remove(KeyType key) throws NoSuchElementException {
+    int index = findIndex(key);
+    if (index == -1) {
+      throw new NoSuchElementException("key is not stored in this collection");
+    }
+    return removeAt(index);
+  }
+
+  /**
+   * Retrieves the value that a key maps to, or a default when the key is not stored in this
+   * collection, using a single probe sequence.
+   *
+   * @param key          the key to look up
+   * @param defaultValue the value to return when key is not stored in this collection
+   * @return the value that key maps to, or defaultValue
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public ValueType getOrDefault(KeyType key, ValueType defaultValue) {
+    int index = findIndex(key);
+    return index == -1 ? defaultValue : (ValueType) values[index];
+  }
+
+  /**
+   * Removes the mapping for a key from this collection if there is one, using a single probe
+   * sequence.
+   *
+   * @param key the key whose mapping to remove
+   * @return the value that the removed key mapped to, or null if key was not in this collection
+   */
+  @Override
+  public ValueType removeIfPresent(KeyType key) {
+    int index = findIndex(key);
+    return index == -1 ? null : removeAt(index);
+  }
+
+  /**
+   * Removes the entry stored at index using backward-shift deletion
+   * @param index the slot of the entry to remove
+   * @return the value of the removed entry
+   */
+  @SuppressWarnings("unchecked")
+  private ValueType removeAt(int index) {
+    ValueType removed = (ValueType) values[index];
+    // backward-shift deletion: pull each following displaced entry one slot closer to its home
+    int next = (index + 1) % keys.length;
+    while (keys[next] != null && probeDistance(next) > 0) {
+      keys[index] = keys[next];
+      values[index] = values[next];
+      hashes[index] = hashes[next];
+      index = next;
+      next = (next + 1) % keys.length;
+    }
+    keys[index] = null;
+    values[index] = null;
+    hashes[index] = 0;
+    size--;
+    return removed;
+  }
+
+  /**
+   * Removes all key,value pairs from this collection.
+   */
+  @Override
+  public void clear() {
+    size = 0;
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = null;
+      values[i] = null;
+      hashes[i] = 0;
+    }
+  }
+
+  /**
+   * Retrieves the number of keys stored in this collection.
+   *
+   * @return the number of keys stored in this collection
+   */
+  @Override
+  public int getSize() {
+    return size;
+  }
+
+  /**
+   * Retrieves this collection's capacity.
+   *
+   * @return the size of the underlying arrays for this collection
+   */
+  @Override
+  public int getCapacity() {
+    return keys.length;
+  }
+
+  /**
+   * Creates an iterator over the key,value pairs stored in this collection, in slot order.
+   *
+   * @return an iterator over the entries of this collection
+   */
+  @Override
+  public Iterator<Map.Entry<KeyType, ValueType>> entryIterator() {
+    return new Iterator<Map.Entry<KeyType, ValueType>>() {
+      private int index = nextUsed(0);
+
+      private int nextUsed(int from) {
+        while (from < keys.length && keys[from] == null) {
+          from++;
+        }
+        return from;
+      }
+
+      @Override
+      public boolean hasNext() {
+        return index < keys.length;
+      }
+
+      @Override
+      @SuppressWarnings("unchecked")
+      public Map.Entry<KeyType, ValueType> next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException("no more entries");
+        }
+        Map.Entry<KeyType, ValueType> entry = new AbstractMap.SimpleImmutableEntry<>(
+            (KeyType) keys[index], (ValueType) values[index]);
+        index = nextUsed(index + 1);
+        return entry;
+      }
+    };
+  }
+
+  /**
+   * Tests that the map resizes at the same 75% load factor as HashtableMap, and that all entries
+   * can still be found after they are reinserted
+   */
+  @Test
+  public void testResizing() {
+    RobinHoodHashtableMap<String, Integer> map = new RobinHoodHashtableMap<>(4);
+    map.put("test", 1);
+    map.put("hello", 2);
+    Assertions.assertEquals(4, map.getCapacity());
+    map.put("test2", 9);
+    map.put("test3", 8);
+    Assertions.assertEquals(8, map.getCapacity());
+    Assertions.assertEquals(4, map.getSize());
+    Assertions.assertEquals(1, map.get("test"));
+    Assertions.assertEquals(2, map.get("hello"));
+    Assertions.assertEquals(9, map.get("test2"));
+    Assertions.assertEquals(8, map.get("test3"));
+  }
+
+  /**
+   * Tests duplicate and null key insertion, and lookups of keys that are not in the map
+   */
+  @Test
+  public void testPutAndGetCases() {
+    RobinHoodHashtableMap<Integer, String> map = new RobinHoodHashtableMap<>(10);
+    map.put(17, "one");
+    map.put(28, "two");
+    map.put(77, "three");
+    Assertions.assertThrows(IllegalArgumentException.class, () -> map.put(17, "four"));
+    Assertions.assertThrows(NullPointerException.class, () -> map.put(null, "five"));
+    Assertions.assertEquals("three", map.get(77));
+    Assertions.assertThrows(NoSuchElementException.class, () -> map.get(27));
+    Assertions.assertThrows(NoSuchElementException.class, () -> map.remove(27));
+  }
+
+  /**
+   * Tests that backward-shift deletion keeps every colliding key reachable: the keys are picked so
+   * that the first 100 all have home slot 0 and the next 100 home slot 1 in a table of capacity
+   * 1000, which makes them one long probe run
+   */
+  @Test
+  public void testRemoveWithCollisions() {
+    int[] zero = new int[100];
+    int[] one = new int[100];
+    for (int key = 0, zeros = 0, ones = 0; zeros < 100 || ones < 100; key++) {
+      int home = homeIndex(spread(key), 1000);
+      if (home == 0 && zeros < 100) {
+        zero[zeros++] = key;
+      } else if (home == 1 && ones < 100) {
+        one[ones++] = key;
+      }
+    }
+    RobinHoodHashtableMap<Integer, Integer> map = new RobinHoodHashtableMap<>(1000);
+    for (int i = 0; i < 100; i++) {
+      map.put(zero[i], i);
+      map.put(one[i], -i);
+    }
+    Assertions.assertEquals(1000, map.getCapacity()); // no resize broke up the run
+    // remove every other colliding key, then check the rest were shifted into reachable slots
+    for (int i = 0; i < 100; i += 2) {
+      Assertions.assertEquals(i, map.remove(zero[i]));
+    }
+    for (int i = 0; i < 100; i++) {
+      Assertions.assertEquals(i % 2 == 1, map.containsKey(zero[i]));
+      Assertions.assertEquals(-i, map.get(one[i]));
+    }
+    for (int i = 1; i < 100; i += 2) {
+      Assertions.assertEquals(i, map.get(zero[i]));
+    }
+    Assertions.assertEquals(150, map.getSize());
+  }
+
+  /**
+   * Tests put, get and remove on a large map, including keys with negative hash codes
+   */
+  @Test
+  public void testLargeMap() {
+    RobinHoodHashtableMap<Integer, String> map = new RobinHoodHashtableMap<>();
+    for (int i = -5000; i < 5000; i++) {
+      map.put(i, Integer.toString(i));
+    }
+    map.put(Integer.MIN_VALUE, "min");
+    for (int i = -5000; i < 5000; i++) {
+      Assertions.assertEquals(Integer.toString(i), map.get(i));
+    }
+    Assertions.assertEquals(10001, map.entryStream(false)
+        .filter(entry -> entry.getValue().equals(entry.getKey() == Integer.MIN_VALUE
+            ? "min" : Integer.toString(entry.getKey()))).count());
+    for (int i = -5000; i < 5000; i++) {
+      Assertions.assertEquals(Integer.toString(i), map.remove(i));
+    }
+    Assertions.assertEquals("min", map.get(Integer.MIN_VALUE));
+    Assertions.assertEquals(1, map.getSize());
+    map.clear();
+    Assertions.assertFalse(map.containsKey(Integer.MIN_VALUE));
+    Assertions.assertEquals(0, map.getSize());
+  }
+}
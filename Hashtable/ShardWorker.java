@@ -0,0 +1,180 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Worker process that holds one shard of a ShardedHashtableMap in its own heap. It listens on an
+ * ephemeral loopback port, prints the port on the first line of its standard output, serves the
+ * one RemoteShard that connects, and exits when that connection is closed.
+ *
+ * The worker never sees the key and value types: the client encodes them with its codecs, and the
+ * worker stores the encoded bytes in a HashtableMap keyed by ByteBuffer (whose equals and hashCode
+ * compare contents). Every request is an operation byte followed by its arguments, and every
+ * response starts with a status byte; byte arrays are sent as a length followed by the bytes, with
+ * a length of -1 for null. A result is computed in full before its status is written, so a request
+ * that fails sends a FAILED status in place of the whole response.
+ */
+public class ShardWorker {
+
+  // operations
+  static final byte PUT_ALL = 1; // count, then count keys and values; no result
+  static final byte GET_ALL = 2; // count, then count keys; count, then found flag and value each
+  static final byte REMOVE_ALL = 3; // same arguments and result as GET_ALL, but removes the keys
+  static final byte CONTAINS = 4; // key; boolean
+  static final byte SIZE = 5; // no arguments; size and capacity
+  static final byte CLEAR = 6; // no arguments; no result
+  static final byte ENTRIES = 7; // no arguments; count, then count keys and values
+
+  // statuses, the last two followed by a message
+  static final byte OK = 0;
+  static final byte ILLEGAL_ARGUMENT = 1;
+  static final byte FAILED = 2;
+
+  private final HashtableMap<ByteBuffer, ByteBuffer> map = new HashtableMap<>();
+
+  public static void main(String[] args) throws IOException {
+    try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+      System.out.println(server.getLocalPort());
+      System.out.flush();
+      try (Socket socket = server.accept()) {
+        socket.setTcpNoDelay(true);
+        new ShardWorker().serve(
+            new DataInputStream(new BufferedInputStream(socket.getInputStream())),
+            new DataOutputStream(new BufferedOutputStream(socket.getOutputStream())));
+      }
+    }
+  }
+
+  /**
+   * Answers requests until the client closes the connection
+   */
+  private void serve(DataInputStream in, DataOutputStream out) throws IOException {
+    for (int operation = in.read(); operation >= 0; operation = in.read()) {
+      try {
+        switch (operation) {
+          case PUT_ALL:
+            putAllHelper(in, out);
+            break;
+          case GET_ALL:
+          case REMOVE_ALL:
+            int count = in.readInt();
+            ByteBuffer[] keys = new ByteBuffer[count];
+            for (int i = 0; i < count; i++) {
+              keys[i] = readBytes(in);
+            }
+            // look up every key before writing, so that a failure can't leave half a response
+            boolean[] found = new boolean[count];
+            ByteBuffer[] values = new ByteBuffer[count];
+            for (int i = 0; i < count; i++) {
+              found[i] = map.containsKey(keys[i]);
+              if (found[i]) {
+                values[i] = operation == GET_ALL ? map.get(keys[i]) : map.remove(keys[i]);
+              }
+            }
+            out.writeByte(OK);
+            out.writeInt(count);
+            for (int i = 0; i < count; i++) {
+              out.writeBoolean(found[i]);
+              if (found[i]) {
+                writeBytes(out, values[i]);
+              }
+            }
+            break;
+          case CONTAINS:
+            boolean contains = map.containsKey(readBytes(in));
+            out.writeByte(OK);
+            out.writeBoolean(contains);
+            break;
+          case SIZE:
+            out.writeByte(OK);
+            out.writeInt(map.getSize());
+            out.writeInt(map.getCapacity());
+            break;
+          case CLEAR:
+            map.clear();
+            out.writeByte(OK);
+            break;
+          case ENTRIES:
+            List<Map.Entry<ByteBuffer, ByteBuffer>> entries = new ArrayList<>(map.getSize());
+            for (Iterator<Map.Entry<ByteBuffer, ByteBuffer>> entry = map.entryIterator();
+                entry.hasNext();) {
+              entries.add(entry.next());
+            }
+            out.writeByte(OK);
+            out.writeInt(entries.size());
+            for (Map.Entry<ByteBuffer, ByteBuffer> entry : entries) {
+              writeBytes(out, entry.getKey());
+              writeBytes(out, entry.getValue());
+            }
+            break;
+          default:
+            throw new IOException("unknown operation " + operation);
+        }
+      } catch (RuntimeException e) {
+        out.writeByte(FAILED);
+        out.writeUTF(String.valueOf(e));
+      }
+      out.flush();
+    }
+  }
+
+  /**
+   * Puts the pairs of a PUT_ALL request in order. All of them are read first, so that a duplicate
+   * key leaves the stream at the next request.
+   */
+  private void putAllHelper(DataInputStream in, DataOutputStream out) throws IOException {
+    int count = in.readInt();
+    ByteBuffer[] keys = new ByteBuffer[count];
+    ByteBuffer[] values = new ByteBuffer[count];
+    for (int i = 0; i < count; i++) {
+      keys[i] = readBytes(in);
+      values[i] = readBytes(in);
+    }
+    try {
+      map.putAll(keys, values);
+      out.writeByte(OK);
+    } catch (IllegalArgumentException e) {
+      out.writeByte(ILLEGAL_ARGUMENT);
+      out.writeUTF(e.getMessage());
+    }
+  }
+
+  /**
+   * Reads a length-prefixed byte array
+   * @return the bytes wrapped in a ByteBuffer, or null if the length was -1
+   */
+  static ByteBuffer readBytes(DataInputStream in) throws IOException {
+    int length = in.readInt();
+    if (length < -1) {
+      throw new IOException("corrupted byte array length " + length);
+    } else if (length == -1) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return ByteBuffer.wrap(bytes);
+  }
+
+  /**
+   * Writes the remaining bytes of a buffer with a length prefix, or -1 if it is null
+   */
+  static void writeBytes(DataOutputStream out, ByteBuffer bytes) throws IOException {
+    if (bytes == null) {
+      out.writeInt(-1);
+      return;
+    }
+    out.writeInt(bytes.remaining());
+    out.write(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining());
+  }
+
+}
@@ -0,0 +1,693 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Implementation of MapADT that partitions its pairs across several shards, each a MapADT of its
+ * own: a LocalShard in this process, or a RemoteShard held by a worker process on the same machine.
+ * Keys are routed by consistent hashing: every shard owns many points on a ring of hashes, and a
+ * key belongs to the shard owning the first point at or after its hash. Adding a shard therefore
+ * only moves the keys that fall just before its points, about 1/n of them, and all of those come to
+ * the new shard. The batch methods (getAll and the putAll methods) group their keys by shard and
+ * hand each shard its whole group at once, which a RemoteShard sends in a single round trip.
+ */
+public class ShardedHashtableMap<KeyType, ValueType> implements MapADT<KeyType, ValueType>,
+    AutoCloseable {
+
+  /**
+   * A MapADT that can be a shard of a ShardedHashtableMap. The batch methods default to one call
+   * per key, and shards that are expensive to reach should override them.
+   */
+  public interface Shard<KeyType, ValueType> extends MapADT<KeyType, ValueType> {
+
+    /**
+     * Looks up several keys at once
+     * @param keys the keys to look up
+     * @return a new collection holding the pairs of the keys that are stored in this shard
+     */
+    default MapADT<KeyType, ValueType> getAll(Collection<? extends KeyType> keys) {
+      HashtableMap<KeyType, ValueType> found = new HashtableMap<>();
+      for (KeyType key : keys) {
+        if (containsKey(key) && !found.containsKey(key)) {
+          found.put(key, get(key));
+        }
+      }
+      return found;
+    }
+
+    /**
+     * Removes several keys at once, skipping those that aren't stored in this shard
+     * @param keys the keys to remove
+     */
+    default void removeAll(Collection<? extends KeyType> keys) {
+      for (KeyType key : keys) {
+        removeIfPresent(key);
+      }
+    }
+
+  }
+
+  /**
+   * A shard stored in this process
+   */
+  public static class LocalShard<KeyType, ValueType> extends HashtableMap<KeyType, ValueType>
+      implements Shard<KeyType, ValueType> {
+  }
+
+  // points per shard on the ring; more points spread the keys more evenly between shards
+  private static final int POINTS_PER_SHARD = 128;
+
+  private final ArrayList<Shard<KeyType, ValueType>> shards = new ArrayList<>();
+  private final HashStrategy<? super KeyType> hashStrategy;
+  private final long ringSeed; // places the points of the shards on the ring
+  private int[] ringPoints = new int[0]; // sorted hashes of the points on the ring
+  private int[] ringShards = new int[0]; // ringShards[i] is the index of the shard owning point i
+
+  /**
+   * constructor that spreads keys across the given shards
+   * @param shards the shards to use, which must be empty since keys are only routed, never looked
+   *               for in other shards
+   * @param hashStrategy computes the hash that places each key on the ring
+   * @throws IllegalArgumentException if shards is empty or one of them holds pairs
+   */
+  public ShardedHashtableMap(List<? extends Shard<KeyType, ValueType>> shards,
+      HashStrategy<? super KeyType> hashStrategy) {
+    if (hashStrategy == null) {
+      throw new NullPointerException("hashStrategy is null");
+    } else if (shards.isEmpty()) {
+      throw new IllegalArgumentException("there must be at least one shard");
+    }
+    this.hashStrategy = hashStrategy;
+    ringSeed = ThreadLocalRandom.current().nextLong();
+    for (Shard<KeyType, ValueType> shard : shards) {
+      if (shard.getSize() != 0) {
+        throw new IllegalArgumentException("shards must be empty");
+      }
+      this.shards.add(shard);
+    }
+    rebuildRing();
+  }
+
+  /**
+   * constructor that spreads keys across the given shards, hashing them with a random seed
+   * @param shards the shards to use, which must be empty
+   * @throws IllegalArgumentException if shards is empty or one of them holds pairs
+   */
+  public ShardedHashtableMap(List<? extends Shard<KeyType, ValueType>> shards) {
+    this(shards, HashStrategy.seeded());
+  }
+
+  /**
+   * constructor that creates the given number of LocalShards
+   * @param shards the number of shards
+   */
+  public ShardedHashtableMap(int shards) {
+    this(localShardsHelper(shards));
+  }
+
+  private static <KeyType, ValueType> List<Shard<KeyType, ValueType>> localShardsHelper(
+      int count) {
+    List<Shard<KeyType, ValueType>> shards = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      shards.add(new LocalShard<>());
+    }
+    return shards;
+  }
+
+  /**
+   * Places POINTS_PER_SHARD points for every shard on the ring and sorts them by hash. The points
+   * of a shard only depend on its index, so the points of the existing shards stay put when a shard
+   * is added.
+   */
+  private void rebuildRing() {
+    int[][] ring = ringHelper(shards.size());
+    ringPoints = ring[0];
+    ringShards = ring[1];
+  }
+
+  /**
+   * Builds the ring for the given number of shards without installing it
+   * @return the sorted hashes of the points, and the index of the shard owning each point
+   */
+  private int[][] ringHelper(int shardCount) {
+    long[] points = new long[shardCount * POINTS_PER_SHARD];
+    for (int shard = 0; shard < shardCount; shard++) {
+      for (int i = 0; i < POINTS_PER_SHARD; i++) {
+        long hash = mix(ringSeed + (long) shard * POINTS_PER_SHARD + i);
+        // the hash goes in the high half and the shard in the low half, so sorting orders by hash
+        points[shard * POINTS_PER_SHARD + i] = (hash & 0xFFFFFFFF00000000L) | shard;
+      }
+    }
+    Arrays.sort(points);
+    int[] hashes = new int[points.length];
+    int[] owners = new int[points.length];
+    for (int i = 0; i < points.length; i++) {
+      hashes[i] = (int) (points[i] >> 32);
+      owners[i] = (int) points[i];
+    }
+    return new int[][] {hashes, owners};
+  }
+
+  /**
+   * The finalizer of MurmurHash3 (fmix64)
+   */
+  private static long mix(long value) {
+    value = (value ^ (value >>> 33)) * 0xFF51AFD7ED558CCDL;
+    value = (value ^ (value >>> 33)) * 0xC4CEB9FE1A85EC53L;
+    return value ^ (value >>> 33);
+  }
+
+  /**
+   * Finds the index of the shard that key belongs to: the owner of the first point on the ring
+   * at or after the key's hash, wrapping around to the first point
+   */
+  private int shardIndexOf(KeyType key) {
+    return shardIndexOf(key, ringPoints, ringShards);
+  }
+
+  /**
+   * Finds the index of the shard that key belongs to on a ring built by ringHelper
+   */
+  private int shardIndexOf(KeyType key, int[] points, int[] owners) {
+    int hash = hashStrategy.hash(key);
+    int index = Arrays.binarySearch(points, hash);
+    if (index < 0) {
+      index = -index - 1; // the insertion point is the first point after hash
+    } else {
+      while (index > 0 && points[index - 1] == hash) {
+        index--; // several points can share a hash, and the first of them owns it
+      }
+    }
+    return owners[index == points.length ? 0 : index];
+  }
+
+  private Shard<KeyType, ValueType> shardOf(KeyType key) {
+    if (key == null) {
+      throw new NullPointerException("key is null");
+    }
+    return shards.get(shardIndexOf(key));
+  }
+
+  /**
+   * Adds a shard and moves to it the keys that now belong to it. Each existing shard is scanned
+   * once, and every key moving away from it is copied to the new shard in one batch per old shard.
+   * The map only starts routing keys to the new shard once all of them have been copied, and
+   * only then are they removed from the old shards. If a copy fails, the shard is not added and
+   * every key stays reachable in its old shard (the new shard may keep the copies made so far). If
+   * a removal fails, the shard is added and the old shard keeps copies that are never looked up.
+   *
+   * @param shard the shard to add, which must be empty
+   * @throws IllegalArgumentException if shard holds pairs
+   */
+  @SuppressWarnings("unchecked")
+  public void addShard(Shard<KeyType, ValueType> shard) {
+    if (shard.getSize() != 0) {
+      throw new IllegalArgumentException("shards must be empty");
+    }
+    int index = shards.size();
+    int[][] ring = ringHelper(index + 1);
+    List<List<KeyType>> moved = new ArrayList<>();
+    for (int i = 0; i < index; i++) {
+      List<KeyType> keys = new ArrayList<>();
+      List<ValueType> values = new ArrayList<>();
+      for (Iterator<Map.Entry<KeyType, ValueType>> entries = shards.get(i).entryIterator();
+          entries.hasNext();) {
+        Map.Entry<KeyType, ValueType> entry = entries.next();
+        if (shardIndexOf(entry.getKey(), ring[0], ring[1]) == index) {
+          keys.add(entry.getKey());
+          values.add(entry.getValue());
+        }
+      }
+      if (!keys.isEmpty()) {
+        shard.putAll((KeyType[]) keys.toArray(), (ValueType[]) values.toArray());
+      }
+      moved.add(keys);
+    }
+    shards.add(shard);
+    ringPoints = ring[0];
+    ringShards = ring[1];
+    for (int i = 0; i < index; i++) {
+      if (!moved.get(i).isEmpty()) {
+        shards.get(i).removeAll(moved.get(i));
+      }
+    }
+  }
+
+  /**
+   * @return the number of shards
+   */
+  public int getShardCount() {
+    return shards.size();
+  }
+
+  /**
+   * @param index the index of a shard, in the order the shards were given and added
+   * @return the shard at index
+   */
+  public Shard<KeyType, ValueType> getShard(int index) {
+    return shards.get(index);
+  }
+
+  /**
+   * Adds a new key,value pair/mapping to this collection.
+   *
+   * @param key   the key of the key,value pair
+   * @param value the value that key maps to
+   * @throws IllegalArgumentException if key already maps to a value
+   * @throws NullPointerException     if key is null
+   */
+  @Override
+  public void put(KeyType key, ValueType value) throws IllegalArgumentException {
+    shardOf(key).put(key, value);
+  }
+
+  /**
+   * Checks whether a key maps to a value in this collection.
+   *
+   * @param key the key to check
+   * @return true if the key maps to a value, and false is the key doesn't map to a value
+   */
+  @Override
+  public boolean containsKey(KeyType key) {
+    return key != null && shardOf(key).containsKey(key);
+  }
+
+  /**
+   * Retrieves the specific value that a key maps to.
+   *
+   * @param key the key to look up
+   * @return the value that key maps to
+   * @throws NoSuchElementException when key is not stored in this collection
+   */
+  @Override
+  public ValueType get(KeyType key) throws NoSuchElementException {
+    if (key == null) {
+      throw new NoSuchElementException("key is not stored in this collection");
+    }
+    return shardOf(key).get(key);
+  }
+
+  @Override
+  public ValueType getOrDefault(KeyType key, ValueType defaultValue) {
+    return key == null ? defaultValue : shardOf(key).getOrDefault(key, defaultValue);
+  }
+
+  /**
+   * Remove the mapping for a key from this collection.
+   *
+   * @param key the key whose mapping to remove
+   * @return the value that the removed key mapped to
+   * @throws NoSuchElementException when key is not stored in this collection
+   */
+  @Override
+  public ValueType remove(KeyType key) throws NoSuchElementException {
+    if (key == null) {
+      throw new NoSuchElementException("key is not stored in this collection");
+    }
+    return shardOf(key).remove(key);
+  }
+
+  @Override
+  public ValueType removeIfPresent(KeyType key) {
+    return key == null ? null : shardOf(key).removeIfPresent(key);
+  }
+
+  @Override
+  public ValueType putIfAbsent(KeyType key, ValueType value) {
+    return shardOf(key).putIfAbsent(key, value);
+  }
+
+  @Override
+  public ValueType compute(KeyType key,
+      BiFunction<? super KeyType, ? super ValueType, ? extends ValueType> remapping) {
+    return shardOf(key).compute(key, remapping);
+  }
+
+  @Override
+  public ValueType computeIfAbsent(KeyType key,
+      Function<? super KeyType, ? extends ValueType> mapping) {
+    return shardOf(key).computeIfAbsent(key, mapping);
+  }
+
+  @Override
+  public ValueType merge(KeyType key, ValueType value,
+      BiFunction<? super ValueType, ? super ValueType, ? extends ValueType> remapping) {
+    return shardOf(key).merge(key, value, remapping);
+  }
+
+  /**
+   * Looks up several keys at once, sending each shard its keys as one batch
+   *
+   * @param keys the keys to look up
+   * @return a new collection holding the pairs of the keys that are stored in this collection
+   */
+  public MapADT<KeyType, ValueType> getAll(Collection<? extends KeyType> keys) {
+    List<List<KeyType>> groups = new ArrayList<>();
+    for (int i = 0; i < shards.size(); i++) {
+      groups.add(new ArrayList<>());
+    }
+    for (KeyType key : keys) {
+      if (key != null) {
+        groups.get(shardIndexOf(key)).add(key);
+      }
+    }
+    HashtableMap<KeyType, ValueType> found = new HashtableMap<>();
+    found.ensureCapacity(keys.size());
+    for (int i = 0; i < shards.size(); i++) {
+      if (!groups.get(i).isEmpty()) {
+        found.putAll(shards.get(i).getAll(groups.get(i)));
+      }
+    }
+    return found;
+  }
+
+  /**
+   * Adds the pairs keys[i],values[i] to this collection, sending each shard its pairs as one batch.
+   *
+   * @param keys   the keys to add
+   * @param values the values that the keys map to, in the same order
+   * @throws IllegalArgumentException if the arrays differ in length (nothing is added), or if a
+   *                                  key already maps to a value (the pairs of its shard before it
+   *                                  and the pairs of other shards may have been added)
+   * @throws NullPointerException     if a key is null (nothing is added)
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public void putAll(KeyType[] keys, ValueType[] values) {
+    if (keys.length != values.length) {
+      throw new IllegalArgumentException("keys and values have different lengths");
+    }
+    List<List<Object>> groups = new ArrayList<>();
+    for (int i = 0; i < shards.size(); i++) {
+      groups.add(new ArrayList<>());
+    }
+    for (KeyType key : keys) {
+      if (key == null) {
+        throw new NullPointerException("key is null");
+      }
+    }
+    for (int i = 0; i < keys.length; i++) {
+      List<Object> group = groups.get(shardIndexOf(keys[i]));
+      group.add(keys[i]);
+      group.add(values[i]);
+    }
+    for (int i = 0; i < shards.size(); i++) {
+      List<Object> group = groups.get(i);
+      if (!group.isEmpty()) {
+        Object[] groupKeys = new Object[group.size() / 2];
+        Object[] groupValues = new Object[group.size() / 2];
+        for (int j = 0; j < groupKeys.length; j++) {
+          groupKeys[j] = group.get(2 * j);
+          groupValues[j] = group.get(2 * j + 1);
+        }
+        shards.get(i).putAll((KeyType[]) groupKeys, (ValueType[]) groupValues);
+      }
+    }
+  }
+
+  /**
+   * Adds every key,value pair of another collection to this one, sending each shard its pairs as
+   * one batch.
+   *
+   * @param other the collection whose pairs to add
+   * @throws IllegalArgumentException if a key of other already maps to a value in this collection
+   */
+  @Override
+  public void putAll(MapADT<? extends KeyType, ? extends ValueType> other) {
+    List<Map.Entry<? extends KeyType, ? extends ValueType>> entries = new ArrayList<>();
+    other.entryIterator().forEachRemaining(entries::add);
+    putAll(entries);
+  }
+
+  /**
+   * Adds every key,value pair of entries to this collection, sending each shard its pairs as one
+   * batch.
+   *
+   * @param entries the pairs to add
+   * @throws IllegalArgumentException if a key already maps to a value
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public void putAll(
+      Iterable<? extends Map.Entry<? extends KeyType, ? extends ValueType>> entries) {
+    List<Object> keys = new ArrayList<>();
+    List<Object> values = new ArrayList<>();
+    for (Map.Entry<? extends KeyType, ? extends ValueType> entry : entries) {
+      keys.add(entry.getKey());
+      values.add(entry.getValue());
+    }
+    putAll((KeyType[]) keys.toArray(), (ValueType[]) values.toArray());
+  }
+
+  /**
+   * Removes all key,value pairs from this collection.
+   */
+  @Override
+  public void clear() {
+    for (Shard<KeyType, ValueType> shard : shards) {
+      shard.clear();
+    }
+  }
+
+  /**
+   * Retrieves the number of keys stored in this collection.
+   *
+   * @return the total number of keys stored in the shards
+   */
+  @Override
+  public int getSize() {
+    int size = 0;
+    for (Shard<KeyType, ValueType> shard : shards) {
+      size += shard.getSize();
+    }
+    return size;
+  }
+
+  /**
+   * Retrieves this collection's capacity.
+   *
+   * @return the total capacity of the shards
+   */
+  @Override
+  public int getCapacity() {
+    int capacity = 0;
+    for (Shard<KeyType, ValueType> shard : shards) {
+      capacity += shard.getCapacity();
+    }
+    return capacity;
+  }
+
+  /**
+   * Creates an iterator over the pairs of every shard, one shard after another
+   *
+   * @return an iterator over the entries of this collection
+   */
+  @Override
+  public Iterator<Map.Entry<KeyType, ValueType>> entryIterator() {
+    return shards.stream().flatMap(shard -> shard.entryStream(false)).iterator();
+  }
+
+  /**
+   * Closes every shard that holds resources (such as the worker process of a RemoteShard)
+   *
+   * @throws IOException if closing a shard fails, after trying to close the others
+   */
+  @Override
+  public void close() throws IOException {
+    IOException failure = null;
+    for (Shard<KeyType, ValueType> shard : shards) {
+      try {
+        if (shard instanceof AutoCloseable) {
+          ((AutoCloseable) shard).close();
+        }
+      } catch (Exception e) {
+        if (failure == null) {
+          failure = e instanceof IOException ? (IOException) e : new IOException(e);
+        } else {
+          failure.addSuppressed(e);
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  /**
+   * A shard whose second putAll batch fails, like a RemoteShard whose worker dies part way
+   */
+  private static class FailingShard<KeyType, ValueType> extends LocalShard<KeyType, ValueType> {
+
+    private int batches;
+
+    @Override
+    public void putAll(KeyType[] keys, ValueType[] values) {
+      if (++batches > 1) {
+        throw new IllegalStateException("shard failed");
+      }
+      super.putAll(keys, values);
+    }
+
+  }
+
+  /**
+   * Tests that pairs are spread evenly across local shards, that the batch methods and the other
+   * MapADT methods reach the right shard, and that adding a shard only moves keys to it (and
+   * moves none when copying them to the new shard fails)
+   */
+  @Test
+  public void testLocalShards() {
+    ShardedHashtableMap<Integer, String> map = new ShardedHashtableMap<>(4);
+    Integer[] keys = new Integer[40000];
+    String[] values = new String[keys.length];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = i;
+      values[i] = Integer.toString(i);
+    }
+    map.putAll(keys, values);
+    Assertions.assertEquals(40000, map.getSize());
+    for (int i = 0; i < 4; i++) {
+      int size = map.getShard(i).getSize();
+      Assertions.assertTrue(size > 6000 && size < 14000, "shard " + i + " holds " + size);
+    }
+    Assertions.assertThrows(IllegalArgumentException.class, () -> map.put(5, "5"));
+    Assertions.assertThrows(NoSuchElementException.class, () -> map.get(-1));
+    Assertions.assertEquals("7", map.remove(7));
+    Assertions.assertEquals("8!", map.merge(8, "!", String::concat));
+    MapADT<Integer, String> found = map.getAll(List.of(6, 7, 8, 40000));
+    Assertions.assertEquals(2, found.getSize());
+    Assertions.assertEquals("8!", found.get(8));
+    Assertions.assertEquals(39999, map.entryStream(false).count());
+
+    int[] before = new int[4];
+    for (int i = 0; i < 4; i++) {
+      before[i] = map.getShard(i).getSize();
+    }
+    map.addShard(new LocalShard<>());
+    Assertions.assertEquals(5, map.getShardCount());
+    Assertions.assertEquals(39999, map.getSize());
+    int moved = map.getShard(4).getSize();
+    Assertions.assertTrue(moved > 4000 && moved < 12000, "new shard holds " + moved);
+    for (int i = 0; i < 4; i++) {
+      Assertions.assertTrue(map.getShard(i).getSize() <= before[i]);
+    }
+    for (int i = 0; i < keys.length; i++) {
+      Assertions.assertEquals(i != 7, map.containsKey(i));
+    }
+    Assertions.assertEquals("8!", map.get(8));
+    Assertions.assertThrows(IllegalArgumentException.class,
+        () -> map.addShard(map.getShard(0)));
+
+    // a new shard that fails after its first batch isn't added, and no key becomes unreachable
+    Assertions.assertThrows(IllegalStateException.class,
+        () -> map.addShard(new FailingShard<>()));
+    Assertions.assertEquals(5, map.getShardCount());
+    Assertions.assertEquals(39999, map.getSize());
+    for (int i = 0; i < keys.length; i++) {
+      Assertions.assertEquals(i != 7, map.containsKey(i));
+    }
+    map.clear();
+    Assertions.assertEquals(0, map.getSize());
+  }
+
+  /**
+   * Tests a ShardedHashtableMap with a local shard and worker processes: the MapADT methods and
+   * their errors, that the batch methods take one round trip per shard, that adding a remote
+   * shard moves keys to it, and that a codec that throws leaves the connection usable
+   */
+  @Test
+  public void testRemoteShards() throws IOException {
+    RemoteShard<String, Integer> first = RemoteShard.start(Codec.STRING, Codec.INTEGER);
+    RemoteShard<String, Integer> second = RemoteShard.start(Codec.STRING, Codec.INTEGER);
+    List<Shard<String, Integer>> shards =
+        List.of(new LocalShard<>(), first);
+    try (ShardedHashtableMap<String, Integer> map = new ShardedHashtableMap<>(shards)) {
+      String[] keys = new String[10000];
+      Integer[] values = new Integer[keys.length];
+      for (int i = 0; i < keys.length; i++) {
+        keys[i] = "key \u00e9" + i;
+        values[i] = i % 100 == 0 ? null : i;
+      }
+      long before = first.getRoundTrips();
+      map.putAll(keys, values);
+      Assertions.assertEquals(before + 1, first.getRoundTrips());
+      int remote = first.getSize();
+      Assertions.assertTrue(remote > 3000 && remote < 7000, "remote shard holds " + remote);
+      Assertions.assertEquals(10000, map.getSize());
+
+      before = first.getRoundTrips();
+      MapADT<String, Integer> found = map.getAll(Arrays.asList(keys).subList(0, 1000));
+      Assertions.assertEquals(before + 1, first.getRoundTrips());
+      Assertions.assertEquals(1000, found.getSize());
+      Assertions.assertNull(found.get(keys[100]));
+      Assertions.assertEquals(999, found.get(keys[999]));
+
+      Assertions.assertThrows(IllegalArgumentException.class, () -> map.put(keys[3], 3));
+      Assertions.assertThrows(NoSuchElementException.class, () -> map.get("missing"));
+      Assertions.assertThrows(NoSuchElementException.class, () -> map.remove("missing"));
+      Assertions.assertNull(map.removeIfPresent("missing"));
+      Assertions.assertEquals(4, map.remove(keys[4]));
+      Assertions.assertEquals(7, map.merge(keys[5], 2, Integer::sum));
+      Assertions.assertEquals(-1, map.getOrDefault(keys[4], -1));
+      Assertions.assertEquals(9999, map.entryStream(false).count());
+
+      map.addShard(second);
+      int moved = second.getSize();
+      Assertions.assertTrue(moved > 1500 && moved < 5000, "new shard holds " + moved);
+      Assertions.assertEquals(9999, map.getSize());
+      values[4] = -1;
+      values[5] = 7;
+      for (int i = 0; i < keys.length; i++) {
+        Assertions.assertEquals(values[i], map.getOrDefault(keys[i], -1));
+      }
+    }
+    Assertions.assertThrows(IllegalStateException.class, () -> first.getSize());
+
+    // rejects negative values part way through a batch, and can't decode 13
+    Codec<Integer> positive = new Codec<>() {
+      public int encodedLength(Integer value) {
+        if (value < 0) {
+          throw new IllegalArgumentException("value is negative");
+        }
+        return Codec.INTEGER.encodedLength(value);
+      }
+
+      public void encode(Integer value, ByteBuffer buffer) {
+        Codec.INTEGER.encode(value, buffer);
+      }
+
+      public Integer decode(ByteBuffer buffer, int length) {
+        int value = Codec.INTEGER.decode(buffer, length);
+        if (value == 13) {
+          throw new IllegalStateException("unlucky value");
+        }
+        return value;
+      }
+    };
+    try (RemoteShard<Integer, Integer> shard = RemoteShard.start(positive, positive)) {
+      Assertions.assertThrows(IllegalArgumentException.class,
+          () -> shard.putAll(new Integer[] {1, 2}, new Integer[] {1, -2}));
+      Assertions.assertThrows(IllegalArgumentException.class,
+          () -> shard.getAll(List.of(1, -1)));
+      shard.put(3, 3);
+      Assertions.assertEquals(1, shard.getSize());
+      Assertions.assertEquals(3, shard.get(3));
+      shard.putAll(new Integer[] {4, 5}, new Integer[] {13, 5});
+      Assertions.assertThrows(IllegalStateException.class, () -> shard.getAll(List.of(4, 5)));
+      Assertions.assertThrows(IllegalStateException.class, () -> shard.entryIterator());
+      Assertions.assertEquals(5, shard.get(5));
+      Assertions.assertEquals(3, shard.getSize());
+    }
+  }
+}
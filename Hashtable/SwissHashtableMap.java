@@ -0,0 +1,440 @@
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Implementation of MapADT in the style of SwissTable. Next to the key and value arrays there is
+ * one control byte per slot: EMPTY, DELETED, or (for a full slot) a 7-bit tag taken from the key's
+ * hash. Slots are probed a group of 16 at a time, and the control bytes of a group are matched
+ * against the tag eight at once using SWAR (SIMD within a register) bit tricks on longs, so keys
+ * are only compared with equals when their tag matches, and a miss usually ends at the first group
+ * without reading any keys.
+ */
+public class SwissHashtableMap<KeyType, ValueType> implements MapADT<KeyType, ValueType> {
+
+  private static final int GROUP_SIZE = 16; // slots per group, i.e. two longs of control bytes
+  private static final byte EMPTY = (byte) 0x80;
+  private static final byte DELETED = (byte) 0xFE;
+  private static final long LOW_BITS = 0x0101010101010101L; // lowest bit of every byte
+  private static final long HIGH_BITS = 0x8080808080808080L; // highest bit of every byte
+
+  private int size; // number of key-value pairs stored in the SwissHashtableMap
+  protected long[] control; // control byte of slot i is byte (i % 8) of control[i / 8]
+  protected Object[] keys;
+  protected Object[] values;
+  private int groupMask; // number of groups - 1 (the number of groups is a power of two)
+  private int growthLeft; // EMPTY slots that can still be filled before the table is rebuilt
+
+  /**
+   * constructor that instantiates the arrays with at least argument capacity
+   * @param capacity minimum number of slots (rounded up to a power of two, at least 16)
+   */
+  public SwissHashtableMap(int capacity) {
+    allocateHelper(Math.max(1, Integer.highestOneBit(Math.max(1, capacity - 1)) * 2 / GROUP_SIZE));
+  }
+
+  /**
+   * Default constructor that instantiates arrays with default capacity of 32
+   */
+  public SwissHashtableMap() { // with default capacity = 32
+    this(32);
+  }
+
+  /**
+   * Replaces the arrays with empty ones
+   * @param groups the number of groups (a power of two)
+   */
+  private void allocateHelper(int groups) {
+    control = new long[groups * 2];
+    Arrays.fill(control, LOW_BITS * (EMPTY & 0xFF));
+    keys = new Object[groups * GROUP_SIZE];
+    values = new Object[groups * GROUP_SIZE];
+    groupMask = groups - 1;
+    growthLeft = keys.length / 8 * 7; // SwissTable's maximum load factor of 7/8
+  }
+
+  /**
+   * Spreads the bits of a key's hash code, so that both the tag (low 7 bits) and the group index
+   * (the bits above them) depend on all of the hash code
+   */
+  private static int hashOf(Object key) {
+    int hash = key.hashCode() * 0x9E3779B9;
+    return hash ^ (hash >>> 16);
+  }
+
+  /**
+   * @return a mask with the high bit set in every byte of word that equals tag (a byte above a
+   *         matching one can be reported falsely, so matches still have to be checked with equals)
+   */
+  private static long matchTag(long word, int tag) {
+    long difference = word ^ (LOW_BITS * tag);
+    return (difference - LOW_BITS) & ~difference & HIGH_BITS;
+  }
+
+  /**
+   * @return a mask with the high bit set in every byte of word that is EMPTY (10000000): the high
+   *         bit is set and bit 1 is clear, which only EMPTY satisfies
+   */
+  private static long matchEmpty(long word) {
+    return word & (~word << 6) & HIGH_BITS;
+  }
+
+  /**
+   * @return a mask with the high bit set in every byte of word that is EMPTY or DELETED (11111110):
+   *         the high bit is set and bit 0 is clear
+   */
+  private static long matchEmptyOrDeleted(long word) {
+    return word & (~word << 7) & HIGH_BITS;
+  }
+
+  private byte controlOf(int slot) {
+    return (byte) (control[slot >>> 3] >>> ((slot & 7) << 3));
+  }
+
+  private void setControl(int slot, byte value) {
+    int shift = (slot & 7) << 3;
+    control[slot >>> 3] = (control[slot >>> 3] & ~(0xFFL << shift)) | ((value & 0xFFL) << shift);
+  }
+
+  private boolean groupHasEmpty(int group) {
+    return (matchEmpty(control[group * 2]) | matchEmpty(control[group * 2 + 1])) != 0;
+  }
+
+  /**
+   * Finds the slot that holds key. Groups are visited in triangular order (group, group + 1,
+   * group + 3, group + 6, ...), which reaches every group of a power-of-two table, and the search
+   * stops at the first group with an EMPTY slot since key would have been placed there.
+   * @param key the key to look up
+   * @return the index of the slot holding key, or -1 if key is not stored in this collection
+   */
+  private int findIndex(Object key) {
+    int hash = hashOf(key);
+    int tag = hash & 0x7F;
+    int group = (hash >>> 7) & groupMask;
+    for (int step = 1; ; step++) {
+      for (int word = 0; word < 2; word++) {
+        for (long match = matchTag(control[group * 2 + word], tag); match != 0;
+            match &= match - 1) {
+          int slot = group * GROUP_SIZE + word * 8 + (Long.numberOfTrailingZeros(match) >>> 3);
+          if (key.equals(keys[slot])) {
+            return slot;
+          }
+        }
+      }
+      if (groupHasEmpty(group)) {
+        return -1;
+      }
+      group = (group + step) & groupMask;
+    }
+  }
+
+  /**
+   * Finds the first EMPTY or DELETED slot on the probe sequence of a hash code
+   */
+  private int findInsertSlot(int hash) {
+    int group = (hash >>> 7) & groupMask;
+    for (int step = 1; ; step++) {
+      for (int word = 0; word < 2; word++) {
+        long match = matchEmptyOrDeleted(control[group * 2 + word]);
+        if (match != 0) {
+          return group * GROUP_SIZE + word * 8 + (Long.numberOfTrailingZeros(match) >>> 3);
+        }
+      }
+      group = (group + step) & groupMask;
+    }
+  }
+
+  /**
+   * Places an entry that is known not to be in the table, rebuilding the table first if it has
+   * run out of EMPTY slots
+   */
+  private void insertHelper(Object key, Object value) {
+    int hash = hashOf(key);
+    int slot = findInsertSlot(hash);
+    if (growthLeft == 0 && controlOf(slot) == EMPTY) {
+      resizeHelper();
+      slot = findInsertSlot(hash);
+    }
+    if (controlOf(slot) == EMPTY) {
+      growthLeft--;
+    }
+    setControl(slot, (byte) (hash & 0x7F));
+    keys[slot] = key;
+    values[slot] = value;
+  }
+
+  /**
+   * Rebuilds the table once every EMPTY slot allowed by the 7/8 load factor has been used. If
+   * deletions have left at least half of that allowance as DELETED slots, the table is rebuilt at
+   * the same capacity to clear them; otherwise its capacity is doubled.
+   */
+  private void resizeHelper() {
+    long[] oldControl = control;
+    Object[] oldKeys = keys;
+    Object[] oldValues = values;
+    int groups = groupMask + 1;
+    allocateHelper(size <= keys.length / 16 * 7 ? groups : groups * 2);
+    // every key is already known to be unique, so skip the duplicate check done by put
+    for (int slot = 0; slot < oldKeys.length; slot++) {
+      if ((byte) (oldControl[slot >>> 3] >>> ((slot & 7) << 3)) >= 0) {
+        insertHelper(oldKeys[slot], oldValues[slot]);
+      }
+    }
+  }
+
+  /**
+   * Adds a new key,value pair/mapping to this collection.
+   *
+   * @param key   the key of the key,value pair
+   * @param value the value that key maps to
+   * @throws IllegalArgumentException if key already maps to a value
+   * @throws NullPointerException     if key is null
+   */
+  @Override
+  public void put(KeyType key, ValueType value) throws IllegalArgumentException {
+    if (key == null) {
+      throw new NullPointerException("key is null");
+    } else if (findIndex(key) != -1) {
+      throw new IllegalArgumentException("key already maps to a value");
+    }
+    insertHelper(key, value);
+    size++;
+  }
+
+  /**
+   * Checks whether a key maps to a value in this collection.
+   *
+   * @param key the key to check
+   * @return true if the key maps to a value, and false is the key doesn't map to a value
+   */
+  @Override
+  public boolean containsKey(KeyType key) {
+    return findIndex(key) != -1;
+  }
+
+  /**
+   * Retrieves the specific value that a key maps to.
+   *
+   * @param key the key to look up
+   * @return the value that key maps to
+   * @throws NoSuchElementException when key is not stored in this collection
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public ValueType get(KeyType key) throws NoSuchElementException {
+    int index = findIndex(key);
+    if (index == -1) {
+      throw new NoSuchElementException("key is not stored in this collection");
+    }
+    return (ValueType) values[index];
+  }
+
+  /**
+   * Retrieves the value that a key maps to, or a default when the key is not stored in this
+   * collection, using a single probe sequence.
+   *
+   * @param key          the key to look up
+   * @param defaultValue the value to return when key is not stored in this collection
+   * @return the value that key maps to, or defaultValue
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public ValueType getOrDefault(KeyType key, ValueType defaultValue) {
+    int index = findIndex(key);
+    return index == -1 ? defaultValue : (ValueType) values[index];
+  }
+
+  /**
+   * Remove the mapping for a key from this collection.
+   *
+   * @param key the key whose mapping to remove
+   * @return the value that the removed key mapped to
+   * @throws NoSuchElementException when key is not stored in this collection
+   */
+  @Override
+  public ValueType remove(KeyType key) throws NoSuchElementException {
+    int index = findIndex(key);
+    if (index == -1) {
+      throw new NoSuchElementException("key is not stored in this collection");
+    }
+    return removeAt(index);
+  }
+
+  /**
+   * Removes the mapping for a key from this collection if there is one, using a single probe
+   * sequence.
+   *
+   * @param key the key whose mapping to remove
+   * @return the value that the removed key mapped to, or null if key was not in this collection
+   */
+  @Override
+  public ValueType removeIfPresent(KeyType key) {
+    int index = findIndex(key);
+    return index == -1 ? null : removeAt(index);
+  }
+
+  /**
+   * Empties slot index. If its group still has an EMPTY slot, no probe sequence has ever gone past
+   * the group, so the slot can become EMPTY again; otherwise it is marked DELETED so that searches
+   * keep probing past it.
+   * @param index the slot of the entry to remove
+   * @return the value of the removed entry
+   */
+  @SuppressWarnings("unchecked")
+  private ValueType removeAt(int index) {
+    ValueType removed = (ValueType) values[index];
+    keys[index] = null;
+    values[index] = null;
+    if (groupHasEmpty(index / GROUP_SIZE)) {
+      setControl(index, EMPTY);
+      growthLeft++;
+    } else {
+      setControl(index, DELETED);
+    }
+    size--;
+    return removed;
+  }
+
+  /**
+   * Removes all key,value pairs from this collection.
+   */
+  @Override
+  public void clear() {
+    size = 0;
+    allocateHelper(groupMask + 1);
+  }
+
+  /**
+   * Retrieves the number of keys stored in this collection.
+   *
+   * @return the number of keys stored in this collection
+   */
+  @Override
+  public int getSize() {
+    return size;
+  }
+
+  /**
+   * Retrieves this collection's capacity.
+   *
+   * @return the size of the underlying arrays for this collection
+   */
+  @Override
+  public int getCapacity() {
+    return keys.length;
+  }
+
+  /**
+   * Creates an iterator over the key,value pairs stored in this collection, in slot order.
+   *
+   * @return an iterator over the entries of this collection
+   */
+  @Override
+  public Iterator<Map.Entry<KeyType, ValueType>> entryIterator() {
+    return new Iterator<Map.Entry<KeyType, ValueType>>() {
+      private int index = nextUsed(0);
+
+      private int nextUsed(int from) {
+        while (from < keys.length && controlOf(from) < 0) {
+          from++;
+        }
+        return from;
+      }
+
+      @Override
+      public boolean hasNext() {
+        return index < keys.length;
+      }
+
+      @Override
+      @SuppressWarnings("unchecked")
+      public Map.Entry<KeyType, ValueType> next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException("no more entries");
+        }
+        Map.Entry<KeyType, ValueType> entry = new AbstractMap.SimpleImmutableEntry<>(
+            (KeyType) keys[index], (ValueType) values[index]);
+        index = nextUsed(index + 1);
+        return entry;
+      }
+    };
+  }
+
+  /**
+   * Tests the SWAR matchers against a byte-by-byte comparison
+   */
+  @Test
+  public void testGroupMatching() {
+    byte[] bytes = {5, EMPTY, 5, DELETED, 0x7F, 0, EMPTY, 5};
+    long word = 0;
+    for (int i = 0; i < 8; i++) {
+      word |= (bytes[i] & 0xFFL) << (i * 8);
+    }
+    Assertions.assertEquals(0x8000000000800080L, matchTag(word, 5));
+    Assertions.assertEquals(0x0080000000008000L, matchEmpty(word));
+    Assertions.assertEquals(0x0080000080008000L, matchEmptyOrDeleted(word));
+    Assertions.assertEquals(0x80L << 32, matchTag(word, 0x7F));
+  }
+
+  /**
+   * Tests put, get and remove on a large map, and that the capacity is rounded up to a power of
+   * two and doubles once the table is 7/8 full
+   */
+  @Test
+  public void testLargeMap() {
+    SwissHashtableMap<Integer, String> map = new SwissHashtableMap<>(20);
+    Assertions.assertEquals(32, map.getCapacity());
+    for (int i = 0; i < 28; i++) {
+      map.put(i, Integer.toString(i));
+    }
+    Assertions.assertEquals(32, map.getCapacity());
+    map.put(28, "28");
+    Assertions.assertEquals(64, map.getCapacity());
+    for (int i = 29; i < 100000; i++) {
+      map.put(i, Integer.toString(i));
+    }
+    map.put(Integer.MIN_VALUE, "min");
+    Assertions.assertThrows(IllegalArgumentException.class, () -> map.put(7, "seven"));
+    Assertions.assertThrows(NullPointerException.class, () -> map.put(null, "null"));
+    for (int i = 0; i < 100000; i += 2) {
+      Assertions.assertEquals(Integer.toString(i), map.remove(i));
+    }
+    for (int i = 0; i < 100000; i++) {
+      Assertions.assertEquals(i % 2 != 0, map.containsKey(i));
+    }
+    Assertions.assertEquals("min", map.get(Integer.MIN_VALUE));
+    Assertions.assertThrows(NoSuchElementException.class, () -> map.get(100000));
+    Assertions.assertEquals(50001, map.getSize());
+    Assertions.assertEquals(50001, map.entryStream(false).count());
+  }
+
+  /**
+   * Tests that a map with constant churn (every put followed later by a remove) reuses DELETED
+   * slots by rebuilding in place instead of growing without bound, including for keys whose hash
+   * codes all collide
+   */
+  @Test
+  public void testChurn() {
+    SwissHashtableMap<String, Integer> map = new SwissHashtableMap<>(64);
+    for (int i = 0; i < 100000; i++) {
+      map.put("key" + i, i);
+      if (i >= 20) {
+        Assertions.assertEquals(i - 20, map.remove("key" + (i - 20)));
+      }
+    }
+    Assertions.assertEquals(20, map.getSize());
+    Assertions.assertEquals(64, map.getCapacity());
+    SwissHashtableMap<String, Integer> colliding = new SwissHashtableMap<>();
+    for (String key : new String[] {"Aa", "BB", "AaAa", "AaBB", "BBAa", "BBBB"}) {
+      colliding.put(key, key.length()); // "Aa" and "BB" have the same hash code
+    }
+    Assertions.assertEquals(4, colliding.remove("AaBB"));
+    Assertions.assertEquals(4, colliding.get("BBBB"));
+    Assertions.assertEquals(2, colliding.get("BB"));
+    Assertions.assertFalse(colliding.containsKey("AaBB"));
+  }
+}
@@ -14,6 +14,8 @@ public class IterableMultiKeyRBT<T extends Comparable<T>> extends RedBlackTree<K
 
   private Comparable<T> startPoint; // stores the iteration start point
   private int numKeys; // stores the number of keys in tree
+  private Node<KeyListInterface<T>> firstNode; // stores the node with the smallest keys
+  private Node<KeyListInterface<T>> lastNode; // stores the node with the largest keys
   /**
    * Inserts value into tree that can store multiple objects per key by keeping lists of objects in
    * each node of the tree.
@@ -34,6 +36,14 @@ public class IterableMultiKeyRBT<T extends Comparable<T>> extends RedBlackTree<K
        this new key */
     if (duplicate == null) {
       this.insert(keyList);
+      /* rotations relink nodes without moving their data, so the nodes with the smallest and
+         largest keys only change when a new node with a smaller or larger key is inserted */
+      if (firstNode == null || keyList.compareTo(firstNode.data) < 0) {
+        firstNode = this.findNode(keyList);
+      }
+      if (lastNode == null || keyList.compareTo(lastNode.data) > 0) {
+        lastNode = this.findNode(keyList);
+      }
       return true;
     }
     // if duplicate holds a valid reference, then add key to that pre-existing KeyList
@@ -51,6 +61,36 @@ public class IterableMultiKeyRBT<T extends Comparable<T>> extends RedBlackTree<K
     return numKeys;
   }
 
+  /**
+   * Returns the smallest key in the tree. When several keys compare equal to it, the one that was
+   * inserted first is returned.
+   *
+   * @return the smallest key in the tree
+   * @throws NoSuchElementException if the tree is empty
+   */
+  @Override
+  public T first() throws NoSuchElementException {
+    if (firstNode == null) {
+      throw new NoSuchElementException("tree is empty");
+    }
+    return firstNode.data.iterator().next();
+  }
+
+  /**
+   * Returns the largest key in the tree. When several keys compare equal to it, the one that was
+   * inserted first is returned.
+   *
+   * @return the largest key in the tree
+   * @throws NoSuchElementException if the tree is empty
+   */
+  @Override
+  public T last() throws NoSuchElementException {
+    if (lastNode == null) {
+      throw new NoSuchElementException("tree is empty");
+    }
+    return lastNode.data.iterator().next();
+  }
+
   /**
    * Returns an instance of java.util.Stack containing nodes after initialization.
    * If no iteration start point is set (the field that stores the start point is set to null), the
@@ -164,6 +204,92 @@ public class IterableMultiKeyRBT<T extends Comparable<T>> extends RedBlackTree<K
     return iterator;
   }
 
+  /**
+   * Returns an instance of java.util.Stack containing nodes for a reverse in-order iteration. This
+   * mirrors getStartStack: if startPoint is null, the stack is initialized with the nodes on the
+   * path from the root node to (and including) the node with the largest key in the tree, and
+   * otherwise with all the nodes with keys equal to or smaller than startPoint along the path of
+   * the search for startPoint.
+   *
+   * @param startPoint the largest key to iterate over, or null to start at the largest key
+   * @return returns an instance of java.util.Stack containing nodes after initialization
+   */
+  protected Stack<Node<KeyListInterface<T>>> getDescendingStartStack(Comparable<T> startPoint) {
+    Stack<Node<KeyListInterface<T>>> stack = new Stack<>();
+    Node<KeyListInterface<T>> current = this.root;
+    while (current != null) {
+      /* push nodes whose keys equal or are smaller than the start point and move to their right
+         child, otherwise skip the node and move to its left child */
+      if (startPoint == null || startPoint.compareTo(current.data.iterator().next()) >= 0) {
+        stack.push(current);
+        current = current.down[1];
+      } else {
+        current = current.down[0];
+      }
+    }
+    return stack;
+  }
+
+  /**
+   * Returns an iterator that does a reverse in-order iteration over the tree, from the largest
+   * key to the smallest. It ignores the start point set by setIterationStartPoint.
+   */
+  @Override
+  public Iterator<T> descendingIterator() {
+    return descendingIterator(null);
+  }
+
+  /**
+   * Returns an iterator that does a reverse in-order iteration over the tree, starting at the
+   * start point or the key closest to it that is smaller. Keys that compare equal are returned in
+   * the order they were inserted. Creating the iterator takes O(log n) time, so iterating over the
+   * k largest keys costs O(log n + k).
+   *
+   * @param startPoint the largest key to iterate over, or null to start at the largest key
+   */
+  @Override
+  public Iterator<T> descendingIterator(Comparable<T> startPoint) {
+    return new Iterator<T>() {
+      // stores the nodes whose keys are still to be returned, the next largest on top
+      private Stack<Node<KeyListInterface<T>>> stack = getDescendingStartStack(startPoint);
+      // iterator that allows iteration through all duplicate keys (if any)
+      private Iterator<T> currKeyListIterator = null;
+
+      /**
+       * Returns true if the iteration has more elements.
+       * @return true if the iteration has more elements
+       */
+      @Override
+      public boolean hasNext() {
+        return !stack.empty() || (currKeyListIterator != null && currKeyListIterator.hasNext());
+      }
+
+      /**
+       * Returns the next element in the iteration.
+       * @return the next element in the iteration
+       * @throws NoSuchElementException if the iteration has no more elements
+       */
+      @Override
+      public T next() throws NoSuchElementException {
+        if (!this.hasNext()) {
+          throw new NoSuchElementException();
+        }
+        /* when the current keyList is used up, move on to the node on top of the stack and push
+           the path from its left child to (and including) the largest key in that subtree */
+        if (currKeyListIterator == null || !currKeyListIterator.hasNext()) {
+          Node<KeyListInterface<T>> currNode = stack.pop();
+          currKeyListIterator = currNode.data.iterator();
+          currNode = currNode.down[0];
+          while (currNode != null) {
+            stack.push(currNode);
+            currNode = currNode.down[1];
+          }
+        }
+        return currKeyListIterator.next();
+      }
+    };
+  }
+
   /**
    * Sets the starting point for iterations. Future iterations will start at the starting point or
    * the key closest to it in the tree. This setting is remembered until it is reset. Passing in
@@ -182,6 +308,8 @@ public class IterableMultiKeyRBT<T extends Comparable<T>> extends RedBlackTree<K
   public void clear() {
     super.clear();
     numKeys = 0;
+    firstNode = null;
+    lastNode = null;
   }
 
   /**
@@ -328,6 +456,83 @@ public class IterableMultiKeyRBT<T extends Comparable<T>> extends RedBlackTree<K
     Assertions.assertEquals(8, i);
   }
 
+  /**
+   * This test tests first() and last() in the following three cases:
+   *    Case 1: Empty tree, which throws NoSuchElementException
+   *    Case 2: Keys inserted so that the smallest and largest keys change and rotations happen
+   *    Case 3: Tree cleared, which throws NoSuchElementException again
+   */
+  @Test
+  public void testFirstAndLast() {
+    IterableMultiKeyRBT<Double> tree = new IterableMultiKeyRBT<>();
+    // case 1: empty tree
+    Assertions.assertThrows(NoSuchElementException.class, () -> tree.first());
+    Assertions.assertThrows(NoSuchElementException.class, () -> tree.last());
+    // case 2: first and last are checked against the smallest and largest key inserted so far
+    double[] keys = new double[] {50.0, 40.0, 30.0, 60.0, 70.0, 30.0, 45.0, 80.0, 10.0, 80.0};
+    double smallest = Double.MAX_VALUE;
+    double largest = -Double.MAX_VALUE;
+    for (double key : keys) {
+      tree.insertSingleKey(key);
+      smallest = Math.min(smallest, key);
+      largest = Math.max(largest, key);
+      Assertions.assertEquals(smallest, tree.first());
+      Assertions.assertEquals(largest, tree.last());
+    }
+    // case 3: cleared tree
+    tree.clear();
+    Assertions.assertThrows(NoSuchElementException.class, () -> tree.first());
+    tree.insertSingleKey(5.0);
+    Assertions.assertEquals(5.0, tree.first());
+    Assertions.assertEquals(5.0, tree.last());
+  }
+
+  /**
+   * This test tests descendingIterator() in the following three cases:
+   *    Case 1: No start point, which iterates over all keys from largest to smallest
+   *    Case 2: A start point that isn't in the tree, which starts at the next smaller key
+   *    Case 3: A start point that is in the tree, which starts at (all duplicates of) that key
+   */
+  @Test
+  public void testDescendingIterator() {
+    IterableMultiKeyRBT<Double> tree = new IterableMultiKeyRBT<>();
+    Assertions.assertFalse(tree.descendingIterator().hasNext());
+    tree.insertSingleKey(23.9);
+    tree.insertSingleKey(942.3);
+    tree.insertSingleKey(88.8);
+    tree.insertSingleKey(53.4);
+    tree.insertSingleKey(88.8);
+    tree.insertSingleKey(53.4);
+    tree.insertSingleKey(121.8);
+    tree.insertSingleKey(831.1);
+    // the forward start point must not affect descending iterations
+    tree.setIterationStartPoint(100.0);
+    // case 1: no start point
+    Double[] expected1 = new Double[] {942.3, 831.1, 121.8, 88.8, 88.8, 53.4, 53.4, 23.9};
+    int i = 0;
+    Iterator<Double> it = tree.descendingIterator();
+    while (it.hasNext()) {
+      Assertions.assertEquals(expected1[i++], it.next());
+    }
+    Assertions.assertEquals(8, i);
+    Assertions.assertThrows(NoSuchElementException.class, () -> it.next());
+    // case 2: start point between 88.8 and 121.8
+    Double[] expected2 = new Double[] {88.8, 88.8, 53.4, 53.4, 23.9};
+    i = 0;
+    for (Iterator<Double> it2 = tree.descendingIterator(100.0); it2.hasNext();) {
+      Assertions.assertEquals(expected2[i++], it2.next());
+    }
+    Assertions.assertEquals(5, i);
+    // case 3: start point equal to a key, and one smaller than every key
+    Double[] expected3 = new Double[] {53.4, 53.4, 23.9};
+    i = 0;
+    for (Iterator<Double> it3 = tree.descendingIterator(53.4); it3.hasNext();) {
+      Assertions.assertEquals(expected3[i++], it3.next());
+    }
+    Assertions.assertEquals(3, i);
+    Assertions.assertFalse(tree.descendingIterator(1.0).hasNext());
+  }
+
   @Test
   public void testRubric1() {
     IterableMultiKeyRBT<Double> tree = new IterableMultiKeyRBT<>();
@@ -1,5 +1,11 @@
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 /**
  * Implements MapADT using an instance of java.util.HashMap.
@@ -45,6 +51,70 @@ public class PlaceholderMap<KeyType, ValueType> implements MapADT<KeyType, Value
         throw new NoSuchElementException("key " + key.toString() + " not in map");
     }
 
+    @Override
+    public ValueType getOrDefault(KeyType key, ValueType defaultValue) {
+        if (key == null)
+            throw new NullPointerException("null keys not allowed");
+        return baseMap.getOrDefault(key, defaultValue);
+    }
+
+    @Override
+    public ValueType removeIfPresent(KeyType key) {
+        if (key == null)
+            throw new NullPointerException("null keys not allowed");
+        return baseMap.remove(key);
+    }
+
+    @Override
+    public ValueType putIfAbsent(KeyType key, ValueType value) {
+        if (key == null)
+            throw new NullPointerException("null keys not allowed");
+        // java.util.HashMap treats a key mapped to null as absent, but MapADT doesn't
+        if (baseMap.containsKey(key))
+            return baseMap.get(key);
+        baseMap.put(key, value);
+        return null;
+    }
+
+    @Override
+    public ValueType compute(KeyType key,
+            BiFunction<? super KeyType, ? super ValueType, ? extends ValueType> remapping) {
+        if (key == null)
+            throw new NullPointerException("null keys not allowed");
+        return baseMap.compute(key, remapping);
+    }
+
+    @Override
+    public ValueType computeIfAbsent(KeyType key,
+            Function<? super KeyType, ? extends ValueType> mapping) {
+        if (key == null)
+            throw new NullPointerException("null keys not allowed");
+        if (baseMap.containsKey(key))
+            return baseMap.get(key);
+        ValueType newValue = mapping.apply(key);
+        if (newValue != null)
+            baseMap.put(key, newValue);
+        return newValue;
+    }
+
+    @Override
+    public ValueType merge(KeyType key, ValueType value,
+            BiFunction<? super ValueType, ? super ValueType, ? extends ValueType> remapping) {
+        if (key == null)
+            throw new NullPointerException("null keys not allowed");
+        // java.util.HashMap.merge rejects null values and ignores keys mapped to null
+        if (!baseMap.containsKey(key)) {
+            baseMap.put(key, value);
+            return value;
+        }
+        ValueType newValue = remapping.apply(baseMap.get(key), value);
+        if (newValue == null)
+            baseMap.remove(key);
+        else
+            baseMap.put(key, newValue);
+        return newValue;
+    }
+
     @Override
     public void clear() {
         baseMap.clear();
@@ -55,6 +125,16 @@ public class PlaceholderMap<KeyType, ValueType> implements MapADT<KeyType, Value
         return baseMap.size();
     }
 
+    @Override
+    public Iterator<Map.Entry<KeyType, ValueType>> entryIterator() {
+        return Collections.unmodifiableMap(baseMap).entrySet().iterator();
+    }
+
+    @Override
+    public Spliterator<Map.Entry<KeyType, ValueType>> entrySpliterator() {
+        return Collections.unmodifiableMap(baseMap).entrySet().spliterator();
+    }
+
     @Override
     public int getCapacity() {
         throw new UnsupportedOperationException("PlaceholderMap does not support the .getCapacity() method");
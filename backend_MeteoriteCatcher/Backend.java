@@ -1,6 +1,7 @@
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Scanner;
 
@@ -91,8 +92,8 @@ public class Backend implements BackendInterface {
   }
 
   /**
-   * This method iterates through the iterable redBlackTree  and returns a list of the meteorite
-   * object(s) with the highest mass
+   * This method iterates through the iterable redBlackTree from its largest key and returns a list
+   * of the meteorite object(s) with the highest mass
    *
    * @return list of meteorite object(s) with the highest mass in the provided tree
    * @throws IllegalStateException if the red black tree is empty when this method is called
@@ -105,19 +106,16 @@ public class Backend implements BackendInterface {
       throw new IllegalStateException("red black tree is empty");
     }
     ArrayList<MeteoriteObjectInterface> maxMeteoritesList = new ArrayList<>();
-    /* maxMeteorite saves the max meteorite found through the first iteration to set a start point
-     for the second iteration */
-    MeteoriteObjectInterface maxMeteorite = null;
-    for (MeteoriteObjectInterface meteorite : redBlackTree) {
-      maxMeteorite = meteorite;
-    }
-    /* should function as expected assuming that this will set the iteration point to the first
-     * meteorite with the same mass as the max, and not the max itself
-     */
-    redBlackTree.setIterationStartPoint(maxMeteorite);
-    /* add all elements because the iteration start point should be at the very first element with
-     max mass */
-    for (MeteoriteObjectInterface meteorite : redBlackTree) {
+    // last() finds a meteorite with the max mass without iterating through the tree
+    MeteoriteObjectInterface maxMeteorite = redBlackTree.last();
+    /* iterate from the heaviest meteorite down and stop at the first one that is lighter, so only
+       the meteorites with the max mass are visited */
+    Iterator<MeteoriteObjectInterface> descending = redBlackTree.descendingIterator();
+    while (descending.hasNext()) {
+      MeteoriteObjectInterface meteorite = descending.next();
+      if (meteorite.compareTo(maxMeteorite) != 0) {
+        break;
+      }
       maxMeteoritesList.add(meteorite);
     }
 
@@ -32,4 +32,34 @@ public interface IterableMultiKeySortedCollectionInterface<T extends Comparable<
      */
     public void setIterationStartPoint(Comparable<T> startPoint);
 
+    /**
+     * Returns the smallest key in the tree. When several keys compare equal to it, the one that was
+     * inserted first is returned.
+     * @return the smallest key in the tree
+     * @throws NoSuchElementException if the tree is empty
+     */
+    public T first();
+
+    /**
+     * Returns the largest key in the tree. When several keys compare equal to it, the one that was
+     * inserted first is returned.
+     * @return the largest key in the tree
+     * @throws NoSuchElementException if the tree is empty
+     */
+    public T last();
+
+    /**
+     * Returns an iterator that does a reverse in-order iteration over the tree, from the largest
+     * key to the smallest. It ignores the start point set by setIterationStartPoint.
+     */
+    public Iterator<T> descendingIterator();
+
+    /**
+     * Returns an iterator that does a reverse in-order iteration over the tree, starting at the
+     * start point or the key closest to it that is smaller. Passing in null starts at the largest
+     * key.
+     * @param startPoint the largest key to iterate over
+     */
+    public Iterator<T> descendingIterator(Comparable<T> startPoint);
+
 }
@@ -57,10 +57,8 @@ public class BaseGraph<NodeType, EdgeType extends Number> {
      * @throws NullPointerException if data is null
      */
     public boolean insertNode(NodeType data) {
-        if (nodes.containsKey(data))
-            return false; // throws NPE when data's null
-        nodes.put(data, new Node(data));
-        return true;
+        // putIfAbsent only adds the node when data isn't already in the graph
+        return nodes.putIfAbsent(data, new Node(data)) == null; // throws NPE when data's null
     }
 
     /**
@@ -74,9 +72,9 @@ public class BaseGraph<NodeType, EdgeType extends Number> {
      */
     public boolean removeNode(NodeType data) {
         // remove this node from nodes collection
-        if (!nodes.containsKey(data))
-            return false; // throws NPE when data==null
-        Node oldNode = nodes.remove(data);
+        Node oldNode = nodes.removeIfPresent(data); // throws NPE when data==null
+        if (oldNode == null)
+            return false;
         // remove all edges entering neighboring nodes from this one
         for (Edge edge : oldNode.edgesLeaving)
             edge.successor.edgesEntering.remove(edge);
@@ -119,15 +117,15 @@ public class BaseGraph<NodeType, EdgeType extends Number> {
      */
     public boolean insertEdge(NodeType pred, NodeType succ, EdgeType weight) {
         // find nodes associated with node data, and return false when not found
-        Node predNode = nodes.get(pred);
-        Node succNode = nodes.get(succ);
+        Node predNode = nodes.getOrNull(pred);
+        Node succNode = nodes.getOrNull(succ);
         if (predNode == null || succNode == null)
             return false;
-        try {
+        Edge existingEdge = findEdge(predNode, succ);
+        if (existingEdge != null) {
             // when an edge alread exists within the graph, update its weight
-            Edge existingEdge = getEdgeHelper(pred, succ);
             existingEdge.data = weight;
-        } catch (NoSuchElementException e) {
+        } else {
             // otherwise create a new edges
             Edge newEdge = new Edge(weight, predNode, succNode);
             this.edgeCount++;
@@ -147,19 +145,17 @@ public class BaseGraph<NodeType, EdgeType extends Number> {
      *         false if such an edge is not found in the graph
      */
     public boolean removeEdge(NodeType pred, NodeType succ) {
-        try {
-            // when an edge exists
-            Edge oldEdge = getEdgeHelper(pred, succ);
-            // remove it from the edge lists of each adjacent node
-            oldEdge.predecessor.edgesLeaving.remove(oldEdge);
-            oldEdge.successor.edgesEntering.remove(oldEdge);
-            // and decrement the edge count before removing
-            this.edgeCount--;
-            return true;
-        } catch (NoSuchElementException e) {
+        Edge oldEdge = findEdge(nodes.getOrNull(pred), succ);
+        if (oldEdge == null) {
             // when no such edge exists, return false instead
             return false;
         }
+        // when an edge exists, remove it from the edge lists of each adjacent node
+        oldEdge.predecessor.edgesLeaving.remove(oldEdge);
+        oldEdge.successor.edgesEntering.remove(oldEdge);
+        // and decrement the edge count before removing
+        this.edgeCount--;
+        return true;
     }
 
     /**
@@ -170,12 +166,7 @@ public class BaseGraph<NodeType, EdgeType extends Number> {
      * @return true if the edge is found in the graph, or false other
      */
     public boolean containsEdge(NodeType pred, NodeType succ) {
-        try {
-            getEdgeHelper(pred, succ);
-            return true;
-        } catch (NoSuchElementException e) {
-            return false;
-        }
+        return findEdge(nodes.getOrNull(pred), succ) != null;
     }
 
     /**
@@ -192,15 +183,30 @@ public class BaseGraph<NodeType, EdgeType extends Number> {
     }
 
     protected Edge getEdgeHelper(NodeType pred, NodeType succ) {
-        Node predNode = nodes.get(pred);
+        Edge edge = findEdge(nodes.getOrNull(pred), succ);
+        // when no such edge can be found, throw NSE
+        if (edge == null)
+            throw new NoSuchElementException("No edge from " + pred.toString() + " to " +
+                    succ.toString());
+        return edge;
+    }
+
+    /**
+     * Search the edges leaving a node for the one entering the node with data succ.
+     * 
+     * @param predNode the source node for the edge, or null if it is not in the graph
+     * @param succ     the data item contained in the target node for the edge
+     * @return the edge from predNode to succ, or null if there is no such edge
+     */
+    protected Edge findEdge(Node predNode, NodeType succ) {
+        if (predNode == null)
+            return null;
         // search for edge through the predecessor's list of leaving edges
         for (Edge edge : predNode.edgesLeaving)
             // compare succ to the data in each leaving edge's successor
             if (edge.successor.data.equals(succ))
                 return edge;
-        // when no such edge can be found, throw NSE
-        throw new NoSuchElementException("No edge from " + pred.toString() + " to " +
-                succ.toString());
+        return null;
     }
 
     /**
@@ -73,7 +73,8 @@ public class DijkstraGraph<NodeType, EdgeType extends Number>
      */
     protected SearchNode computeShortestPath(NodeType start, NodeType end) {
         // if start or end do not correspond to a graph node, throw NoSuchElementException
-        if (!containsNode(start) || !containsNode(end)) {
+        Node startNode = nodes.getOrNull(start);
+        if (startNode == null || !containsNode(end)) {
             throw new NoSuchElementException(
                 start + " or " +  end + " data does not correspond to existing graph nodes.");
         }
@@ -83,7 +84,7 @@ public class DijkstraGraph<NodeType, EdgeType extends Number>
         // reaching them from the start node)
         PlaceholderMap<Node, SearchNode> visitedNodes = new PlaceholderMap<>();
         // insert the start node into priority queue
-        runningPaths.add(new SearchNode(nodes.get(start), 0.0, null));
+        runningPaths.add(new SearchNode(startNode, 0.0, null));
         while (!runningPaths.isEmpty()) {
             SearchNode current = runningPaths.poll();
             // if the node polled from pqueue is the end node, then no need to continue, so return
@@ -92,8 +93,7 @@ public class DijkstraGraph<NodeType, EdgeType extends Number>
                 return current;
             }
             // if the current node hasn't already been visited, then add current to visitedNodes map
-            else if (!visitedNodes.containsKey(current.node)) {
-                visitedNodes.put(current.node, current);
+            else if (visitedNodes.putIfAbsent(current.node, current) == null) {
                 // for each successor that this node is directed to, add that successor to the
                 // pqueue if it hasn't already been visited (found shortest path for)
                 for (Edge edge : current.node.edgesLeaving) {
@@ -343,4 +343,25 @@ public class DijkstraGraph<NodeType, EdgeType extends Number>
             Assertions.fail(); // fail if different exception was thrown
         }
     }
+
+    /**
+     * This test checks that edges to or from nodes that aren't in the graph are reported through
+     * return values (false) rather than exceptions, and that removed nodes and edges are gone
+     */
+    @Test
+    public void checkMissingNodesAndEdges() {
+        DijkstraGraph<String, Integer> graph = new DijkstraGraph<>(new PlaceholderMap<>());
+        graph.insertNode("A");
+        graph.insertNode("B");
+        Assertions.assertTrue(graph.insertEdge("A", "B", 1));
+        Assertions.assertFalse(graph.insertEdge("A", "C", 1));
+        Assertions.assertFalse(graph.insertEdge("C", "A", 1));
+        Assertions.assertFalse(graph.containsEdge("C", "A"));
+        Assertions.assertFalse(graph.removeEdge("B", "A"));
+        Assertions.assertFalse(graph.removeNode("C"));
+        Assertions.assertTrue(graph.removeNode("B"));
+        Assertions.assertFalse(graph.containsEdge("A", "B"));
+        Assertions.assertThrows(NoSuchElementException.class,
+            () -> graph.shortestPathCost("A", "B"));
+    }
 }